@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package nifi.arcgis.processor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.nifi.serialization.RecordReaderFactory;
+
+import nifi.arcgis.processor.utility.ParallelChunkParser;
+import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+import nifi.arcgis.service.arcgis.services.RecordBatch;
+
+/**
+ * Configuration of {@link PutArcGIS}, read once when the processor is scheduled.
+ * <br/>It is immutable : the concurrent tasks of the processor share it without any synchronization,
+ * and a task reads it once, so it works with the same configuration from the start to the end of a flowFile.
+ */
+final class Configuration {
+
+	/**
+	 * Type of file : JSON, CSV, ATTRIBUTE or RECORD
+	 */
+	final String typeOfFile;
+
+	/**
+	 * The character set of the INPUT data
+	 */
+	final String charSetName;
+
+	/**
+	 * <code>true</code> if the records are sent while the flowFile is parsed
+	 */
+	final boolean streaming;
+
+	/**
+	 * Maximum number of records sent to the processorService in a block
+	 */
+	final int quotity;
+
+	/**
+	 * Maximum number of blocks in flight to the processorService
+	 */
+	final int pipelineDepth;
+
+	/**
+	 * Maximum number of flowFiles taken per trigger in ATTRIBUTE mode
+	 */
+	final int attributeBatchSize;
+
+	/**
+	 * Maximum number of records gathered from successive flowFiles in one batch, <code>0</code> if disabled
+	 */
+	final int microBatchRecords;
+
+	/**
+	 * Maximum size of the flowFiles gathered in one batch, in bytes
+	 */
+	final long microBatchBytes;
+
+	/**
+	 * Fields list to parse and send to the processor service the the data operation
+	 */
+	final List<String> fields;
+
+	/**
+	 * List of fields involved in the <b>update</b> order, a subset of fields
+	 */
+	final List<String> fieldsToUpdate;
+
+	/**
+	 * Settings of the data operation, sent to the processorService with each block
+	 */
+	final Map<String, Object> settings;
+
+	/**
+	 * The ArcGIS controller service
+	 */
+	final ArcGISLayerServiceAPI service;
+
+	/**
+	 * The reader of the flowFiles in RECORD mode, <code>null</code> otherwise
+	 */
+	final RecordReaderFactory recordReader;
+
+	/**
+	 * The parser of the CSV chunks in parallel, <code>null</code> if the CSV flowFiles are parsed by the task itself
+	 */
+	final ParallelChunkParser<RecordBatch> chunkParser;
+
+	/**
+	 * The executor shared by the pipelines of the blocks, <code>null</code> if the pipeline is disabled
+	 */
+	final ExecutorService pipelineExecutor;
+
+	/**
+	 * Construction.
+	 * @param typeOfFile type of file
+	 * @param charSetName the character set of the INPUT data
+	 * @param streaming <code>true</code> if the records are sent while the flowFile is parsed
+	 * @param quotity maximum number of records in a block
+	 * @param pipelineDepth maximum number of blocks in flight
+	 * @param attributeBatchSize maximum number of flowFiles taken per trigger in ATTRIBUTE mode
+	 * @param microBatchRecords maximum number of records gathered in one batch, <code>0</code> if disabled
+	 * @param microBatchBytes maximum size of the flowFiles gathered in one batch, in bytes
+	 * @param fields fields list to parse
+	 * @param fieldsToUpdate list of fields involved in the update order
+	 * @param settings settings of the data operation
+	 * @param service the ArcGIS controller service
+	 * @param recordReader the reader of the flowFiles in RECORD mode, <code>null</code> otherwise
+	 * @param chunkParser the parser of the CSV chunks in parallel, <code>null</code> if disabled
+	 * @param pipelineExecutor the executor shared by the pipelines of the blocks, <code>null</code> if disabled
+	 */
+	Configuration(final String typeOfFile, final String charSetName, final boolean streaming, final int quotity,
+			final int pipelineDepth, final int attributeBatchSize, final int microBatchRecords,
+			final long microBatchBytes, final List<String> fields, final List<String> fieldsToUpdate,
+			final Map<String, Object> settings, final ArcGISLayerServiceAPI service,
+			final RecordReaderFactory recordReader, final ParallelChunkParser<RecordBatch> chunkParser,
+			final ExecutorService pipelineExecutor) {
+		this.typeOfFile = typeOfFile;
+		this.charSetName = charSetName;
+		this.streaming = streaming;
+		this.quotity = quotity;
+		this.pipelineDepth = pipelineDepth;
+		this.attributeBatchSize = attributeBatchSize;
+		this.microBatchRecords = microBatchRecords;
+		this.microBatchBytes = microBatchBytes;
+		this.fields = Collections.unmodifiableList(fields);
+		this.fieldsToUpdate = Collections.unmodifiableList(fieldsToUpdate);
+		this.settings = Collections.unmodifiableMap(settings);
+		this.service = service;
+		this.recordReader = recordReader;
+		this.chunkParser = chunkParser;
+		this.pipelineExecutor = pipelineExecutor;
+	}
+
+	/**
+	 * @param layer
+	 *            the layer targeted by a flowFile, <code>null</code> or empty for the layer of the service
+	 * @return this configuration, with the layer targeted in its settings
+	 */
+	Configuration withLayer(final String layer) {
+		if ((layer == null) || layer.isEmpty()) {
+			return this;
+		}
+		final Map<String, Object> targetSettings = new HashMap<String, Object>(settings);
+		targetSettings.put(ArcGISLayerServiceAPI.LAYER, layer);
+		return new Configuration(typeOfFile, charSetName, streaming, quotity, pipelineDepth, attributeBatchSize,
+				microBatchRecords, microBatchBytes, fields, fieldsToUpdate, targetSettings, service,
+				recordReader, chunkParser, pipelineExecutor);
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ *
+ */
+package nifi.arcgis.processor;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.nifi.flowfile.FlowFile;
+
+/**
+ * Records of successive small flowFiles, gathered in one batch sent to the processorService.
+ * <br/>The batch keeps the range of the records of each flowFile. It is sent by blocks of <code>QUOTITY</code> records :
+ * a flowFile succeeds if all the blocks holding its records have been processed, whatever the result of the
+ * blocks of the other flowFiles.
+ */
+class MicroBatch {
+
+	/**
+	 * FlowFiles of the batch, in their order of arrival
+	 */
+	final List<FlowFile> flowFiles = new ArrayList<FlowFile>();
+
+	/**
+	 * Records of the flowFiles, in the order of the flowFiles
+	 */
+	final List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+
+	/**
+	 * Index of the first record of each flowFile
+	 */
+	private final List<Integer> starts = new ArrayList<Integer>();
+
+	/**
+	 * Add the records of a flowFile.
+	 * @param flowFile the flowFile
+	 * @param flowFileRecords the records parsed from this flowFile
+	 */
+	void add(final FlowFile flowFile, final List<Map<String, String>> flowFileRecords) {
+		flowFiles.add(flowFile);
+		starts.add(records.size());
+		records.addAll(flowFileRecords);
+	}
+
+	/**
+	 * @param index index of the flowFile in the batch
+	 * @param processed the blocks processed, by index
+	 * @param blockSize number of records in a block
+	 * @return <code>true</code> if all the blocks holding the records of the flowFile have been processed
+	 */
+	boolean isProcessed(final int index, final BitSet processed, final int blockSize) {
+		final int start = starts.get(index);
+		final int end = (index + 1 < starts.size()) ? starts.get(index + 1) : records.size();
+		if (start == end) {
+			return true;
+		}
+		return processed.nextClearBit(start / blockSize) > (end - 1) / blockSize;
+	}
+}
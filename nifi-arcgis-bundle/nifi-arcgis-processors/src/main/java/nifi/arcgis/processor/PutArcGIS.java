@@ -24,9 +24,11 @@ import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_REFERENCE_WGS84;
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.TYPE_OF_QUERY;
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.TYPE_OF_QUERY_GEO;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.TYPE_OF_QUERY_GEO_BATCH;
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.UPDATE_FIELD_LIST;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -34,46 +36,72 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
+import javax.management.JMException;
+
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.nifi.annotation.behavior.ReadsAttribute;
 import org.apache.nifi.annotation.behavior.ReadsAttributes;
+import org.apache.nifi.annotation.behavior.TriggerWhenEmpty;
 import org.apache.nifi.annotation.behavior.WritesAttribute;
 import org.apache.nifi.annotation.behavior.WritesAttributes;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.SeeAlso;
 import org.apache.nifi.annotation.documentation.Tags;
 import org.apache.nifi.annotation.lifecycle.OnScheduled;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.components.ValidationContext;
 import org.apache.nifi.components.ValidationResult;
 import org.apache.nifi.flowfile.FlowFile;
 import org.apache.nifi.logging.ComponentLog;
-import org.apache.nifi.processor.AbstractProcessor;
+import org.apache.nifi.processor.AbstractSessionFactoryProcessor;
+import org.apache.nifi.processor.DataUnit;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.ProcessSessionFactory;
 import org.apache.nifi.processor.ProcessorInitializationContext;
 import org.apache.nifi.processor.Relationship;
 import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.util.StandardValidators;
-
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-
-import nifi.arcgis.processor.utility.CsvManager;
-import nifi.arcgis.processor.utility.FileManager;
+import org.apache.nifi.schema.access.SchemaNotFoundException;
+import org.apache.nifi.serialization.MalformedRecordException;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.RecordReaderFactory;
+import org.apache.nifi.serialization.record.Record;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import nifi.arcgis.processor.utility.BatchUpdateAggregator;
+import nifi.arcgis.processor.utility.BlockPipeline;
+import nifi.arcgis.processor.utility.CsvTokenizer;
+import nifi.arcgis.processor.utility.LineScanner;
+import nifi.arcgis.processor.utility.ParallelChunkParser;
+import nifi.arcgis.processor.utility.RecordBatcher;
+import nifi.arcgis.processor.utility.RecordBlocks;
+import nifi.arcgis.processor.utility.RecordUpdateAggregator;
 import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+import nifi.arcgis.service.arcgis.services.ColumnType;
+import nifi.arcgis.service.arcgis.services.PhaseMetrics;
+import nifi.arcgis.service.arcgis.services.PhaseMetrics.Phase;
+import nifi.arcgis.service.arcgis.services.RecordBatch;
 
 /**
  * Processor for ArcGIS ).
@@ -85,13 +113,15 @@ import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
 @SeeAlso({})
 @ReadsAttributes({ @ReadsAttribute(attribute = "", description = "") })
 @WritesAttributes({ @WritesAttribute(attribute = "", description = "") })
-public class PutArcGIS extends AbstractProcessor {
+@TriggerWhenEmpty
+public class PutArcGIS extends AbstractSessionFactoryProcessor {
 
 	private final static int QUOTITY_DEFAULT = 5000;
 
 	private final static String JSON = "JSON";
 	private final static String CSV = "CSV";
 	private final static String ATTRIBUTE = "Attribute";
+	private final static String RECORD = "Record";
 
 	private final static String DEFAULT_CHARACTER_SET = "UTF-8";
 
@@ -100,9 +130,16 @@ public class PutArcGIS extends AbstractProcessor {
 			.identifiesControllerService(nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.class).build();
 
 	public static final PropertyDescriptor TYPE_OF_FILE = new PropertyDescriptor.Builder().name("Type of file")
-			.description("Type of file to import into ArcGIS\nCSV files require a header with the target column name")
-			.required(true).allowableValues(CSV, JSON, ATTRIBUTE).addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
-			.build();
+			.description("Type of file to import into ArcGIS\nCSV files require a header with the target column name\n"
+					+ "A CSV FlowFile may start with the same header line, which is then skipped. "
+					+ "An empty numeric value is sent as null.")
+			.required(true).allowableValues(CSV, JSON, ATTRIBUTE, RECORD)
+			.addValidator(StandardValidators.NON_EMPTY_VALIDATOR).build();
+
+	public static final PropertyDescriptor RECORD_READER = new PropertyDescriptor.Builder().name("Record Reader")
+			.description("The Record Reader reading the FlowFiles in " + RECORD + " mode (Avro, CSV, JSON...). "
+					+ "The values are sent with their native type, without being parsed again from a text.")
+			.identifiesControllerService(RecordReaderFactory.class).required(false).build();
 
 	public static final PropertyDescriptor SPATIAL_REFERENCE = new PropertyDescriptor.Builder()
 			.name("Spatial reference").description("Type of spatial reference if necessary")
@@ -132,6 +169,79 @@ public class PutArcGIS extends AbstractProcessor {
 					+ "FOR JSON file : If this field is empty, all fields present in the JSON file are candidate for edition")
 			.addValidator(StandardValidators.FILE_EXISTS_VALIDATOR).required(false).build();
 
+	public static final PropertyDescriptor STREAMING_MODE = new PropertyDescriptor.Builder().name("Streaming mode")
+			.description("If true, the records are sent to the ArcGIS server by blocks of \"Quotity\" elements while the FlowFile is parsed, "
+					+ "instead of loading the whole FlowFile in memory first.\n"
+					+ "The update optimization is then applied block by block.")
+			.allowableValues("true", "false").defaultValue("false").required(true).build();
+
+	public static final PropertyDescriptor PIPELINE_DEPTH = new PropertyDescriptor.Builder().name("Pipeline depth")
+			.description("Maximum number of blocks of \"Quotity\" records in flight against the ArcGIS server. "
+					+ "Beyond 1, the next blocks are prepared while the previous ones are sent.\n"
+					+ "The blocks of an INSERT are sent in parallel, the blocks of an EDIT are sent one at a time.")
+			.defaultValue("1").addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).required(true).build();
+
+	public static final PropertyDescriptor SPATIAL_LOOKUP = new PropertyDescriptor.Builder().name("Spatial lookup")
+			.description("Search of the feature to EDIT for each record.\n"
+					+ TYPE_OF_QUERY_GEO + " : one geo-query per record.\n"
+					+ TYPE_OF_QUERY_GEO_BATCH + " : the features around each block of \"Quotity\" records are loaded with a few queries, "
+					+ "and the nearest feature of each record is searched locally.")
+			.allowableValues(TYPE_OF_QUERY_GEO, TYPE_OF_QUERY_GEO_BATCH).defaultValue(TYPE_OF_QUERY_GEO).required(true).build();
+
+	public static final PropertyDescriptor AGGREGATION_WINDOW = new PropertyDescriptor.Builder().name("Aggregation window")
+			.description("Duration during which the additive updates (+field, -field) of successive FlowFiles are aggregated, "
+					+ "before being sent to the ArcGIS server in one merged batch. "
+					+ "The FlowFiles are held until their window is sent, and are delivered again if the processor stops before.\n"
+					+ "0 sec disables the aggregation across FlowFiles. The records of a window are not streamed.")
+			.defaultValue("0 sec").addValidator(StandardValidators.TIME_PERIOD_VALIDATOR).required(true).build();
+
+	public static final PropertyDescriptor AGGREGATION_WINDOW_SIZE = new PropertyDescriptor.Builder()
+			.name("Aggregation window size")
+			.description("Maximum number of FlowFiles held in an aggregation window. The window is sent as soon as it is reached.")
+			.defaultValue("1000").addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).required(true).build();
+
+	public static final PropertyDescriptor TARGET_LAYER = new PropertyDescriptor.Builder().name("Target layer")
+			.description("Layer receiving the records of a FlowFile, among the layers of the server of the ArcGIS service : "
+					+ "\"layer\" on the FeatureServer of the service, or \"featureServer/layer\" (ex: ${region}).\n"
+					+ "If empty, the records are sent to the layer of the service. "
+					+ "The FlowFiles targeting a layer are not aggregated across FlowFiles.")
+			.expressionLanguageSupported(true).addValidator(StandardValidators.ATTRIBUTE_EXPRESSION_LANGUAGE_VALIDATOR)
+			.required(false).build();
+
+	public static final PropertyDescriptor ATTRIBUTE_BATCH_SIZE = new PropertyDescriptor.Builder()
+			.name("Attribute batch size")
+			.description("Maximum number of FlowFiles taken per trigger in " + ATTRIBUTE + " mode. "
+					+ "The attributes of these FlowFiles are sent to the ArcGIS server in one edit batch, "
+					+ "by blocks of \"Quotity\" records.")
+			.defaultValue("1000").addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).required(true).build();
+
+	public static final PropertyDescriptor MICRO_BATCH_RECORDS = new PropertyDescriptor.Builder()
+			.name("Micro-batch records")
+			.description("Number of records from which successive " + CSV + " or " + JSON + " FlowFiles stop being gathered "
+					+ "in one trigger. The records of the FlowFiles gathered are sent to the ArcGIS server in one batch, "
+					+ "by blocks of \"Quotity\" records, and each FlowFile is routed on the result of the blocks holding its records.\n"
+					+ "0 disables the micro-batching. The FlowFiles are not gathered in streaming mode.")
+			.defaultValue("0").addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR).required(true).build();
+
+	public static final PropertyDescriptor MICRO_BATCH_SIZE = new PropertyDescriptor.Builder()
+			.name("Micro-batch size")
+			.description("Size of the content from which successive FlowFiles stop being gathered in one trigger (ex: 1 MB).")
+			.defaultValue("1 MB").addValidator(StandardValidators.DATA_SIZE_VALIDATOR).required(true).build();
+
+	public static final PropertyDescriptor PARSING_THREADS = new PropertyDescriptor.Builder()
+			.name("Parsing threads")
+			.description("Number of threads parsing a " + CSV + " FlowFile in streaming mode. Beyond 1, the FlowFile is cut "
+					+ "into chunks of \"Parsing chunk size\" aligned on the lines, and the chunks are parsed in parallel. "
+					+ "The blocks of an " + OPERATION_INSERT + " are sent in the order of completion of the chunks, "
+					+ "the blocks of an update in the order of the FlowFile.\n"
+					+ "The character set must encode the line feed on one byte (UTF-8, ISO-8859-1...).")
+			.defaultValue("1").addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).required(true).build();
+
+	public static final PropertyDescriptor PARSING_CHUNK_SIZE = new PropertyDescriptor.Builder()
+			.name("Parsing chunk size")
+			.description("Size of the chunks of a CSV FlowFile parsed in parallel (ex: 4 MB).")
+			.defaultValue("4 MB").addValidator(StandardValidators.DATA_SIZE_VALIDATOR).required(true).build();
+
 	public static final Relationship SUCCESS = new Relationship.Builder().name("SUCCESS")
 			.description("Success relationship").build();
 
@@ -143,46 +253,43 @@ public class PutArcGIS extends AbstractProcessor {
 	private Set<Relationship> relationships;
 
 	/**
-	 * Fields list to parse and send to the processor service the the data
-	 * operation
-	 */
-	List<String> fields;
-
-	/**
-	 * List of fields involved in the <b>update</b> order. updateFieldList is a
-	 * subset of fields
+	 * Configuration read when the processor is scheduled, shared by its concurrent tasks
 	 */
-	List<String> fieldsToUpdate = new ArrayList<String>();
+	volatile Configuration configuration;
 
 	/**
-	 * The character set of the INPUT data, or an empty string if this property
-	 * is not setup
+	 * Aggregation window across the flowFiles, or <code>null</code> if the flowFiles are processed one by one
 	 */
-	public String charSetIn;
+	private volatile UpdateWindow window;
 
 	/**
-	 * The character set of the OUTPUT data, or an empty string if this property
-	 * is not setup
+	 * Clock of the aggregation windows, in nanoseconds
 	 */
-	public String charSetOut;
-
-	/**
-	 * Counter declared as a field inside the class in order to be used and
-	 * modified inside lambda expression
-	 */
-	private int counter = 0;
+	LongSupplier clock = System::nanoTime;
 
 	@Override
 	protected void init(final ProcessorInitializationContext context) {
 		final List<PropertyDescriptor> descriptors = new ArrayList<PropertyDescriptor>();
 		descriptors.add(ARCGIS_SERVICE);
 		descriptors.add(TYPE_OF_FILE);
+		descriptors.add(RECORD_READER);
 		descriptors.add(SPATIAL_REFERENCE);
 		descriptors.add(QUOTITY);
 		descriptors.add(CHARACTER_SET_IN);
 		descriptors.add(TYPE_OF_DATA_OPERATION);
 		descriptors.add(FIELD_LIST_INSERT);
 		descriptors.add(FIELD_LIST_UPDATE);
+		descriptors.add(STREAMING_MODE);
+		descriptors.add(PIPELINE_DEPTH);
+		descriptors.add(SPATIAL_LOOKUP);
+		descriptors.add(AGGREGATION_WINDOW);
+		descriptors.add(AGGREGATION_WINDOW_SIZE);
+		descriptors.add(TARGET_LAYER);
+		descriptors.add(ATTRIBUTE_BATCH_SIZE);
+		descriptors.add(MICRO_BATCH_RECORDS);
+		descriptors.add(MICRO_BATCH_SIZE);
+		descriptors.add(PARSING_THREADS);
+		descriptors.add(PARSING_CHUNK_SIZE);
 		this.descriptors = Collections.unmodifiableList(descriptors);
 
 		final Set<Relationship> relationships = new HashSet<Relationship>();
@@ -203,7 +310,60 @@ public class PutArcGIS extends AbstractProcessor {
 
 	@OnScheduled
 	public void onScheduled(final ProcessContext context) {
+		try {
+			metrics.register(getIdentifier());
+		} catch (final JMException e) {
+			getLogger().warn("Cannot register the metrics MBeans : " + e.getMessage());
+		}
+		final Configuration configuration;
+		try {
+			configuration = configure(context);
+		} catch (final Exception e) {
+			throw new ProcessException("Cannot read the configuration : " + e.getMessage(), e);
+		}
+		this.configuration = configuration;
+		window = null;
+		final long duration = context.getProperty(AGGREGATION_WINDOW).asTimePeriod(TimeUnit.NANOSECONDS);
+		if (duration == 0) {
+			return;
+		}
+		if (context.getProperty(TARGET_LAYER).isSet()) {
+			getLogger().warn("The aggregation window only applies to the layer of the service : the FlowFiles are processed one by one");
+			return;
+		}
+		final Map<String, Object> settings = configuration.settings;
+		if (!isOptimizable(settings)) {
+			getLogger().warn("The aggregation window only applies to additive updates : the FlowFiles are processed one by one");
+			return;
+		}
+		window = new UpdateWindow(getUpdateFields(settings), context.getProperty(AGGREGATION_WINDOW_SIZE).asInteger(),
+				duration, clock);
+	}
 
+	/**
+	 * Release the threads of the parsers and of the pipelines,
+	 * and roll back the flowFiles held in the aggregation window, to deliver them again.
+	 */
+	@OnStopped
+	public void onStopped() {
+		final Configuration configuration = this.configuration;
+		if ((configuration != null) && (configuration.chunkParser != null)) {
+			configuration.chunkParser.close();
+		}
+		if ((configuration != null) && (configuration.pipelineExecutor != null)) {
+			configuration.pipelineExecutor.shutdown();
+		}
+		final UpdateWindow window = this.window;
+		this.window = null;
+		if ((window != null) && !window.isEmpty()) {
+			window.close().rollback();
+		}
+		getLogger().info("Phases executed :\n" + metrics);
+		try {
+			metrics.unregister();
+		} catch (final JMException e) {
+			getLogger().warn("Cannot unregister the metrics MBeans : " + e.getMessage());
+		}
 	}
 
 	@Override
@@ -213,11 +373,16 @@ public class PutArcGIS extends AbstractProcessor {
 			final String charSetName = validationContext.getProperty(CHARACTER_SET_IN).getValue();
 
 			final String fieldListInsert = validationContext.getProperty(FIELD_LIST_INSERT).getValue();
-			fields = parseHeader(fieldListInsert, charSetName);
+			parseHeader(fieldListInsert, charSetName);
 
 			final String updateFieldsFilename = validationContext.getProperty(FIELD_LIST_UPDATE).getValue();
 			if ((updateFieldsFilename != null) && (updateFieldsFilename.length() > 0)) {
-				fieldsToUpdate = parseHeader(updateFieldsFilename, charSetName);
+				parseHeader(updateFieldsFilename, charSetName);
+			}
+
+			if (RECORD.equals(validationContext.getProperty(TYPE_OF_FILE).getValue())
+					&& !validationContext.getProperty(RECORD_READER).isSet()) {
+				throw new IllegalArgumentException(RECORD_READER.getName() + " is required in " + RECORD + " mode");
 			}
 
 			return super.customValidate(validationContext);
@@ -231,33 +396,82 @@ public class PutArcGIS extends AbstractProcessor {
 		}
 	}
 
-	private Watch chrono = null;
-		
+	/**
+	 * Timers of the phases executed by the processor
+	 */
+	final PhaseMetrics metrics = new PhaseMetrics();
+
 	@Override
+	public void onTrigger(final ProcessContext context, final ProcessSessionFactory sessionFactory)
+			throws ProcessException {
+		final Configuration configuration = this.configuration;
+		final UpdateWindow window = this.window;
+		if (window != null) {
+			onTriggerWindow(context, configuration, sessionFactory, window);
+			return;
+		}
+		final ProcessSession session = sessionFactory.createSession();
+		try {
+			onTrigger(context, configuration, session);
+			publishMetrics(context, session);
+			session.commit();
+		} catch (final Throwable t) {
+			session.rollback(true);
+			throw t;
+		}
+	}
+
 	public void onTrigger(final ProcessContext context, final ProcessSession session) throws ProcessException {
+		onTrigger(context, this.configuration, session);
+	}
+
+	/**
+	 * Process a flowFile with the configuration read when the processor has been scheduled.
+	 * 
+	 * @param context
+	 *            the current flow context
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param session
+	 *            the current session context
+	 * @throws ProcessException
+	 */
+	private void onTrigger(final ProcessContext context, final Configuration configuration,
+			final ProcessSession session) throws ProcessException {
+
+		if (ATTRIBUTE.equals(configuration.typeOfFile)) {
+			handleAttributeFlows(context, configuration, session);
+			return;
+		}
+		if ((configuration.microBatchRecords > 0) && !configuration.streaming) {
+			handleMicroBatch(context, configuration, session);
+			return;
+		}
 
 		final FlowFile flowFile = session.get();
 		if (flowFile == null) {
+			context.yield();
 			return;
 		}
 
 		AtomicReference<List<Map<String, String>>> ref_dataParsed = new AtomicReference<List<Map<String, String>>>();
 		ref_dataParsed.set(new ArrayList<Map<String, String>>());
 		try {
-			final String typeOfFile = context.getProperty(TYPE_OF_FILE).getValue();
+			final Configuration target = configuration
+					.withLayer(context.getProperty(TARGET_LAYER).evaluateAttributeExpressions(flowFile).getValue());
+			final String typeOfFile = target.typeOfFile;
 			if (JSON.equals(typeOfFile)) {
-				handleJSONFlow(flowFile, context, session, ref_dataParsed);
+				handleJSONFlow(flowFile, target, session, ref_dataParsed);
 			}
 
 			if (CSV.equals(typeOfFile)) {
-				handleCSVFlow(flowFile, context, session, ref_dataParsed);
+				handleCSVFlow(flowFile, target, session, ref_dataParsed);
 			}
 
-			if (ATTRIBUTE.equals(typeOfFile)) {
-				throw new RuntimeException("Not implemented yet!");
+			if (RECORD.equals(typeOfFile)) {
+				handleRecordFlow(flowFile, target, session);
 			}
 
-
 		} catch (Exception e) {
 			getLogger().error(ExceptionUtils.getStackTrace(e));
 			session.transfer(flowFile, FAILED);
@@ -265,11 +479,172 @@ public class PutArcGIS extends AbstractProcessor {
 	}
 
 	/**
-	 * Parse the <b><big>JSON</big></b> Flow and save it in an atomic reference.
+	 * Aggregate the flowFile received into the aggregation window, and send the window if it is due.
+	 * <br/>The session of the flowFile is committed only when its window is sent.
 	 * 
-	 * @param flowFile current flowFile treated
 	 * @param context
 	 *            the current flow context
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param sessionFactory
+	 *            the factory of the sessions, one session per flowFile held
+	 * @param window
+	 *            the current aggregation window
+	 */
+	private void onTriggerWindow(final ProcessContext context, final Configuration configuration,
+			final ProcessSessionFactory sessionFactory, final UpdateWindow window) {
+
+		final ProcessSession session = sessionFactory.createSession();
+		final FlowFile flowFile = session.get();
+		if (flowFile != null) {
+			try {
+				final List<Map<String, String>> records = parseRecords(flowFile, configuration, session);
+				final long start = PhaseMetrics.start();
+				window.add(session, flowFile, records);
+				metrics.record(Phase.AGGREGATION, start, records.size());
+			} catch (final Exception e) {
+				getLogger().error(ExceptionUtils.getStackTrace(e));
+				session.transfer(flowFile, FAILED);
+				session.commit();
+			}
+		} else {
+			session.commit();
+		}
+
+		final UpdateWindow.Content content = window.closeIfDue();
+		if (content != null) {
+			sendWindow(configuration, content);
+			final ProcessSession counters = sessionFactory.createSession();
+			publishMetrics(context, counters);
+			counters.commit();
+		} else if (flowFile == null) {
+			context.yield();
+		}
+	}
+
+	/**
+	 * Parse the whole content of a flowFile.
+	 * 
+	 * @param flowFile current flowFile treated
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param session
+	 *            the current session context
+	 * @return the records parsed
+	 * @throws ProcessException if the flowFile cannot be parsed
+	 */
+	private List<Map<String, String>> parseRecords(final FlowFile flowFile, final Configuration configuration,
+			final ProcessSession session) throws ProcessException {
+
+		final String typeOfFile = configuration.typeOfFile;
+		final long start = PhaseMetrics.start();
+		if (ATTRIBUTE.equals(typeOfFile)) {
+			final List<Map<String, String>> records = Collections.singletonList(parseAttributes(flowFile,
+					configuration.fields));
+			metrics.record(Phase.PARSE, start, 1);
+			return records;
+		}
+		final String charSetName = configuration.charSetName;
+		final List<String> fields = configuration.fields;
+		final Map<String, ColumnType> schema = CSV.equals(typeOfFile)
+				? configuration.service.getSchema(configuration.settings) : null;
+		final List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+		session.read(flowFile, (InputStream inputStream) -> {
+			if (JSON.equals(typeOfFile)) {
+				parseJSONStream(inputStream, charSetName, fields, records::add);
+			} else if (RECORD.equals(typeOfFile)) {
+				parseRecordStream(configuration.recordReader, flowFile, inputStream, fields, records::add);
+			} else {
+				parseCSVStream(inputStream, charSetName, fields, schema, records::add);
+			}
+		});
+		metrics.record(Phase.PARSE, start, records.size());
+		return records;
+	}
+
+	/**
+	 * Send the records aggregated in a window to the processorService, 
+	 * and transfer the flowFiles held in this window.
+	 * 
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param content
+	 *            the content of the window closed
+	 */
+	private void sendWindow(final Configuration configuration, final UpdateWindow.Content content) {
+
+		if (!isHeaderValid(configuration.service, configuration)) {
+			content.commit(FAILED);
+			return;
+		}
+
+		getLogger().debug("Processing " + content.records.size() + " records aggregated from "
+				+ content.getFlowFileCount() + " FlowFiles by blocks of " + String.valueOf(configuration.quotity)
+				+ " elements");
+		content.commit(sendRecords(configuration, content.records) ? SUCCESS : FAILED);
+	}
+
+	/**
+	 * Send records to the processorService by blocks of <code>QUOTITY</code> elements.
+	 * 
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param records
+	 *            the records to send
+	 * @return <code>TRUE</code> if all the blocks have been processed, <code>FALSE</code> if a block has failed
+	 */
+	private boolean sendRecords(final Configuration configuration, final List<Map<String, String>> records) {
+		return sendBlocks(configuration, records).cardinality() == new RecordBlocks<Map<String, String>>(records,
+				configuration.quotity).size();
+	}
+
+	/**
+	 * Send records to the processorService by blocks of <code>QUOTITY</code> elements, and report the blocks processed.
+	 * <br/>The first block failed stops the sending : the next blocks are not processed.
+	 * 
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param records
+	 *            the records to send
+	 * @return the blocks processed, by index : the block <code>i</code> holds the records from <code>i * QUOTITY</code>
+	 */
+	private BitSet sendBlocks(final Configuration configuration, final List<Map<String, String>> records) {
+
+		final Map<String, Object> settings = configuration.settings;
+		final ArcGISLayerServiceAPI service = configuration.service;
+		final RecordBlocks<Map<String, String>> blocks = new RecordBlocks<Map<String, String>>(records,
+				configuration.quotity);
+
+		final BitSet processed = new BitSet();
+		try (final BlockPipeline<Integer> pipeline = createPipeline(configuration, settings, block -> {
+			final List<Map<String, String>> processingRecords = blocks.get(block);
+			getLogger().debug("Processing " + processingRecords.size() + " records...");
+			service.execute(processingRecords, settings);
+			getLogger().debug("..." + processingRecords.size() + " records processed");
+			synchronized (processed) {
+				processed.set(block);
+			}
+		})) {
+			for (int block = 0; block < blocks.size(); block++) {
+				pipeline.submit(block);
+			}
+		} catch (final ProcessException pe) {
+			getLogger().error(ExceptionUtils.getStackTrace(pe));
+			if (pe.getCause() != null) {
+				getLogger().error(ExceptionUtils.getStackTrace(pe.getCause()));
+			}
+			return processed;
+		}
+		getLogger().debug("At all " + records.size() + " records processed");
+		return processed;
+	}
+
+	/**
+	 * Parse the <b><big>JSON</big></b> Flow and save it in an atomic reference.
+	 * 
+	 * @param flowFile current flowFile treated
+	 * @param configuration
+	 *            the configuration of the processor
 	 * @param session
 	 *            the current session context
 	 * @param reference
@@ -278,11 +653,20 @@ public class PutArcGIS extends AbstractProcessor {
 	 * 
 	 * @throws ProcessException
 	 */
-	private void handleJSONFlow(final FlowFile flowFile, final ProcessContext context, final ProcessSession session,
-			final AtomicReference<List<Map<String, String>>> ref_dataParsed) throws ProcessException {
+	private void handleJSONFlow(final FlowFile flowFile, final Configuration configuration,
+			final ProcessSession session, final AtomicReference<List<Map<String, String>>> ref_dataParsed)
+			throws ProcessException {
 
+		final String charSetName = configuration.charSetName;
+		final List<String> fields = configuration.fields;
 
-		final String charSetName = context.getProperty(CHARACTER_SET_IN).getValue();
+		if (configuration.streaming) {
+			streamProcessorService(flowFile, configuration, session,
+					(inputStream, recordConsumer) -> parseJSONStream(inputStream, charSetName, fields, recordConsumer));
+			return;
+		}
+
+		final long start = PhaseMetrics.start();
 		session.read(flowFile, (InputStream inputStream) -> {
 			try {
 				parseJSONStream(inputStream, charSetName, fields, ref_dataParsed);
@@ -291,16 +675,17 @@ public class PutArcGIS extends AbstractProcessor {
 				session.transfer(session.get(), FAILED);
 			}
 		});
+		metrics.record(Phase.PARSE, start, ref_dataParsed.get().size());
 		
-		invokeProcessorService (flowFile, context, session, ref_dataParsed);
+		invokeProcessorService(flowFile, configuration, session, ref_dataParsed);
 	}
 
 	/**
 	 * Parse the <b><big>CSV</big></b> Flow and save it in an atomic reference.
 	 * 
 	 * @param flowFile current flowFile treated
-	 * @param context
-	 *            the current flow context
+	 * @param configuration
+	 *            the configuration of the processor
 	 * @param session
 	 *            the current session context
 	 * @param ref_dataParsed
@@ -308,51 +693,137 @@ public class PutArcGIS extends AbstractProcessor {
 	 * 
 	 * @throws ProcessException
 	 */
-	private void handleCSVFlow(final FlowFile flowFile, final ProcessContext context, final ProcessSession session,
-			final AtomicReference<List<Map<String, String>>> ref_dataParsed) throws ProcessException {
+	private void handleCSVFlow(final FlowFile flowFile, final Configuration configuration,
+			final ProcessSession session, final AtomicReference<List<Map<String, String>>> ref_dataParsed)
+			throws ProcessException {
 
-		final String charSetName = context.getProperty(CHARACTER_SET_IN).getValue();
+		final String charSetName = configuration.charSetName;
+		final List<String> fields = configuration.fields;
 		Map<String, String> data = flowFile.getAttributes();
 		if (getLogger().isDebugEnabled()) {
 			data.keySet().forEach(key -> getLogger().debug(key + " " + data.get(key)));
 		}
 
+		if (configuration.streaming) {
+			final ParallelChunkParser<RecordBatch> chunkParser = configuration.chunkParser;
+			streamBlocks(flowFile, configuration, session,
+					(inputStream, service, settings, quotity) -> streamBatches(configuration, service, settings, quotity,
+							(batch, batchConsumer) -> (chunkParser == null)
+									? parseCSVStream(inputStream, charSetName, batch, quotity, batchConsumer)
+									// The records of an INSERT are independent, the updates are aggregated in order
+									: chunkParser.parse(inputStream,
+											(chunk, length, blockConsumer) -> parseCSVStream(
+													new ByteArrayInputStream(chunk, 0, length), charSetName,
+													batch.emptyCopy(), quotity, blockConsumer),
+											!OPERATION_INSERT.equals(settings.get(OPERATION)), batchConsumer)));
+			return;
+		}
+
+		final Map<String, ColumnType> schema = configuration.service.getSchema(configuration.settings);
+		final long start = PhaseMetrics.start();
 		session.read(flowFile, (InputStream inputStream) -> {
 			try {
-				parseCSVStream(inputStream, charSetName, ref_dataParsed);
+				parseCSVStream(inputStream, charSetName, fields, schema, ref_dataParsed);
 			} catch (final Exception e) {
 				getLogger().error(ExceptionUtils.getStackTrace(e));
 				session.transfer(session.get(), FAILED);
 			}
 		});
+		metrics.record(Phase.PARSE, start, ref_dataParsed.get().size());
 		if (getLogger().isDebugEnabled()) {
 			getLogger().debug("Total number of lines parsed " + String.valueOf(ref_dataParsed.get().size()));
 		}
 
-		invokeProcessorService(flowFile, context, session, ref_dataParsed);
+		invokeProcessorService(flowFile, configuration, session, ref_dataParsed);
 
 	}
 	
+	/**
+	 * Read the <b>Record</b> Flow with the Record Reader, and stream its column-oriented blocks to the processorService.
+	 * <br/>The values are stored with the native type given by the Record Reader : a numeric value is not formatted
+	 * into a String to be parsed again.
+	 * 
+	 * @param flowFile current flowFile treated
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param session
+	 *            the current session context
+	 * @throws ProcessException
+	 */
+	private void handleRecordFlow(final FlowFile flowFile, final Configuration configuration,
+			final ProcessSession session) throws ProcessException {
+
+		final List<String> fields = configuration.fields;
+		streamBlocks(flowFile, configuration, session,
+				(inputStream, service, settings, quotity) -> streamBatches(configuration, service, settings, quotity,
+						(batch, batchConsumer) -> parseRecordStream(configuration.recordReader, flowFile, inputStream,
+								batch, quotity, batchConsumer)));
+	}
+
+	/**
+	 * Parse column-oriented blocks of records and send them to the processorService.
+	 * <br/>The updates are aggregated while the blocks are parsed, if the data operation can be optimized.
+	 * 
+	 * @param configuration the configuration of the processor
+	 * @param service the ArcGIS controller service
+	 * @param settings current settings
+	 * @param quotity maximum number of records in a block
+	 * @param parser the parser of the flowFile content
+	 * @return the number of records parsed
+	 * @throws IOException Exception occurs while parsing
+	 */
+	private long streamBatches(final Configuration configuration, final ArcGISLayerServiceAPI service,
+			final Map<String, Object> settings, final int quotity, final BatchStreamParser parser) throws IOException {
+		final long start = PhaseMetrics.start();
+		final RecordBatch batch = new RecordBatch(configuration.fields, service.getSchema(settings), quotity);
+		try (final BlockPipeline<RecordBatch> pipeline = createPipeline(configuration, settings,
+				block -> executeBatch(service, block, settings))) {
+			if (!isOptimizable(settings) || !batch.hasGeometry()) {
+				final long count = parser.parse(batch, pipeline::submit);
+				recordParse(start, pipeline, 0, count);
+				return count;
+			}
+			// The updates are aggregated while the blocks are parsed,
+			// an aggregated block is sent as soon as it contains quotity locations
+			final BatchUpdateAggregator aggregator = new BatchUpdateAggregator(batch, getUpdateFields(settings),
+					quotity);
+			final AtomicLong aggregation = new AtomicLong();
+			final long count = parser.parse(batch, block -> {
+				final long blockStart = PhaseMetrics.start();
+				final long wait = pipeline.getWaitNanos();
+				for (int row = 0; row < block.size(); row++) {
+					aggregator.add(block, row);
+					if (aggregator.size() == quotity) {
+						pipeline.submit(aggregator.drain());
+					}
+				}
+				final long elapsed = System.nanoTime() - blockStart - (pipeline.getWaitNanos() - wait);
+				metrics.get(Phase.AGGREGATION).record(elapsed, block.size());
+				aggregation.addAndGet(elapsed);
+			});
+			if (aggregator.size() > 0) {
+				pipeline.submit(aggregator.drain());
+			}
+			recordParse(start, pipeline, aggregation.get(), count);
+			return count;
+		}
+	}
+
 	/**
 	 * Invoke the processorService to update the ArcGIS FeatureTable.
 	 * 
 	 * @param flowFile active flowFile
-	 * @param context
-	 *            the current flow context
+	 * @param configuration
+	 *            the configuration of the processor
 	 * @param session
 	 *            the current session context
 	 * @param ref_dataParsed
 	 *            Atomic reference pointed to the data parsed in list of a Map
 	 */
-	public void invokeProcessorService(final FlowFile flowFile, final ProcessContext context, final ProcessSession session,
-			final AtomicReference<List<Map<String, String>>> ref_dataParsed) {
-		
-		if	(chrono == null) {
-			chrono = new Watch(getLogger());
-		}
-		chrono.start();
+	void invokeProcessorService(final FlowFile flowFile, final Configuration configuration,
+			final ProcessSession session, final AtomicReference<List<Map<String, String>>> ref_dataParsed) {
 
-		Map<String, Object> settings = initSettings(context);
+		final Map<String, Object> settings = configuration.settings;
 		
 		
 		List<Map<String, String>> optimizedData = optimizationDataForUpdate(ref_dataParsed.get(), settings);
@@ -360,57 +831,431 @@ public class PutArcGIS extends AbstractProcessor {
 			ref_dataParsed.set(optimizedData);
 		}
 		
-		ArcGISLayerServiceAPI service = context.getProperty(ARCGIS_SERVICE)
-				.asControllerService(ArcGISLayerServiceAPI.class);
-		boolean headerValid = service.isHeaderValid(fields);
-		if (!headerValid) {
-			StringBuffer sb = new StringBuffer();
-			fields.forEach(column -> sb.append(column).append(","));
-			getLogger().error("File header invalid : " + sb.toString());
+		if (!isHeaderValid(configuration.service, configuration)) {
 			session.transfer(flowFile, FAILED);
 			return;
 		}
 
-		
-		int quotity = Integer.valueOf(context.getProperty(QUOTITY).getValue());
-		final int nb_total_records = ref_dataParsed.get().size();
-		getLogger().debug(
-				"Processing " + nb_total_records + " records by blocks of " + String.valueOf(quotity) + " elements");
-
-		while (!ref_dataParsed.get().isEmpty()) {
-			List<Map<String, String>> processingRecords = new ArrayList<Map<String, String>>();
-			for (int i = 0; i < quotity; i++) {
-				processingRecords.add(ref_dataParsed.get().remove(0));
-				if (ref_dataParsed.get().isEmpty())
-					break;
+		getLogger().debug("Processing " + ref_dataParsed.get().size() + " records by blocks of "
+				+ String.valueOf(configuration.quotity) + " elements");
+		session.transfer(flowFile, sendRecords(configuration, ref_dataParsed.get()) ? SUCCESS : FAILED);
+	}
+
+	/**
+	 * Take up to <code>ATTRIBUTE_BATCH_SIZE</code> flowFiles, and send their attributes to the processorService
+	 * in one edit batch per layer targeted.
+	 * <br/>Each flowFile is routed on its own : a flowFile missing an attribute of the fields list fails alone,
+	 * the others follow the result of their batch.
+	 * 
+	 * @param context
+	 *            the current flow context
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param session
+	 *            the current session context
+	 */
+	private void handleAttributeFlows(final ProcessContext context, final Configuration configuration,
+			final ProcessSession session) {
+
+		final List<FlowFile> flowFiles = session.get(configuration.attributeBatchSize);
+		if (flowFiles.isEmpty()) {
+			context.yield();
+			return;
+		}
+
+		final Map<String, List<FlowFile>> targets = new LinkedHashMap<String, List<FlowFile>>();
+		for (final FlowFile flowFile : flowFiles) {
+			final String layer = context.getProperty(TARGET_LAYER).evaluateAttributeExpressions(flowFile).getValue();
+			targets.computeIfAbsent((layer == null) ? "" : layer, key -> new ArrayList<FlowFile>()).add(flowFile);
+		}
+		targets.forEach((layer, batch) -> sendAttributes(configuration.withLayer(layer), session, batch));
+	}
+
+	/**
+	 * Send the attributes of flowFiles targeting the same layer in one edit batch.
+	 * <br/>Without aggregation, each flowFile follows the result of the block holding its record : the flowFiles of
+	 * the blocks applied before a failure are not sent again.
+	 * 
+	 * @param configuration
+	 *            the configuration of the processor, with the layer targeted
+	 * @param session
+	 *            the current session context
+	 * @param flowFiles
+	 *            the flowFiles of the batch
+	 */
+	private void sendAttributes(final Configuration configuration, final ProcessSession session,
+			final List<FlowFile> flowFiles) {
+
+		final long start = PhaseMetrics.start();
+		final List<FlowFile> parsed = new ArrayList<FlowFile>(flowFiles.size());
+		final List<Map<String, String>> records = new ArrayList<Map<String, String>>(flowFiles.size());
+		for (final FlowFile flowFile : flowFiles) {
+			try {
+				records.add(parseAttributes(flowFile, configuration.fields));
+				parsed.add(flowFile);
+			} catch (final ProcessException pe) {
+				getLogger().error(pe.getMessage());
+				session.transfer(flowFile, FAILED);
 			}
+		}
+		metrics.record(Phase.PARSE, start, records.size());
+		if (parsed.isEmpty()) {
+			return;
+		}
+
+		if (!isHeaderValid(configuration.service, configuration)) {
+			session.transfer(parsed, FAILED);
+			return;
+		}
+
+		final List<Map<String, String>> optimizedData = optimizationDataForUpdate(records, configuration.settings);
+		getLogger().debug("Processing the attributes of " + parsed.size() + " FlowFiles by blocks of "
+				+ String.valueOf(configuration.quotity) + " elements");
+		if (optimizedData != null) {
+			// The records of the flowFiles are merged : the flowFiles share the result of the whole batch
+			session.transfer(parsed, sendRecords(configuration, optimizedData) ? SUCCESS : FAILED);
+			return;
+		}
+		// The record of a flowFile is held by the block of its index
+		final BitSet processed = sendBlocks(configuration, records);
+		for (int index = 0; index < parsed.size(); index++) {
+			session.transfer(parsed.get(index), processed.get(index / configuration.quotity) ? SUCCESS : FAILED);
+		}
+	}
+
+	/**
+	 * Gather the records of successive flowFiles until the micro-batch budget is reached,
+	 * and send them in one batch per layer targeted.
+	 * <br/>A flowFile which cannot be parsed fails alone.
+	 * 
+	 * @param context
+	 *            the current flow context
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param session
+	 *            the current session context
+	 */
+	private void handleMicroBatch(final ProcessContext context, final Configuration configuration,
+			final ProcessSession session) {
+
+		final Map<String, MicroBatch> batches = new LinkedHashMap<String, MicroBatch>();
+		int flowFileCount = 0;
+		int recordCount = 0;
+		long size = 0;
+		FlowFile flowFile;
+		while ((recordCount < configuration.microBatchRecords) && (size < configuration.microBatchBytes)
+				&& ((flowFile = session.get()) != null)) {
+			flowFileCount++;
+			size += flowFile.getSize();
 			try {
-				getLogger().debug("Processing " + processingRecords.size() + " records...");
-				service.execute(processingRecords, settings);
-				getLogger().debug("..." + processingRecords.size() + " records processed");
+				final List<Map<String, String>> records = parseRecords(flowFile, configuration, session);
+				final String layer = context.getProperty(TARGET_LAYER).evaluateAttributeExpressions(flowFile).getValue();
+				batches.computeIfAbsent((layer == null) ? "" : layer, key -> new MicroBatch()).add(flowFile, records);
+				recordCount += records.size();
 			} catch (final ProcessException pe) {
 				getLogger().error(ExceptionUtils.getStackTrace(pe));
-				if (pe.getCause() != null) {
-					getLogger().error(ExceptionUtils.getStackTrace(pe.getCause()));
-				}
 				session.transfer(flowFile, FAILED);
-				return;
 			}
 		}
-		getLogger().debug("At all " + nb_total_records + " records processed");
+		if (flowFileCount == 0) {
+			context.yield();
+			return;
+		}
+		batches.forEach((layer, batch) -> sendMicroBatch(configuration.withLayer(layer), session, batch));
+	}
 
-		chrono.end();
-		chrono.display(nb_total_records);
+	/**
+	 * Send the records of a micro-batch, and route each flowFile on the result of the blocks holding its records.
+	 * 
+	 * @param configuration
+	 *            the configuration of the processor, with the layer targeted
+	 * @param session
+	 *            the current session context
+	 * @param batch
+	 *            the micro-batch
+	 */
+	private void sendMicroBatch(final Configuration configuration, final ProcessSession session,
+			final MicroBatch batch) {
+
+		if (!isHeaderValid(configuration.service, configuration)) {
+			session.transfer(batch.flowFiles, FAILED);
+			return;
+		}
+		getLogger().debug("Processing " + batch.records.size() + " records gathered from " + batch.flowFiles.size()
+				+ " FlowFiles by blocks of " + String.valueOf(configuration.quotity) + " elements");
+
+		final List<Map<String, String>> optimizedData = optimizationDataForUpdate(batch.records, configuration.settings);
+		if (optimizedData != null) {
+			// The records of the flowFiles are merged : the flowFiles share the result of the whole batch
+			session.transfer(batch.flowFiles, sendRecords(configuration, optimizedData) ? SUCCESS : FAILED);
+			return;
+		}
+		final BitSet processed = sendBlocks(configuration, batch.records);
+		for (int index = 0; index < batch.flowFiles.size(); index++) {
+			session.transfer(batch.flowFiles.get(index),
+					batch.isProcessed(index, processed, configuration.quotity) ? SUCCESS : FAILED);
+		}
+	}
+
+	/**
+	 * Read the record held in the attributes of a flowFile.
+	 * 
+	 * @param flowFile
+	 *            the flowFile
+	 * @param fields
+	 *            the fields list, read from the attributes of the same name
+	 * @return the record
+	 * @throws ProcessException
+	 *             if an attribute of the fields list is missing
+	 */
+	Map<String, String> parseAttributes(final FlowFile flowFile, final List<String> fields) throws ProcessException {
+		final Map<String, String> record = new HashMap<String, String>();
+		for (final String field : fields) {
+			final String value = flowFile.getAttribute(field);
+			if (value == null) {
+				throw new ProcessException("Missing attribute " + field + " in " + flowFile);
+			}
+			record.put(field, value);
+		}
+		return record;
+	}
+
+	/**
+	 * Parse the flowFile and invoke the processorService <b>while</b> the flowFile is parsed.
+	 * <br/>Records are sent by blocks of <code>QUOTITY</code> elements, so only one block is kept in memory.
+	 * 
+	 * @param flowFile active flowFile
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param session
+	 *            the current session context
+	 * @param parser
+	 *            the parser of the flowFile content
+	 */
+	void streamProcessorService(final FlowFile flowFile, final Configuration configuration,
+			final ProcessSession session, final RecordStreamParser parser) {
+		streamBlocks(flowFile, configuration, session,
+				(inputStream, service, settings, quotity) -> streamRecords(inputStream, configuration, service, settings,
+						quotity, parser));
+	}
+
+	/**
+	 * Read the flowFile with a block streamer, in charge of invoking the processorService <b>while</b> the flowFile is parsed.
+	 * 
+	 * @param flowFile active flowFile
+	 * @param configuration
+	 *            the configuration of the processor
+	 * @param session
+	 *            the current session context
+	 * @param streamer
+	 *            the streamer of the flowFile content
+	 */
+	private void streamBlocks(final FlowFile flowFile, final Configuration configuration,
+			final ProcessSession session, final BlockStreamer streamer) {
+
+		final Map<String, Object> settings = configuration.settings;
+
+		final ArcGISLayerServiceAPI service = configuration.service;
+		if (!isHeaderValid(service, configuration)) {
+			session.transfer(flowFile, FAILED);
+			return;
+		}
+
+		final int quotity = configuration.quotity;
+		getLogger().debug("Streaming records by blocks of " + String.valueOf(quotity) + " elements");
+
+		final AtomicLong count = new AtomicLong();
+		try {
+			session.read(flowFile,
+					(InputStream inputStream) -> count.set(streamer.stream(inputStream, service, settings, quotity)));
+		} catch (final ProcessException pe) {
+			getLogger().error(ExceptionUtils.getStackTrace(pe));
+			if (pe.getCause() != null) {
+				getLogger().error(ExceptionUtils.getStackTrace(pe.getCause()));
+			}
+			session.transfer(flowFile, FAILED);
+			return;
+		}
+		getLogger().debug("At all " + count.get() + " records processed");
 
 		session.transfer(flowFile, SUCCESS);
 	}
 
+	/**
+	 * Parse map-based records and send them to the processorService by blocks of <code>quotity</code> records.
+	 * 
+	 * @param inputStream the inputStream reading the flowFile
+	 * @param configuration the configuration of the processor
+	 * @param service the ArcGIS controller service
+	 * @param settings current settings
+	 * @param quotity maximum number of records in a block
+	 * @param parser the parser of the flowFile content
+	 * @return the number of records parsed
+	 * @throws IOException Exception occurs while parsing
+	 */
+	private long streamRecords(final InputStream inputStream, final Configuration configuration,
+			final ArcGISLayerServiceAPI service, final Map<String, Object> settings, final int quotity,
+			final RecordStreamParser parser) throws IOException {
+		try (final BlockPipeline<List<Map<String, String>>> pipeline = createPipeline(configuration, settings,
+				block -> executeBlock(service, block, settings))) {
+			final long start = PhaseMetrics.start();
+			final RecordBatcher<Map<String, String>> batcher = new RecordBatcher<Map<String, String>>(quotity,
+					pipeline::submit);
+			parser.parse(inputStream, batcher::add);
+			batcher.flush();
+			recordParse(start, pipeline, 0, batcher.getCount());
+			return batcher.getCount();
+		}
+	}
+
+	/**
+	 * Record the parsing of a flowFile streamed, without the time spent to send its blocks.
+	 * 
+	 * @param start starting time of the parsing
+	 * @param pipeline the pipeline receiving the blocks parsed
+	 * @param otherNanos time spent in other phases by the parsing thread, such as the aggregation
+	 * @param count number of records parsed
+	 */
+	private void recordParse(final long start, final BlockPipeline<?> pipeline, final long otherNanos,
+			final long count) {
+		metrics.get(Phase.PARSE).record(System.nanoTime() - start - pipeline.getWaitNanos() - otherNanos, count);
+	}
+
+	/**
+	 * Publish the metrics of the processor and of its service as counters of a session.
+	 * 
+	 * @param context the current flow context
+	 * @param session the session adjusting the counters
+	 */
+	private void publishMetrics(final ProcessContext context, final ProcessSession session) {
+		final BiConsumer<String, Long> counter = (name, delta) -> session.adjustCounter(name, delta, false);
+		metrics.publish(counter);
+		final ArcGISLayerServiceAPI service = context.getProperty(ARCGIS_SERVICE)
+				.asControllerService(ArcGISLayerServiceAPI.class);
+		if ((service != null) && (service.getMetrics() != null)) {
+			service.getMetrics().publish(counter);
+		}
+	}
+
+	/**
+	 * Create the pipeline sending the blocks to the processorService, with the depth setup in the processor.
+	 * <br/>An update selects the feature to edit in the featureLayer of the service :
+	 * the blocks of an update are therefore sent one at a time.
+	 * 
+	 * @param configuration the configuration of the processor
+	 * @param settings current settings
+	 * @param blockConsumer the consumer sending a block to the processorService
+	 * @return the pipeline
+	 */
+	private <T> BlockPipeline<T> createPipeline(final Configuration configuration,
+			final Map<String, Object> settings, final Consumer<T> blockConsumer) {
+		final int depth = configuration.pipelineDepth;
+		final int concurrency = OPERATION_INSERT.equals(settings.get(OPERATION)) ? depth : 1;
+		return new BlockPipeline<T>(configuration.pipelineExecutor, depth, concurrency, blockConsumer);
+	}
+
+	/**
+	 * Send a column-oriented block of records to the processorService.
+	 * 
+	 * @param service the ArcGIS controller service
+	 * @param batch block of records
+	 * @param settings current settings
+	 * @throws ProcessException thrown if any problems occurs during execution
+	 */
+	private void executeBatch(final ArcGISLayerServiceAPI service, final RecordBatch batch,
+			final Map<String, Object> settings) throws ProcessException {
+		getLogger().debug("Processing " + batch.size() + " records...");
+		service.execute(batch, settings);
+		getLogger().debug("..." + batch.size() + " records processed");
+	}
+
+	/**
+	 * Optimize a block of records if possible, and send it to the processorService.
+	 * 
+	 * @param service the ArcGIS controller service
+	 * @param records block of records
+	 * @param settings current settings
+	 * @throws ProcessException thrown if any problems occurs during execution
+	 */
+	private void executeBlock(final ArcGISLayerServiceAPI service, final List<Map<String, String>> records,
+			final Map<String, Object> settings) throws ProcessException {
+		final List<Map<String, String>> optimizedData = optimizationDataForUpdate(records, settings);
+		final List<Map<String, String>> processingRecords = (optimizedData != null) ? optimizedData : records;
+		getLogger().debug("Processing " + processingRecords.size() + " records...");
+		service.execute(processingRecords, settings);
+		getLogger().debug("..." + processingRecords.size() + " records processed");
+	}
+
+	/**
+	 * Validate the fields list against the featureTable, and log the invalid header if any.
+	 * 
+	 * @param service the ArcGIS controller service
+	 * @param configuration the configuration of the processor, with the fields list and the layer targeted
+	 * @return <code>TRUE</code> if the fields list is valid, <code>FALSE</code> otherwise
+	 */
+	private boolean isHeaderValid(final ArcGISLayerServiceAPI service, final Configuration configuration) {
+		final List<String> fields = configuration.fields;
+		if (!service.isHeaderValid(fields, configuration.settings)) {
+			StringBuffer sb = new StringBuffer();
+			fields.forEach(column -> sb.append(column).append(","));
+			getLogger().error("File header invalid : " + sb.toString());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Read the configuration of the processor, once per schedule.
+	 * @param context actual context of the processor
+	 * @return the configuration, shared by the concurrent tasks
+	 * @throws Exception thrown if a fields list cannot be read
+	 */
+	Configuration configure(final ProcessContext context) throws Exception {
+		final String charSetName = context.getProperty(CHARACTER_SET_IN).getValue();
+		final List<String> fields = parseHeader(context.getProperty(FIELD_LIST_INSERT).getValue(), charSetName);
+		final String updateFieldsFilename = context.getProperty(FIELD_LIST_UPDATE).getValue();
+		final List<String> fieldsToUpdate = ((updateFieldsFilename != null) && (updateFieldsFilename.length() > 0))
+				? parseHeader(updateFieldsFilename, charSetName) : new ArrayList<String>();
+		return new Configuration(context.getProperty(TYPE_OF_FILE).getValue(), charSetName,
+				context.getProperty(STREAMING_MODE).asBoolean(), Integer.valueOf(context.getProperty(QUOTITY).getValue()),
+				context.getProperty(PIPELINE_DEPTH).asInteger(), context.getProperty(ATTRIBUTE_BATCH_SIZE).asInteger(),
+				context.getProperty(MICRO_BATCH_RECORDS).asInteger(),
+				context.getProperty(MICRO_BATCH_SIZE).asDataSize(DataUnit.B).longValue(), fields, fieldsToUpdate,
+				initSettings(context, Collections.unmodifiableList(fieldsToUpdate)),
+				context.getProperty(ARCGIS_SERVICE).asControllerService(ArcGISLayerServiceAPI.class),
+				context.getProperty(RECORD_READER).asControllerService(RecordReaderFactory.class),
+				createChunkParser(context, charSetName),
+				(context.getProperty(PIPELINE_DEPTH).asInteger() > 1) ? BlockPipeline.createExecutor() : null);
+	}
+
+	/**
+	 * @param context actual context of the processor
+	 * @param charSetName the character set of the INPUT data
+	 * @return the parser of the CSV chunks in parallel, or <code>null</code> if the CSV flowFiles are parsed
+	 * by the task itself
+	 */
+	private ParallelChunkParser<RecordBatch> createChunkParser(final ProcessContext context, final String charSetName)
+			throws UnsupportedEncodingException {
+		final int threads = context.getProperty(PARSING_THREADS).asInteger();
+		if (threads == 1) {
+			return null;
+		}
+		final byte[] lineFeed = "\n".getBytes(charSetName);
+		if ((lineFeed.length != 1) || (lineFeed[0] != '\n')) {
+			getLogger().warn("The character set " + charSetName + " cannot be cut into chunks : the CSV FlowFiles are parsed by one thread");
+			return null;
+		}
+		return new ParallelChunkParser<RecordBatch>(threads,
+				context.getProperty(PARSING_CHUNK_SIZE).asDataSize(DataUnit.B).intValue());
+	}
+
 	/**
 	 * Initialize the settings for the data serviceProcessor.
 	 * @param context actual context of the processor
+	 * @param fieldsToUpdate list of fields involved in the update order
 	 * @return the settings map
 	 */
-	Map<String, Object> initSettings (final ProcessContext context) {
+	Map<String, Object> initSettings (final ProcessContext context, final List<String> fieldsToUpdate) {
 		
 		Map<String, Object> settings = new HashMap<String, Object>();
 		final String spatialReference = context.getProperty(SPATIAL_REFERENCE).getValue();
@@ -424,11 +1269,9 @@ public class PutArcGIS extends AbstractProcessor {
 		}
 		settings.put(ArcGISLayerServiceAPI.OPERATION, dataOperation);
 		
-		//TODO For this release, only one type of query is supported
-		// This behavior is implemented by default
 		if ( (ArcGISLayerServiceAPI.OPERATION_UPDATE.equals(dataOperation)) ||  
 				(ArcGISLayerServiceAPI.OPERATION_UPDATE_OR_INSERT.equals(dataOperation))) {
-			settings.put(TYPE_OF_QUERY, TYPE_OF_QUERY_GEO);
+			settings.put(TYPE_OF_QUERY, context.getProperty(SPATIAL_LOOKUP).getValue());
 		}
 		
 		if (getLogger().isDebugEnabled()) {
@@ -443,60 +1286,24 @@ public class PutArcGIS extends AbstractProcessor {
 	 * Optimize the data for update if the update field list orders numeric aggregation<br/>
 	 * Such fields are declared list the field hit present <code><+hit></code><br/>
 	 * This function return <b><big><code>null</code></big></b> if no optimization is possible for the current data context.
+	 * <br/>The records are grouped on their location with a {@link RecordUpdateAggregator}, in the order of their first occurrence.
 	 * 
 	 * @param list of parsed records for optimization
 	 * @settings current settings
 	 */
-	@SuppressWarnings("unchecked")
 	public List<Map<String, String>> optimizationDataForUpdate(List<Map<String, String>> records, final Map<String, Object> settings) {
 		
-		if (OPERATION_INSERT.equals(settings.get(OPERATION))) {
+		if (!isOptimizable(settings)) {
 			return null;
 		}
 		
-		List<String> listUpdateFields = (List<String>) settings.get(UPDATE_FIELD_LIST);
-		if ((listUpdateFields == null) || listUpdateFields.isEmpty()) { 
-			return null;
-		}
+		final List<String> updateFields = getUpdateFields(settings);
 
-		if (listUpdateFields.stream().filter (v -> ("+-".indexOf(v.charAt(0))==-1) ).count() != 0) {
-			return null;
-		}
-
-		final List<String> updateFields = listUpdateFields.stream().map( uf -> uf.substring(1)).collect(Collectors.toList());
-
-		Map<String, List<Map<String, String>>> recordsGroupedLatitudeLongitude = records
-			    .stream()
-			    .collect(Collectors.groupingBy(p -> p.get("latitude") + p.get("longitude")));
-		
-		final List<Map<String, String>> optimizedRecords = new ArrayList<Map<String, String>>();
-		recordsGroupedLatitudeLongitude.forEach ( (k,v) -> {
-			optimizedRecords.add (
-				v.stream().reduce( new HashMap<String, String>(), (m1, m2) -> {
-		
-					final List<Double> agregatedData = new ArrayList<Double>();
-					
-					// We save the data state
-					updateFields.forEach(f -> {
-						agregatedData.add((!m1.containsKey(f)) ? 0 : Double.valueOf(m1.get(f)));
-						agregatedData.add(Double.valueOf(m2.get(f)));
-					});
-					
-					m1.putAll(m2);
-
-					// We compute the data saved
-					updateFields.forEach(f -> {
-						Double d1 = agregatedData.remove(0);
-						Double d2 = agregatedData.remove(0);
-						String s = String.valueOf(d1+d2);
-						// We extract the suffix ".0" to allow an Integer transformation later on 
-						m1.put(f,  (".0".equals(s.substring(s.length()-2)) 
-									? s.substring(0, s.length()-2) : s) );
-					});
-					
-					return m1;
-			}));
-		});
+		final long start = PhaseMetrics.start();
+		final RecordUpdateAggregator aggregator = new RecordUpdateAggregator(updateFields, records.size());
+		records.forEach(aggregator::add);
+		final List<Map<String, String>> optimizedRecords = aggregator.drain();
+		metrics.record(Phase.AGGREGATION, start, records.size());
 		
 		if (getLogger().isDebugEnabled()) {
 			final ComponentLog logger = getLogger();
@@ -506,6 +1313,36 @@ public class PutArcGIS extends AbstractProcessor {
 		return optimizedRecords;
 	}
 	
+	/**
+	 * @param settings current settings
+	 * @return the names of the fields to update, without their operator
+	 */
+	@SuppressWarnings("unchecked")
+	private List<String> getUpdateFields(final Map<String, Object> settings) {
+		final List<String> listUpdateFields = (List<String>) settings.get(UPDATE_FIELD_LIST);
+		return listUpdateFields.stream().map(uf -> uf.substring(1)).collect(Collectors.toList());
+	}
+
+	/**
+	 * @param settings current settings
+	 * @return <code>true</code> if the update field list only orders numeric aggregations, 
+	 * so the records can be optimized with {@link #optimizationDataForUpdate(List, Map)}
+	 */
+	@SuppressWarnings("unchecked")
+	boolean isOptimizable(final Map<String, Object> settings) {
+
+		if (OPERATION_INSERT.equals(settings.get(OPERATION))) {
+			return false;
+		}
+		
+		List<String> listUpdateFields = (List<String>) settings.get(UPDATE_FIELD_LIST);
+		if ((listUpdateFields == null) || listUpdateFields.isEmpty()) { 
+			return false;
+		}
+
+		return listUpdateFields.stream().allMatch(v -> ("+-".indexOf(v.charAt(0)) != -1));
+	}
+
 	/**
 	 * Parse a fields file and return its content in a collection.
 	 * 
@@ -518,15 +1355,21 @@ public class PutArcGIS extends AbstractProcessor {
 	 */
 	public List<String> parseHeader(final String fieldsFilename, String charSet) throws Exception {
 
-		final InputStream inputStream = new FileInputStream(new File(fieldsFilename));
-		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, charSet));
-		StringBuilder sb = FileManager.readLine(reader);
-		if (sb == null) {
-			throw new Exception("Empty file");
-		}
+		try (final InputStream inputStream = new FileInputStream(new File(fieldsFilename))) {
+			final LineScanner scanner = new LineScanner(new InputStreamReader(inputStream, charSet));
+			if (!scanner.nextLine()) {
+				throw new Exception("Empty file");
+			}
 
-		getLogger().debug("parsing the CSV line " + sb.toString());
-		return CsvManager.parseLine(sb.toString(), ';');
+			getLogger().debug("parsing the CSV line " + scanner.toString());
+			final CsvTokenizer tokenizer = new CsvTokenizer(';');
+			final int columns = tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+			final List<String> header = new ArrayList<String>(columns);
+			for (int column = 0; column < columns; column++) {
+				header.add(tokenizer.getString(column));
+			}
+			return header;
+		}
 
 	}
 
@@ -538,32 +1381,283 @@ public class PutArcGIS extends AbstractProcessor {
 	 *            file
 	 * @param charSetName
 	 *            the current character set
+	 * @param fields
+	 *            lists to be parsed from the fields list
+	 * @param schema
+	 *            type of the fields of the featureTable
 	 * @param ref_dataParsed
 	 *            Atomic reference pointed out the parsed content of the CSV
 	 *            file
 	 * @throws UnsupportedEncodingException
 	 * @throws IOException
 	 */
-	public void parseCSVStream(final InputStream inputStream, final String charSetName,
-			final AtomicReference<List<Map<String, String>>> ref_dataParsed)
+	public void parseCSVStream(final InputStream inputStream, final String charSetName, final List<String> fields,
+			final Map<String, ColumnType> schema, final AtomicReference<List<Map<String, String>>> ref_dataParsed)
+			throws UnsupportedEncodingException, IOException {
+		parseCSVStream(inputStream, charSetName, fields, schema, ref_dataParsed.get()::add);
+	}
+
+	/**
+	 * Parse a <b>CSV</b> Stream and push each record parsed into a consumer.
+	 * <br/>The lines are read as in the column-oriented blocks : a first line repeating the fields list is a header,
+	 * and is skipped, and an empty numeric value is <code>null</code>.
+	 * 
+	 * @param inputStream
+	 *            the inputStream accessing the flowFile
+	 * @param charSetName
+	 *            the current character set
+	 * @param fields
+	 *            lists to be parsed from the fields list
+	 * @param schema
+	 *            type of the fields of the featureTable, the geometry fields being always numeric
+	 * @param recordConsumer
+	 *            consumer of the records, invoked line by line
+	 * @throws UnsupportedEncodingException
+	 * @throws IOException
+	 */
+	public void parseCSVStream(final InputStream inputStream, final String charSetName, final List<String> fields,
+			final Map<String, ColumnType> schema, final Consumer<Map<String, String>> recordConsumer)
 			throws UnsupportedEncodingException, IOException {
 
-		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, charSetName));
-		StringBuilder sb;
+		final LineScanner scanner = new LineScanner(new InputStreamReader(inputStream, charSetName));
+		final CsvTokenizer tokenizer = new CsvTokenizer(';');
+		final int numberOfFields = fields.size();
+		// Same column types as a batch built on the fields list
+		final RecordBatch model = new RecordBatch(fields, schema, 1);
 
-		while ((sb = FileManager.readLine(reader)) != null) {
-			if (sb.length() > 0) {
-				getLogger().debug("parsing the CSV line " + sb.toString());
-				List<String> values = CsvManager.parseLine(sb.toString(), ';');
+		boolean firstLine = true;
+		while (scanner.nextLine()) {
+			if (scanner.length() > 0) {
+				if (getLogger().isDebugEnabled()) {
+					getLogger().debug("parsing the CSV line " + scanner.toString());
+				}
+				final int columns = tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+				if (columns < numberOfFields) {
+					throw new IOException("Expecting " + numberOfFields + " columns, but " + columns
+							+ " found in the line " + scanner.toString());
+				}
+				if (firstLine) {
+					firstLine = false;
+					if (isHeaderLine(tokenizer, fields)) {
+						continue;
+					}
+				}
 				Map<String, String> record = new HashMap<String, String>();
+				for (int column = 0; column < numberOfFields; column++) {
+					final boolean nullValue = (model.getColumnType(column) != ColumnType.TEXT) && tokenizer.isEmpty(column);
+					record.put(fields.get(column), nullValue ? null : tokenizer.getString(column));
+				}
+				recordConsumer.accept(record);
+			}
+		}
+	}
+
+	/**
+	 * Parse a <b>CSV</b> Stream into column-oriented blocks of records.
+	 * <br/>Each value is converted directly from the line buffer into the type of its column, 
+	 * without creating any intermediate map.
+	 * <br/>A first line repeating the fields list is a header, and is skipped. An empty numeric value is <code>null</code>.
+	 * 
+	 * @param inputStream
+	 *            the inputStream accessing the flowFile
+	 * @param charSetName
+	 *            the current character set
+	 * @param batch
+	 *            the first block to fill, built on the fields list. The next blocks share its dictionary
+	 * @param quotity
+	 *            maximum number of records in a block
+	 * @param batchConsumer
+	 *            consumer of the blocks, invoked each time a block is complete
+	 * @return the number of records parsed
+	 * @throws UnsupportedEncodingException
+	 * @throws IOException
+	 */
+	public long parseCSVStream(final InputStream inputStream, final String charSetName, final RecordBatch batch,
+			final int quotity, final Consumer<RecordBatch> batchConsumer) throws UnsupportedEncodingException, IOException {
+
+		final LineScanner scanner = new LineScanner(new InputStreamReader(inputStream, charSetName));
+		final CsvTokenizer tokenizer = new CsvTokenizer(';');
+		final int numberOfFields = batch.getColumnCount();
+
+		RecordBatch block = batch;
+		long count = 0;
+		while (scanner.nextLine()) {
+			if (scanner.length() > 0) {
 				if (getLogger().isDebugEnabled()) {
-					fields.forEach(fieldName -> getLogger().debug(fieldName + " "));
-					values.forEach(value -> getLogger().debug(value + " "));
+					getLogger().debug("parsing the CSV line " + scanner.toString());
+				}
+				final int columns = tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+				if (columns < numberOfFields) {
+					throw new IOException("Expecting " + numberOfFields + " columns, but " + columns
+							+ " found in the line " + scanner.toString());
+				}
+				if ((count == 0) && (block.size() == 0) && isHeaderLine(tokenizer, block.getFieldNames())) {
+					continue;
+				}
+				final int row = block.newRow();
+				try {
+					for (int column = 0; column < numberOfFields; column++) {
+						switch (block.getColumnType(column)) {
+						case DOUBLE:
+							if (tokenizer.isEmpty(column)) {
+								block.setNull(row, column);
+							} else {
+								block.setDouble(row, column, tokenizer.getDouble(column));
+							}
+							break;
+						case INTEGER:
+							if (tokenizer.isEmpty(column)) {
+								block.setNull(row, column);
+							} else {
+								block.setInt(row, column, tokenizer.getInt(column));
+							}
+							break;
+						default:
+							block.setString(row, column, tokenizer.getString(column));
+						}
+					}
+				} catch (final NumberFormatException nfe) {
+					throw new IOException("Invalid number in the line " + scanner.toString(), nfe);
+				}
+				count++;
+				if (block.size() == quotity) {
+					batchConsumer.accept(block);
+					block = block.emptyCopy();
+				}
+			}
+		}
+		if (block.size() > 0) {
+			batchConsumer.accept(block);
+		}
+		return count;
+	}
+
+	/**
+	 * Read a <b>Record</b> Stream into column-oriented blocks of records.
+	 * <br/>Each value is stored with its native type when it matches the type of its column,
+	 * and converted from its textual format otherwise.
+	 * 
+	 * @param readerFactory
+	 *            the Record Reader
+	 * @param flowFile
+	 *            the flowFile read
+	 * @param inputStream
+	 *            the inputStream accessing the flowFile
+	 * @param batch
+	 *            the first block to fill, built on the fields list. The next blocks share its dictionary
+	 * @param quotity
+	 *            maximum number of records in a block
+	 * @param batchConsumer
+	 *            consumer of the blocks, invoked each time a block is complete
+	 * @return the number of records read
+	 * @throws IOException
+	 *             if the content cannot be read by the Record Reader
+	 */
+	public long parseRecordStream(final RecordReaderFactory readerFactory, final FlowFile flowFile,
+			final InputStream inputStream, final RecordBatch batch, final int quotity,
+			final Consumer<RecordBatch> batchConsumer) throws IOException {
+
+		final int numberOfFields = batch.getColumnCount();
+		RecordBatch block = batch;
+		long count = 0;
+		try (final RecordReader reader = readerFactory.createRecordReader(flowFile, inputStream, getLogger())) {
+			Record record;
+			while ((record = reader.nextRecord()) != null) {
+				final int row = block.newRow();
+				try {
+					for (int column = 0; column < numberOfFields; column++) {
+						setRecordValue(block, row, column, record.getValue(block.getFieldName(column)));
+					}
+				} catch (final NumberFormatException nfe) {
+					throw new IOException("Invalid number in the record " + record, nfe);
+				}
+				count++;
+				if (block.size() == quotity) {
+					batchConsumer.accept(block);
+					block = block.emptyCopy();
+				}
+			}
+		} catch (final MalformedRecordException | SchemaNotFoundException e) {
+			throw new IOException(e);
+		}
+		if (block.size() > 0) {
+			batchConsumer.accept(block);
+		}
+		return count;
+	}
+
+	/**
+	 * Store a value read by a Record Reader, without any textual conversion if its type matches the column.
+	 */
+	private static void setRecordValue(final RecordBatch block, final int row, final int column, final Object value) {
+		if (value == null) {
+			block.setNull(row, column);
+			return;
+		}
+		switch (block.getColumnType(column)) {
+		case DOUBLE:
+			if (value instanceof Number) {
+				block.setDouble(row, column, ((Number) value).doubleValue());
+				return;
+			}
+			break;
+		case INTEGER:
+			if ((value instanceof Integer) || (value instanceof Short) || (value instanceof Byte)) {
+				block.setInt(row, column, ((Number) value).intValue());
+				return;
+			}
+			break;
+		default:
+			break;
+		}
+		block.setValue(row, column, value.toString());
+	}
+
+	/**
+	 * Read a <b>Record</b> Stream into map-based records, keeping the fields of the fields list.
+	 * <br/>A null value is kept <code>null</code>, as in the column-oriented batches : it is neither inserted
+	 * nor updated.
+	 * 
+	 * @param readerFactory
+	 *            the Record Reader
+	 * @param flowFile
+	 *            the flowFile read
+	 * @param inputStream
+	 *            the inputStream accessing the flowFile
+	 * @param fields
+	 *            the fields list
+	 * @param recordConsumer
+	 *            consumer of the records read
+	 * @throws IOException
+	 *             if the content cannot be read by the Record Reader
+	 */
+	public void parseRecordStream(final RecordReaderFactory readerFactory, final FlowFile flowFile,
+			final InputStream inputStream, final List<String> fields, final Consumer<Map<String, String>> recordConsumer)
+			throws IOException {
+		try (final RecordReader reader = readerFactory.createRecordReader(flowFile, inputStream, getLogger())) {
+			Record record;
+			while ((record = reader.nextRecord()) != null) {
+				final Map<String, String> data = new HashMap<String, String>();
+				for (final String field : fields) {
+					data.put(field, record.getAsString(field));
 				}
-				fields.forEach(fieldName -> record.put(fieldName, values.remove(0)));
-				ref_dataParsed.get().add(record);
+				recordConsumer.accept(data);
+			}
+		} catch (final MalformedRecordException | SchemaNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the line tokenized contains the field names of the fields list
+	 */
+	private boolean isHeaderLine(final CsvTokenizer tokenizer, final List<String> fields) {
+		for (int column = 0; column < fields.size(); column++) {
+			if (!fields.get(column).equals(tokenizer.getString(column))) {
+				return false;
 			}
 		}
+		return true;
 	}
 
 	/**
@@ -583,27 +1677,120 @@ public class PutArcGIS extends AbstractProcessor {
 	public void parseJSONStream(final InputStream inputStream, final String charSetName, final List<String> fields,
 			final AtomicReference<List<Map<String, String>>> ref_dataParsed)
 			throws UnsupportedEncodingException, IOException {
+		parseJSONStream(inputStream, charSetName, fields, ref_dataParsed.get()::add);
+	}
 
-		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, charSetName));
-		StringBuilder sbContent = new StringBuilder(), sb;
-		while ((sb = FileManager.readLine(reader)) != null) {
-			sbContent.append(sb);
-		}
-
-		JsonParser parser = new JsonParser();
-		JsonElement root = parser.parse(sbContent.toString());
-		if (root.isJsonArray()) {
-			JsonArray content = root.getAsJsonArray();
-			content.forEach(element -> {
-				final JsonObject record = element.getAsJsonObject();
-				Map<String, String> records = new HashMap<String, String>();
-				fields.forEach(field -> {
-					records.put(field, record.get(field).getAsString());
-				});
-				ref_dataParsed.get().add(records);
-			});
+	/**
+	 * Parse a <b>JSON</b> Stream and push each record parsed into a consumer.
+	 * <br/>The top-level array is read object by object with a pull parser : the JSON tree is never built,
+	 * and only the values of the requested fields are extracted.
+	 * 
+	 * @param inputStream
+	 *            the inputStream reading the flowFile
+	 * @param charSetName
+	 *            the stream character set
+	 * @param fields
+	 *            lists to be parsed from the fields list
+	 * @param recordConsumer
+	 *            consumer of the records, invoked object by object
+	 * @throws UnsupportedEncodingException
+	 * @throws IOException
+	 */
+	public void parseJSONStream(final InputStream inputStream, final String charSetName, final List<String> fields,
+			final Consumer<Map<String, String>> recordConsumer) throws UnsupportedEncodingException, IOException {
+
+		final Set<String> requestedFields = new HashSet<String>(fields);
+		final JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(inputStream, charSetName)));
+		reader.setLenient(true);
+
+		if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+			return;
+		}
+		reader.beginArray();
+		while (reader.hasNext()) {
+			final Map<String, String> record = new HashMap<String, String>();
+			reader.beginObject();
+			while (reader.hasNext()) {
+				final String name = reader.nextName();
+				if (!requestedFields.contains(name)) {
+					reader.skipValue();
+					continue;
+				}
+				switch (reader.peek()) {
+				case STRING:
+				case NUMBER:
+					record.put(name, reader.nextString());
+					break;
+				case BOOLEAN:
+					record.put(name, String.valueOf(reader.nextBoolean()));
+					break;
+				default:
+					throw new IOException("Unexpected " + reader.peek() + " for the field " + name + " at " + reader.getPath());
+				}
+			}
+			reader.endObject();
+			if (record.size() != requestedFields.size()) {
+				throw new IOException("Missing fields in the record ending at " + reader.getPath());
+			}
+			recordConsumer.accept(record);
 		}
+		reader.endArray();
+	}
+
+	/**
+	 * Streamer of a flowFile content, in charge of sending the records parsed to the processorService by blocks.
+	 */
+	@FunctionalInterface
+	interface BlockStreamer {
+
+		/**
+		 * @param inputStream
+		 *            the inputStream reading the flowFile
+		 * @param service
+		 *            the ArcGIS controller service
+		 * @param settings
+		 *            current settings
+		 * @param quotity
+		 *            maximum number of records in a block
+		 * @return the number of records parsed
+		 * @throws IOException
+		 *             Exception occurs while parsing
+		 */
+		long stream(InputStream inputStream, ArcGISLayerServiceAPI service, Map<String, Object> settings, int quotity)
+				throws IOException;
+	}
 
+	/**
+	 * Parser of a flowFile content into column-oriented blocks, pushing each block into a consumer as soon as it is complete.
+	 */
+	@FunctionalInterface
+	interface BatchStreamParser {
+
+		/**
+		 * @param batch
+		 *            the first block to fill. The next blocks share its dictionary
+		 * @param batchConsumer
+		 *            consumer of the blocks parsed
+		 * @return the number of records parsed
+		 * @throws IOException
+		 */
+		long parse(RecordBatch batch, Consumer<RecordBatch> batchConsumer) throws IOException;
+	}
+
+	/**
+	 * Parser of a flowFile content, pushing each record into a consumer as soon as it is parsed.
+	 */
+	@FunctionalInterface
+	interface RecordStreamParser {
+
+		/**
+		 * @param inputStream
+		 *            the inputStream reading the flowFile
+		 * @param recordConsumer
+		 *            consumer of the records parsed
+		 * @throws IOException
+		 */
+		void parse(InputStream inputStream, Consumer<Map<String, String>> recordConsumer) throws IOException;
 	}
 
 }
@@ -0,0 +1,168 @@
+/**
+ *
+ */
+package nifi.arcgis.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.Relationship;
+
+import nifi.arcgis.processor.utility.RecordUpdateAggregator;
+
+/**
+ * Window aggregating the additive updates of successive flowFiles, before sending them in one merged batch.
+ * <br/>Each flowFile is held in its own session, which is committed only when the window is sent :
+ * if the processor stops before, the sessions are rolled back and the flowFiles are delivered again.
+ * <br/>The window is due when it holds the maximum number of flowFiles, or when its duration has elapsed
+ * since its first flowFile.
+ */
+class UpdateWindow {
+
+	/**
+	 * Names of the additive update fields, without their operator
+	 */
+	private final List<String> updateFields;
+
+	private final RecordUpdateAggregator aggregator;
+
+	/**
+	 * Maximum number of flowFiles held
+	 */
+	private final int maxFlowFiles;
+
+	/**
+	 * Duration of the window, in nanoseconds
+	 */
+	private final long duration;
+
+	private final LongSupplier clock;
+
+	/**
+	 * Sessions holding the flowFiles of the window, in their order of arrival
+	 */
+	private List<ProcessSession> sessions = new ArrayList<ProcessSession>();
+
+	private List<FlowFile> flowFiles = new ArrayList<FlowFile>();
+
+	/**
+	 * Arrival time of the first flowFile of the window
+	 */
+	private long openedAt;
+
+	/**
+	 * Construction.
+	 * @param updateFields names of the additive update fields, without their operator
+	 * @param maxFlowFiles maximum number of flowFiles held
+	 * @param duration duration of the window, in nanoseconds
+	 * @param clock clock in nanoseconds
+	 */
+	UpdateWindow(final List<String> updateFields, final int maxFlowFiles, final long duration,
+			final LongSupplier clock) {
+		this.updateFields = updateFields;
+		this.aggregator = new RecordUpdateAggregator(updateFields, 1024);
+		this.maxFlowFiles = maxFlowFiles;
+		this.duration = duration;
+		this.clock = clock;
+	}
+
+	/**
+	 * Aggregate the records of a flowFile, and hold this flowFile until the window is sent.
+	 * @param session the session of the flowFile, which must not be committed
+	 * @param flowFile the flowFile
+	 * @param records the records parsed in the flowFile
+	 * @throws NumberFormatException if the value of an update field is not a number. The window is then unchanged.
+	 */
+	synchronized void add(final ProcessSession session, final FlowFile flowFile,
+			final List<Map<String, String>> records) {
+		// Validating the update values first, so an invalid flowFile does not alter the window
+		final RecordUpdateAggregator flowFileAggregator = new RecordUpdateAggregator(updateFields, records.size());
+		records.forEach(flowFileAggregator::add);
+		flowFileAggregator.drain().forEach(aggregator::add);
+		if (flowFiles.isEmpty()) {
+			openedAt = clock.getAsLong();
+		}
+		sessions.add(session);
+		flowFiles.add(flowFile);
+	}
+
+	/**
+	 * @return <code>true</code> if the window holds no flowFile
+	 */
+	synchronized boolean isEmpty() {
+		return flowFiles.isEmpty();
+	}
+
+	/**
+	 * Close the window if it is due, and open a new one.
+	 * @return the content of the window closed, or <code>null</code> if the window is not due
+	 */
+	synchronized Content closeIfDue() {
+		if (flowFiles.isEmpty()
+				|| ((flowFiles.size() < maxFlowFiles) && (clock.getAsLong() - openedAt < duration))) {
+			return null;
+		}
+		return close();
+	}
+
+	/**
+	 * Close the window, and open a new one.
+	 * @return the content of the window closed
+	 */
+	synchronized Content close() {
+		final Content content = new Content(aggregator.drain(), sessions, flowFiles);
+		sessions = new ArrayList<ProcessSession>();
+		flowFiles = new ArrayList<FlowFile>();
+		return content;
+	}
+
+	/**
+	 * Content of a closed window.
+	 */
+	static class Content {
+
+		/**
+		 * The records aggregated
+		 */
+		final List<Map<String, String>> records;
+
+		private final List<ProcessSession> sessions;
+
+		private final List<FlowFile> flowFiles;
+
+		private Content(final List<Map<String, String>> records, final List<ProcessSession> sessions,
+				final List<FlowFile> flowFiles) {
+			this.records = records;
+			this.sessions = sessions;
+			this.flowFiles = flowFiles;
+		}
+
+		/**
+		 * @return the number of flowFiles held
+		 */
+		int getFlowFileCount() {
+			return flowFiles.size();
+		}
+
+		/**
+		 * Transfer the flowFiles held to a relationship, and commit their sessions.
+		 */
+		void commit(final Relationship relationship) {
+			for (int i = 0; i < flowFiles.size(); i++) {
+				sessions.get(i).transfer(flowFiles.get(i), relationship);
+				sessions.get(i).commit();
+			}
+		}
+
+		/**
+		 * Roll back the sessions, to deliver the flowFiles held again.
+		 */
+		void rollback() {
+			sessions.forEach(ProcessSession::rollback);
+		}
+	}
+}
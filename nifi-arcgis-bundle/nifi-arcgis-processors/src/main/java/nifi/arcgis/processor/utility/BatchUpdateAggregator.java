@@ -0,0 +1,185 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nifi.arcgis.service.arcgis.services.RecordBatch;
+
+/**
+ * Aggregation of column-oriented records on their location, with an {@link UpdateAggregator}.
+ * <br/>The rows are added one by one, as they are parsed. Each location produces one row in the aggregated batch :
+ * its update columns contain the sum of the values received, the other columns contain the last values received.
+ * <br/>The values remain typed : a sum is stored in the type of its column.
+ * <br/><i>This class is not thread-safe.</i>
+ */
+public class BatchUpdateAggregator {
+
+	/**
+	 * Model of the aggregated batches
+	 */
+	private final RecordBatch model;
+
+	/**
+	 * Column of each update field, <code>-1</code> if the field is not present
+	 */
+	private final int[] updateColumns;
+
+	/**
+	 * <code>true</code> for the update columns
+	 */
+	private final boolean[] isUpdateColumn;
+
+	private final UpdateAggregator aggregator;
+
+	/**
+	 * Row of each group in the aggregated batch
+	 */
+	private int[] groupRows;
+
+	/**
+	 * Aggregated batch in progress
+	 */
+	private RecordBatch aggregated;
+
+	/**
+	 * Construction.
+	 * @param model model of the batches to aggregate, sharing its dictionary with them
+	 * @param updateFields names of the additive update fields, without their operator
+	 * @param expectedGroups expected number of locations
+	 */
+	public BatchUpdateAggregator(final RecordBatch model, final List<String> updateFields, final int expectedGroups) {
+		if (!model.hasGeometry()) {
+			throw new IllegalArgumentException("The records cannot be aggregated without their location");
+		}
+		this.model = model;
+		this.updateColumns = new int[updateFields.size()];
+		this.isUpdateColumn = new boolean[model.getColumnCount()];
+		for (int i = 0; i < updateColumns.length; i++) {
+			updateColumns[i] = model.getColumn(updateFields.get(i));
+			if (updateColumns[i] != -1) {
+				isUpdateColumn[updateColumns[i]] = true;
+			}
+		}
+		this.aggregator = new UpdateAggregator(updateColumns.length, expectedGroups);
+		this.groupRows = new int[Math.max(expectedGroups, 16)];
+		this.aggregated = model.emptyCopy();
+	}
+
+	/**
+	 * Aggregate a row.
+	 * <br/>A row without location cannot be aggregated, and is kept as is.
+	 * @param batch the batch containing the row
+	 * @param row the row
+	 */
+	public void add(final RecordBatch batch, final int row) {
+		if (batch.isGeometryNull(row)) {
+			copy(batch, row, aggregated.newRow(), true);
+			return;
+		}
+		final int before = aggregator.size();
+		final int group = aggregator.group(batch.getX(row), batch.getY(row));
+		if (group == before) {
+			if (group == groupRows.length) {
+				groupRows = Arrays.copyOf(groupRows, group * 2);
+			}
+			groupRows[group] = aggregated.newRow();
+		}
+		copy(batch, row, groupRows[group], false);
+		for (int i = 0; i < updateColumns.length; i++) {
+			final int column = updateColumns[i];
+			if ((column != -1) && !batch.isNull(row, column)) {
+				aggregator.add(group, i, numericValue(batch, row, column));
+			}
+		}
+	}
+
+	/**
+	 * @return the value of a numeric update column
+	 * @throws NumberFormatException if the value of a textual column is not a number
+	 */
+	private static double numericValue(final RecordBatch batch, final int row, final int column) {
+		switch (batch.getColumnType(column)) {
+		case DOUBLE:
+			return batch.getDouble(row, column);
+		case INTEGER:
+			return batch.getInt(row, column);
+		default:
+			return Double.parseDouble(batch.getString(row, column));
+		}
+	}
+
+	/**
+	 * Copy the values of a row, except the update columns unless requested.
+	 */
+	private void copy(final RecordBatch batch, final int row, final int target, final boolean updateColumnsToo) {
+		for (int column = 0; column < batch.getColumnCount(); column++) {
+			if (isUpdateColumn[column] && !updateColumnsToo) {
+				continue;
+			}
+			if (batch.isNull(row, column)) {
+				aggregated.setNull(target, column);
+				continue;
+			}
+			switch (batch.getColumnType(column)) {
+			case DOUBLE:
+				aggregated.setDouble(target, column, batch.getDouble(row, column));
+				break;
+			case INTEGER:
+				aggregated.setInt(target, column, batch.getInt(row, column));
+				break;
+			default:
+				aggregated.setString(target, column, batch.getString(row, column));
+			}
+		}
+	}
+
+	/**
+	 * @return the number of rows aggregated so far
+	 */
+	public int size() {
+		return aggregated.size();
+	}
+
+	/**
+	 * Complete the aggregated batch, and start a new one.
+	 * @return the batch of aggregated rows
+	 */
+	public RecordBatch drain() {
+		for (int group = 0; group < aggregator.size(); group++) {
+			for (int i = 0; i < updateColumns.length; i++) {
+				final int column = updateColumns[i];
+				if (column == -1) {
+					continue;
+				}
+				final double sum = aggregator.get(group, i);
+				switch (aggregated.getColumnType(column)) {
+				case DOUBLE:
+					aggregated.setDouble(groupRows[group], column, sum);
+					break;
+				case INTEGER:
+					aggregated.setInt(groupRows[group], column, (int) Math.round(sum));
+					break;
+				default:
+					aggregated.setString(groupRows[group], column, format(sum));
+				}
+			}
+		}
+		final RecordBatch result = aggregated;
+		aggregated = model.emptyCopy();
+		aggregator.clear();
+		return result;
+	}
+
+	/**
+	 * Format a sum, without the suffix ".0" of an integral value, to allow an Integer transformation later on.
+	 */
+	public static String format(final double sum) {
+		if ((sum == Math.rint(sum)) && (Math.abs(sum) < Long.MAX_VALUE)) {
+			return String.valueOf((long) sum);
+		}
+		return String.valueOf(sum);
+	}
+}
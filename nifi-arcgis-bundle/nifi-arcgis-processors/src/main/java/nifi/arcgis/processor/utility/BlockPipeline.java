@@ -0,0 +1,234 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.nifi.processor.exception.ProcessException;
+
+/**
+ * Pipeline handing blocks of records over to a consumer executed in background threads.
+ * <br/>The threads are borrowed from an executor shared by the pipelines of a processor : a pipeline runs at most
+ * <code>concurrency</code> workers, each one consuming the pending blocks of this pipeline in the order of submission.
+ * <br/>While a block is sent, the caller goes on parsing the next ones. At most <code>depth</code> blocks are
+ * in flight (queued or executing) : {@link #submit(Object)} blocks the caller as long as this limit is reached.
+ * <br/>A depth of <code>1</code> disables the pipeline : each block is consumed by the caller thread, one after another.
+ * <p>
+ * The first failure of the consumer, {@link Error} included, stops the pipeline : the pending blocks are dropped,
+ * and the failure is thrown back by the next call to {@link #submit(Object)} or by {@link #close()}.
+ * </p>
+ * <i>A pipeline is used for one flowFile, by one thread.</i>
+ *
+ * @param <T> type of block
+ */
+public class BlockPipeline<T> implements AutoCloseable {
+
+	/**
+	 * Maximum number of blocks in flight
+	 */
+	private final int depth;
+
+	/**
+	 * Consumer in charge of processing each block
+	 */
+	private final Consumer<T> blockConsumer;
+
+	/**
+	 * Maximum number of workers consuming the blocks at the same time
+	 */
+	private final int concurrency;
+
+	/**
+	 * Executor of the workers, <code>null</code> if the pipeline is disabled
+	 */
+	private final Executor executor;
+
+	/**
+	 * One permit per block allowed in flight
+	 */
+	private final Semaphore inFlight;
+
+	/**
+	 * Blocks submitted, and not yet taken by a worker
+	 */
+	private final Queue<T> pending = new ArrayDeque<T>();
+
+	/**
+	 * Number of workers running, guarded by <code>pending</code>
+	 */
+	private int workers = 0;
+
+	/**
+	 * First failure of the consumer
+	 */
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/**
+	 * Number of the pipeline threads, for naming purpose
+	 */
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+
+	/**
+	 * Time spent by the caller in {@link #submit(Object)} and {@link #close()}, in nanoseconds
+	 */
+	private long waitNanos = 0;
+
+	/**
+	 * Construction.
+	 * @param executor executor of the workers, shared by the pipelines. It is not used with a depth of <code>1</code>,
+	 * and might then be <code>null</code>
+	 * @param depth maximum number of blocks in flight
+	 * @param concurrency maximum number of blocks consumed at the same time, from <code>1</code> to <code>depth</code>.
+	 * With a concurrency of <code>1</code>, the blocks are consumed one at a time, in the order of submission.
+	 * @param blockConsumer consumer of the blocks
+	 */
+	public BlockPipeline(final Executor executor, final int depth, final int concurrency,
+			final Consumer<T> blockConsumer) {
+		if (depth <= 0) {
+			throw new IllegalArgumentException("Depth must be positive : " + depth);
+		}
+		if ((concurrency <= 0) || (concurrency > depth)) {
+			throw new IllegalArgumentException("Concurrency must be between 1 and " + depth + " : " + concurrency);
+		}
+		if ((depth > 1) && (executor == null)) {
+			throw new IllegalArgumentException("An executor is required with a depth of " + depth);
+		}
+		this.depth = depth;
+		this.concurrency = concurrency;
+		this.blockConsumer = blockConsumer;
+		this.inFlight = new Semaphore(depth);
+		this.executor = (depth == 1) ? null : executor;
+	}
+
+	/**
+	 * Create the executor shared by the pipelines of a processor : its threads are daemons, created on demand
+	 * and released after one minute of inactivity.
+	 * @return the executor, to shut down when the processor is stopped
+	 */
+	public static ExecutorService createExecutor() {
+		final ThreadFactory threadFactory = runnable -> {
+			final Thread thread = new Thread(runnable, "PutArcGIS-pipeline-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+		return Executors.newCachedThreadPool(threadFactory);
+	}
+
+	/**
+	 * Submit a block. The caller is blocked while <code>depth</code> blocks are already in flight.
+	 * @param block block of records
+	 * @throws ProcessException the failure of a previous block, or an interruption
+	 */
+	public void submit(final T block) throws ProcessException {
+		checkFailure();
+		final long start = System.nanoTime();
+		if (executor == null) {
+			try {
+				blockConsumer.accept(block);
+			} finally {
+				waitNanos += System.nanoTime() - start;
+			}
+			return;
+		}
+		try {
+			inFlight.acquire();
+		} catch (final InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new ProcessException("Interrupted while waiting for a block in flight", ie);
+		} finally {
+			waitNanos += System.nanoTime() - start;
+		}
+		final boolean startWorker;
+		synchronized (pending) {
+			pending.add(block);
+			startWorker = (workers < concurrency);
+			if (startWorker) {
+				workers++;
+			}
+		}
+		if (startWorker) {
+			try {
+				executor.execute(this::consumePending);
+			} catch (final RejectedExecutionException ree) {
+				// The pending blocks are dropped by the caller, to release their permits
+				failure.compareAndSet(null, ree);
+				consumePending();
+				checkFailure();
+			}
+		}
+	}
+
+	/**
+	 * Worker consuming the pending blocks, until none is left.
+	 */
+	private void consumePending() {
+		while (true) {
+			final T block;
+			synchronized (pending) {
+				block = pending.poll();
+				if (block == null) {
+					workers--;
+					return;
+				}
+			}
+			try {
+				if (failure.get() == null) {
+					blockConsumer.accept(block);
+				}
+			} catch (final Throwable t) {
+				failure.compareAndSet(null, t);
+			} finally {
+				inFlight.release();
+			}
+		}
+	}
+
+	/**
+	 * Wait for the blocks in flight.
+	 * @throws ProcessException the first failure of the consumer, or an interruption
+	 */
+	@Override
+	public void close() throws ProcessException {
+		if (executor != null) {
+			final long start = System.nanoTime();
+			try {
+				inFlight.acquire(depth);
+				inFlight.release(depth);
+			} catch (final InterruptedException ie) {
+				// The workers drop the pending blocks
+				failure.compareAndSet(null, ie);
+				Thread.currentThread().interrupt();
+				throw new ProcessException("Interrupted while waiting for the blocks in flight", ie);
+			} finally {
+				waitNanos += System.nanoTime() - start;
+			}
+		}
+		checkFailure();
+	}
+
+	/**
+	 * @return the time spent by the caller in {@link #submit(Object)} and {@link #close()}, in nanoseconds :
+	 *         waiting for a block in flight, or consuming the blocks itself if the pipeline is disabled
+	 */
+	public long getWaitNanos() {
+		return waitNanos;
+	}
+
+	private void checkFailure() throws ProcessException {
+		final Throwable t = failure.get();
+		if (t != null) {
+			throw (t instanceof ProcessException) ? (ProcessException) t : new ProcessException(t);
+		}
+	}
+}
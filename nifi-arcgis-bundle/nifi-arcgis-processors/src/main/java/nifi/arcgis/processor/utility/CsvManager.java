@@ -57,10 +57,43 @@ public class CsvManager {
 	 */
 	public static List<String> parseLine(String cvsLine, char separators, char customQuote) {
 
+		// if empty, return!
+		if (cvsLine == null || cvsLine.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		return parseLine(cvsLine.toCharArray(), 0, cvsLine.length(), separators, customQuote);
+	}
+
+	/**
+	 * Parse a slice of characters containing a CSV line with the default value for quote.
+	 * 
+	 * @param chars buffer containing the line, such as the window of a {@link LineScanner}
+	 * @param start index of the first character of the line
+	 * @param end index following the last character of the line
+	 * @param separators the char used for separator such as <b><code>;</code></b> or <b><code>,</code></b>
+	 * @return list of entries parsed from the line
+	 */
+	public static List<String> parseLine(char[] chars, int start, int end, char separators) {
+		return parseLine(chars, start, end, separators, DEFAULT_QUOTE);
+	}
+
+	/**
+	 * Parse a slice of characters containing a CSV line, without copying the line beforehand.
+	 * 
+	 * @param chars buffer containing the line
+	 * @param start index of the first character of the line
+	 * @param end index following the last character of the line
+	 * @param separators the char used for separator such as <b><code>;</code></b> or <b><code>,</code></b>
+	 * @param customQuote the type of quote if necessary
+	 * @return list of entries parsed from the line
+	 */
+	public static List<String> parseLine(char[] chars, int start, int end, char separators, char customQuote) {
+
 		List<String> result = new ArrayList<>();
 
 		// if empty, return!
-		if (cvsLine == null || cvsLine.isEmpty()) {
+		if (start >= end) {
 			return result;
 		}
 
@@ -77,9 +110,8 @@ public class CsvManager {
 		boolean startCollectChar = false;
 		boolean doubleQuotesInColumn = false;
 
-		char[] chars = cvsLine.toCharArray();
-
-		for (char ch : chars) {
+		for (int i = start; i < end; i++) {
+			final char ch = chars[i];
 
 			if (inQuotes) {
 				startCollectChar = true;
@@ -105,7 +137,7 @@ public class CsvManager {
 					inQuotes = true;
 
 					// Fixed : allow "" in empty quote enclosed
-					if (chars[0] != '"' && customQuote == '\"') {
+					if (chars[start] != '"' && customQuote == '\"') {
 						curVal.append('"');
 					}
 
@@ -0,0 +1,252 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.util.Arrays;
+
+/**
+ * CSV tokenizer writing the column boundaries of a line into reusable offset arrays.
+ * <p>
+ * Unlike {@link CsvManager}, the tokenizer does not allocate anything per line : it works directly on
+ * the slice of characters given (typically the window of a {@link LineScanner}), and a column only
+ * becomes a String, a double or an int when it is requested.
+ * </p>
+ * <p>
+ * A column starting with the quote character ends at the next single quote character,
+ * separators included. Inside such a column, a doubled quote stands for one quote.
+ * Characters between the closing quote and the next separator are ignored.
+ * </p>
+ * <i>The offsets are only valid until the next call to {@link #tokenize(char[], int, int)}, and as long as
+ * the underlying buffer is not modified.</i>
+ */
+public class CsvTokenizer {
+
+	/**
+	 * The default QUOTE
+	 */
+	private static final char DEFAULT_QUOTE = '"';
+
+	/**
+	 * The separator of columns
+	 */
+	private final char separator;
+
+	/**
+	 * The quote character
+	 */
+	private final char quote;
+
+	/**
+	 * Buffer of the line currently tokenized
+	 */
+	private char[] buffer;
+
+	/**
+	 * Start (inclusive) and end (exclusive) of each column in the buffer
+	 */
+	private int[] starts = new int[16], ends = new int[16];
+
+	/**
+	 * <code>true</code> for the columns containing doubled quotes to unescape
+	 */
+	private boolean[] escaped = new boolean[16];
+
+	/**
+	 * Number of columns of the current line
+	 */
+	private int count = 0;
+
+	/**
+	 * Construction with the default quote.
+	 * @param separator the char used for separator such as <b><code>;</code></b> or <b><code>,</code></b>
+	 */
+	public CsvTokenizer(final char separator) {
+		this(separator, DEFAULT_QUOTE);
+	}
+
+	/**
+	 * Construction.
+	 * @param separator the char used for separator such as <b><code>;</code></b> or <b><code>,</code></b>
+	 * @param quote the type of quote
+	 */
+	public CsvTokenizer(final char separator, final char quote) {
+		this.separator = separator;
+		this.quote = quote;
+	}
+
+	/**
+	 * Tokenize a line.
+	 * @param chars buffer containing the line
+	 * @param start index of the first character of the line
+	 * @param end index following the last character of the line
+	 * @return the number of columns found. An empty line contains one empty column.
+	 */
+	public int tokenize(final char[] chars, final int start, final int end) {
+		this.buffer = chars;
+		count = 0;
+		int i = start;
+		while (true) {
+			if (count == starts.length) {
+				grow();
+			}
+			if ((i < end) && (chars[i] == quote)) {
+				// Quoted column
+				boolean doubled = false;
+				int closing = ++i;
+				while (closing < end) {
+					if (chars[closing] == quote) {
+						if ((closing + 1 < end) && (chars[closing + 1] == quote)) {
+							doubled = true;
+							closing += 2;
+							continue;
+						}
+						break;
+					}
+					closing++;
+				}
+				starts[count] = i;
+				ends[count] = Math.min(closing, end);
+				escaped[count] = doubled;
+				i = closing;
+				while ((i < end) && (chars[i] != separator)) {
+					i++;
+				}
+			} else {
+				starts[count] = i;
+				while ((i < end) && (chars[i] != separator)) {
+					i++;
+				}
+				ends[count] = i;
+				escaped[count] = false;
+			}
+			count++;
+			if (i >= end) {
+				return count;
+			}
+			// skip the separator
+			i++;
+		}
+	}
+
+	private void grow() {
+		starts = Arrays.copyOf(starts, starts.length * 2);
+		ends = Arrays.copyOf(ends, ends.length * 2);
+		escaped = Arrays.copyOf(escaped, escaped.length * 2);
+	}
+
+	/**
+	 * @return the number of columns of the current line
+	 */
+	public int getColumnCount() {
+		return count;
+	}
+
+	/**
+	 * @return the buffer of the current line
+	 */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @param column rank of the column, starting from 0
+	 * @return the index of the first character of the column in the buffer
+	 */
+	public int getStart(final int column) {
+		checkColumn(column);
+		return starts[column];
+	}
+
+	/**
+	 * @param column rank of the column, starting from 0
+	 * @return the index following the last character of the column in the buffer
+	 */
+	public int getEnd(final int column) {
+		checkColumn(column);
+		return ends[column];
+	}
+
+	/**
+	 * @param column rank of the column, starting from 0
+	 * @return <code>true</code> if the column is empty
+	 */
+	public boolean isEmpty(final int column) {
+		checkColumn(column);
+		return starts[column] == ends[column];
+	}
+
+	/**
+	 * @param column rank of the column, starting from 0
+	 * @return the value of the column
+	 */
+	public String getString(final int column) {
+		checkColumn(column);
+		final int start = starts[column];
+		final int length = ends[column] - start;
+		if (!escaped[column]) {
+			return new String(buffer, start, length);
+		}
+		final StringBuilder sb = new StringBuilder(length);
+		for (int i = start; i < ends[column]; i++) {
+			sb.append(buffer[i]);
+			if ((buffer[i] == quote) && (i + 1 < ends[column]) && (buffer[i + 1] == quote)) {
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Parse a double directly from the buffer, without creating a String.
+	 * @param column rank of the column, starting from 0
+	 * @return the value of the column as a double, identical to {@link Double#parseDouble(String)}
+	 * @throws NumberFormatException if the column does not contain a parsable double
+	 * @see DecimalParser
+	 */
+	public double getDouble(final int column) {
+		checkColumn(column);
+		if (escaped[column]) {
+			return Double.parseDouble(getString(column));
+		}
+		return DecimalParser.parseDouble(buffer, starts[column], ends[column]);
+	}
+
+	/**
+	 * Parse an int directly from the buffer, without creating a String.
+	 * @param column rank of the column, starting from 0
+	 * @return the value of the column as an int
+	 * @throws NumberFormatException if the column does not contain a parsable int
+	 */
+	public int getInt(final int column) {
+		checkColumn(column);
+		int i = starts[column];
+		final int end = ends[column];
+		if (i == end) {
+			throw new NumberFormatException("Empty column " + column);
+		}
+		final boolean negative = (buffer[i] == '-');
+		if (negative || (buffer[i] == '+')) {
+			i++;
+		}
+		// Up to 9 digits cannot overflow an int
+		if ((i == end) || (end - i > 9)) {
+			return Integer.parseInt(getString(column));
+		}
+		int value = 0;
+		for (; i < end; i++) {
+			final int digit = buffer[i] - '0';
+			if ((digit < 0) || (digit > 9)) {
+				throw new NumberFormatException("For input string: \"" + getString(column) + "\"");
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	private void checkColumn(final int column) {
+		if ((column < 0) || (column >= count)) {
+			throw new IndexOutOfBoundsException("Column " + column + " out of " + count);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.math.BigInteger;
+
+/**
+ * Parser of decimal numbers working directly on a slice of characters, without creating a String.
+ * <p>
+ * The result is always identical to {@link Double#parseDouble(String)}, bit for bit :
+ * <ul>
+ * <li>a decimal with at most 15 significant digits and a small exponent, such as a GPS coordinate,
+ * is converted exactly with one floating-point multiplication or division (Clinger's fast path),</li>
+ * <li>a decimal with at most 19 significant digits is converted with the Eisel-Lemire algorithm,
+ * a 128-bit approximation of the power of ten which is proven to be sufficient for such a mantissa,</li>
+ * <li>anything else (more digits, subnormal or overflowing values, <code>NaN</code>, <code>Infinity</code>,
+ * hexadecimal notation, surrounding spaces, type suffix, invalid number...) is handed over to
+ * {@link Double#parseDouble(String)}.</li>
+ * </ul>
+ * </p>
+ */
+public final class DecimalParser {
+
+	/**
+	 * Range of the powers of ten handled by the Eisel-Lemire algorithm
+	 */
+	private static final int SMALLEST_POWER_OF_TEN = -342, LARGEST_POWER_OF_TEN = 308;
+
+	/**
+	 * Powers of ten exactly representable as a double
+	 */
+	private static final double[] EXACT_POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Largest mantissa exactly representable as a double
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/**
+	 * High and low 64 bits of the 128-bit truncated significand of each power of five,
+	 * from <code>5^-342</code> to <code>5^308</code>
+	 */
+	private static final long[] POWERS_OF_FIVE_HIGH, POWERS_OF_FIVE_LOW;
+
+	static {
+		final int size = LARGEST_POWER_OF_TEN - SMALLEST_POWER_OF_TEN + 1;
+		POWERS_OF_FIVE_HIGH = new long[size];
+		POWERS_OF_FIVE_LOW = new long[size];
+		for (int q = SMALLEST_POWER_OF_TEN; q <= LARGEST_POWER_OF_TEN; q++) {
+			final BigInteger significand;
+			if (q < 0) {
+				// Rounded up reciprocal, truncated to 128 bits
+				final BigInteger power5 = BigInteger.valueOf(5).pow(-q);
+				final int z = power5.bitLength();
+				final int b = (q >= -27) ? z + 127 : 2 * z + 128;
+				final BigInteger c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+				significand = c.shiftRight(Math.max(0, c.bitLength() - 128));
+			} else {
+				// Normalized on 128 bits, and truncated
+				final BigInteger power5 = BigInteger.valueOf(5).pow(q);
+				significand = (power5.bitLength() <= 128) ? power5.shiftLeft(128 - power5.bitLength())
+						: power5.shiftRight(power5.bitLength() - 128);
+			}
+			POWERS_OF_FIVE_HIGH[q - SMALLEST_POWER_OF_TEN] = significand.shiftRight(64).longValue();
+			POWERS_OF_FIVE_LOW[q - SMALLEST_POWER_OF_TEN] = significand.longValue();
+		}
+	}
+
+	private DecimalParser() {
+	}
+
+	/**
+	 * Parse a decimal number.
+	 * @param chars buffer containing the number
+	 * @param start index of the first character of the number
+	 * @param end index following the last character of the number
+	 * @return the same value as {@link Double#parseDouble(String)}
+	 * @throws NumberFormatException if the slice does not contain a parsable double
+	 */
+	public static double parseDouble(final char[] chars, final int start, final int end) {
+		int i = start;
+		boolean negative = false;
+		if ((i < end) && ((chars[i] == '-') || (chars[i] == '+'))) {
+			negative = (chars[i] == '-');
+			i++;
+		}
+		long mantissa = 0;
+		int significantDigits = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		for (; i < end; i++) {
+			final char c = chars[i];
+			if ((c >= '0') && (c <= '9')) {
+				digits++;
+				if (fraction) {
+					fractionDigits++;
+				}
+				if ((significantDigits > 0) || (c != '0')) {
+					significantDigits++;
+					mantissa = mantissa * 10 + (c - '0');
+				}
+			} else if ((c == '.') && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		if ((digits == 0) || (significantDigits > 19)) {
+			return fallback(chars, start, end);
+		}
+		int exponent = 0;
+		if ((i < end) && ((chars[i] == 'e') || (chars[i] == 'E'))) {
+			i++;
+			boolean negativeExponent = false;
+			if ((i < end) && ((chars[i] == '-') || (chars[i] == '+'))) {
+				negativeExponent = (chars[i] == '-');
+				i++;
+			}
+			final int exponentStart = i;
+			for (; i < end; i++) {
+				final char c = chars[i];
+				if ((c < '0') || (c > '9') || (exponent > 100000)) {
+					break;
+				}
+				exponent = exponent * 10 + (c - '0');
+			}
+			if (i == exponentStart) {
+				return fallback(chars, start, end);
+			}
+			if (negativeExponent) {
+				exponent = -exponent;
+			}
+		}
+		if (i != end) {
+			return fallback(chars, start, end);
+		}
+		if (mantissa == 0) {
+			return negative ? -0.0 : 0.0;
+		}
+		final int q = exponent - fractionDigits;
+		// A mantissa of 19 digits may exceed Long.MAX_VALUE, and is then read as unsigned
+		if ((mantissa > 0) && (mantissa <= MAX_EXACT_MANTISSA) && (q >= -22) && (q <= 22)) {
+			// Both operands are exact : the only rounding is the correct one
+			final double value = (q < 0) ? mantissa / EXACT_POWERS_OF_TEN[-q] : mantissa * EXACT_POWERS_OF_TEN[q];
+			return negative ? -value : value;
+		}
+		final long bits = eiselLemire(mantissa, q);
+		if (bits < 0) {
+			return fallback(chars, start, end);
+		}
+		return Double.longBitsToDouble(negative ? (bits | Long.MIN_VALUE) : bits);
+	}
+
+	/**
+	 * Eisel-Lemire conversion of <code>w * 10^q</code>.
+	 * @param w the decimal mantissa, not zero and with at most 19 digits
+	 * @param q the decimal exponent
+	 * @return the bits of the positive double, or <code>-1</code> if the value is subnormal, infinite or out of the table
+	 */
+	static long eiselLemire(final long w, final int q) {
+		if ((q < SMALLEST_POWER_OF_TEN) || (q > LARGEST_POWER_OF_TEN)) {
+			return -1;
+		}
+		final int leadingZeros = Long.numberOfLeadingZeros(w);
+		final long normalized = w << leadingZeros;
+		final int index = q - SMALLEST_POWER_OF_TEN;
+
+		// 128-bit product of the mantissa with the significand of the power of five, with 55 bits of precision
+		long high = multiplyHigh(normalized, POWERS_OF_FIVE_HIGH[index]);
+		long low = normalized * POWERS_OF_FIVE_HIGH[index];
+		final long precisionMask = 0x1FFL;
+		if ((high & precisionMask) == precisionMask) {
+			final long secondHigh = multiplyHigh(normalized, POWERS_OF_FIVE_LOW[index]);
+			low += secondHigh;
+			if (Long.compareUnsigned(secondHigh, low) > 0) {
+				high++;
+			}
+		}
+
+		final int upperBit = (int) (high >>> 63);
+		long mantissa = high >>> (upperBit + 9);
+		int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - leadingZeros + 1023;
+		if (power2 <= 0) {
+			return -1;
+		}
+		// Round to nearest, ties to even : a product exactly between two doubles is only possible for small powers
+		if ((Long.compareUnsigned(low, 1) <= 0) && (q >= -4) && (q <= 23) && ((mantissa & 3) == 1)
+				&& ((mantissa << (upperBit + 9)) == high)) {
+			mantissa &= ~1L;
+		}
+		mantissa += (mantissa & 1);
+		mantissa >>>= 1;
+		if (mantissa >= (2L << 52)) {
+			mantissa = 1L << 52;
+			power2++;
+		}
+		mantissa &= ~(1L << 52);
+		if (power2 >= 0x7FF) {
+			return -1;
+		}
+		return mantissa | ((long) power2 << 52);
+	}
+
+	/**
+	 * @return the high 64 bits of the unsigned 128-bit product of x and y
+	 */
+	private static long multiplyHigh(final long x, final long y) {
+		final long x0 = x & 0xFFFFFFFFL, x1 = x >>> 32;
+		final long y0 = y & 0xFFFFFFFFL, y1 = y >>> 32;
+		final long cross = ((x0 * y0) >>> 32) + ((x1 * y0) & 0xFFFFFFFFL) + x0 * y1;
+		return ((x1 * y0) >>> 32) + (cross >>> 32) + x1 * y1;
+	}
+
+	private static double fallback(final char[] chars, final int start, final int end) {
+		return Double.parseDouble(new String(chars, start, end - start));
+	}
+}
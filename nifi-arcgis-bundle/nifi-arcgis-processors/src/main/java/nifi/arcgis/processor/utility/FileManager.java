@@ -37,9 +37,12 @@ public class FileManager {
 	/**
 	 * Read a simple line from the reader.
 	 * @param reader 
+	 * @deprecated this method copies each character one by one, and depends on the platform line separator.
+	 * Use {@link LineScanner} instead.
 	 * @return a StringBuilder containing one line from the reader, or <code>null</code> if we reached the end of the file
 	 * @throws IOException 
 	 */
+	@Deprecated
 	public static StringBuilder readLine(Reader reader) throws IOException {
 	
 		// Have we reached the end of the file ?
@@ -0,0 +1,166 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Line scanner working over a reusable <code>char[]</code> window.
+ * <br/>Each call to {@link #nextLine()} exposes the current line as a slice
+ * <code>[getStart(), getEnd())</code> of {@link #getBuffer()}, without copying it into a String.
+ * <br/>Lines are terminated by <code>\n</code> or <code>\r\n</code>, whatever the platform line separator.
+ * <br/><i>The slice is only valid until the next call to {@link #nextLine()}.</i>
+ */
+public class LineScanner {
+
+	/**
+	 * Default size of the window, in characters
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Reader scanned
+	 */
+	private final Reader reader;
+
+	/**
+	 * Window of characters read. The window is enlarged if a line is longer than the window
+	 */
+	private char[] buffer;
+
+	/**
+	 * Index of the first character not yet returned in a line
+	 */
+	private int position = 0;
+
+	/**
+	 * Index following the last valid character in the window
+	 */
+	private int limit = 0;
+
+	/**
+	 * Start and end (exclusive) of the current line in the window
+	 */
+	private int start = 0, end = 0;
+
+	/**
+	 * Have we reached the end of the reader ?
+	 */
+	private boolean eof = false;
+
+	/**
+	 * Construction with the default window size.
+	 * @param reader reader to scan
+	 */
+	public LineScanner(final Reader reader) {
+		this(reader, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Construction.
+	 * @param reader reader to scan
+	 * @param bufferSize initial size of the window
+	 */
+	public LineScanner(final Reader reader, final int bufferSize) {
+		this.reader = reader;
+		this.buffer = new char[Math.max(bufferSize, 16)];
+	}
+
+	/**
+	 * Move to the next line.
+	 * @return <code>true</code> if a line is available, <code>false</code> if the end of the reader has been reached
+	 * @throws IOException Exception occurs while reading
+	 */
+	public boolean nextLine() throws IOException {
+		int scan = position;
+		while (true) {
+			for (int i = scan; i < limit; i++) {
+				if (buffer[i] == '\n') {
+					setLine(position, i);
+					position = i + 1;
+					return true;
+				}
+			}
+			if (eof) {
+				if (position < limit) {
+					setLine(position, limit);
+					position = limit;
+					return true;
+				}
+				return false;
+			}
+			scan = fill();
+		}
+	}
+
+	/**
+	 * Mark the current line, without its trailing carriage return.
+	 */
+	private void setLine(final int lineStart, final int lineEnd) {
+		start = lineStart;
+		end = ((lineEnd > lineStart) && (buffer[lineEnd - 1] == '\r')) ? lineEnd - 1 : lineEnd;
+	}
+
+	/**
+	 * Compact the window, enlarge it if it is full, and read the next characters.
+	 * @return the index from which the scan for an end of line has to resume
+	 */
+	private int fill() throws IOException {
+		final int pending = limit - position;
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, pending);
+			position = 0;
+			limit = pending;
+		}
+		if (limit == buffer.length) {
+			final char[] larger = new char[buffer.length * 2];
+			System.arraycopy(buffer, 0, larger, 0, limit);
+			buffer = larger;
+		}
+		final int read = reader.read(buffer, limit, buffer.length - limit);
+		if (read == -1) {
+			eof = true;
+		} else {
+			limit += read;
+		}
+		return pending;
+	}
+
+	/**
+	 * @return the window containing the current line
+	 */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return the index of the first character of the current line
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return the index following the last character of the current line
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return the length of the current line
+	 */
+	public int length() {
+		return end - start;
+	}
+
+	/**
+	 * @return a copy of the current line, for logging or testing purpose
+	 */
+	@Override
+	public String toString() {
+		return new String(buffer, start, end - start);
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Parser cutting a stream into large chunks of bytes aligned on line boundaries, and parsing these chunks
+ * in parallel on a fork-join pool.
+ * <br/>A chunk ends after its last <code>'\n'</code> byte : the character set of the stream must encode
+ * the line feed on this single byte, and never use this byte inside another character (UTF-8, ISO-8859-x...).
+ * A line longer than a chunk extends its chunk.
+ * <p>
+ * The results of a chunk are handed over to the consumer by the caller thread, once the whole chunk is parsed :
+ * either in the order of the stream, or in the order of completion of the chunks.
+ * At most two chunks per thread are in flight, so the reading of the stream waits for the slowest chunks.
+ * </p>
+ * <i>A parser can be shared by several threads, each parsing its own stream.</i>
+ *
+ * @param <T> type of result
+ */
+public class ParallelChunkParser<T> implements AutoCloseable {
+
+	/**
+	 * Parser of one chunk, executed in the pool.
+	 *
+	 * @param <T> type of result
+	 */
+	@FunctionalInterface
+	public interface ChunkParser<T> {
+
+		/**
+		 * @param chunk buffer containing complete lines, a line feed being missing at most after the last one
+		 * @param length number of bytes of the chunk in the buffer
+		 * @param resultConsumer consumer of the results of the chunk, invoked in the thread of the pool
+		 * @return the number of records parsed
+		 * @throws IOException if the chunk cannot be parsed
+		 */
+		long parse(byte[] chunk, int length, Consumer<T> resultConsumer) throws IOException;
+	}
+
+	/**
+	 * Results of a chunk
+	 */
+	private static class Chunk<T> {
+
+		private final long count;
+
+		private final List<T> results;
+
+		/**
+		 * Failure of the chunk parser, <code>null</code> if the chunk has been parsed
+		 */
+		private final IOException failure;
+
+		private Chunk(final long count, final List<T> results, final IOException failure) {
+			this.count = count;
+			this.results = results;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Pool executing the chunk parsers
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Size of a chunk in bytes
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Maximum number of chunks in flight for a stream
+	 */
+	private final int maxChunks;
+
+	/**
+	 * Construction.
+	 * @param threads number of threads parsing the chunks
+	 * @param chunkSize size of a chunk in bytes
+	 */
+	public ParallelChunkParser(final int threads, final int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive : " + chunkSize);
+		}
+		this.pool = new ForkJoinPool(threads);
+		this.chunkSize = chunkSize;
+		this.maxChunks = 2 * threads;
+	}
+
+	/**
+	 * Parse a stream.
+	 * @param inputStream the stream to parse
+	 * @param chunkParser the parser of each chunk
+	 * @param ordered <code>true</code> to consume the results in the order of the stream,
+	 * <code>false</code> to consume them as soon as their chunk is parsed
+	 * @param resultConsumer consumer of the results, invoked in the caller thread
+	 * @return the number of records parsed
+	 * @throws IOException if the stream cannot be read, or a chunk cannot be parsed.
+	 * The chunks still in flight are then cancelled.
+	 */
+	public long parse(final InputStream inputStream, final ChunkParser<T> chunkParser, final boolean ordered,
+			final Consumer<T> resultConsumer) throws IOException {
+
+		final Deque<Future<Chunk<T>>> inFlight = new ArrayDeque<Future<Chunk<T>>>();
+		long count = 0;
+		try {
+			byte[] buffer = new byte[chunkSize];
+			int length = 0;
+			boolean eof = false;
+			while (!eof) {
+				while (length < buffer.length) {
+					final int read = inputStream.read(buffer, length, buffer.length - length);
+					if (read == -1) {
+						eof = true;
+						break;
+					}
+					length += read;
+				}
+				final int cut = eof ? length : lastLineEnd(buffer, length);
+				if (cut == 0) {
+					if (!eof) {
+						// A line longer than the chunk
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					}
+					continue;
+				}
+				final byte[] chunk = buffer;
+				buffer = new byte[Math.max(chunkSize, length - cut)];
+				System.arraycopy(chunk, cut, buffer, 0, length - cut);
+				length -= cut;
+
+				inFlight.add(pool.submit(() -> {
+					final List<T> results = new ArrayList<T>();
+					try {
+						return new Chunk<T>(chunkParser.parse(chunk, cut, results::add), results, null);
+					} catch (final IOException e) {
+						return new Chunk<T>(0, results, e);
+					}
+				}));
+				if (inFlight.size() >= maxChunks) {
+					count += consume(next(inFlight, ordered), resultConsumer);
+				}
+			}
+			while (!inFlight.isEmpty()) {
+				count += consume(next(inFlight, ordered), resultConsumer);
+			}
+			return count;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (final ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			inFlight.forEach(future -> future.cancel(true));
+		}
+	}
+
+	/**
+	 * @return the next chunk to consume : the oldest one if ordered, otherwise the first one completed if any
+	 */
+	private Future<Chunk<T>> next(final Deque<Future<Chunk<T>>> inFlight, final boolean ordered) {
+		if (!ordered) {
+			final Iterator<Future<Chunk<T>>> iterator = inFlight.iterator();
+			while (iterator.hasNext()) {
+				final Future<Chunk<T>> future = iterator.next();
+				if (future.isDone()) {
+					iterator.remove();
+					return future;
+				}
+			}
+		}
+		return inFlight.poll();
+	}
+
+	private long consume(final Future<Chunk<T>> future, final Consumer<T> resultConsumer)
+			throws InterruptedException, ExecutionException, IOException {
+		final Chunk<T> chunk = future.get();
+		if (chunk.failure != null) {
+			throw chunk.failure;
+		}
+		chunk.results.forEach(resultConsumer);
+		return chunk.count;
+	}
+
+	/**
+	 * @return the index following the last line feed of the buffer, <code>0</code> if none
+	 */
+	private static int lastLineEnd(final byte[] buffer, final int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (buffer[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public void close() {
+		pool.shutdownNow();
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Accumulator of records, which hands them over to a consumer by blocks of <code>quotity</code> elements.
+ * <br/>Only one block is kept in memory at any time, whatever the number of records added.
+ * <br/><i>A new list is allocated for each block, so the consumer can keep a reference on the list received.</i>
+ *
+ * @param <T> type of record
+ */
+public class RecordBatcher<T> {
+
+	/**
+	 * Maximum number of records in a block
+	 */
+	private final int quotity;
+
+	/**
+	 * Consumer in charge of processing each complete block
+	 */
+	private final Consumer<List<T>> blockConsumer;
+
+	/**
+	 * Block in progress
+	 */
+	private List<T> block;
+
+	/**
+	 * Total number of records added into this batcher
+	 */
+	private long count = 0;
+
+	/**
+	 * Construction.
+	 * @param quotity maximum number of records in a block
+	 * @param blockConsumer consumer invoked each time a block is complete
+	 */
+	public RecordBatcher(final int quotity, final Consumer<List<T>> blockConsumer) {
+		if (quotity <= 0) {
+			throw new IllegalArgumentException("Quotity must be positive : " + quotity);
+		}
+		this.quotity = quotity;
+		this.blockConsumer = blockConsumer;
+		this.block = new ArrayList<T>(quotity);
+	}
+
+	/**
+	 * Add a record into the current block.
+	 * <br/>The block is sent to the consumer as soon as it reaches the quotity.
+	 * @param record record to add
+	 */
+	public void add(final T record) {
+		block.add(record);
+		count++;
+		if (block.size() == quotity) {
+			flush();
+		}
+	}
+
+	/**
+	 * Send the block in progress to the consumer, if this block is not empty.
+	 */
+	public void flush() {
+		if (block.isEmpty()) {
+			return;
+		}
+		final List<T> complete = block;
+		block = new ArrayList<T>(quotity);
+		blockConsumer.accept(complete);
+	}
+
+	/**
+	 * @return the total number of records added into this batcher
+	 */
+	public long getCount() {
+		return count;
+	}
+}
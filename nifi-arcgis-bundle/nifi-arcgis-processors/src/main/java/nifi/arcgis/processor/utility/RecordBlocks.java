@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Slicing of a list of records into blocks of <code>quotity</code> elements, by index.
+ * <br/>Each block is a <code>subList</code> view on the source list : no record is copied or removed,
+ * so slicing <code>n</code> records costs <code>O(n/quotity)</code> instead of the <code>O(n&sup2;)</code>
+ * of successive <code>remove(0)</code> on an <code>ArrayList</code>.
+ * <br/>The block <code>i</code> holds the records from <code>i * quotity</code> : the blocks can be processed
+ * in any order, and each of them reported by its index.
+ * <br/><i>The source list must not be structurally modified while the blocks are in use.</i>
+ *
+ * @param <T> type of record
+ */
+public class RecordBlocks<T> extends AbstractList<List<T>> {
+
+	/**
+	 * Source list of records
+	 */
+	private final List<T> records;
+
+	/**
+	 * Maximum number of records in a block
+	 */
+	private final int quotity;
+
+	/**
+	 * Construction.
+	 * @param records source list of records
+	 * @param quotity maximum number of records in a block
+	 */
+	public RecordBlocks(final List<T> records, final int quotity) {
+		if (quotity <= 0) {
+			throw new IllegalArgumentException("Quotity must be positive : " + quotity);
+		}
+		this.records = records;
+		this.quotity = quotity;
+	}
+
+	/**
+	 * @param block index of the block
+	 * @return the records of the block, as a view on the source list
+	 */
+	@Override
+	public List<T> get(final int block) {
+		if ((block < 0) || (block >= size())) {
+			throw new IndexOutOfBoundsException("Block : " + block + ", Blocks : " + size());
+		}
+		return records.subList(block * quotity, Math.min(records.size(), (block + 1) * quotity));
+	}
+
+	/**
+	 * @return the number of blocks
+	 */
+	@Override
+	public int size() {
+		return (records.size() + quotity - 1) / quotity;
+	}
+}
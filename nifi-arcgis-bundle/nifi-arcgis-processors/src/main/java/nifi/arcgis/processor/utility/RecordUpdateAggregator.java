@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregation of map-based records on their location, with an {@link UpdateAggregator}.
+ * <br/>The records are added one by one, possibly from several flowFiles. Each location produces one record,
+ * in the order of its first occurrence : its update fields contain the sum of the values received,
+ * the other fields contain the last values received.
+ * <br/>A record without a valid location cannot be aggregated, and is kept as is.
+ * A null update value adds nothing to the sum of its location.
+ * <br/><i>This class is not thread-safe.</i>
+ */
+public class RecordUpdateAggregator {
+
+	/**
+	 * Names of the additive update fields, without their operator
+	 */
+	private final List<String> updateFields;
+
+	private final UpdateAggregator aggregator;
+
+	/**
+	 * Aggregated records in progress
+	 */
+	private List<Map<String, String>> aggregated = new ArrayList<Map<String, String>>();
+
+	/**
+	 * Index of each group in the aggregated records
+	 */
+	private int[] recordOfGroup;
+
+	/**
+	 * Construction.
+	 * @param updateFields names of the additive update fields, without their operator
+	 * @param expectedGroups expected number of locations
+	 */
+	public RecordUpdateAggregator(final List<String> updateFields, final int expectedGroups) {
+		this.updateFields = updateFields;
+		this.aggregator = new UpdateAggregator(updateFields.size(), expectedGroups);
+		this.recordOfGroup = new int[Math.max(expectedGroups, 16)];
+	}
+
+	/**
+	 * Aggregate a record.
+	 * @param record the record, which is not modified
+	 * @throws NumberFormatException if the value of an update field is not a number
+	 */
+	public void add(final Map<String, String> record) {
+		final int before = aggregator.size();
+		final int group;
+		try {
+			group = aggregator.group(coordinate(record, "latitude", "x"), coordinate(record, "longitude", "y"));
+		} catch (final NumberFormatException | NullPointerException e) {
+			// No valid location : the record is sent as is, and rejected by the service
+			aggregated.add(record);
+			return;
+		}
+		if (group == before) {
+			if (group == recordOfGroup.length) {
+				recordOfGroup = Arrays.copyOf(recordOfGroup, group * 2);
+			}
+			recordOfGroup[group] = aggregated.size();
+			aggregated.add(new HashMap<String, String>(record));
+		} else {
+			aggregated.get(recordOfGroup[group]).putAll(record);
+		}
+		for (int i = 0; i < updateFields.size(); i++) {
+			final String value = record.get(updateFields.get(i));
+			if (value != null) {
+				aggregator.add(group, i, Double.parseDouble(value));
+			}
+		}
+	}
+
+	/**
+	 * @return the coordinate of a record, read in its geographic field if present, in its cartesian field otherwise
+	 * @throws NumberFormatException if the coordinate is not a number
+	 * @throws NullPointerException if the coordinate is missing
+	 */
+	private static double coordinate(final Map<String, String> record, final String geographicField,
+			final String cartesianField) {
+		final String value = record.containsKey(geographicField) ? record.get(geographicField) : record.get(cartesianField);
+		return Double.parseDouble(value);
+	}
+
+	/**
+	 * @return the number of records aggregated so far
+	 */
+	public int size() {
+		return aggregated.size();
+	}
+
+	/**
+	 * Complete the aggregated records, and start new ones.
+	 * @return the aggregated records
+	 */
+	public List<Map<String, String>> drain() {
+		for (int group = 0; group < aggregator.size(); group++) {
+			final Map<String, String> record = aggregated.get(recordOfGroup[group]);
+			for (int i = 0; i < updateFields.size(); i++) {
+				record.put(updateFields.get(i), BatchUpdateAggregator.format(aggregator.get(group, i)));
+			}
+		}
+		final List<Map<String, String>> result = aggregated;
+		aggregated = new ArrayList<Map<String, String>>();
+		aggregator.clear();
+		return result;
+	}
+}
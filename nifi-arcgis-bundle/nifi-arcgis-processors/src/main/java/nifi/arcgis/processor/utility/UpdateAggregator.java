@@ -0,0 +1,173 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import java.util.Arrays;
+
+/**
+ * Aggregation engine of the additive updates (<code>+field</code>, <code>-field</code>) sharing the same location.
+ * <br/>Each location is a group, numbered in the order of its first occurrence. The groups are found with an
+ * open-addressing table keyed by the coordinates, quantized and packed into a <code>long</code> : two distinct
+ * locations never share a group, their exact coordinates being compared on each match of the key.
+ * <br/>Each group holds one primitive <code>double</code> accumulator per update field.
+ * <br/><i>This class is not thread-safe.</i>
+ */
+public class UpdateAggregator {
+
+	/**
+	 * Quantization step of the coordinates packed into the key
+	 */
+	final static double QUANTUM = 1e-7;
+
+	/**
+	 * Number of accumulators per group
+	 */
+	private final int accumulators;
+
+	/**
+	 * Slots of the table : the group number + 1, or <code>0</code> for an empty slot
+	 */
+	private int[] slots;
+
+	/**
+	 * Packed key of each slot
+	 */
+	private long[] slotKeys;
+
+	/**
+	 * Coordinates of each group
+	 */
+	private double[] xs, ys;
+
+	/**
+	 * Accumulators of each group, <code>accumulators</code> values per group
+	 */
+	private double[] sums;
+
+	/**
+	 * Number of groups
+	 */
+	private int size = 0;
+
+	/**
+	 * Construction.
+	 * @param accumulators number of accumulators per group
+	 * @param expectedGroups expected number of groups, to size the table
+	 */
+	public UpdateAggregator(final int accumulators, final int expectedGroups) {
+		this.accumulators = accumulators;
+		final int groups = Math.max(expectedGroups, 16);
+		slots = new int[tableSize(groups)];
+		slotKeys = new long[slots.length];
+		xs = new double[groups];
+		ys = new double[groups];
+		sums = new double[groups * accumulators];
+	}
+
+	/**
+	 * @return a power of two, at least twice the number of groups
+	 */
+	private static int tableSize(final int groups) {
+		return Integer.highestOneBit(Math.max(groups, 8) * 2 - 1) << 1;
+	}
+
+	/**
+	 * Pack the quantized coordinates of a location.
+	 * <br/>Beyond 32 bits, a quantized coordinate is truncated : the key is then shared by distant locations,
+	 * which are still separated by the comparison of their exact coordinates.
+	 */
+	static long key(final double x, final double y) {
+		return (Math.round(x / QUANTUM) << 32) | (Math.round(y / QUANTUM) & 0xffffffffL);
+	}
+
+	/**
+	 * Spread the bits of a key over the table index
+	 */
+	private static int hash(final long key) {
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Find the group of a location, or create it.
+	 * @param x first coordinate of the location
+	 * @param y second coordinate of the location
+	 * @return the number of the group. A new group has the number {@link #size()} - 1, and its accumulators are zero.
+	 */
+	public int group(final double x, final double y) {
+		final long key = key(x, y);
+		final int mask = slots.length - 1;
+		int index = hash(key) & mask;
+		while (slots[index] != 0) {
+			final int group = slots[index] - 1;
+			if ((slotKeys[index] == key) && (Double.compare(xs[group], x) == 0) && (Double.compare(ys[group], y) == 0)) {
+				return group;
+			}
+			index = (index + 1) & mask;
+		}
+		if (size == xs.length) {
+			final int capacity = xs.length * 2;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			sums = Arrays.copyOf(sums, capacity * accumulators);
+		}
+		final int group = size++;
+		xs[group] = x;
+		ys[group] = y;
+		slots[index] = group + 1;
+		slotKeys[index] = key;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return group;
+	}
+
+	private void rehash() {
+		final int[] oldSlots = slots;
+		final long[] oldKeys = slotKeys;
+		slots = new int[oldSlots.length * 2];
+		slotKeys = new long[slots.length];
+		final int mask = slots.length - 1;
+		for (int i = 0; i < oldSlots.length; i++) {
+			if (oldSlots[i] != 0) {
+				int index = hash(oldKeys[i]) & mask;
+				while (slots[index] != 0) {
+					index = (index + 1) & mask;
+				}
+				slots[index] = oldSlots[i];
+				slotKeys[index] = oldKeys[i];
+			}
+		}
+	}
+
+	/**
+	 * Add a value into an accumulator of a group.
+	 */
+	public void add(final int group, final int accumulator, final double value) {
+		sums[group * accumulators + accumulator] += value;
+	}
+
+	/**
+	 * @return the value of an accumulator of a group
+	 */
+	public double get(final int group, final int accumulator) {
+		return sums[group * accumulators + accumulator];
+	}
+
+	/**
+	 * @return the number of groups
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all the groups. The memory allocated is kept for the next groups.
+	 */
+	public void clear() {
+		Arrays.fill(slots, 0);
+		Arrays.fill(sums, 0, size * accumulators, 0d);
+		size = 0;
+	}
+}
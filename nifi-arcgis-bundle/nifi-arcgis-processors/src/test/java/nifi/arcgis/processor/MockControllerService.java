@@ -1,11 +1,16 @@
 package nifi.arcgis.processor;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.nifi.controller.AbstractControllerService;
 import org.apache.nifi.processor.exception.ProcessException;
 
+import nifi.arcgis.service.arcgis.services.ColumnType;
+import nifi.arcgis.service.arcgis.services.RecordBatch;
+
 public class MockControllerService extends AbstractControllerService implements nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI {
 
 	private boolean headerValid;
@@ -27,25 +32,117 @@ public class MockControllerService extends AbstractControllerService implements
 	@Override
 	public void execute(List<Map<String, String>> arg0, Map<String, Object> arg1) throws ProcessException {
 		getLogger().debug("execution in MockControllerService");
-		this.last_arg0 = arg0;
-		this.last_arg1 = arg1;
+		if ((failingName != null) && arg0.stream().anyMatch(record -> failingName.equals(record.get("name")))) {
+			throw new ProcessException("Edit rejected for " + failingName);
+		}
+		final int concurrent = running.incrementAndGet();
+		maxConcurrentExecutions.accumulateAndGet(concurrent, Math::max);
+		try {
+			if (executeDelay > 0) {
+				Thread.sleep(executeDelay);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProcessException(e);
+		} finally {
+			running.decrementAndGet();
+		}
+		synchronized (this) {
+			this.last_arg0 = arg0;
+			this.last_arg1 = arg1;
+			this.executeCount++;
+			this.recordCount += arg0.size();
+		}
+	}
+
+	@Override
+	public Map<String, ColumnType> getSchema() throws ProcessException {
+		return schema;
+	}
+
+	@Override
+	public void execute(RecordBatch batch, Map<String, Object> settings) throws ProcessException {
+		synchronized (this) {
+			this.last_batch = batch;
+		}
+		execute(batch.toRecords(), settings);
 	}
 
+	RecordBatch last_batch;
 	List<Map<String, String>> last_arg0;
 	Map<String, Object> last_arg1;
+	int executeCount = 0;
+	int recordCount = 0;
+
+	/**
+	 * Duration of an execution in milliseconds, simulating the round trip with the ArcGIS server.
+	 */
+	long executeDelay = 0;
+	final AtomicInteger running = new AtomicInteger();
+	final AtomicInteger maxConcurrentExecutions = new AtomicInteger();
+
+	/**
+	 * Name of the record rejecting the block which holds it, simulating a failed edit.
+	 */
+	String failingName;
+
+	/**
+	 * Type of the fields of the featureTable.
+	 */
+	Map<String, ColumnType> schema = Collections.emptyMap();
+
+	public void setSchema(Map<String, ColumnType> schema) {
+		this.schema = schema;
+	}
+
+	public void setFailingName(String failingName) {
+		this.failingName = failingName;
+	}
+
+	public void setExecuteDelay(long executeDelay) {
+		this.executeDelay = executeDelay;
+	}
 	
 	/**
 	 * @return the first argument passed to the execute method.
 	 */
-	public List<Map<String, String>> getExecuteArg0() {
+	public synchronized List<Map<String, String>> getExecuteArg0() {
 		return last_arg0;
 	}
 	
 	/**
 	 * @return the second argument passed to the execute method.
 	 */
-	public Map<String, Object> getExecuteArg1() {
+	public synchronized Map<String, Object> getExecuteArg1() {
 		return last_arg1;
 	}
 
+	/**
+	 * @return the last column-oriented block passed to the execute method.
+	 */
+	public synchronized RecordBatch getExecuteBatch() {
+		return last_batch;
+	}
+
+	/**
+	 * @return the number of invocations of the execute method.
+	 */
+	public synchronized int getExecuteCount() {
+		return executeCount;
+	}
+
+	/**
+	 * @return the total number of records received by the execute method.
+	 */
+	public synchronized int getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * @return the maximum number of executions running at the same time.
+	 */
+	public int getMaxConcurrentExecutions() {
+		return maxConcurrentExecutions.get();
+	}
+
 }
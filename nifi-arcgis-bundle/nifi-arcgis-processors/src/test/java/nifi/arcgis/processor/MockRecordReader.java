@@ -0,0 +1,58 @@
+package nifi.arcgis.processor;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.nifi.controller.AbstractControllerService;
+import org.apache.nifi.logging.ComponentLog;
+import org.apache.nifi.serialization.RecordReader;
+import org.apache.nifi.serialization.RecordReaderFactory;
+import org.apache.nifi.serialization.record.MapRecord;
+import org.apache.nifi.serialization.record.Record;
+import org.apache.nifi.serialization.record.RecordSchema;
+
+/**
+ * Record Reader returning the same typed records for each FlowFile, whatever its content.
+ */
+public class MockRecordReader extends AbstractControllerService implements RecordReaderFactory {
+
+	private final RecordSchema schema;
+
+	private final List<Map<String, Object>> values = new ArrayList<Map<String, Object>>();
+
+	/**
+	 * public construction.
+	 * @param schema the schema of the records
+	 */
+	public MockRecordReader(RecordSchema schema) {
+		this.schema = schema;
+	}
+
+	public void addRecord(Map<String, Object> record) {
+		values.add(record);
+	}
+
+	@Override
+	public RecordReader createRecordReader(Map<String, String> variables, InputStream in, ComponentLog logger) {
+		final Iterator<Map<String, Object>> iterator = values.iterator();
+		return new RecordReader() {
+
+			@Override
+			public Record nextRecord(boolean coerceTypes, boolean dropUnknownFields) {
+				return iterator.hasNext() ? new MapRecord(schema, iterator.next()) : null;
+			}
+
+			@Override
+			public RecordSchema getSchema() {
+				return schema;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+}
@@ -116,11 +116,6 @@ public class PutArcGISOptimization {
         PutArcGIS putArcGIS = (PutArcGIS) testRunner.getProcessor();
         assertNotNull("putArcGIS", putArcGIS);
 
-        assertNotNull("fieldsToUpdate", putArcGIS.fieldsToUpdate);
-        List<String> list = new ArrayList<String>();
-        list.add(0,  "+hit");
-        assertEquals("fieldsToUpdate", list, putArcGIS.fieldsToUpdate);
-
         // Add the content to the runner
     	testRunner.enqueue(content);
         
@@ -128,13 +123,22 @@ public class PutArcGISOptimization {
     	testRunner.run(1);
         testRunner.assertQueueEmpty();
     	testRunner.assertValid();
+
+        // The fields lists are read when the processor is scheduled
+        assertNotNull("configuration", putArcGIS.configuration);
+        List<String> list = new ArrayList<String>();
+        list.add(0,  "+hit");
+        assertEquals("fieldsToUpdate", list, putArcGIS.configuration.fieldsToUpdate);
     	
+    	// The records are aggregated in the order of the first occurrence of their location
     	List<Map<String, String>> records = testRunner.getControllerService("arcgis-service", MockControllerService.class).getExecuteArg0();
+    	assertEquals(5, records.size());
+    	assertEquals("Bondi", records.get(3).get("name"));
     	assertEquals("Invalid for " + records.get(0).get("name"), 2, Double.valueOf(records.get(0).get("hit")).intValue());
     	assertEquals("Invalid for " + records.get(1).get("name"), 3, Double.valueOf(records.get(1).get("hit")).intValue());
     	assertEquals("Invalid for " + records.get(2).get("name"), 2, Double.valueOf(records.get(2).get("hit")).intValue());
-    	assertEquals("Invalid for " + records.get(3).get("name"), 6, Double.valueOf(records.get(3).get("hit")).intValue());
-    	assertEquals("Invalid for " + records.get(4).get("name"), 2, Double.valueOf(records.get(4).get("hit")).intValue());
+    	assertEquals("Invalid for " + records.get(3).get("name"), 2, Double.valueOf(records.get(3).get("hit")).intValue());
+    	assertEquals("Invalid for " + records.get(4).get("name"), 6, Double.valueOf(records.get(4).get("hit")).intValue());
     	
     }
  
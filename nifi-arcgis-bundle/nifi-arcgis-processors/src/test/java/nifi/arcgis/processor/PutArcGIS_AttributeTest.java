@@ -0,0 +1,154 @@
+/**
+ *
+ */
+package nifi.arcgis.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+
+/**
+ * Testing the ATTRIBUTE mode, which sends the attributes of several FlowFiles in one edit batch.
+ */
+public class PutArcGIS_AttributeTest {
+
+	private TestRunner testRunner;
+
+	private MockControllerService service;
+
+    @Before
+    public void init() throws Exception {
+        testRunner = TestRunners.newTestRunner(PutArcGIS.class);
+        testRunner.setProperty(PutArcGIS.TYPE_OF_FILE, "Attribute");
+        testRunner.setProperty(PutArcGIS.ARCGIS_SERVICE, "arcgis-service");
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource("./header-ok").getFile());
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_INSERT);
+        testRunner.setProperty(PutArcGIS.ATTRIBUTE_BATCH_SIZE, "3");
+
+        service = new MockControllerService();
+        testRunner.addControllerService("arcgis-service", service);
+        testRunner.enableControllerService(service);
+        service.setHeaderValid(true);
+    }
+
+    private Map<String, String> event(final String name, final String latitude, final String longitude, final String hit) {
+    	final Map<String, String> attributes = new HashMap<String, String>();
+    	attributes.put("name", name);
+    	attributes.put("latitude", latitude);
+    	attributes.put("longitude", longitude);
+    	attributes.put("hit", hit);
+    	return attributes;
+    }
+
+    @Test
+    public void testBatchPerTrigger() throws Exception {
+    	for (int i = 0; i < 5; i++) {
+    		testRunner.enqueue(new byte[0], event("event" + i, "-33.8928", "151.2472", "1"));
+    	}
+
+    	// One trigger takes 3 FlowFiles, and sends their attributes in one batch
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 3);
+    	assertEquals(2, testRunner.getQueueSize().getObjectCount());
+    	assertEquals(1, service.getExecuteCount());
+    	List<Map<String, String>> records = service.getExecuteArg0();
+    	assertEquals(3, records.size());
+    	assertEquals("event0", records.get(0).get("name"));
+    	assertEquals("151.2472", records.get(0).get("longitude"));
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 5);
+    	assertEquals(2, service.getExecuteCount());
+    }
+
+    @Test
+    public void testMissingAttribute() throws Exception {
+    	final Map<String, String> incomplete = event("Wichita", "37.751", "-97.822", "1");
+    	incomplete.remove("hit");
+    	testRunner.enqueue(new byte[0], event("Bondi", "-33.8928", "151.2472", "1"));
+    	testRunner.enqueue(new byte[0], incomplete);
+    	testRunner.enqueue(new byte[0], event("Englewood", "39.6237", "-104.8738", "2"));
+
+    	// The incomplete FlowFile fails alone
+    	testRunner.run(1);
+    	testRunner.assertTransferCount(PutArcGIS.FAILED, 1);
+    	testRunner.assertTransferCount(PutArcGIS.SUCCESS, 2);
+    	assertEquals("Wichita", testRunner.getFlowFilesForRelationship(PutArcGIS.FAILED).get(0).getAttribute("name"));
+    	assertEquals(2, service.getExecuteArg0().size());
+    }
+
+    @Test
+    public void testAdditiveUpdates() throws Exception {
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_UPDATE, this.getClass().getClassLoader().getResource("./header-update-single").getFile());
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_UPDATE);
+    	testRunner.enqueue(new byte[0], event("Bondi", "-33.8928", "151.2472", "1"));
+    	testRunner.enqueue(new byte[0], event("Wichita", "37.751", "-97.822", "1"));
+    	testRunner.enqueue(new byte[0], event("Bondi", "-33.8928", "151.2472", "2"));
+
+    	// The events of the same location are aggregated in the batch
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 3);
+    	List<Map<String, String>> records = service.getExecuteArg0();
+    	assertEquals(2, records.size());
+    	assertEquals("Bondi", records.get(0).get("name"));
+    	assertEquals("3", records.get(0).get("hit"));
+    }
+
+    @Test
+    public void testFailedBlock() throws Exception {
+    	testRunner.setProperty(PutArcGIS.QUOTITY, "2");
+    	testRunner.setProperty(PutArcGIS.ATTRIBUTE_BATCH_SIZE, "5");
+    	service.setFailingName("Denver");
+    	for (String name : new String[] { "Bondi", "Wichita", "Denver", "Boston", "Austin" }) {
+    		testRunner.enqueue(new byte[0], event(name, "-33.8928", "151.2472", "1"));
+    	}
+
+    	// The second block fails, and stops the next one : the FlowFiles of the first block are applied
+    	testRunner.run(1);
+    	testRunner.assertTransferCount(PutArcGIS.SUCCESS, 2);
+    	testRunner.assertTransferCount(PutArcGIS.FAILED, 3);
+    	assertEquals("Wichita", testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).get(1).getAttribute("name"));
+    	assertEquals("Denver", testRunner.getFlowFilesForRelationship(PutArcGIS.FAILED).get(0).getAttribute("name"));
+    }
+
+    @Test
+    public void testHeaderFailed() throws Exception {
+    	service.setHeaderValid(false);
+    	testRunner.enqueue(new byte[0], event("Bondi", "-33.8928", "151.2472", "1"));
+    	testRunner.enqueue(new byte[0], event("Wichita", "37.751", "-97.822", "1"));
+
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.FAILED, 2);
+    	assertEquals(0, service.getExecuteCount());
+    }
+
+    @Test
+    public void testTargetLayers() throws Exception {
+    	testRunner.setProperty(PutArcGIS.TARGET_LAYER, "${region}");
+    	final Map<String, String> oceania = event("Bondi", "-33.8928", "151.2472", "1");
+    	oceania.put("region", "Oceania");
+    	final Map<String, String> america = event("Wichita", "37.751", "-97.822", "1");
+    	america.put("region", "America");
+    	testRunner.enqueue(new byte[0], oceania);
+    	testRunner.enqueue(new byte[0], america);
+    	testRunner.enqueue(new byte[0], oceania);
+
+    	// One batch per layer targeted
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 3);
+    	assertEquals(2, service.getExecuteCount());
+    	assertEquals("America", service.getExecuteArg1().get(ArcGISLayerServiceAPI.LAYER));
+    	assertEquals(1, service.getExecuteArg0().size());
+    	assertEquals(3, service.getRecordCount());
+    }
+}
@@ -21,6 +21,7 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -32,8 +33,10 @@ import org.junit.Test;
 
 import junit.framework.AssertionFailedError;
 import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+import nifi.arcgis.service.arcgis.services.ColumnType;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class PutArcGIS_CSV_HeaderTest {
 
@@ -113,4 +116,35 @@ public class PutArcGIS_CSV_HeaderTest {
     	assertEquals("1.083333", lineHeader.get("longitude"));
     }
 
-}
\ No newline at end of file
+    /**
+     * The streaming and the non-streaming modes read the same file the same way :
+     * the header line is skipped, and the empty hit is null.
+     */
+    @Test
+    public void testHeaderLineAndEmptyNumber() throws Exception {
+    	for (String streaming : new String[] { "false", "true" }) {
+    		init();
+    		MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    		service.setHeaderValid(true);
+    		service.setSchema(Collections.singletonMap("hit", ColumnType.INTEGER));
+    		testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource("./header-ok").getFile());
+    		testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_INSERT);
+    		testRunner.setProperty(PutArcGIS.STREAMING_MODE, streaming);
+
+    		testRunner.enqueue(new FileInputStream("./target/test-classes/test_header_empty_hit.csv"));
+    		testRunner.run(1);
+    		testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 1);
+
+    		List<Map<String, String>> records = service.getExecuteArg0();
+    		assertEquals(streaming, 2, records.size());
+    		assertEquals(streaming, "Bondi", records.get(0).get("name"));
+    		assertEquals(streaming, "1", records.get(0).get("hit"));
+    		assertEquals(streaming, "Englewood", records.get(1).get("name"));
+    		if (Boolean.valueOf(streaming)) {
+    			assertEquals(true, service.getExecuteBatch().isNull(1, service.getExecuteBatch().getColumn("hit")));
+    		} else {
+    			assertNull(records.get(1).get("hit"));
+    		}
+    	}
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.nifi.util.MockFlowFile;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+
+/**
+ * Testing the streaming mode for a CSV file entry.
+ */
+public class PutArcGIS_CSV_StreamingTest {
+
+	private final static String CIRCOS_FILE = "./target/test-classes/EUCircos_Regions_departements_circonscriptions_communes_gps_pour_importation.csv";
+
+	private TestRunner testRunner;
+
+    @Before
+    public void init() throws Exception {
+        testRunner = TestRunners.newTestRunner(PutArcGIS.class);
+        testRunner.setProperty(PutArcGIS.TYPE_OF_FILE, "CSV");
+        testRunner.setProperty(PutArcGIS.ARCGIS_SERVICE, "arcgis-service");
+        testRunner.setProperty(PutArcGIS.QUOTITY, "5000");
+        testRunner.setProperty(PutArcGIS.STREAMING_MODE, "true");
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource("./header-circos").getFile());
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_INSERT);
+
+        MockControllerService service = new MockControllerService();
+        testRunner.addControllerService("arcgis-service", service);
+        testRunner.enableControllerService(service);
+    }
+
+    @Test
+    public void testProcessorStreamingCSV() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(true);
+
+    	// The lines with invalid coordinates, such as "Seyssel;1420;45,96;5,83", are excluded
+    	final List<String> allLines = Files.readAllLines(Paths.get(CIRCOS_FILE), StandardCharsets.ISO_8859_1);
+    	final String lines = allLines.get(0) + "\n" + allLines.stream().skip(1)
+    			.filter(line -> line.matches("[^;]*;[^;]*;(-?[0-9.]+)?;(-?[0-9.]+)?"))
+    			.collect(Collectors.joining("\n"));
+    	testRunner.enqueue(new ByteArrayInputStream(lines.getBytes(StandardCharsets.ISO_8859_1)));
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+    	testRunner.assertValid();
+
+    	List<MockFlowFile> successFiles = testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS);
+    	assertEquals(1, successFiles.size());
+
+    	// 36688 records, following the header line, sent by blocks of 5000 records
+    	assertEquals(8, service.getExecuteCount());
+    	List<Map<String, String>> lastBlock = service.getExecuteArg0();
+    	assertEquals(1688, lastBlock.size());
+    	assertEquals("TSINGONI", lastBlock.get(lastBlock.size() - 1).get("nom_commune"));
+    	// Empty coordinates are null values in the batch
+    	assertEquals("", lastBlock.get(lastBlock.size() - 1).get("latitude"));
+    	assertEquals(Long.valueOf(36688), testRunner.getCounterValue("ArcGIS parse items"));
+    }
+
+    @Test
+    public void testProcessorStreamingCSV_PARALLEL() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(true);
+
+    	testRunner.setProperty(PutArcGIS.PARSING_THREADS, "4");
+    	testRunner.setProperty(PutArcGIS.PARSING_CHUNK_SIZE, "64 KB");
+    	final List<String> allLines = Files.readAllLines(Paths.get(CIRCOS_FILE), StandardCharsets.ISO_8859_1);
+    	final String lines = allLines.get(0) + "\n" + allLines.stream().skip(1)
+    			.filter(line -> line.matches("[^;]*;[^;]*;(-?[0-9.]+)?;(-?[0-9.]+)?"))
+    			.collect(Collectors.joining("\n"));
+    	testRunner.enqueue(new ByteArrayInputStream(lines.getBytes(StandardCharsets.ISO_8859_1)));
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+
+    	assertEquals(1, testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).size());
+    	// Each chunk ends with its own partial block
+    	assertEquals(36688, service.getRecordCount());
+    	assertTrue(service.getExecuteCount() > 8);
+    	assertEquals(Long.valueOf(36688), testRunner.getCounterValue("ArcGIS parse items"));
+    }
+
+    @Test
+    public void testProcessorStreamingCSV_PARALLEL_INVALIDNUMBER() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(true);
+
+    	testRunner.setProperty(PutArcGIS.PARSING_THREADS, "4");
+    	testRunner.setProperty(PutArcGIS.PARSING_CHUNK_SIZE, "64 KB");
+    	testRunner.enqueue(new FileInputStream(CIRCOS_FILE));
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+
+    	assertEquals(1, testRunner.getFlowFilesForRelationship(PutArcGIS.FAILED).size());
+    }
+
+    @Test
+    public void testProcessorStreamingCSV_INVALIDNUMBER() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(true);
+
+    	// The latitude & longitude columns are double columns, and "45,96" is not a valid double
+        final InputStream content = new FileInputStream(CIRCOS_FILE);
+    	testRunner.enqueue(content);
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+
+    	assertEquals(1, testRunner.getFlowFilesForRelationship(PutArcGIS.FAILED).size());
+    	assertEquals(0, testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).size());
+    }
+
+    @Test
+    public void testProcessorStreamingCSV_HEADERFAILED() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(false);
+
+        final InputStream content = new FileInputStream(CIRCOS_FILE);
+    	testRunner.enqueue(content);
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+
+    	assertEquals(1, testRunner.getFlowFilesForRelationship(PutArcGIS.FAILED).size());
+    	assertEquals(0, service.getExecuteCount());
+    }
+
+    @Test
+    public void testProcessorStreamingCSV_PIPELINE() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(true);
+    	service.setExecuteDelay(100);
+
+    	testRunner.setProperty(PutArcGIS.PIPELINE_DEPTH, "4");
+    	testRunner.setProperty(PutArcGIS.QUOTITY, "1000");
+    	testRunner.enqueue(new ByteArrayInputStream(
+    			"nom_commune;codes_postaux;latitude;longitude\nAttignat;1340;46.283333;5.166667\n".getBytes()));
+    	final StringBuilder content = new StringBuilder();
+    	for (int i = 0; i < 8000; i++) {
+    		content.append("Beaupont;1270;46.4;5.266667\n");
+    	}
+    	testRunner.enqueue(new ByteArrayInputStream(content.toString().getBytes()));
+
+    	testRunner.run(2);
+        testRunner.assertQueueEmpty();
+
+    	assertEquals(2, testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).size());
+    	assertEquals(9, service.getExecuteCount());
+    	assertEquals(8001, service.getRecordCount());
+    	// The blocks of an insertion are sent in parallel
+    	assertTrue(service.getMaxConcurrentExecutions() > 1);
+    	assertTrue(service.getMaxConcurrentExecutions() <= 4);
+    }
+
+    @Test
+    public void testProcessorStreamingCSV_PIPELINE_UPDATE() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(true);
+    	service.setExecuteDelay(20);
+
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_UPDATE);
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_UPDATE, this.getClass().getClassLoader().getResource("./header-circos").getFile());
+    	testRunner.setProperty(PutArcGIS.PIPELINE_DEPTH, "4");
+    	testRunner.setProperty(PutArcGIS.QUOTITY, "1000");
+    	final StringBuilder content = new StringBuilder();
+    	for (int i = 0; i < 8000; i++) {
+    		content.append("Beaupont;1270;46.4;5.266667\n");
+    	}
+    	testRunner.enqueue(new ByteArrayInputStream(content.toString().getBytes()));
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+
+    	assertEquals(1, testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).size());
+    	assertEquals(8, service.getExecuteCount());
+    	// The blocks of an update are sent one at a time
+    	assertEquals(1, service.getMaxConcurrentExecutions());
+    }
+
+    @Test
+    public void testProcessorStreamingCSV_AGGREGATION() throws Exception {
+
+    	MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+    	service.setHeaderValid(true);
+
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_UPDATE);
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource("./header-ok").getFile());
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_UPDATE, this.getClass().getClassLoader().getResource("./header-update-single").getFile());
+    	testRunner.setProperty(PutArcGIS.QUOTITY, "3");
+    	// "1.2"+"34" and "1.23"+"4" are two distinct locations
+    	final String content = "Fort Frances;48.6393;-93.4469;1\n"
+    			+ "A;1.2;34;1\n"
+    			+ "Fort Frances;48.6393;-93.4469;2\n"
+    			+ "B;1.23;4;1\n"
+    			+ "Bondi;-33.8928;151.2472;1\n";
+    	testRunner.enqueue(new ByteArrayInputStream(content.getBytes()));
+
+    	testRunner.run(1);
+        testRunner.assertQueueEmpty();
+
+    	assertEquals(1, testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).size());
+    	// A block is sent as soon as it contains 3 locations
+    	assertEquals(2, service.getExecuteCount());
+    	assertEquals(4, service.getRecordCount());
+    	List<Map<String, String>> lastBlock = service.getExecuteArg0();
+    	assertEquals(1, lastBlock.size());
+    	assertEquals("Bondi", lastBlock.get(0).get("name"));
+    }
+}
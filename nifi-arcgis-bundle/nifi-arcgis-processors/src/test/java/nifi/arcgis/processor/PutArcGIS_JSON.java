@@ -9,8 +9,10 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -81,4 +83,55 @@ public class PutArcGIS_JSON {
  
     }
 
+    @Test
+    public void testProcessorStreamingJSON() throws Exception {
+
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource(".").getFile() + "/header-ok");
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, OPERATION_INSERT);
+        testRunner.setProperty(PutArcGIS.STREAMING_MODE, "true");
+        testRunner.setProperty(PutArcGIS.QUOTITY, "4");
+
+        MockControllerService service = testRunner.getControllerService("arcgis-service", MockControllerService.class);
+        service.setHeaderValid(true);
+        testRunner.enqueue(new FileInputStream(this.getClass().getClassLoader().getResource("./log-for-optimization.log").getFile()));
+
+        testRunner.run(1);
+        testRunner.assertQueueEmpty();
+
+        assertEquals(1, testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).size());
+        // 15 records sent by blocks of 4
+        assertEquals(4, service.getExecuteCount());
+        List<Map<String, String>> lastBlock = service.getExecuteArg0();
+        assertEquals(3, lastBlock.size());
+        assertEquals("Englewood", lastBlock.get(2).get("name"));
+        assertEquals("-104.8738", lastBlock.get(2).get("longitude"));
+    }
+
+    @Test
+    public void testParseJSONStream() throws Exception {
+        PutArcGIS putArcGIS = (PutArcGIS) testRunner.getProcessor();
+        final String json = "[{\"test\":\"A\", \"nested\":{\"a\":[1,2]}, \"count\":12.50},{\"count\":3, \"test\":\"B\"}]";
+        List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+        List<String> fields = new ArrayList<String>();
+        fields.add("test");
+        fields.add("count");
+        putArcGIS.parseJSONStream(new ByteArrayInputStream(json.getBytes("UTF-8")), "UTF-8", fields, records::add);
+        assertEquals(2, records.size());
+        assertEquals("A", records.get(0).get("test"));
+        assertEquals("12.50", records.get(0).get("count"));
+        assertEquals(2, records.get(0).size());
+        assertEquals("B", records.get(1).get("test"));
+        assertEquals("3", records.get(1).get("count"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testParseJSONStream_missingField() throws Exception {
+        PutArcGIS putArcGIS = (PutArcGIS) testRunner.getProcessor();
+        final String json = "[{\"test\":\"A\"}]";
+        List<String> fields = new ArrayList<String>();
+        fields.add("test");
+        fields.add("count");
+        putArcGIS.parseJSONStream(new ByteArrayInputStream(json.getBytes("UTF-8")), "UTF-8", fields, record -> {});
+    }
+
 }
@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package nifi.arcgis.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.nifi.util.MockFlowFile;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+
+/**
+ * Testing the micro-batching of small FlowFiles into one batch sent to the ArcGIS server.
+ */
+public class PutArcGIS_MicroBatchTest {
+
+	private TestRunner testRunner;
+
+	private MockControllerService service;
+
+    @Before
+    public void init() throws Exception {
+        testRunner = TestRunners.newTestRunner(PutArcGIS.class);
+        testRunner.setProperty(PutArcGIS.TYPE_OF_FILE, "JSON");
+        testRunner.setProperty(PutArcGIS.ARCGIS_SERVICE, "arcgis-service");
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource("./header-ok").getFile());
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_INSERT);
+        testRunner.setProperty(PutArcGIS.MICRO_BATCH_RECORDS, "6");
+
+        service = new MockControllerService();
+        testRunner.addControllerService("arcgis-service", service);
+        testRunner.enableControllerService(service);
+        service.setHeaderValid(true);
+    }
+
+    private static String event(final String name) {
+    	return "{\"hit\":\"1\",\"latitude\":\"-33.8928\",\"name\":\"" + name + "\",\"longitude\":\"151.2472\"}";
+    }
+
+    private void enqueue(final String... names) {
+    	final StringBuilder content = new StringBuilder("[");
+    	for (final String name : names) {
+    		content.append((content.length() > 1) ? "," : "").append(event(name));
+    	}
+    	testRunner.enqueue(content.append("]").toString().getBytes());
+    }
+
+    @Test
+    public void testRecordBudget() throws Exception {
+    	for (int i = 0; i < 5; i++) {
+    		enqueue("event" + (2 * i), "event" + (2 * i + 1));
+    	}
+
+    	// One trigger gathers 3 FlowFiles, and sends their 6 records in one block
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 3);
+    	assertEquals(2, testRunner.getQueueSize().getObjectCount());
+    	assertEquals(1, service.getExecuteCount());
+    	assertEquals(6, service.getExecuteArg0().size());
+    	assertEquals("event5", service.getExecuteArg0().get(5).get("name"));
+
+    	testRunner.run(1);
+    	testRunner.assertQueueEmpty();
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 5);
+    	assertEquals(2, service.getExecuteCount());
+    	assertEquals(4, service.getExecuteArg0().size());
+    }
+
+    @Test
+    public void testSizeBudget() throws Exception {
+    	testRunner.setProperty(PutArcGIS.MICRO_BATCH_SIZE, "10 B");
+    	enqueue("Bondi");
+    	enqueue("Wichita");
+
+    	// The first FlowFile exceeds the size budget : it is sent alone
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 1);
+    	assertEquals(1, testRunner.getQueueSize().getObjectCount());
+    	assertEquals("Bondi", service.getExecuteArg0().get(0).get("name"));
+    }
+
+    @Test
+    public void testFailedBlock() throws Exception {
+    	testRunner.setProperty(PutArcGIS.QUOTITY, "2");
+    	service.setFailingName("Wichita");
+    	enqueue("Bondi", "Englewood");
+    	enqueue("Wichita", "Boston", "Denver");
+    	enqueue("Austin");
+
+    	// The second block holds the first record of the second FlowFile : it fails, and stops the next blocks
+    	testRunner.run(1);
+    	testRunner.assertTransferCount(PutArcGIS.SUCCESS, 1);
+    	testRunner.assertTransferCount(PutArcGIS.FAILED, 2);
+    	testRunner.getFlowFilesForRelationship(PutArcGIS.SUCCESS).get(0).assertContentEquals("[" + event("Bondi") + "," + event("Englewood") + "]");
+    	final List<MockFlowFile> failed = testRunner.getFlowFilesForRelationship(PutArcGIS.FAILED);
+    	failed.get(0).assertContentEquals("[" + event("Wichita") + "," + event("Boston") + "," + event("Denver") + "]");
+    	failed.get(1).assertContentEquals("[" + event("Austin") + "]");
+    	assertEquals(2, service.getRecordCount());
+    }
+
+    @Test
+    public void testUnparsableFlowFile() throws Exception {
+    	enqueue("Bondi");
+    	testRunner.enqueue("[{\"name\":".getBytes());
+    	enqueue("Wichita");
+
+    	// The unparsable FlowFile fails alone
+    	testRunner.run(1);
+    	testRunner.assertTransferCount(PutArcGIS.FAILED, 1);
+    	testRunner.assertTransferCount(PutArcGIS.SUCCESS, 2);
+    	assertEquals(1, service.getExecuteCount());
+    	assertEquals(2, service.getExecuteArg0().size());
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ *
+ */
+package nifi.arcgis.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.nifi.serialization.SimpleRecordSchema;
+import org.apache.nifi.serialization.record.RecordField;
+import org.apache.nifi.serialization.record.RecordFieldType;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+import nifi.arcgis.service.arcgis.services.RecordBatch;
+
+/**
+ * Testing the RECORD mode, which reads the FlowFiles with a Record Reader.
+ */
+public class PutArcGIS_RecordTest {
+
+	private TestRunner testRunner;
+
+	private MockControllerService service;
+
+	private MockRecordReader reader;
+
+    @Before
+    public void init() throws Exception {
+        testRunner = TestRunners.newTestRunner(PutArcGIS.class);
+        testRunner.setProperty(PutArcGIS.TYPE_OF_FILE, "Record");
+        testRunner.setProperty(PutArcGIS.ARCGIS_SERVICE, "arcgis-service");
+        testRunner.setProperty(PutArcGIS.RECORD_READER, "record-reader");
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource("./header-ok").getFile());
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_INSERT);
+
+        service = new MockControllerService();
+        testRunner.addControllerService("arcgis-service", service);
+        testRunner.enableControllerService(service);
+        service.setHeaderValid(true);
+
+        reader = new MockRecordReader(new SimpleRecordSchema(Arrays.asList(
+        		new RecordField("name", RecordFieldType.STRING.getDataType()),
+        		new RecordField("latitude", RecordFieldType.DOUBLE.getDataType()),
+        		new RecordField("longitude", RecordFieldType.DOUBLE.getDataType()),
+        		new RecordField("hit", RecordFieldType.INT.getDataType()))));
+        testRunner.addControllerService("record-reader", reader);
+        testRunner.enableControllerService(reader);
+    }
+
+    private Map<String, Object> event(final String name, final Object latitude, final Object longitude, final Object hit) {
+    	final Map<String, Object> values = new HashMap<String, Object>();
+    	values.put("name", name);
+    	values.put("latitude", latitude);
+    	values.put("longitude", longitude);
+    	values.put("hit", hit);
+    	return values;
+    }
+
+    @Test
+    public void testTypedValues() throws Exception {
+    	reader.addRecord(event("Bondi", -33.8928, 151.2472, 1));
+    	reader.addRecord(event("Wichita", 37.751, -97.822, 1));
+    	reader.addRecord(event("Englewood", 39.6237, null, 2));
+    	testRunner.enqueue(new byte[0]);
+
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 1);
+    	final RecordBatch batch = service.getExecuteBatch();
+    	assertEquals(3, batch.size());
+    	assertEquals(151.2472, batch.getDouble(0, batch.getColumn("longitude")), 0);
+    	assertEquals(-97.822, batch.getDouble(1, batch.getColumn("longitude")), 0);
+    	assertEquals(true, batch.isNull(2, batch.getColumn("longitude")));
+    	assertEquals("Englewood", batch.getString(2, batch.getColumn("name")));
+    	assertEquals("2", batch.getString(2, batch.getColumn("hit")));
+    }
+
+    @Test
+    public void testInvalidCoordinate() throws Exception {
+    	reader.addRecord(event("Bondi", "south", 151.2472, 1));
+    	testRunner.enqueue(new byte[0]);
+
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.FAILED, 1);
+    	assertEquals(0, service.getExecuteCount());
+    }
+
+    @Test
+    public void testReaderRequired() throws Exception {
+    	testRunner.removeProperty(PutArcGIS.RECORD_READER);
+    	testRunner.assertNotValid();
+    }
+
+    @Test
+    public void testNullUpdateInWindow() throws Exception {
+    	testRunner.setProperty(PutArcGIS.FIELD_LIST_UPDATE, this.getClass().getClassLoader().getResource("./header-update-single").getFile());
+    	testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_UPDATE);
+    	testRunner.setProperty(PutArcGIS.AGGREGATION_WINDOW, "10 sec");
+    	testRunner.setProperty(PutArcGIS.AGGREGATION_WINDOW_SIZE, "2");
+    	reader.addRecord(event("Bondi", -33.8928, 151.2472, 1));
+    	reader.addRecord(event("Bondi", -33.8928, 151.2472, null));
+    	reader.addRecord(event("Wichita", 37.751, -97.822, null));
+    	testRunner.enqueue(new byte[0]);
+    	testRunner.enqueue(new byte[0]);
+
+    	// A null value adds nothing, instead of failing the window
+    	testRunner.run(2);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 2);
+    	assertEquals(1, service.getExecuteCount());
+    	assertEquals(2, service.getExecuteArg0().size());
+    	assertEquals("Bondi", service.getExecuteArg0().get(0).get("name"));
+    	assertEquals("2", service.getExecuteArg0().get(0).get("hit"));
+    	assertEquals("0", service.getExecuteArg0().get(1).get("hit"));
+    }
+
+    @Test
+    public void testNullValue() throws Exception {
+    	testRunner.setProperty(PutArcGIS.MICRO_BATCH_RECORDS, "10");
+    	reader.addRecord(event("Englewood", 39.6237, -104.8738, null));
+    	testRunner.enqueue(new byte[0]);
+
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 1);
+    	assertEquals(true, service.getExecuteArg0().get(0).containsKey("hit"));
+    	assertEquals(null, service.getExecuteArg0().get(0).get("hit"));
+    }
+
+    @Test
+    public void testMicroBatch() throws Exception {
+    	testRunner.setProperty(PutArcGIS.MICRO_BATCH_RECORDS, "10");
+    	reader.addRecord(event("Bondi", -33.8928, 151.2472, 1));
+    	reader.addRecord(event("Wichita", 37.751, -97.822, 1));
+    	testRunner.enqueue(new byte[0]);
+    	testRunner.enqueue(new byte[0]);
+
+    	// The records of both FlowFiles are gathered in one batch
+    	testRunner.run(1);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 2);
+    	assertEquals(1, service.getExecuteCount());
+    	assertEquals(4, service.getExecuteArg0().size());
+    	assertEquals("Wichita", service.getExecuteArg0().get(3).get("name"));
+    	assertEquals("-97.822", service.getExecuteArg0().get(3).get("longitude"));
+    }
+}
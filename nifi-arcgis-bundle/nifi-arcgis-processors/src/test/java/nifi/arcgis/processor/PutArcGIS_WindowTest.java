@@ -0,0 +1,158 @@
+/**
+ *
+ */
+package nifi.arcgis.processor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Before;
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+
+/**
+ * Testing the aggregation window of additive updates across FlowFiles.
+ */
+public class PutArcGIS_WindowTest {
+
+	private final static String BONDI = "{\"hit\":\"1\",\"latitude\":\"-33.8928\",\"name\":\"Bondi\",\"longitude\":\"151.2472\"}";
+	private final static String ENGLEWOOD = "{\"hit\":\"2\",\"latitude\":\"39.6237\",\"name\":\"Englewood\",\"longitude\":\"-104.8738\"}";
+	private final static String WICHITA = "{\"hit\":\"1\",\"latitude\":\"37.751\",\"name\":\"Wichita\",\"longitude\":\"-97.822\"}";
+
+	private TestRunner testRunner;
+
+	private MockControllerService service;
+
+	/**
+	 * Current time of the aggregation windows, in nanoseconds
+	 */
+	private long now = 0;
+
+    @Before
+    public void init() throws Exception {
+        testRunner = TestRunners.newTestRunner(PutArcGIS.class);
+        testRunner.setProperty(PutArcGIS.TYPE_OF_FILE, "JSON");
+        testRunner.setProperty(PutArcGIS.ARCGIS_SERVICE, "arcgis-service");
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_INSERT, this.getClass().getClassLoader().getResource("./header-ok").getFile());
+        testRunner.setProperty(PutArcGIS.FIELD_LIST_UPDATE, this.getClass().getClassLoader().getResource("./header-update-single").getFile());
+        testRunner.setProperty(PutArcGIS.TYPE_OF_DATA_OPERATION, ArcGISLayerServiceAPI.OPERATION_UPDATE);
+        testRunner.setProperty(PutArcGIS.AGGREGATION_WINDOW, "10 sec");
+        testRunner.setProperty(PutArcGIS.AGGREGATION_WINDOW_SIZE, "3");
+        ((PutArcGIS) testRunner.getProcessor()).clock = () -> now;
+
+        service = new MockControllerService();
+        testRunner.addControllerService("arcgis-service", service);
+        testRunner.enableControllerService(service);
+        service.setHeaderValid(true);
+        testRunner.assertValid();
+    }
+
+    @Test
+    public void testWindowSize() throws Exception {
+    	testRunner.enqueue(("[" + BONDI + "," + ENGLEWOOD + "]").getBytes());
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+    	testRunner.enqueue(("[" + ENGLEWOOD + "," + WICHITA + "]").getBytes());
+
+    	testRunner.run(3);
+        testRunner.assertQueueEmpty();
+
+        // One merged batch for the 3 FlowFiles
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 3);
+    	assertEquals(1, service.getExecuteCount());
+    	List<Map<String, String>> records = service.getExecuteArg0();
+    	assertEquals(3, records.size());
+    	assertEquals("Bondi", records.get(0).get("name"));
+    	assertEquals("2", records.get(0).get("hit"));
+    	assertEquals("Englewood", records.get(1).get("name"));
+    	assertEquals("4", records.get(1).get("hit"));
+    	assertEquals("Wichita", records.get(2).get("name"));
+    	assertEquals("1", records.get(2).get("hit"));
+
+    	// The phases are published as counters when the window is sent
+    	assertEquals(Long.valueOf(3), testRunner.getCounterValue("ArcGIS parse count"));
+    	assertEquals(Long.valueOf(5), testRunner.getCounterValue("ArcGIS parse items"));
+    	assertEquals(Long.valueOf(3), testRunner.getCounterValue("ArcGIS aggregation count"));
+    }
+
+    @Test
+    public void testWindowDuration() throws Exception {
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+    	testRunner.enqueue(("[" + BONDI + "," + WICHITA + "]").getBytes());
+
+    	// The FlowFiles are held until the window has elapsed
+    	testRunner.run(2, false, true);
+        testRunner.assertQueueEmpty();
+    	testRunner.assertTransferCount(PutArcGIS.SUCCESS, 0);
+    	assertEquals(0, service.getExecuteCount());
+
+    	now += TimeUnit.SECONDS.toNanos(10);
+    	testRunner.run(1, true, false);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 2);
+    	assertEquals(1, service.getExecuteCount());
+    	List<Map<String, String>> records = service.getExecuteArg0();
+    	assertEquals(2, records.size());
+    	assertEquals("2", records.get(0).get("hit"));
+    }
+
+    @Test
+    public void testWindowRollbackOnStop() throws Exception {
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+
+    	// The FlowFile held is delivered again when the processor stops
+    	testRunner.run(1);
+    	assertEquals(1, testRunner.getQueueSize().getObjectCount());
+    	testRunner.assertTransferCount(PutArcGIS.SUCCESS, 0);
+    	assertEquals(0, service.getExecuteCount());
+    }
+
+    @Test
+    public void testWindowInvalidFlowFile() throws Exception {
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+    	testRunner.enqueue("[{\"hit\":\"ko\",\"latitude\":\"1\",\"name\":\"ko\",\"longitude\":\"2\"}]".getBytes());
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+    	testRunner.enqueue(("[" + WICHITA + "]").getBytes());
+
+    	// The invalid FlowFile fails alone, without altering the window
+    	testRunner.run(4);
+        testRunner.assertQueueEmpty();
+    	testRunner.assertTransferCount(PutArcGIS.FAILED, 1);
+    	testRunner.assertTransferCount(PutArcGIS.SUCCESS, 3);
+    	List<Map<String, String>> records = service.getExecuteArg0();
+    	assertEquals(2, records.size());
+    	assertEquals("2", records.get(0).get("hit"));
+    }
+
+    @Test
+    public void testWindowHeaderFailed() throws Exception {
+    	service.setHeaderValid(false);
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes());
+
+    	testRunner.run(3);
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.FAILED, 3);
+    	assertEquals(0, service.getExecuteCount());
+    }
+
+    @Test
+    public void testTargetLayer() throws Exception {
+    	testRunner.setProperty(PutArcGIS.TARGET_LAYER, "${region}");
+    	testRunner.enqueue(("[" + BONDI + "]").getBytes(), Collections.singletonMap("region", "Oceania"));
+    	testRunner.enqueue(("[" + WICHITA + "]").getBytes(), Collections.singletonMap("region", "America"));
+
+    	// The FlowFiles targeting a layer are processed one by one, each one on its own layer
+    	testRunner.run(2);
+        testRunner.assertQueueEmpty();
+    	testRunner.assertAllFlowFilesTransferred(PutArcGIS.SUCCESS, 2);
+    	assertEquals(2, service.getExecuteCount());
+    	assertEquals("America", service.getExecuteArg1().get(ArcGISLayerServiceAPI.LAYER));
+    	assertEquals("Wichita", service.getExecuteArg0().get(0).get("name"));
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import nifi.arcgis.processor.utility.RecordBlocks;
+
+/**
+ * Slicing the parsed records into blocks of <code>QUOTITY</code> elements :
+ * successive <code>remove(0)</code> on an <code>ArrayList</code> versus the <code>RecordBlocks</code> views
+ * used by <code>PutArcGIS.sendBlocks</code>.
+ * <p>
+ * Run with : <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=BlockSlicing</code>
+ * </p>
+ * <i>The <code>remove(0)</code> variant is quadratic : a single shot at 1M records lasts several minutes.</i>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlockSlicingBenchmark {
+
+	@Param({ "10000", "100000", "1000000" })
+	int numberOfRecords;
+
+	@Param({ "5000" })
+	int quotity;
+
+	List<Map<String, String>> records;
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		records = new ArrayList<Map<String, String>>(numberOfRecords);
+		final Map<String, String> record = new HashMap<String, String>();
+		record.put("latitude", "49.433333");
+		record.put("longitude", "1.083333");
+		for (int i = 0; i < numberOfRecords; i++) {
+			records.add(record);
+		}
+	}
+
+	/**
+	 * Former implementation of <code>PutArcGIS.invokeProcessorService</code>.
+	 */
+	@Benchmark
+	public void removeFirst(final Blackhole blackhole) {
+		while (!records.isEmpty()) {
+			List<Map<String, String>> processingRecords = new ArrayList<Map<String, String>>();
+			for (int i = 0; i < quotity; i++) {
+				processingRecords.add(records.remove(0));
+				if (records.isEmpty())
+					break;
+			}
+			blackhole.consume(processingRecords);
+		}
+	}
+
+	/**
+	 * Current implementation of <code>PutArcGIS.sendBlocks</code> : each block is sliced by its index.
+	 */
+	@Benchmark
+	public void recordBlocks(final Blackhole blackhole) {
+		final RecordBlocks<Map<String, String>> blocks = new RecordBlocks<Map<String, String>>(records, quotity);
+		for (int block = 0; block < blocks.size(); block++) {
+			blackhole.consume(blocks.get(block));
+		}
+	}
+}
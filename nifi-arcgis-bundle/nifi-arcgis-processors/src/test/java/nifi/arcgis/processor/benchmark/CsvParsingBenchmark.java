@@ -0,0 +1,102 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor.benchmark;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import nifi.arcgis.processor.utility.CsvManager;
+import nifi.arcgis.processor.utility.CsvTokenizer;
+import nifi.arcgis.processor.utility.LineScanner;
+
+/**
+ * Parsing the <code>EUCircos_*</code> CSV files of the test resources, from memory :
+ * the former <code>CsvManager</code> parser versus the offsets based <code>CsvTokenizer</code>.
+ * <p>
+ * Run with : <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=CsvParsing</code>
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvParsingBenchmark {
+
+	@Param({ "EUCircos_Regions_departements_circonscriptions_communes_gps.csv",
+			"EUCircos_Regions_departements_circonscriptions_communes_gps_pour_importation.csv" })
+	String file;
+
+	String content;
+
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		try (Reader reader = new InputStreamReader(getClass().getClassLoader().getResourceAsStream(file), "UTF-8")) {
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				sb.append(buffer, 0, read);
+			}
+		}
+		content = sb.toString();
+	}
+
+	/**
+	 * Former parsing : one String per line, then one String per column.
+	 */
+	@Benchmark
+	public void csvManager(final Blackhole blackhole) throws IOException {
+		final LineScanner scanner = new LineScanner(new StringReader(content));
+		while (scanner.nextLine()) {
+			final List<String> values = CsvManager.parseLine(scanner.toString(), ';');
+			blackhole.consume(values);
+		}
+	}
+
+	/**
+	 * Column boundaries only.
+	 */
+	@Benchmark
+	public void tokenizerOffsets(final Blackhole blackhole) throws IOException {
+		final LineScanner scanner = new LineScanner(new StringReader(content));
+		final CsvTokenizer tokenizer = new CsvTokenizer(';');
+		while (scanner.nextLine()) {
+			blackhole.consume(tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd()));
+		}
+	}
+
+	/**
+	 * Column boundaries, then every column materialized as a String, as done for the records maps.
+	 */
+	@Benchmark
+	public void tokenizerAllStrings(final Blackhole blackhole) throws IOException {
+		final LineScanner scanner = new LineScanner(new StringReader(content));
+		final CsvTokenizer tokenizer = new CsvTokenizer(';');
+		while (scanner.nextLine()) {
+			final int columns = tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+			for (int column = 0; column < columns; column++) {
+				blackhole.consume(tokenizer.getString(column));
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.benchmark;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import nifi.arcgis.processor.utility.CsvTokenizer;
+import nifi.arcgis.processor.utility.DecimalParser;
+import nifi.arcgis.processor.utility.LineScanner;
+
+/**
+ * Parsing the latitude and the longitude columns of the <code>EUCircos</code> CSV file,
+ * already tokenized : a String per value for <code>Double.parseDouble</code> versus the <code>DecimalParser</code>
+ * working on the line buffer.
+ * <p>
+ * Run with : <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=DecimalParsing</code>
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecimalParsingBenchmark {
+
+	private static final String FILE = "EUCircos_Regions_departements_circonscriptions_communes_gps.csv";
+
+	/**
+	 * Columns latitude and longitude of the file
+	 */
+	private static final int FIRST_COLUMN = 11, LAST_COLUMN = 12;
+
+	/**
+	 * All the coordinates of the file, in one buffer
+	 */
+	char[] buffer;
+
+	/**
+	 * Start and end of each value in the buffer
+	 */
+	int[] starts, ends;
+
+	@Setup
+	public void setup() throws IOException {
+		final StringBuilder values = new StringBuilder();
+		final StringBuilder offsets = new StringBuilder();
+		try (Reader reader = new InputStreamReader(getClass().getClassLoader().getResourceAsStream(FILE), "UTF-8")) {
+			final LineScanner scanner = new LineScanner(reader);
+			final CsvTokenizer tokenizer = new CsvTokenizer(';');
+			// Skip the header
+			scanner.nextLine();
+			while (scanner.nextLine()) {
+				final int columns = tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+				for (int column = FIRST_COLUMN; (column <= LAST_COLUMN) && (column < columns); column++) {
+					// A few coordinates of the file are missing, or written with a decimal comma
+					final String value = tokenizer.getString(column);
+					if (isParsable(value)) {
+						offsets.append(values.length()).append(' ');
+						values.append(value);
+						offsets.append(values.length()).append(' ');
+					}
+				}
+			}
+		}
+		buffer = values.toString().toCharArray();
+		final String[] bounds = offsets.toString().trim().split(" ");
+		starts = new int[bounds.length / 2];
+		ends = new int[bounds.length / 2];
+		for (int i = 0; i < starts.length; i++) {
+			starts[i] = Integer.parseInt(bounds[2 * i]);
+			ends[i] = Integer.parseInt(bounds[2 * i + 1]);
+		}
+	}
+
+	private static boolean isParsable(final String value) {
+		try {
+			Double.parseDouble(value);
+			return true;
+		} catch (final NumberFormatException nfe) {
+			return false;
+		}
+	}
+
+	/**
+	 * Former conversion : one String per value, then <code>Double.parseDouble</code>.
+	 */
+	@Benchmark
+	public void doubleParseDouble(final Blackhole blackhole) {
+		for (int i = 0; i < starts.length; i++) {
+			blackhole.consume(Double.parseDouble(new String(buffer, starts[i], ends[i] - starts[i])));
+		}
+	}
+
+	/**
+	 * Conversion from the buffer.
+	 */
+	@Benchmark
+	public void decimalParser(final Blackhole blackhole) {
+		for (int i = 0; i < starts.length; i++) {
+			blackhole.consume(DecimalParser.parseDouble(buffer, starts[i], ends[i]));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor.benchmark;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import nifi.arcgis.processor.utility.CsvTokenizer;
+import nifi.arcgis.processor.utility.LineScanner;
+import nifi.arcgis.service.arcgis.services.ColumnType;
+import nifi.arcgis.service.arcgis.services.RecordBatch;
+
+/**
+ * Building the blocks of records sent to the ArcGIS service from the <code>EUCircos_*_pour_importation</code> CSV file,
+ * and reading their values as the service does : map-based records versus the column-oriented {@link RecordBatch}.
+ * <br/>The lines with invalid coordinates are excluded in the setup.
+ * <p>
+ * Run with : <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=RecordBlock</code>
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordBlockBenchmark {
+
+	private final static int QUOTITY = 5000;
+
+	private final static List<String> FIELDS = Arrays.asList("nom_commune", "codes_postaux", "latitude", "longitude");
+
+	String content;
+
+	Map<String, ColumnType> schema;
+
+	@Setup
+	public void setup() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		try (Reader reader = new InputStreamReader(getClass().getClassLoader().getResourceAsStream(
+				"EUCircos_Regions_departements_circonscriptions_communes_gps_pour_importation.csv"), "ISO-8859-1")) {
+			final LineScanner scanner = new LineScanner(reader);
+			scanner.nextLine();
+			while (scanner.nextLine()) {
+				final String line = scanner.toString();
+				if (line.matches("[^;]*;[0-9]+;-?[0-9.]+;-?[0-9.]+")) {
+					sb.append(line).append('\n');
+				}
+			}
+		}
+		content = sb.toString();
+		schema = new HashMap<String, ColumnType>();
+		schema.put("nom_commune", ColumnType.TEXT);
+		schema.put("codes_postaux", ColumnType.INTEGER);
+	}
+
+	/**
+	 * One map of Strings per record, the numbers being parsed by the service.
+	 */
+	@Benchmark
+	public void mapRecords(final Blackhole blackhole) throws IOException {
+		final LineScanner scanner = new LineScanner(new StringReader(content));
+		final CsvTokenizer tokenizer = new CsvTokenizer(';');
+		List<Map<String, String>> block = new ArrayList<Map<String, String>>(QUOTITY);
+		while (scanner.nextLine()) {
+			tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+			final Map<String, String> record = new HashMap<String, String>();
+			for (int column = 0; column < FIELDS.size(); column++) {
+				record.put(FIELDS.get(column), tokenizer.getString(column));
+			}
+			block.add(record);
+			if (block.size() == QUOTITY) {
+				consume(block, blackhole);
+				block = new ArrayList<Map<String, String>>(QUOTITY);
+			}
+		}
+		consume(block, blackhole);
+	}
+
+	private void consume(final List<Map<String, String>> block, final Blackhole blackhole) {
+		for (Map<String, String> record : block) {
+			blackhole.consume(Double.parseDouble(record.get("latitude")));
+			blackhole.consume(Double.parseDouble(record.get("longitude")));
+			blackhole.consume(Integer.parseInt(record.get("codes_postaux")));
+			blackhole.consume(record.get("nom_commune"));
+		}
+	}
+
+	/**
+	 * Typed columns, the numbers being parsed once from the line buffer.
+	 */
+	@Benchmark
+	public void recordBatch(final Blackhole blackhole) throws IOException {
+		final LineScanner scanner = new LineScanner(new StringReader(content));
+		final CsvTokenizer tokenizer = new CsvTokenizer(';');
+		RecordBatch batch = new RecordBatch(FIELDS, schema, QUOTITY);
+		while (scanner.nextLine()) {
+			tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+			final int row = batch.newRow();
+			batch.setString(row, 0, tokenizer.getString(0));
+			batch.setInt(row, 1, tokenizer.getInt(1));
+			batch.setDouble(row, 2, tokenizer.getDouble(2));
+			batch.setDouble(row, 3, tokenizer.getDouble(3));
+			if (batch.size() == QUOTITY) {
+				consume(batch, blackhole);
+				batch = batch.emptyCopy();
+			}
+		}
+		consume(batch, blackhole);
+	}
+
+	private void consume(final RecordBatch batch, final Blackhole blackhole) {
+		for (int row = 0; row < batch.size(); row++) {
+			blackhole.consume(batch.getX(row));
+			blackhole.consume(batch.getY(row));
+			blackhole.consume(batch.getInt(row, 1));
+			blackhole.consume(batch.getString(row, 0));
+		}
+	}
+}
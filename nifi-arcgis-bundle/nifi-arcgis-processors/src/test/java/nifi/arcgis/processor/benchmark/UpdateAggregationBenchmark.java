@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.benchmark;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.nifi.util.TestRunners;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import nifi.arcgis.processor.PutArcGIS;
+import nifi.arcgis.processor.utility.BatchUpdateAggregator;
+import nifi.arcgis.processor.utility.CsvTokenizer;
+import nifi.arcgis.processor.utility.LineScanner;
+import nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI;
+import nifi.arcgis.service.arcgis.services.ColumnType;
+import nifi.arcgis.service.arcgis.services.RecordBatch;
+
+/**
+ * Aggregating the updates <code>+codes_postaux</code> of the 36k records of the
+ * <code>EUCircos_*_pour_importation</code> CSV file on their location :
+ * the former <code>groupingBy</code> implementation, the map-based
+ * {@link PutArcGIS#optimizationDataForUpdate(List, Map)}, and the column-oriented {@link BatchUpdateAggregator}.
+ * <br/>The lines with invalid coordinates are excluded in the setup.
+ * <p>
+ * Run with : <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=UpdateAggregation</code>
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateAggregationBenchmark {
+
+	private final static List<String> FIELDS = Arrays.asList("nom_commune", "codes_postaux", "latitude", "longitude");
+
+	List<Map<String, String>> records;
+
+	RecordBatch batch;
+
+	Map<String, Object> settings;
+
+	PutArcGIS putArcGIS;
+
+	@Setup
+	public void setup() throws IOException {
+		records = new ArrayList<Map<String, String>>();
+		final Map<String, ColumnType> schema = new HashMap<String, ColumnType>();
+		schema.put("nom_commune", ColumnType.TEXT);
+		schema.put("codes_postaux", ColumnType.INTEGER);
+		batch = new RecordBatch(FIELDS, schema, 40000);
+		try (Reader reader = new InputStreamReader(getClass().getClassLoader().getResourceAsStream(
+				"EUCircos_Regions_departements_circonscriptions_communes_gps_pour_importation.csv"), "ISO-8859-1")) {
+			final LineScanner scanner = new LineScanner(reader);
+			final CsvTokenizer tokenizer = new CsvTokenizer(';');
+			scanner.nextLine();
+			while (scanner.nextLine()) {
+				if (!scanner.toString().matches("[^;]*;[0-9]+;-?[0-9.]+;-?[0-9.]+")) {
+					continue;
+				}
+				tokenizer.tokenize(scanner.getBuffer(), scanner.getStart(), scanner.getEnd());
+				final Map<String, String> record = new HashMap<String, String>();
+				final int row = batch.newRow();
+				for (int column = 0; column < FIELDS.size(); column++) {
+					record.put(FIELDS.get(column), tokenizer.getString(column));
+					batch.setValue(row, column, tokenizer.getString(column));
+				}
+				records.add(record);
+			}
+		}
+		settings = new HashMap<String, Object>();
+		settings.put(ArcGISLayerServiceAPI.OPERATION, ArcGISLayerServiceAPI.OPERATION_UPDATE);
+		settings.put(ArcGISLayerServiceAPI.UPDATE_FIELD_LIST, Arrays.asList("+codes_postaux"));
+		putArcGIS = (PutArcGIS) TestRunners.newTestRunner(PutArcGIS.class).getProcessor();
+	}
+
+	/**
+	 * Former implementation : String keys, boxed sums reformatted into Strings.
+	 */
+	@Benchmark
+	public List<Map<String, String>> groupingBy() {
+		final List<String> updateFields = Arrays.asList("codes_postaux");
+		final Map<String, List<Map<String, String>>> grouped = records.stream()
+				.collect(Collectors.groupingBy(p -> p.get("latitude") + p.get("longitude")));
+		final List<Map<String, String>> optimizedRecords = new ArrayList<Map<String, String>>();
+		grouped.forEach((k, v) -> {
+			optimizedRecords.add(v.stream().reduce(new HashMap<String, String>(), (m1, m2) -> {
+				final List<Double> agregatedData = new ArrayList<Double>();
+				updateFields.forEach(f -> {
+					agregatedData.add((!m1.containsKey(f)) ? 0.0 : Double.valueOf(m1.get(f)));
+					agregatedData.add(Double.valueOf(m2.get(f)));
+				});
+				m1.putAll(m2);
+				updateFields.forEach(f -> {
+					Double d1 = agregatedData.remove(0);
+					Double d2 = agregatedData.remove(0);
+					String s = String.valueOf(d1 + d2);
+					m1.put(f, (".0".equals(s.substring(s.length() - 2)) ? s.substring(0, s.length() - 2) : s));
+				});
+				return m1;
+			}));
+		});
+		return optimizedRecords;
+	}
+
+	/**
+	 * Map-based records, grouped by the aggregation engine.
+	 */
+	@Benchmark
+	public List<Map<String, String>> mapAggregation() {
+		return putArcGIS.optimizationDataForUpdate(records, settings);
+	}
+
+	/**
+	 * Column-oriented records, aggregated row by row with typed values.
+	 */
+	@Benchmark
+	public RecordBatch batchAggregation() {
+		final BatchUpdateAggregator aggregator = new BatchUpdateAggregator(batch, Arrays.asList("codes_postaux"),
+				batch.size());
+		for (int row = 0; row < batch.size(); row++) {
+			aggregator.add(batch, row);
+		}
+		return aggregator.drain();
+	}
+}
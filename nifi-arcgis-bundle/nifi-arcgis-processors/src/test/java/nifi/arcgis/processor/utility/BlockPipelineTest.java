@@ -0,0 +1,172 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.nifi.processor.exception.ProcessException;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Testing the pipeline of blocks.
+ */
+public class BlockPipelineTest {
+
+	private final ExecutorService executor = BlockPipeline.createExecutor();
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testSynchronous() {
+		final List<String> threads = new ArrayList<String>();
+		try (BlockPipeline<Integer> pipeline = new BlockPipeline<Integer>(null, 1, 1,
+				block -> threads.add(Thread.currentThread().getName()))) {
+			pipeline.submit(1);
+			pipeline.submit(2);
+			// Consumed before returning
+			assertEquals(2, threads.size());
+		}
+		assertEquals(Thread.currentThread().getName(), threads.get(0));
+	}
+
+	@Test
+	public void testOrderedWithConcurrencyOne() {
+		final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+		try (BlockPipeline<Integer> pipeline = new BlockPipeline<Integer>(executor, 3, 1, block -> {
+			sleep(5);
+			received.add(block);
+		})) {
+			for (int i = 0; i < 10; i++) {
+				pipeline.submit(i);
+			}
+		}
+		// close() waits for the blocks in flight
+		assertEquals(10, received.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Integer.valueOf(i), received.get(i));
+		}
+	}
+
+	@Test
+	public void testBoundedConcurrency() {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger max = new AtomicInteger();
+		final AtomicInteger count = new AtomicInteger();
+		try (BlockPipeline<Integer> pipeline = new BlockPipeline<Integer>(executor, 4, 4, block -> {
+			max.accumulateAndGet(running.incrementAndGet(), Math::max);
+			sleep(20);
+			running.decrementAndGet();
+			count.incrementAndGet();
+		})) {
+			for (int i = 0; i < 12; i++) {
+				pipeline.submit(i);
+			}
+		}
+		assertEquals(12, count.get());
+		assertTrue(max.get() > 1);
+		assertTrue(max.get() <= 4);
+	}
+
+	@Test
+	public void testFailure() {
+		final AtomicInteger count = new AtomicInteger();
+		final BlockPipeline<Integer> pipeline = new BlockPipeline<Integer>(executor, 2, 1, block -> {
+			if (block == 0) {
+				throw new ProcessException("block 0 failed");
+			}
+			count.incrementAndGet();
+		});
+		try {
+			for (int i = 0; i < 100; i++) {
+				pipeline.submit(i);
+				sleep(1);
+			}
+			pipeline.close();
+			fail("ProcessException expected");
+		} catch (final ProcessException pe) {
+			assertEquals("block 0 failed", pe.getMessage());
+		}
+		// The pending blocks have been dropped
+		assertTrue(count.get() < 99);
+	}
+
+	@Test
+	public void testError() {
+		final BlockPipeline<Integer> pipeline = new BlockPipeline<Integer>(executor, 2, 2, block -> {
+			throw new NoClassDefFoundError("runtime");
+		});
+		try {
+			pipeline.submit(0);
+			pipeline.close();
+			fail("ProcessException expected");
+		} catch (final ProcessException pe) {
+			assertTrue(pe.getCause() instanceof NoClassDefFoundError);
+		}
+	}
+
+	@Test
+	public void testRejected() {
+		executor.shutdown();
+		final AtomicInteger count = new AtomicInteger();
+		final BlockPipeline<Integer> pipeline = new BlockPipeline<Integer>(executor, 2, 1,
+				block -> count.incrementAndGet());
+		try {
+			pipeline.submit(0);
+			fail("ProcessException expected");
+		} catch (final ProcessException pe) {
+			assertTrue(pe.getCause() instanceof RejectedExecutionException);
+		}
+		// The permit of the block is released : close() does not hang
+		try {
+			pipeline.close();
+			fail("ProcessException expected");
+		} catch (final ProcessException pe) {
+			assertEquals(0, count.get());
+		}
+	}
+
+	@Test
+	public void testSharedExecutor() throws Exception {
+		final List<Integer> first = Collections.synchronizedList(new ArrayList<Integer>());
+		final List<Integer> second = Collections.synchronizedList(new ArrayList<Integer>());
+		try (BlockPipeline<Integer> pipeline1 = new BlockPipeline<Integer>(executor, 3, 1, first::add);
+				BlockPipeline<Integer> pipeline2 = new BlockPipeline<Integer>(executor, 3, 1, second::add)) {
+			for (int i = 0; i < 50; i++) {
+				pipeline1.submit(i);
+				pipeline2.submit(i);
+			}
+		}
+		// Each pipeline keeps its own order
+		for (int i = 0; i < 50; i++) {
+			assertEquals(Integer.valueOf(i), first.get(i));
+			assertEquals(Integer.valueOf(i), second.get(i));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidConcurrency() {
+		new BlockPipeline<Integer>(executor, 2, 3, block -> {});
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Testing the CSV tokenizer.
+ */
+public class CsvTokenizerTest {
+
+	private final CsvTokenizer tokenizer = new CsvTokenizer(';');
+
+	private int tokenize(String line) {
+		char[] chars = ("##" + line + "##").toCharArray();
+		return tokenizer.tokenize(chars, 2, chars.length - 2);
+	}
+
+	@Test
+	public void testSimpleLine() {
+		assertEquals(4, tokenize("Rouen;49.433333;1.083333;12"));
+		assertEquals("Rouen", tokenizer.getString(0));
+		assertEquals(49.433333, tokenizer.getDouble(1), 0);
+		assertEquals(1.083333, tokenizer.getDouble(2), 0);
+		assertEquals(12, tokenizer.getInt(3));
+	}
+
+	@Test
+	public void testEmptyColumns() {
+		assertEquals(4, tokenize(";a;;"));
+		assertTrue(tokenizer.isEmpty(0));
+		assertEquals("a", tokenizer.getString(1));
+		assertTrue(tokenizer.isEmpty(2));
+		assertTrue(tokenizer.isEmpty(3));
+		assertEquals(1, tokenize(""));
+	}
+
+	@Test
+	public void testQuotedColumns() {
+		assertEquals(3, tokenize("\"Rouen;Seine\";\"say \"\"hello\"\"\";\"\""));
+		assertEquals("Rouen;Seine", tokenizer.getString(0));
+		assertEquals("say \"hello\"", tokenizer.getString(1));
+		assertEquals("", tokenizer.getString(2));
+	}
+
+	@Test
+	public void testManyColumns() {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			line.append(i).append(';');
+		}
+		assertEquals(101, tokenize(line.toString()));
+		assertEquals(99, tokenizer.getInt(99));
+	}
+
+	@Test
+	public void testGetInt() {
+		tokenize("-42;+7;2147483647;-2147483648");
+		assertEquals(-42, tokenizer.getInt(0));
+		assertEquals(7, tokenizer.getInt(1));
+		assertEquals(Integer.MAX_VALUE, tokenizer.getInt(2));
+		assertEquals(Integer.MIN_VALUE, tokenizer.getInt(3));
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testGetInt_invalid() {
+		tokenize("12a");
+		tokenizer.getInt(0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testColumnOutOfBounds() {
+		tokenize("a;b");
+		tokenizer.getString(2);
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Testing the decimal parser against {@link Double#parseDouble(String)}, bit for bit.
+ */
+public class DecimalParserTest {
+
+	private final Random random = new Random(20170426);
+
+	private void check(final String text) {
+		final char[] chars = ("##" + text + "##").toCharArray();
+		double expected;
+		try {
+			expected = Double.parseDouble(text);
+		} catch (final NumberFormatException nfe) {
+			try {
+				DecimalParser.parseDouble(chars, 2, chars.length - 2);
+				fail("Should send a NumberFormatException for " + text);
+			} catch (final NumberFormatException e) {
+				assertEquals(nfe.getMessage(), e.getMessage());
+			}
+			return;
+		}
+		final double actual = DecimalParser.parseDouble(chars, 2, chars.length - 2);
+		assertEquals(text, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual));
+	}
+
+	@Test
+	public void testCoordinates() {
+		check("49.433333");
+		check("-1.083333");
+		check("151.2472");
+		check("-33.8928");
+		check("0");
+		check("-0");
+		check("-0.0");
+		check("1.");
+		check(".5");
+		check("+12");
+		check("0.000000000000000000000000123");
+	}
+
+	@Test
+	public void testSpecialValues() {
+		check("");
+		check("-");
+		check(".");
+		check("1e");
+		check("1.2.3");
+		check("12a");
+		check("NaN");
+		check("-Infinity");
+		check("0x1.8p1");
+		check(" 12.5 ");
+		check("12.5d");
+		check("1e400");
+		check("1e-400");
+		check("4.9e-324");
+		check("2.2250738585072011e-308");
+		check("1.7976931348623157e308");
+		check("1.7976931348623159e308");
+		check("9007199254740993");
+		check("9999999999999999999");
+		check("12345678901234567890123");
+		check("1e99999999999");
+	}
+
+	@Test
+	public void testHalfwayCases() {
+		// Exactly between two doubles : rounded to the even one
+		check("9007199254740993");
+		check("9007199254740995");
+		check("2.0000000000000004440892098500626");
+		check("18014398509481986");
+		check("18014398509481990");
+		check("1.00000000000000011102230246251565404236316680908203125");
+	}
+
+	@Test
+	public void testRandomDecimals() {
+		for (int n = 0; n < 200000; n++) {
+			final StringBuilder text = new StringBuilder();
+			if (random.nextBoolean()) {
+				text.append('-');
+			}
+			final int digits = 1 + random.nextInt(19);
+			final int point = random.nextInt(digits + 1);
+			for (int i = 0; i < digits; i++) {
+				if (i == point) {
+					text.append('.');
+				}
+				text.append((char) ('0' + random.nextInt(10)));
+			}
+			if (random.nextInt(3) == 0) {
+				text.append('e').append(random.nextInt(700) - 350);
+			}
+			check(text.toString());
+		}
+	}
+
+	@Test
+	public void testRandomDoubles() {
+		for (int n = 0; n < 200000; n++) {
+			check(Double.toString(Double.longBitsToDouble(random.nextLong())));
+			check(Double.toString(random.nextDouble() * 360 - 180));
+		}
+	}
+}
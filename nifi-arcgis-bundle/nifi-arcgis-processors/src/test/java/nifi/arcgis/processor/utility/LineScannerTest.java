@@ -0,0 +1,77 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor.utility;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Testing the line scanner.
+ */
+public class LineScannerTest {
+
+	private List<String> scan(String content, int bufferSize) throws IOException {
+		LineScanner scanner = new LineScanner(new StringReader(content), bufferSize);
+		List<String> lines = new ArrayList<String>();
+		while (scanner.nextLine()) {
+			lines.add(scanner.toString());
+		}
+		return lines;
+	}
+
+	@Test
+	public void testLineFeed() throws IOException {
+		List<String> lines = scan("name;latitude\nRouen;49.433333\n", 1024);
+		assertEquals(2, lines.size());
+		assertEquals("name;latitude", lines.get(0));
+		assertEquals("Rouen;49.433333", lines.get(1));
+	}
+
+	@Test
+	public void testCarriageReturnLineFeed() throws IOException {
+		List<String> lines = scan("name;latitude\r\n\r\nRouen;49.433333", 1024);
+		assertEquals(3, lines.size());
+		assertEquals("name;latitude", lines.get(0));
+		assertEquals("", lines.get(1));
+		assertEquals("Rouen;49.433333", lines.get(2));
+	}
+
+	@Test
+	public void testLinesLongerThanTheWindow() throws IOException {
+		StringBuilder content = new StringBuilder();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			StringBuilder line = new StringBuilder();
+			for (int j = 0; j < i; j++) {
+				line.append((char) ('a' + (j % 26)));
+			}
+			expected.add(line.toString());
+			content.append(line).append((i % 2 == 0) ? "\n" : "\r\n");
+		}
+		assertEquals(expected, scan(content.toString(), 16));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		assertEquals(0, scan("", 16).size());
+	}
+
+	@Test
+	public void testParseSlice() throws IOException {
+		LineScanner scanner = new LineScanner(new StringReader("skip\r\n\"Rouen;Seine\";49.433333;1.083333\r\n"), 16);
+		scanner.nextLine();
+		scanner.nextLine();
+		List<String> values = CsvManager.parseLine(scanner.getBuffer(), scanner.getStart(), scanner.getEnd(), ';');
+		assertEquals(3, values.size());
+		assertEquals("Rouen;Seine", values.get(0));
+		assertEquals("49.433333", values.get(1));
+		assertEquals("1.083333", values.get(2));
+	}
+}
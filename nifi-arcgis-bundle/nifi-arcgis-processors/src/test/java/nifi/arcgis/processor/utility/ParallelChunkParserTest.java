@@ -0,0 +1,115 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Testing the parallel parsing of a stream by chunks of lines.
+ */
+public class ParallelChunkParserTest {
+
+	private final ParallelChunkParser<String> parser = new ParallelChunkParser<String>(4, 16);
+
+	@After
+	public void close() {
+		parser.close();
+	}
+
+	/**
+	 * Parse each line of a chunk into one result
+	 */
+	private long parseLines(final byte[] chunk, final int length, final java.util.function.Consumer<String> consumer) {
+		final String content = new String(chunk, 0, length, StandardCharsets.UTF_8);
+		long count = 0;
+		for (final String line : content.split("\n")) {
+			if (!line.isEmpty()) {
+				consumer.accept(line);
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private ByteArrayInputStream lines(final int count) {
+		final StringBuilder content = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			content.append("line").append(i).append('\n');
+		}
+		return new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testOrdered() throws Exception {
+		final List<String> results = new ArrayList<String>();
+		assertEquals(1000, parser.parse(lines(1000), this::parseLines, true, results::add));
+		assertEquals(1000, results.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("line" + i, results.get(i));
+		}
+	}
+
+	@Test
+	public void testUnordered() throws Exception {
+		final List<String> results = new ArrayList<String>();
+		assertEquals(1000, parser.parse(lines(1000), this::parseLines, false, results::add));
+		Collections.sort(results);
+		final List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			expected.add("line" + i);
+		}
+		Collections.sort(expected);
+		assertEquals(expected, results);
+	}
+
+	@Test
+	public void testLongLineAndLastLine() throws Exception {
+		final StringBuilder longLine = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			longLine.append('x');
+		}
+		final String content = "first\n" + longLine + "\nlast";
+		final List<String> results = new ArrayList<String>();
+		parser.parse(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), this::parseLines, true,
+				results::add);
+		assertEquals(3, results.size());
+		assertEquals(longLine.toString(), results.get(1));
+		assertEquals("last", results.get(2));
+	}
+
+	@Test
+	public void testChunkFailure() throws Exception {
+		try {
+			parser.parse(lines(1000), (chunk, length, consumer) -> {
+				if (new String(chunk, 0, length, StandardCharsets.UTF_8).contains("line500\n")) {
+					throw new IOException("Invalid line");
+				}
+				return parseLines(chunk, length, consumer);
+			}, true, line -> {
+			});
+			fail("Should send an IOException");
+		} catch (final IOException e) {
+			assertEquals("Invalid line", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testEmptyStream() throws Exception {
+		final List<String> results = new ArrayList<String>();
+		assertEquals(0, parser.parse(new ByteArrayInputStream(new byte[0]), this::parseLines, true, results::add));
+		assertTrue(results.isEmpty());
+	}
+}
@@ -0,0 +1,71 @@
+/**
+ * 
+ */
+package nifi.arcgis.processor.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Testing the slicing of records into blocks.
+ */
+public class RecordBlocksTest {
+
+	private List<Integer> records(int size) {
+		List<Integer> records = new ArrayList<Integer>();
+		for (int i = 0; i < size; i++) {
+			records.add(i);
+		}
+		return records;
+	}
+
+	@Test
+	public void testRecordBlocks() {
+		RecordBlocks<Integer> blocks = new RecordBlocks<Integer>(records(12), 5);
+		assertEquals(3, blocks.size());
+		// The blocks are sliced by index, in any order
+		assertEquals(records(12).subList(10, 12), blocks.get(2));
+		assertEquals(records(5), blocks.get(0));
+		assertEquals(records(12).subList(5, 10), blocks.get(1));
+	}
+
+	@Test
+	public void testRecordBlocks_exact() {
+		RecordBlocks<Integer> blocks = new RecordBlocks<Integer>(records(10), 5);
+		assertEquals(2, blocks.size());
+		assertEquals(records(10).subList(5, 10), blocks.get(1));
+	}
+
+	@Test
+	public void testRecordBlocks_empty() {
+		assertTrue(new RecordBlocks<Integer>(records(0), 5).isEmpty());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRecordBlocks_outOfBounds() {
+		new RecordBlocks<Integer>(records(12), 5).get(3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecordBlocks_quotity() {
+		new RecordBlocks<Integer>(records(12), 0);
+	}
+
+	@Test
+	public void testRecordBatcher() {
+		final List<List<Integer>> received = new ArrayList<List<Integer>>();
+		RecordBatcher<Integer> batcher = new RecordBatcher<Integer>(5, received::add);
+		records(12).forEach(batcher::add);
+		assertEquals(2, received.size());
+		batcher.flush();
+		batcher.flush();
+		assertEquals(3, received.size());
+		assertEquals(records(12).subList(10, 12), received.get(2));
+		assertEquals(12, batcher.getCount());
+	}
+}
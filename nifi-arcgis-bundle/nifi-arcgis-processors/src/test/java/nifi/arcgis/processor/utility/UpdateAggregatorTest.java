@@ -0,0 +1,110 @@
+/**
+ *
+ */
+package nifi.arcgis.processor.utility;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.ColumnType;
+import nifi.arcgis.service.arcgis.services.RecordBatch;
+
+/**
+ * Testing the aggregation engine {@link UpdateAggregator}, and its column-oriented front-end {@link BatchUpdateAggregator}.
+ */
+public class UpdateAggregatorTest {
+
+	@Test
+	public void testGroupsInFirstSeenOrder() {
+		UpdateAggregator aggregator = new UpdateAggregator(2, 1);
+		assertEquals(0, aggregator.group(48.6393, -93.4469));
+		assertEquals(1, aggregator.group(-33.8928, 151.2472));
+		assertEquals(0, aggregator.group(48.6393, -93.4469));
+		aggregator.add(0, 0, 1);
+		aggregator.add(0, 0, 2);
+		aggregator.add(0, 1, -1.5);
+		assertEquals(3d, aggregator.get(0, 0), 0d);
+		assertEquals(-1.5d, aggregator.get(0, 1), 0d);
+		assertEquals(0d, aggregator.get(1, 0), 0d);
+		assertEquals(2, aggregator.size());
+	}
+
+	@Test
+	public void testNoCollision() {
+		UpdateAggregator aggregator = new UpdateAggregator(1, 16);
+		// Same String concatenation "1.234"
+		assertEquals(0, aggregator.group(1.2, 34));
+		assertEquals(1, aggregator.group(1.23, 4));
+		// Same quantized key, distinct locations
+		assertEquals(UpdateAggregator.key(1.00000001, 2), UpdateAggregator.key(1.00000002, 2));
+		assertEquals(2, aggregator.group(1.00000001, 2));
+		assertEquals(3, aggregator.group(1.00000002, 2));
+		assertEquals(2, aggregator.group(1.00000001, 2));
+	}
+
+	@Test
+	public void testGrowthAndClear() {
+		UpdateAggregator aggregator = new UpdateAggregator(1, 1);
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, aggregator.group(i * 0.001, -i));
+			aggregator.add(i, 0, i);
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, aggregator.group(i * 0.001, -i));
+			assertEquals(i, aggregator.get(i, 0), 0d);
+		}
+		aggregator.clear();
+		assertEquals(0, aggregator.size());
+		assertEquals(0, aggregator.group(5, 5));
+		assertEquals(0d, aggregator.get(0, 0), 0d);
+	}
+
+	@Test
+	public void testBatchAggregation() {
+		Map<String, ColumnType> schema = new HashMap<String, ColumnType>();
+		schema.put("hit", ColumnType.INTEGER);
+		RecordBatch batch = new RecordBatch(Arrays.asList("name", "latitude", "longitude", "hit", "ratio"), schema, 4);
+		addRow(batch, "first", 1.5, 2.5, 1, "0.5");
+		addRow(batch, "second", 1.5, 2.5, 2, "0.25");
+		addRow(batch, "other", 3, 4, 5, "1");
+		final int row = batch.newRow();
+		batch.setValue(row, 0, "nowhere");
+		for (int column = 1; column < batch.getColumnCount(); column++) {
+			batch.setNull(row, column);
+		}
+
+		BatchUpdateAggregator aggregator = new BatchUpdateAggregator(batch, Arrays.asList("hit", "ratio"), 2);
+		for (int r = 0; r < batch.size(); r++) {
+			aggregator.add(batch, r);
+		}
+		assertEquals(3, aggregator.size());
+		RecordBatch aggregated = aggregator.drain();
+		assertEquals(0, aggregator.size());
+
+		assertEquals(3, aggregated.size());
+		// The last values are kept, the update values are summed in the type of their column
+		assertEquals("second", aggregated.getString(0, 0));
+		assertEquals(3, aggregated.getInt(0, 3));
+		assertEquals("0.75", aggregated.getString(0, 4));
+		assertEquals("other", aggregated.getString(1, 0));
+		assertEquals(5, aggregated.getInt(1, 3));
+		assertEquals("1", aggregated.getString(1, 4));
+		// A row without location is kept as is
+		assertEquals("nowhere", aggregated.getString(2, 0));
+	}
+
+	private void addRow(final RecordBatch batch, final String name, final double latitude, final double longitude,
+			final int hit, final String ratio) {
+		final int row = batch.newRow();
+		batch.setString(row, 0, name);
+		batch.setDouble(row, 1, latitude);
+		batch.setDouble(row, 2, longitude);
+		batch.setInt(row, 3, hit);
+		batch.setString(row, 4, ratio);
+	}
+}
@@ -16,6 +16,7 @@
  */
 package nifi.arcgis.service.arcgis.services;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -42,6 +43,12 @@ public interface ArcGISLayerServiceAPI extends ControllerService {
 	public final static String TYPE_OF_QUERY = "QUERY";
 	public final static String TYPE_OF_QUERY_GEO = "GEO";
 	
+	/**
+	 * Geo-query executed once for a block of records : the features around the block are loaded with a few 
+	 * envelope queries, and the nearest feature of each record is searched locally.
+	 */
+	public final static String TYPE_OF_QUERY_GEO_BATCH = "GEO_BATCH";
+	
 	/**
 	 * This property represents the radius of the search-circle around a point in a geo-query search 
 	 */
@@ -51,6 +58,12 @@ public interface ArcGISLayerServiceAPI extends ControllerService {
 	 * This property represents the list of columns involved in the updates operation
 	 */
 	public final static String UPDATE_FIELD_LIST = "U_F_L";
+
+	/**
+	 * This property represents the layer targeted by the operation : <code>layer</code> on the featureServer of the
+	 * service, or <code>featureServer/layer</code>. If absent, the layer of the service is targeted.
+	 */
+	public final static String LAYER = "LAYER";
 	
 	/**
 	 * <p> 
@@ -62,6 +75,19 @@ public interface ArcGISLayerServiceAPI extends ControllerService {
 	 */
     public boolean isHeaderValid(List<String> header) throws ProcessException;
 
+	/**
+	 * Validate the header against the layer targeted in the settings.
+	 * <br/>By default, the header is validated against the layer of the service by {@link #isHeaderValid(List)}.
+	 * @param header the header parsed from the CSV in a list of string
+	 * @param settings data settings, which may contain the {@link #LAYER} targeted
+	 * @return <code>TRUE</code> if this header match the columns list available for this layer, <code>FALSE</code> otherwise
+	 * @throws ProcessException thrown if any problems occurs during execution
+	 */
+    public default boolean isHeaderValid(final List<String> header, final Map<String, Object> settings)
+    		throws ProcessException {
+    	return isHeaderValid(header);
+    }
+
     /**
      * Process a record
      * @param list of records in a Map Format (Key, Value)
@@ -69,6 +95,47 @@ public interface ArcGISLayerServiceAPI extends ControllerService {
      * @throws ProcessException thrown if any problems occurs during execution
      */
     public void execute(List<Map<String, String>> record, final Map<String, Object> settings)  throws ProcessException;
+
+    /**
+     * Type of the fields of the featureTable, used to build the columns of a {@link RecordBatch}.
+     * <br/>By default, no type is known, and all the columns of a batch are {@link ColumnType#TEXT} columns.
+     * @return the type of each field handled by this service
+     * @throws ProcessException thrown if any problems occurs during execution
+     */
+    public default Map<String, ColumnType> getSchema() throws ProcessException {
+    	return Collections.emptyMap();
+    }
+
+    /**
+     * Type of the fields of the layer targeted in the settings.
+     * <br/>By default, the schema of the layer of the service is returned by {@link #getSchema()}.
+     * @param settings data settings, which may contain the {@link #LAYER} targeted
+     * @return the type of each field of this layer
+     * @throws ProcessException thrown if any problems occurs during execution
+     */
+    public default Map<String, ColumnType> getSchema(final Map<String, Object> settings) throws ProcessException {
+    	return getSchema();
+    }
+
+    /**
+     * Process a column-oriented block of records.
+     * <br/>By default, the block is converted into map-based records and processed by {@link #execute(List, Map)}.
+     * @param batch block of records
+     * @param settings data settings (such as spatial reference)
+     * @throws ProcessException thrown if any problems occurs during execution
+     */
+    public default void execute(final RecordBatch batch, final Map<String, Object> settings) throws ProcessException {
+    	execute(batch.toRecords(), settings);
+    }
+
+    /**
+     * Metrics of the phases executed by this service, such as the spatial queries and the editions.
+     * <br/>By default, the service is not instrumented.
+     * @return the metrics of this service, or <code>null</code> if not available
+     */
+    public default PhaseMetrics getMetrics() {
+    	return null;
+    }
     
     
 }
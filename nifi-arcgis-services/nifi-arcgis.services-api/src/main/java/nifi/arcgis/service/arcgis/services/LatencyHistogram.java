@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds, recorded without lock by concurrent tasks.
+ * <br/>The buckets are log-linear : each power of two is split into {@value #SUB_BUCKETS} buckets,
+ * so a percentile is known within 12.5%. The latencies beyond 2^{@value #MAX_EXPONENT} nanoseconds (about 9 hours)
+ * share the last bucket.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of bits of the sub-buckets
+	 */
+	private final static int SUB_BITS = 3;
+
+	/**
+	 * Number of buckets per power of two
+	 */
+	final static int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/**
+	 * Highest power of two with its own buckets
+	 */
+	final static int MAX_EXPONENT = 45;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+
+	/**
+	 * @return the bucket of a latency
+	 */
+	static int index(final long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) Math.max(nanos, 0);
+		}
+		final int exponent = Math.min(63 - Long.numberOfLeadingZeros(nanos), MAX_EXPONENT + 1);
+		if (exponent > MAX_EXPONENT) {
+			return (MAX_EXPONENT - SUB_BITS + 2) << SUB_BITS;
+		}
+		final int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return ((exponent - SUB_BITS + 1) << SUB_BITS) + sub;
+	}
+
+	/**
+	 * @return the lowest latency of a bucket
+	 */
+	static long lowerBound(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int exponent = (index >> SUB_BITS) + SUB_BITS - 1;
+		final long sub = index & (SUB_BUCKETS - 1);
+		return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+	/**
+	 * Record a latency.
+	 * @param nanos the latency in nanoseconds
+	 */
+	public void record(final long nanos) {
+		buckets.incrementAndGet(index(nanos));
+	}
+
+	/**
+	 * @return the number of latencies recorded
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @param quantile the quantile, between 0 and 1, such as <code>0.99</code>
+	 * @return the highest latency of the bucket containing this quantile, in nanoseconds ;
+	 *         <code>0</code> if no latency has been recorded
+	 */
+	public long getPercentile(final double quantile) {
+		final long[] counts = new long[buckets.length()];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long cumulated = 0;
+		for (int i = 0; i < counts.length - 1; i++) {
+			cumulated += counts[i];
+			if (cumulated >= rank) {
+				return lowerBound(i + 1) - 1;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+}
@@ -0,0 +1,276 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Timers and counters of the phases of the data processing, from the parsing of a flowFile to the editions
+ * applied on the ArcGIS server.
+ * <br/>Each phase records its number of executions, the number of items processed, its total duration and a
+ * {@link LatencyHistogram}. The recording is lock-free, and safe for concurrent tasks.
+ * <br/>The metrics are published as NiFi counters with {@link #publish(BiConsumer)}, and as JMX MBeans
+ * with {@link #register(String)}.
+ */
+public class PhaseMetrics {
+
+	/**
+	 * Phases of the data processing.
+	 */
+	public enum Phase {
+		PARSE("parse"),
+		AGGREGATION("aggregation"),
+		CONVERSION("conversion"),
+		SPATIAL_QUERY("spatial query"),
+		FEATURE_LOAD("feature load"),
+		LOCAL_EDIT("local edit"),
+		APPLY_EDITS("applyEdits");
+
+		/**
+		 * Label of the phase in the counters
+		 */
+		final String label;
+
+		Phase(final String label) {
+			this.label = label;
+		}
+	}
+
+	/**
+	 * JMX view of the timer of a phase.
+	 */
+	public interface TimerMXBean {
+
+		long getCount();
+
+		long getItems();
+
+		long getTotalMillis();
+
+		double getMeanMillis();
+
+		double getP50Millis();
+
+		double getP99Millis();
+
+		double getP999Millis();
+
+		double getMaxMillis();
+	}
+
+	/**
+	 * Timer of a phase.
+	 */
+	public static class Timer implements TimerMXBean {
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder items = new LongAdder();
+
+		private final LongAdder nanos = new LongAdder();
+
+		private final AtomicLong max = new AtomicLong();
+
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		/**
+		 * Values already published as NiFi counters
+		 */
+		private final AtomicLong publishedCount = new AtomicLong(), publishedItems = new AtomicLong(),
+				publishedMillis = new AtomicLong();
+
+		/**
+		 * Record an execution of the phase.
+		 * @param elapsed duration in nanoseconds
+		 * @param processed number of items processed
+		 */
+		public void record(final long elapsed, final long processed) {
+			count.increment();
+			items.add(processed);
+			nanos.add(elapsed);
+			histogram.record(elapsed);
+			long current;
+			while ((elapsed > (current = max.get())) && !max.compareAndSet(current, elapsed)) {
+				// retry
+			}
+		}
+
+		@Override
+		public long getCount() {
+			return count.sum();
+		}
+
+		@Override
+		public long getItems() {
+			return items.sum();
+		}
+
+		@Override
+		public long getTotalMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+		}
+
+		@Override
+		public double getMeanMillis() {
+			final long n = count.sum();
+			return (n == 0) ? 0 : millis(nanos.sum()) / n;
+		}
+
+		@Override
+		public double getP50Millis() {
+			return millis(histogram.getPercentile(0.5));
+		}
+
+		@Override
+		public double getP99Millis() {
+			return millis(histogram.getPercentile(0.99));
+		}
+
+		@Override
+		public double getP999Millis() {
+			return millis(histogram.getPercentile(0.999));
+		}
+
+		@Override
+		public double getMaxMillis() {
+			return millis(max.get());
+		}
+
+		private static double millis(final long nanos) {
+			return nanos / 1e6;
+		}
+
+		/**
+		 * @return the increase of a value since its last publication. The increases published by concurrent tasks
+		 *         always add up to the current value.
+		 */
+		private static long delta(final long value, final AtomicLong published) {
+			return value - published.getAndSet(value);
+		}
+	}
+
+	private final Map<Phase, Timer> timers = new EnumMap<Phase, Timer>(Phase.class);
+
+	/**
+	 * Names of the MBeans registered
+	 */
+	private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+	/**
+	 * Construction.
+	 */
+	public PhaseMetrics() {
+		for (Phase phase : Phase.values()) {
+			timers.put(phase, new Timer());
+		}
+	}
+
+	/**
+	 * @return the starting time of a phase, to be passed to {@link #record(Phase, long, long)}
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record an execution of a phase, ending now.
+	 * @param phase the phase
+	 * @param start the starting time returned by {@link #start()}
+	 * @param items number of items processed
+	 */
+	public void record(final Phase phase, final long start, final long items) {
+		timers.get(phase).record(System.nanoTime() - start, items);
+	}
+
+	/**
+	 * @return the timer of a phase
+	 */
+	public Timer get(final Phase phase) {
+		return timers.get(phase);
+	}
+
+	/**
+	 * Publish the increase of the counters since their last publication, such as
+	 * <code>(name, delta) -> session.adjustCounter(name, delta, false)</code>.
+	 * <br/>Three counters are published for each phase : <code>ArcGIS {phase} count</code>,
+	 * <code>ArcGIS {phase} items</code> and <code>ArcGIS {phase} time (ms)</code>.
+	 * @param counter the consumer of the counter name and its increase. Unchanged counters are not published.
+	 */
+	public void publish(final BiConsumer<String, Long> counter) {
+		timers.forEach((phase, timer) -> {
+			publish(counter, "ArcGIS " + phase.label + " count", Timer.delta(timer.getCount(), timer.publishedCount));
+			publish(counter, "ArcGIS " + phase.label + " items", Timer.delta(timer.getItems(), timer.publishedItems));
+			publish(counter, "ArcGIS " + phase.label + " time (ms)",
+					Timer.delta(timer.getTotalMillis(), timer.publishedMillis));
+		});
+	}
+
+	private static void publish(final BiConsumer<String, Long> counter, final String name, final long delta) {
+		if (delta != 0) {
+			counter.accept(name, delta);
+		}
+	}
+
+	/**
+	 * Register a MBean per phase into the platform MBeanServer, named
+	 * <code>nifi.arcgis:type=PhaseMetrics,component={component},phase={phase}</code>.
+	 * @param component identifier of the NiFi component owning these metrics
+	 * @throws JMException if a MBean cannot be registered
+	 */
+	public synchronized void register(final String component) throws JMException {
+		unregister();
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (Phase phase : Phase.values()) {
+			final ObjectName name = new ObjectName("nifi.arcgis:type=PhaseMetrics,component="
+					+ ObjectName.quote(component) + ",phase=" + phase.name());
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(timers.get(phase), name);
+			registered.add(name);
+		}
+	}
+
+	/**
+	 * Unregister the MBeans registered, if any.
+	 * @throws JMException if a MBean cannot be unregistered
+	 */
+	public synchronized void unregister() throws JMException {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registered) {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		}
+		registered.clear();
+	}
+
+	/**
+	 * @return a summary of the phases executed, one line per phase
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		timers.forEach((phase, timer) -> {
+			if (timer.getCount() > 0) {
+				sb.append(String.format("%s : %d executions, %d items, %d ms, p50 %.3f ms, p99 %.3f ms, p999 %.3f ms%n",
+						phase.label, timer.getCount(), timer.getItems(), timer.getTotalMillis(), timer.getP50Millis(),
+						timer.getP99Millis(), timer.getP999Millis()));
+			}
+		});
+		return sb.toString();
+	}
+}
@@ -0,0 +1,451 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Column-oriented block of records exchanged between the processor and the ArcGIS service.
+ * </p>
+ * <p>
+ * Each column is stored in a primitive array typed from the schema of the featureTable
+ * (see {@link ArcGISLayerServiceAPI#getSchema()}). Values are therefore converted once, when the block is filled,
+ * instead of being carried as Strings and parsed again for each record by the service.
+ * </p>
+ * <p>
+ * The geometry columns (<code>x</code>, <code>y</code>, <code>z</code>, <code>latitude</code>, <code>longitude</code>)
+ * are always {@link ColumnType#DOUBLE} columns, whatever the schema says.
+ * <br/>A numeric value can be <i>null</i>, if the source column was empty.
+ * </p>
+ * <p>
+ * The field-name dictionary and the column types are shared by all the batches created with {@link #emptyCopy()}.
+ * </p>
+ */
+public class RecordBatch {
+
+	public final static String X = "x";
+	public final static String Y = "y";
+	public final static String Z = "z";
+	public final static String LATITUDE = "latitude";
+	public final static String LONGITUDE = "longitude";
+
+	/**
+	 * Default capacity of a batch
+	 */
+	private final static int DEFAULT_CAPACITY = 1000;
+
+	/**
+	 * Name of each column
+	 */
+	private final String[] fieldNames;
+
+	/**
+	 * Dictionary of the column index for each field name
+	 */
+	private final Map<String, Integer> dictionary;
+
+	/**
+	 * Type of each column
+	 */
+	private final ColumnType[] types;
+
+	/**
+	 * Columns of geometry (<code>-1</code> if not available)
+	 */
+	private final int xColumn, yColumn, zColumn;
+
+	/**
+	 * Storage of the columns, depending on their type. Only one of these three arrays is not null for a column.
+	 */
+	private final double[][] doubleColumns;
+	private final int[][] intColumns;
+	private final String[][] textColumns;
+
+	/**
+	 * Null flags of each column
+	 */
+	private final boolean[][] nulls;
+
+	/**
+	 * Current capacity of the column arrays
+	 */
+	private int capacity;
+
+	/**
+	 * Number of rows in this batch
+	 */
+	private int size = 0;
+
+	/**
+	 * Construction.
+	 * @param fieldNames names of the columns, in the order of the source file
+	 * @param schema type of each field. A field missing in the schema is stored as {@link ColumnType#TEXT}
+	 * @param capacity initial number of rows
+	 */
+	public RecordBatch(final List<String> fieldNames, final Map<String, ColumnType> schema, final int capacity) {
+		this.fieldNames = fieldNames.toArray(new String[fieldNames.size()]);
+		final Map<String, Integer> index = new HashMap<String, Integer>();
+		this.types = new ColumnType[this.fieldNames.length];
+		for (int column = 0; column < this.fieldNames.length; column++) {
+			final String name = this.fieldNames[column];
+			index.put(name, column);
+			if (isGeometryField(name)) {
+				types[column] = ColumnType.DOUBLE;
+			} else {
+				final ColumnType type = (schema == null) ? null : schema.get(name);
+				types[column] = (type == null) ? ColumnType.TEXT : type;
+			}
+		}
+		this.dictionary = Collections.unmodifiableMap(index);
+		if (index.containsKey(X) && index.containsKey(Y)) {
+			xColumn = index.get(X);
+			yColumn = index.get(Y);
+			zColumn = index.containsKey(Z) ? index.get(Z) : -1;
+		} else if (index.containsKey(LATITUDE) && index.containsKey(LONGITUDE)) {
+			// Same convention as the map-based records : the latitude is the first coordinate
+			xColumn = index.get(LATITUDE);
+			yColumn = index.get(LONGITUDE);
+			zColumn = -1;
+		} else {
+			xColumn = -1;
+			yColumn = -1;
+			zColumn = -1;
+		}
+		this.capacity = Math.max(capacity, 1);
+		this.doubleColumns = new double[types.length][];
+		this.intColumns = new int[types.length][];
+		this.textColumns = new String[types.length][];
+		this.nulls = new boolean[types.length][];
+		allocate();
+	}
+
+	/**
+	 * Construction of an empty batch sharing the dictionary and the types of a model.
+	 */
+	private RecordBatch(final RecordBatch model) {
+		this.fieldNames = model.fieldNames;
+		this.dictionary = model.dictionary;
+		this.types = model.types;
+		this.xColumn = model.xColumn;
+		this.yColumn = model.yColumn;
+		this.zColumn = model.zColumn;
+		this.capacity = model.capacity;
+		this.doubleColumns = new double[types.length][];
+		this.intColumns = new int[types.length][];
+		this.textColumns = new String[types.length][];
+		this.nulls = new boolean[types.length][];
+		allocate();
+	}
+
+	private void allocate() {
+		for (int column = 0; column < types.length; column++) {
+			switch (types[column]) {
+			case DOUBLE:
+				doubleColumns[column] = new double[capacity];
+				break;
+			case INTEGER:
+				intColumns[column] = new int[capacity];
+				break;
+			default:
+				textColumns[column] = new String[capacity];
+			}
+			nulls[column] = new boolean[capacity];
+		}
+	}
+
+	/**
+	 * @param name field name
+	 * @return <code>true</code> if this field is used to build the geometry of a record
+	 */
+	public static boolean isGeometryField(final String name) {
+		return X.equals(name) || Y.equals(name) || Z.equals(name) || LATITUDE.equals(name) || LONGITUDE.equals(name);
+	}
+
+	/**
+	 * @return a new empty batch, sharing the field-name dictionary and the column types of this batch
+	 */
+	public RecordBatch emptyCopy() {
+		return new RecordBatch(this);
+	}
+
+	/**
+	 * Append a new row. All the values of this row are <i>null</i>.
+	 * @return the index of the row
+	 */
+	public int newRow() {
+		if (size == capacity) {
+			grow();
+		}
+		return size++;
+	}
+
+	private void grow() {
+		capacity = (capacity < DEFAULT_CAPACITY) ? DEFAULT_CAPACITY : capacity * 2;
+		for (int column = 0; column < types.length; column++) {
+			if (doubleColumns[column] != null) {
+				doubleColumns[column] = Arrays.copyOf(doubleColumns[column], capacity);
+			}
+			if (intColumns[column] != null) {
+				intColumns[column] = Arrays.copyOf(intColumns[column], capacity);
+			}
+			if (textColumns[column] != null) {
+				textColumns[column] = Arrays.copyOf(textColumns[column], capacity);
+			}
+			nulls[column] = Arrays.copyOf(nulls[column], capacity);
+		}
+	}
+
+	/**
+	 * @return the number of rows in this batch
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of columns
+	 */
+	public int getColumnCount() {
+		return fieldNames.length;
+	}
+
+	/**
+	 * @param column index of the column
+	 * @return the field name of this column
+	 */
+	public String getFieldName(final int column) {
+		return fieldNames[column];
+	}
+
+	/**
+	 * @return the field names, in the order of the columns
+	 */
+	public List<String> getFieldNames() {
+		return Collections.unmodifiableList(Arrays.asList(fieldNames));
+	}
+
+	/**
+	 * @param name field name
+	 * @return the index of the column, or <code>-1</code> if this field is not in the batch
+	 */
+	public int getColumn(final String name) {
+		final Integer column = dictionary.get(name);
+		return (column == null) ? -1 : column;
+	}
+
+	/**
+	 * @param column index of the column
+	 * @return the type of this column
+	 */
+	public ColumnType getColumnType(final int column) {
+		return types[column];
+	}
+
+	/**
+	 * Store a value in a {@link ColumnType#DOUBLE} column.
+	 */
+	public void setDouble(final int row, final int column, final double value) {
+		checkRow(row);
+		doubleColumns[column][row] = value;
+		nulls[column][row] = false;
+	}
+
+	/**
+	 * Store a value in a {@link ColumnType#INTEGER} column.
+	 */
+	public void setInt(final int row, final int column, final int value) {
+		checkRow(row);
+		intColumns[column][row] = value;
+		nulls[column][row] = false;
+	}
+
+	/**
+	 * Store a value in a {@link ColumnType#TEXT} column.
+	 */
+	public void setString(final int row, final int column, final String value) {
+		checkRow(row);
+		textColumns[column][row] = value;
+		nulls[column][row] = (value == null);
+	}
+
+	/**
+	 * Mark a value as <i>null</i>.
+	 */
+	public void setNull(final int row, final int column) {
+		checkRow(row);
+		nulls[column][row] = true;
+	}
+
+	/**
+	 * Convert and store a textual value, depending on the type of the column.
+	 * <br/>An empty value is stored as <i>null</i> in a numeric column.
+	 * @param row index of the row
+	 * @param column index of the column
+	 * @param value the textual value
+	 * @throws NumberFormatException if the value cannot be converted into the type of the column
+	 */
+	public void setValue(final int row, final int column, final String value) {
+		switch (types[column]) {
+		case DOUBLE:
+			if ((value == null) || value.isEmpty()) {
+				setNull(row, column);
+			} else {
+				setDouble(row, column, Double.parseDouble(value));
+			}
+			break;
+		case INTEGER:
+			if ((value == null) || value.isEmpty()) {
+				setNull(row, column);
+			} else {
+				setInt(row, column, Integer.parseInt(value));
+			}
+			break;
+		default:
+			setString(row, column, value);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the value is <i>null</i>
+	 */
+	public boolean isNull(final int row, final int column) {
+		checkRow(row);
+		return nulls[column][row];
+	}
+
+	/**
+	 * @return the value of a {@link ColumnType#DOUBLE} column
+	 */
+	public double getDouble(final int row, final int column) {
+		checkRow(row);
+		return doubleColumns[column][row];
+	}
+
+	/**
+	 * @return the value of an {@link ColumnType#INTEGER} column
+	 */
+	public int getInt(final int row, final int column) {
+		checkRow(row);
+		return intColumns[column][row];
+	}
+
+	/**
+	 * @return the value of a column in a textual format, an empty String for a <i>null</i> numeric value
+	 */
+	public String getString(final int row, final int column) {
+		checkRow(row);
+		switch (types[column]) {
+		case DOUBLE:
+			return nulls[column][row] ? "" : String.valueOf(doubleColumns[column][row]);
+		case INTEGER:
+			return nulls[column][row] ? "" : String.valueOf(intColumns[column][row]);
+		default:
+			return textColumns[column][row];
+		}
+	}
+
+	/**
+	 * @return the value as a {@link Double}, an {@link Integer} or a {@link String} depending on the type of the column,
+	 * or <code>null</code>
+	 */
+	public Object getValue(final int row, final int column) {
+		checkRow(row);
+		if (nulls[column][row]) {
+			return null;
+		}
+		switch (types[column]) {
+		case DOUBLE:
+			return doubleColumns[column][row];
+		case INTEGER:
+			return intColumns[column][row];
+		default:
+			return textColumns[column][row];
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the batch contains the columns needed to build a point
+	 */
+	public boolean hasGeometry() {
+		return xColumn != -1;
+	}
+
+	/**
+	 * @return <code>true</code> if the batch contains a <code>z</code> column
+	 */
+	public boolean hasZ() {
+		return zColumn != -1;
+	}
+
+	/**
+	 * @return <code>true</code> if a coordinate of the point is missing for this row
+	 */
+	public boolean isGeometryNull(final int row) {
+		checkRow(row);
+		return !hasGeometry() || nulls[xColumn][row] || nulls[yColumn][row] || (hasZ() && nulls[zColumn][row]);
+	}
+
+	/**
+	 * @return the first coordinate of the point (<code>x</code>, or <code>latitude</code>)
+	 */
+	public double getX(final int row) {
+		return getDouble(row, xColumn);
+	}
+
+	/**
+	 * @return the second coordinate of the point (<code>y</code>, or <code>longitude</code>)
+	 */
+	public double getY(final int row) {
+		return getDouble(row, yColumn);
+	}
+
+	/**
+	 * @return the <code>z</code> coordinate of the point
+	 */
+	public double getZ(final int row) {
+		return getDouble(row, zColumn);
+	}
+
+	/**
+	 * Convert this batch into the map-based records format of
+	 * {@link ArcGISLayerServiceAPI#execute(List, Map)}.
+	 * @return list of records in a Map Format (Key, Value)
+	 */
+	public List<Map<String, String>> toRecords() {
+		final List<Map<String, String>> records = new ArrayList<Map<String, String>>(size);
+		for (int row = 0; row < size; row++) {
+			final Map<String, String> record = new HashMap<String, String>();
+			for (int column = 0; column < fieldNames.length; column++) {
+				record.put(fieldNames[column], getString(row, column));
+			}
+			records.add(record);
+		}
+		return records;
+	}
+
+	private void checkRow(final int row) {
+		if ((row < 0) || (row >= size)) {
+			throw new IndexOutOfBoundsException("Row " + row + " out of " + size);
+		}
+	}
+}
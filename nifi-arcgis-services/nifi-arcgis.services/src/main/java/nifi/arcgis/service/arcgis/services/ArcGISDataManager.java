@@ -1,37 +1,32 @@
 package nifi.arcgis.service.arcgis.services;
 
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_REFERENCE;
-import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_REFERENCE_WEBMERCATOR;
-import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_REFERENCE_WGS84;
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.TYPE_OF_QUERY;
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.TYPE_OF_QUERY_GEO;
-import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.OPERATION;
-import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.OPERATION_UPDATE;
-import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.OPERATION_UPDATE_OR_INSERT;
-import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.OPERATION;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.TYPE_OF_QUERY_GEO_BATCH;
 import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.UPDATE_FIELD_LIST;
 
-import static com.jayway.awaitility.Awaitility.await;
+import static nifi.arcgis.service.arcgis.services.ArcGISFutures.await;
+import static nifi.arcgis.service.arcgis.services.ArcGISFutures.load;
+import static nifi.arcgis.service.arcgis.services.ArcGISFutures.toCompletable;
 
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.BiFunction;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.nifi.components.ValidationResult;
 import org.apache.nifi.logging.ComponentLog;
 
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.ArcGISFeature;
 import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.data.FeatureEditResult;
@@ -39,22 +34,22 @@ import com.esri.arcgisruntime.data.FeatureQueryResult;
 import com.esri.arcgisruntime.data.FeatureTable;
 import com.esri.arcgisruntime.data.Field;
 import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable.QueryFeatureFields;
 import com.esri.arcgisruntime.data.QueryParameters.SpatialRelationship;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
-import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.Envelope;
 import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.GeometryType;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.Polygon;
 import com.esri.arcgisruntime.geometry.SpatialReference;
-import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.layers.FeatureLayer;
 import com.esri.arcgisruntime.layers.FeatureLayer.SelectionMode;
 import com.esri.arcgisruntime.loadable.LoadStatus;
-import com.jayway.awaitility.Duration;
-import com.jayway.awaitility.core.ConditionTimeoutException;
 
+import nifi.arcgis.service.arcgis.services.PhaseMetrics.Phase;
 import nifi.arcgis.service.arcgis.services.json.ArcGISServicesData;
+import nifi.arcgis.service.arcgis.services.json.MetadataCache;
 import nifi.arcgis.service.arcgis.services.json.Layer;
 
 public class ArcGISDataManager {
@@ -83,7 +78,7 @@ public class ArcGISDataManager {
 	/**
 	 * Map of fields in the featureTable, loaded during the table initialization
 	 */
-	private final Map<String, ArcGISTableField> associateFields = new HashMap<String, ArcGISTableField>();
+	private volatile Map<String, ArcGISTableField> associateFields = Collections.emptyMap();
 
 	/**
 	 * Main constructor
@@ -106,14 +101,56 @@ public class ArcGISDataManager {
 	String currentSubject;
 
 	/**
-	 * Connector for managing the featureTable
+	 * Connector for managing the featureTable, loaded by the connection check.
+	 * <br/>It gives the metadata of the featureTable, such as its fields. The editions are executed on the
+	 * featureTables leased in the {@link #handles}.
 	 */
-	private ServiceFeatureTable featureTable = null;
+	private volatile ServiceFeatureTable featureTable = null;
 
 	/**
 	 * Connector for managing a layer in the featureTable.
 	 */
-	private FeatureLayer featureLayer = null;
+	private volatile FeatureLayer featureLayer = null;
+
+	/**
+	 * A featureTable of the layer with its featureLayer, leased by one task at a time.
+	 * <br/>The local edits of a featureTable are all sent to the server by its next <code>applyEdits</code> :
+	 * each task edits its own featureTable, so the edits of concurrent tasks are never mixed.
+	 */
+	static class TableHandle {
+
+		final ServiceFeatureTable table;
+
+		final FeatureLayer layer;
+
+		TableHandle(final ServiceFeatureTable table, final FeatureLayer layer) {
+			this.table = table;
+			this.layer = layer;
+		}
+	}
+
+	/**
+	 * Operation executed with a featureTable leased.
+	 */
+	@FunctionalInterface
+	interface HandleOperation<T> {
+		T execute(TableHandle handle) throws Exception;
+	}
+
+	/**
+	 * Default maximum number of featureTables leased at the same time
+	 */
+	public final static int DEFAULT_MAX_HANDLES = 4;
+
+	/**
+	 * Maximum number of featureTables leased at the same time
+	 */
+	private volatile int maxHandles = DEFAULT_MAX_HANDLES;
+
+	/**
+	 * Pool of the featureTables leased by the tasks, <code>null</code> until the first lease
+	 */
+	private volatile HandlePool<TableHandle> handles = null;
 
 	/*
 	 * Default radius for the search mechanism. This value is supposed to be
@@ -121,6 +158,340 @@ public class ArcGISDataManager {
 	 */
 	private final int DEFAULT_RADIUS = 10;
 
+	/**
+	 * Default maximum time to wait for a response of the ArcGIS server, in milliseconds
+	 */
+	public final static long DEFAULT_TIMEOUT = 30000;
+
+	/**
+	 * Maximum time to wait for a response of the ArcGIS server, in milliseconds
+	 */
+	private volatile long timeout = DEFAULT_TIMEOUT;
+
+	/**
+	 * Default maximum number of features edited locally before applying the edits on the server
+	 */
+	public final static int DEFAULT_MAX_BUFFERED_EDITS = 1000;
+
+	/**
+	 * Default maximum estimated size of the features edited locally before applying the edits on the server
+	 */
+	public final static long DEFAULT_MAX_BUFFERED_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * Maximum number of features edited locally before applying the edits on the server
+	 */
+	private volatile int maxBufferedEdits = DEFAULT_MAX_BUFFERED_EDITS;
+
+	/**
+	 * Maximum estimated size of the features edited locally before applying the edits on the server
+	 */
+	private volatile long maxBufferedBytes = DEFAULT_MAX_BUFFERED_BYTES;
+
+	/**
+	 * @param maxEdits
+	 *            maximum number of features edited locally before applying the edits on the server
+	 * @param maxBytes
+	 *            maximum estimated size, in bytes, of the features edited locally before applying the edits
+	 */
+	public void setEditBuffer(final int maxEdits, final long maxBytes) {
+		this.maxBufferedEdits = maxEdits;
+		this.maxBufferedBytes = maxBytes;
+	}
+
+	/**
+	 * Number of features loaded per query, when loading the local index
+	 */
+	final static int PAGE_SIZE = 1000;
+
+	/**
+	 * Local index of the features of the featureTable, <code>null</code> if disabled
+	 */
+	private volatile FeatureIndexCache localIndex = null;
+
+	/**
+	 * Ingestion plan of the last block of records, reused while the fields received and the settings do not change
+	 */
+	private volatile IngestionPlan plan = null;
+
+	/**
+	 * Metrics of the spatial queries, the conversions and the editions
+	 */
+	private volatile PhaseMetrics metrics = new PhaseMetrics();
+
+	/**
+	 * @param metrics the metrics recording the phases executed by this manager
+	 */
+	public void setMetrics(final PhaseMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the metrics recording the phases executed by this manager
+	 */
+	public PhaseMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @param timeout
+	 *            maximum time to wait for a response of the ArcGIS server, in milliseconds
+	 */
+	public void setTimeout(final long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * @return the maximum time to wait for a response of the ArcGIS server, in milliseconds
+	 */
+	public long getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Time-to-live of the metadata of the REST directory, shared in the {@link MetadataCache}, in milliseconds
+	 */
+	private volatile long metadataTtl = ArcGISServicesData.DEFAULT_METADATA_TTL;
+
+	/**
+	 * @param metadataTtl
+	 *            time-to-live of the metadata of the REST directory cached, in milliseconds
+	 */
+	public void setMetadataTtl(final long metadataTtl) {
+		this.metadataTtl = metadataTtl;
+	}
+
+	/**
+	 * @param maxHandles
+	 *            maximum number of featureTables leased at the same time, by the tasks executing the service.
+	 *            The featureTables already leased are released into the former pool, and not reused.
+	 */
+	public void setMaxHandles(final int maxHandles) {
+		if (maxHandles != this.maxHandles) {
+			this.maxHandles = maxHandles;
+			handles = null;
+		}
+	}
+
+	/**
+	 * @return the pool of the featureTables, created with the first lease
+	 */
+	private HandlePool<TableHandle> getHandles() {
+		HandlePool<TableHandle> pool = handles;
+		if (pool == null) {
+			synchronized (this) {
+				pool = handles;
+				if (pool == null) {
+					pool = new HandlePool<TableHandle>(this::createHandle, maxHandles);
+					handles = pool;
+				}
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * @return a new featureTable of the layer, loaded, with its featureLayer
+	 * @throws Exception
+	 *             if the featureTable cannot be loaded
+	 */
+	private TableHandle createHandle() throws Exception {
+		if (featureTableCompleteUrl == null) {
+			throw new Exception("The connection to the featureTable has not been checked");
+		}
+		final ServiceFeatureTable table = new ServiceFeatureTable(featureTableCompleteUrl);
+		final LoadStatus ls = await(load(table), timeout);
+		if (!ls.equals(LoadStatus.LOADED)) {
+			throw new Exception("Cannot load the featureTable " + featureTableCompleteUrl
+					+ ((table.getLoadError() == null) ? "" : " : " + table.getLoadError().getMessage()));
+		}
+		logger.debug("New featureTable loaded from " + featureTableCompleteUrl);
+		return new TableHandle(table, new FeatureLayer(table));
+	}
+
+	/**
+	 * Execute an operation with a featureTable leased for its exclusive use.
+	 * <br/>If the operation fails, the featureTable may contain pending edits : it is discarded.
+	 * 
+	 * @param operation
+	 *            the operation
+	 * @return the result of the operation
+	 * @throws Exception
+	 *             if no featureTable is available within the timeout, or if the operation fails
+	 */
+	<T> T withHandle(final HandleOperation<T> operation) throws Exception {
+		final HandlePool<TableHandle> pool = getHandles();
+		final TableHandle handle = pool.lease(timeout);
+		try {
+			final T result = operation.execute(handle);
+			pool.release(handle);
+			return result;
+		} catch (final Exception | Error e) {
+			pool.discard(handle);
+			throw e;
+		}
+	}
+
+	/**
+	 * Enable the local index of the features, and load it.
+	 * <br/>The records to update are then located in memory, without any geo-query sent to the server.
+	 * 
+	 * @param ttl
+	 *            time-to-live of the index, in milliseconds. The index is reloaded once expired.
+	 * @param maxFeatures
+	 *            maximum number of features kept in memory. Beyond, the geo-queries are sent to the server.
+	 * @param spatialReference
+	 *            spatial reference of the coordinates loaded now, as declared in the settings, or <code>null</code> for
+	 *            the spatial reference of the featureTable. The other spatial references are loaded by their first block.
+	 */
+	public void enableLocalIndex(final long ttl, final int maxFeatures, final String spatialReference) {
+		final FeatureIndexCache cache = new FeatureIndexCache(this::loadFeatures, DEFAULT_RADIUS, ttl, maxFeatures);
+		localIndex = cache;
+		if (featureTable == null) {
+			return;
+		}
+		try {
+			if (!cache.refresh(spatialReference)) {
+				logger.warn("More than " + maxFeatures + " features in " + featureTable.getTableName()
+						+ " : the local index is not available");
+			}
+		} catch (final Exception e) {
+			// The load will be retried with the first update
+			cache.invalidate();
+			logger.warn("Cannot load the local index " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Disable the local index of the features, and release it.
+	 */
+	public void disableLocalIndex() {
+		localIndex = null;
+	}
+
+	/**
+	 * Release the memory held by the layer, once evicted from the layers loaded by the service :
+	 * the pool of the featureTables with their featureLayers, the local index, and the features cached by the
+	 * featureTable of the metadata.
+	 * <br/>The featureTables still leased are released into the former pool, and not reused. The dataManager remains
+	 * usable by a task which still holds it : its next lease creates a new featureTable.
+	 */
+	public void release() {
+		synchronized (this) {
+			handles = null;
+		}
+		localIndex = null;
+		plan = null;
+		final ServiceFeatureTable table = featureTable;
+		if ((table != null) && (table.getLoadStatus() == LoadStatus.LOADED)) {
+			table.clearCache(false);
+		}
+	}
+
+	/**
+	 * @return the local index of the features, or <code>null</code> if disabled
+	 */
+	FeatureIndexCache getLocalIndex() {
+		return localIndex;
+	}
+
+	/**
+	 * Invalidate the local index, if any, after a failed edition.
+	 * <br/>The index may contain edited or created features which have not been saved.
+	 */
+	public void invalidateLocalIndex() {
+		final FeatureIndexCache cache = localIndex;
+		if (cache != null) {
+			cache.invalidate();
+		}
+	}
+
+	/**
+	 * Load the location and the object id of the point features of the featureTable, by pages of {@link #PAGE_SIZE}
+	 * features, until an empty page.
+	 * 
+	 * @param index
+	 *            the index to fill with the object ids
+	 * @param spatialReference
+	 *            the spatial reference of the coordinates, as declared in the settings
+	 * @param maxFeatures
+	 *            the maximum number of features to load
+	 * @return <code>false</code> if the featureTable contains more than <code>maxFeatures</code> features
+	 * @throws Exception
+	 *             if any problem occurs while querying the featureTable, or if the featureTable has no object id field
+	 */
+	boolean loadFeatures(final PointGridIndex<Long> index, final String spatialReference, final int maxFeatures)
+			throws Exception {
+		return withHandle(handle -> loadFeatures(handle, index, spatialReference, maxFeatures));
+	}
+
+	private boolean loadFeatures(final TableHandle handle, final PointGridIndex<Long> index,
+			final String spatialReference, final int maxFeatures) throws Exception {
+
+		if (!(featureTable.getGeometryType().equals(GeometryType.POINT))) {
+			throw new Exception("Only point layers are supported : " + featureTable.getGeometryType());
+		}
+		final String objectIdField = getObjectIdField();
+		if (objectIdField == null) {
+			throw new Exception("No object id field in " + featureTable.getTableName());
+		}
+		final Map<String, Object> settings = new HashMap<String, Object>();
+		if (spatialReference != null) {
+			settings.put(SPATIAL_REFERENCE, spatialReference);
+		}
+		final SpatialReference outSpatialReference = getSpatialReference(settings);
+
+		final long start = PhaseMetrics.start();
+		int offset = 0;
+		int count;
+		// The server may return fewer features than asked : the features are read until an empty page
+		do {
+			final QueryParameters queryParams = new QueryParameters();
+			queryParams.setWhereClause("1=1");
+			queryParams.setOutSpatialReference(outSpatialReference);
+			queryParams.setReturnGeometry(true);
+			queryParams.setResultOffset(offset);
+			queryParams.setMaxFeatures(PAGE_SIZE);
+			final FeatureQueryResult result = await(
+					toCompletable(handle.table.queryFeaturesAsync(queryParams, QueryFeatureFields.MINIMUM)), timeout);
+			count = 0;
+			for (Feature feature : result) {
+				if (++count + offset > maxFeatures) {
+					metrics.record(Phase.FEATURE_LOAD, start, count + offset);
+					return false;
+				}
+				final Point point = (Point) feature.getGeometry();
+				index.add(point.getX(), point.getY(), ((Number) feature.getAttributes().get(objectIdField)).longValue());
+			}
+			offset += count;
+		} while (count > 0);
+		metrics.record(Phase.FEATURE_LOAD, start, offset);
+
+		logger.info(offset + " features loaded in the local index of " + featureTable.getTableName());
+		return true;
+	}
+
+	/**
+	 * Index the features added to the featureTable into the local index, if any, with the object id given by the server.
+	 * <br/>If the object id of a feature is unknown, the local index is reloaded at its next refresh.
+	 */
+	private void indexFeatures(final List<Feature> features, final Map<String, Object> settings) {
+		final FeatureIndexCache cache = localIndex;
+		if (cache == null) {
+			return;
+		}
+		final String objectIdField = getObjectIdField();
+		for (Feature feature : features) {
+			final Object objectId = (objectIdField == null) ? null : feature.getAttributes().get(objectIdField);
+			if (!(objectId instanceof Number)) {
+				cache.invalidate();
+				return;
+			}
+			cache.add((String) settings.get(SPATIAL_REFERENCE), (Point) feature.getGeometry(),
+					((Number) objectId).longValue());
+		}
+	}
+
 	/*
 	 * Check ArcGIS server connection with the current parameters.
 	 * 
@@ -135,7 +506,7 @@ public class ArcGISDataManager {
 	 * 
 	 * @return The validation report for these parameters
 	 */
-	public ValidationResult checkConnection(final String arcgisURL, final String folderServer,
+	public synchronized ValidationResult checkConnection(final String arcgisURL, final String folderServer,
 			final String featureServer, final String layerName) {
 
 		// TODO Can we trust on theses 2 conditions ?
@@ -143,9 +514,6 @@ public class ArcGISDataManager {
 			return new ValidationResult.Builder().valid(true).build();
 		}
 
-		// This variable is used to verify that the data operation is terminated
-		final AtomicBoolean dataOperationTerminated = new AtomicBoolean(false);
-
 		final ValidationResult.Builder builder = new ValidationResult.Builder();
 
 		try {
@@ -154,7 +522,7 @@ public class ArcGISDataManager {
 			currentSubject = "arcGIS URL";
 			new URL(currentRestResource);
 
-			ArcGISServicesData dataArcGIS = new ArcGISServicesData(logger);
+			ArcGISServicesData dataArcGIS = new ArcGISServicesData(logger, MetadataCache.shared(), metadataTtl);
 
 			if ((folderServer != null) && folderServer.isEmpty()) {
 				currentRestResource = arcgisURL + MessageFormat.format(URL_REST_SERVICES, "");
@@ -193,50 +561,45 @@ public class ArcGISDataManager {
 					+ MessageFormat.format(URL_SERVICE_FEATURE_TABLE, featureServer, oLayer.get().id);
 			featureTable = new ServiceFeatureTable(currentRestResource);
 			logger.info("Loading asynchronous the featureTable from " + currentRestResource + "...");
-			featureTable.loadAsync();
-
-			Runnable listener = () -> {
-
-				LoadStatus ls = featureTable.getLoadStatus();
-				if (ls.equals(LoadStatus.LOADED)) {
+			final LoadStatus ls = await(load(featureTable), timeout);
 
-					if (logger.isDebugEnabled()) {
-						logger.debug(featureTable.getTableName() + " hasGeometry() " + featureTable.hasGeometry());
-						logger.debug("\tfeatureTable.canAdd() " + featureTable.canAdd());
-						logger.debug("\tfeatureTable.getFeatureTemplates().isEmpty() "
-								+ featureTable.getFeatureTemplates().isEmpty());
-						logger.debug("\tfeatureTable.isEditable() " + featureTable.isEditable());
-
-						logger.debug("Fields : ");
-						List<Field> fields = featureTable.getFields();
-						for (Field f : fields) {
-							logger.debug("\t" + f.getName() + " " + f.getFieldType());
-						}
-					}
+			if (ls.equals(LoadStatus.LOADED)) {
 
-					if (!featureTable.isEditable()) {
-						builder.input(featureTable.getTableName()).subject("layer name")
-								.explanation(featureTable.getTableName() + " is read-only !").valid(false);
-					} else {
-						associateFields.clear();
-						featureTable.getFields().forEach(field -> associateFields.put(field.getName(),
-								new ArcGISTableField(field.getName(), field.getFieldType())));
-						featureTableCompleteUrl = currentRestResource;
-						builder.valid(true);
+				if (logger.isDebugEnabled()) {
+					logger.debug(featureTable.getTableName() + " hasGeometry() " + featureTable.hasGeometry());
+					logger.debug("\tfeatureTable.canAdd() " + featureTable.canAdd());
+					logger.debug("\tfeatureTable.getFeatureTemplates().isEmpty() "
+							+ featureTable.getFeatureTemplates().isEmpty());
+					logger.debug("\tfeatureTable.isEditable() " + featureTable.isEditable());
+
+					logger.debug("Fields : ");
+					List<Field> fields = featureTable.getFields();
+					for (Field f : fields) {
+						logger.debug("\t" + f.getName() + " " + f.getFieldType());
 					}
 				}
-				if (ls.equals(LoadStatus.FAILED_TO_LOAD) || ls.equals(LoadStatus.NOT_LOADED)) {
-					logger.debug("URL Load failed ", featureTable.getLoadError());
-					logger.debug("URL Load failed cause ", featureTable.getLoadError().getCause());
-					String errorMessage = (featureTable.getLoadError().getCause() == null)
-							? featureTable.getLoadError().getMessage().toString()
-							: featureTable.getLoadError().getCause().toString();
-					builder.subject("url ArcGIS & layer name").input(arcgisURL).explanation(errorMessage).valid(false);
-				}
-				dataOperationTerminated.set(true);
-			};
 
-			featureTable.addDoneLoadingListener(listener);
+				if (!featureTable.isEditable()) {
+					builder.input(featureTable.getTableName()).subject("layer name")
+							.explanation(featureTable.getTableName() + " is read-only !").valid(false);
+				} else {
+					final Map<String, ArcGISTableField> fields = new HashMap<String, ArcGISTableField>();
+					featureTable.getFields().forEach(field -> fields.put(field.getName(),
+							new ArcGISTableField(field.getName(), field.getFieldType())));
+					associateFields = Collections.unmodifiableMap(fields);
+					featureTableCompleteUrl = currentRestResource;
+					plan = null;
+					builder.valid(true);
+				}
+			}
+			if (ls.equals(LoadStatus.FAILED_TO_LOAD) || ls.equals(LoadStatus.NOT_LOADED)) {
+				logger.debug("URL Load failed ", featureTable.getLoadError());
+				logger.debug("URL Load failed cause ", featureTable.getLoadError().getCause());
+				String errorMessage = (featureTable.getLoadError().getCause() == null)
+						? featureTable.getLoadError().getMessage().toString()
+						: featureTable.getLoadError().getCause().toString();
+				builder.subject("url ArcGIS & layer name").input(arcgisURL).explanation(errorMessage).valid(false);
+			}
 
 		} catch (final Exception e) {
 			logger.error("Rest resource unreachable " + currentRestResource);
@@ -246,14 +609,16 @@ public class ArcGISDataManager {
 
 		}
 
-		await().untilTrue(dataOperationTerminated);
 		featureLayer = new FeatureLayer(featureTable);
 
-		// TODO INTERUPT EXCEPTION HAS TO BE HANDLE
-		// return
-		// builder.input(currentRestResource).explanation(e.getMessage()).valid(false).subject(currentSubject).build();
-
-		return builder.build();
+		final ValidationResult result = builder.build();
+		if (result.isValid()) {
+			// The featureTable loaded is the first one leased
+			final HandlePool<TableHandle> pool = new HandlePool<TableHandle>(this::createHandle, maxHandles);
+			pool.offer(new TableHandle(featureTable, featureLayer));
+			handles = pool;
+		}
+		return result;
 
 	}
 
@@ -278,6 +643,37 @@ public class ArcGISDataManager {
 		return associateFields;
 	}
 
+	/**
+	 * @return the type of the fields loaded on the featureTable, for the types handled by the {@link IngestionPlan}
+	 */
+	public Map<String, ColumnType> getSchema() {
+		final Map<String, ColumnType> schema = new HashMap<String, ColumnType>();
+		associateFields.forEach((name, field) -> {
+			final ColumnType type = columnType(field.type);
+			if (type != null) {
+				schema.put(name, type);
+			}
+		});
+		return schema;
+	}
+
+	/**
+	 * @param type the type of field in the featureTable
+	 * @return the corresponding column type, or <code>null</code> if this type is not handled
+	 */
+	static ColumnType columnType(final Field.Type type) {
+		switch (type) {
+		case DOUBLE:
+			return ColumnType.DOUBLE;
+		case INTEGER:
+			return ColumnType.INTEGER;
+		case TEXT:
+			return ColumnType.TEXT;
+		default:
+			return null;
+		}
+	}
+
 	/**
 	 * Add a collection of features into the table town into the geo_db database
 	 * 
@@ -335,141 +731,446 @@ public class ArcGISDataManager {
 	public void updateData(final List<Map<String, String>> records, final Map<String, Object> settings)
 			throws Exception {
 
-		if (!TYPE_OF_QUERY_GEO.equals(settings.get(TYPE_OF_QUERY))) {
-			throw new RuntimeException("WTF : Type of query unknown " + settings.get(TYPE_OF_QUERY));
+		if (records.isEmpty()) {
+			return;
 		}
-		for (Map<String, String> record : records) {
+		withHandle(handle -> {
+			updateData(handle, records, settings);
+			return null;
+		});
+	}
 
-			ArcGISFeature feature;
-			try {
-				feature = geoQuery(record, settings);
-			} catch (final ConditionTimeoutException cte) {
-				feature = null;
-			}
+	private void updateData(final TableHandle handle, final List<Map<String, String>> records,
+			final Map<String, Object> settings) throws Exception {
+
+		final IngestionPlan plan = getPlan(records.get(0), settings);
+
+		final long start = PhaseMetrics.start();
+		final Point[] points = new Point[records.size()];
+		for (int i = 0; i < points.length; i++) {
+			points[i] = plan.createPoint(records.get(i));
+		}
+		metrics.record(Phase.CONVERSION, start, points.length);
+		final FeatureLocator locator = createLocator(handle, points, settings);
+
+		// The features added and updated are sent with bulk editions
+		final EditBuffer edits = createEditBuffer(handle);
+		for (int row = 0; row < points.length; row++) {
+
+			final Map<String, String> record = records.get(row);
+			final Feature feature = locator.locate(points[row]);
 			if (feature == null) {
 
-				if (OPERATION_UPDATE.equals(settings.get(OPERATION))) {
+				if (plan.updateOnly) {
 					throw new Exception("Cannot update this data. Record does not exist on the target featureTable");
 				}
 
-				// We add one single record
-				// This is not the most effective way to handle this use case
-				if (OPERATION_UPDATE_OR_INSERT.equals(settings.get(OPERATION))) {
-					List<Map<String, String>> singleRecordToAdd = new ArrayList<Map<String, String>>();
-					singleRecordToAdd.add(record);
-					insertData(singleRecordToAdd, settings);
-					continue;
+				if (plan.insertMissing) {
+					final Feature created = handle.table.createFeature(plan.createAttributes(record), points[row]);
+					edits.add(created);
+					locator.created(points[row], created);
 				}
+				continue;
 			}
 
-			Map<String, Object> attributes = feature.getAttributes();
-
-			RecordAttributeDataOperation recordOperation = new RecordAttributeDataOperation(record);
-			List<String> fieldsToUpdate = (List<String>) settings.get(UPDATE_FIELD_LIST);
-			if (fieldsToUpdate == null) {
-				throw new Exception ("Settings object does not provide an update fields list (Key:UPDATE_FIELD_LIST)" );
+			if (logger.isDebugEnabled()) {
+				logger.debug("Updating " + settings.get(UPDATE_FIELD_LIST) + " in db:" + feature.getAttributes()
+						+ " param:" + record);
 			}
-			fieldsToUpdate.forEach(fieldToUpdateWithOperator -> {
-				String fieldToUpdate = fieldNameUndecorated(fieldToUpdateWithOperator);
-				if (logger.isDebugEnabled()) {
-					logger.debug(fieldToUpdateWithOperator + " in db:" + attributes.get(fieldToUpdate) + " param:"
-							+ record.get(fieldToUpdate));
+			plan.update(feature.getAttributes(), record);
+			edits.update(feature);
+		}
+
+		edits.flush();
+		locator.applied();
+		if (logger.isDebugEnabled()) {
+			logger.debug(edits.getFlushes() + " editions applied");
+		}
+	}
+
+	/**
+	 * Update a column-oriented block of features, located with a geo-query.
+	 * <br/>The columns to update and their operator are resolved in the {@link IngestionPlan} of the block.
+	 * 
+	 * @param batch
+	 *            The block of records to update
+	 * @param settings
+	 *            the data settings associated, such as the current
+	 *            SpatialReference
+	 */
+	public void updateData(final RecordBatch batch, final Map<String, Object> settings) throws Exception {
+		withHandle(handle -> {
+			updateData(handle, batch, settings);
+			return null;
+		});
+	}
+
+	private void updateData(final TableHandle handle, final RecordBatch batch, final Map<String, Object> settings)
+			throws Exception {
+
+		final IngestionPlan plan = getPlan(batch, settings);
+
+		final long start = PhaseMetrics.start();
+		final Point[] points = new Point[batch.size()];
+		for (int row = 0; row < points.length; row++) {
+			points[row] = createPoint(batch, row, plan.spatialReference);
+		}
+		metrics.record(Phase.CONVERSION, start, points.length);
+		final FeatureLocator locator = createLocator(handle, points, settings);
+
+		// The features added and updated are sent with bulk editions
+		final EditBuffer edits = createEditBuffer(handle);
+		for (int row = 0; row < batch.size(); row++) {
+
+			final Point point = points[row];
+			final Feature feature = locator.locate(point);
+			if (feature == null) {
+				if (plan.updateOnly) {
+					throw new Exception("Cannot update this data. Record does not exist on the target featureTable");
 				}
-				Object data = null;
-				if (record.get(fieldToUpdate) != null) {
-					try {
-						data = getDataColumn(fieldToUpdate, record.get(fieldToUpdate));
-					} catch (Exception e) {
-						throw new RuntimeException(e);
-					}
-					final BiFunction<String, ? super Object, ? extends Object> dataOperation = getBiFunction(
-							fieldToUpdateWithOperator, recordOperation, data);
-					if (logger.isDebugEnabled()) {
-						logger.debug("data " + data.getClass() + ", associated operation " + dataOperation.getClass());
-					}
-					logger.debug(attributes.get(fieldToUpdate).toString());
-					if (attributes.get(fieldToUpdate) != null) {
-						attributes.computeIfPresent(fieldToUpdate, dataOperation);
-					} else {
-						attributes.put(fieldToUpdate, data);
-					}
+				if (plan.insertMissing) {
+					final Feature created = handle.table.createFeature(plan.createAttributes(batch, row), point);
+					edits.add(created);
+					locator.created(point, created);
 				}
-			});
+				continue;
+			}
 
-			logger.debug("Applying edition");
-			AtomicBoolean done = new AtomicBoolean(false);
-			featureTable.updateFeatureAsync(feature).addDoneListener(() -> {
-				done.set(true);
-			});
-			await().untilTrue(done);
+			plan.update(feature.getAttributes(), batch, row);
+			edits.update(feature);
 		}
 
-		applyEdits(featureTable);
+		edits.flush();
+		locator.applied();
+		if (logger.isDebugEnabled()) {
+			logger.debug(edits.getFlushes() + " editions applied");
+		}
+	}
+
+	/**
+	 * Get the ingestion plan of a column-oriented block of records, compiled again only if the columns of the batch,
+	 * the settings or the fields of the featureTable have changed.
+	 * 
+	 * @param batch
+	 *            the block of records
+	 * @param settings
+	 *            current settings
+	 * @return the plan
+	 * @throws Exception
+	 *             if the type of a field is not handled, or if the spatial reference is invalid
+	 */
+	IngestionPlan getPlan(final RecordBatch batch, final Map<String, Object> settings) throws Exception {
+		IngestionPlan current = plan;
+		if ((current == null) || !current.matches(batch, settings)) {
+			current = IngestionPlan.compile(associateFields, batch, settings);
+			plan = current;
+		}
+		return current;
 	}
 
 	/**
-	 * Take off the operator if any, present in the first position of the
-	 * string. <code>+hit</code> will become <code>hit</ccreatode>
+	 * Get the ingestion plan of map-based records, compiled again only if the fields of the records,
+	 * the settings or the fields of the featureTable have changed.
 	 * 
-	 * @param fieldName
-	 *            name of the field
-	 * @return the field name undecorated
+	 * @param record
+	 *            a record of the block, all the records of a block share the same fields
+	 * @param settings
+	 *            current settings
+	 * @return the plan
+	 * @throws Exception
+	 *             if the type of a field is not handled, or if the spatial reference is invalid
+	 */
+	IngestionPlan getPlan(final Map<String, String> record, final Map<String, Object> settings) throws Exception {
+		IngestionPlan current = plan;
+		if ((current == null) || !current.matches(record, settings)) {
+			current = IngestionPlan.compile(associateFields, record, settings);
+			plan = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Locator of the feature to update for a record.
 	 */
-	private String fieldNameUndecorated(final String fieldName) {
-		return ("+-".indexOf(fieldName.charAt(0)) == -1) ? fieldName : fieldName.substring(1);
+	interface FeatureLocator {
+
+		/**
+		 * @param point
+		 *            the point of the record
+		 * @return the feature to update, or <code>null</code> if no feature is close enough
+		 * @throws Exception
+		 *             if any problem occurs while querying the featureTable
+		 */
+		Feature locate(Point point) throws Exception;
+
+		/**
+		 * Notify the locator of a feature created locally, which has to be found by the next records.
+		 * 
+		 * @param point
+		 *            the point of the feature
+		 * @param feature
+		 *            the feature created
+		 */
+		default void created(Point point, Feature feature) {
+		}
+
+		/**
+		 * Notify the locator that the edits of the block have been applied on the server.
+		 */
+		default void applied() {
+		}
 	}
 
 	/**
-	 * For Numeric field only, this function returns the operation to be
-	 * executed with the previous and next data value.
+	 * Create the locator for a block of records, depending on the type of query.
+	 * <ul>
+	 * <li>{@link ArcGISLayerServiceAPI#TYPE_OF_QUERY_GEO} : one geo-query per record, completed with the features
+	 * created by the block</li>
+	 * <li>{@link ArcGISLayerServiceAPI#TYPE_OF_QUERY_GEO_BATCH} : the features around the block are loaded with
+	 * a few queries, and the nearest feature of a record is searched locally</li>
+	 * </ul>
+	 * If the local index is enabled and available, it replaces both types of query : the features near the block are
+	 * then fetched by object id in the featureTable leased.
 	 * 
-	 * @param fieldToUpdate
-	 *            field name to update in the featureTable
-	 * @param dataOperation
-	 *            the single unite data operation manager
-	 * @param dataValueToUpdate
-	 *            data for update
+	 * @param handle
+	 *            the featureTable leased
+	 * @param points
+	 *            the points of the block
+	 * @param settings
+	 *            current settings of data management
+	 * @return the locator
+	 * @throws Exception
+	 *             if any problem occurs while querying the featureTable
 	 */
-	static BiFunction<String, ? super Object, ? extends Object> getBiFunction(final String fieldToUpdate,
-			RecordAttributeDataOperation dataOperation, final Object dataValueToUpdate) {
+	FeatureLocator createLocator(final TableHandle handle, final Point[] points, final Map<String, Object> settings)
+			throws Exception {
+
+		if (!TYPE_OF_QUERY_GEO.equals(settings.get(TYPE_OF_QUERY))
+				&& !TYPE_OF_QUERY_GEO_BATCH.equals(settings.get(TYPE_OF_QUERY))) {
+			throw new RuntimeException("WTF : Type of query unknown " + settings.get(TYPE_OF_QUERY));
+		}
 
-		if (dataValueToUpdate instanceof String) {
-			return dataOperation.setString;
+		final double radius = getRadius(settings);
+		final FeatureIndexCache cache = localIndex;
+		final String spatialReference = (String) settings.get(SPATIAL_REFERENCE);
+		final String objectIdField = getObjectIdField();
+		if ((cache != null) && (objectIdField != null) && cache.refresh(spatialReference)) {
+			return new IndexedFeatureLocator(cache, spatialReference, objectIdField, points, radius, DISTANCE,
+					objectIds -> fetchFeatures(handle, objectIds, settings));
 		}
 
-		char operator = fieldToUpdate.charAt(0);
-		// The is no operator. This is just an affectation
-		if ("+-".indexOf(operator) == -1) {
-			if (dataValueToUpdate instanceof Integer) {
-				return dataOperation.setInteger;
+		if (TYPE_OF_QUERY_GEO.equals(settings.get(TYPE_OF_QUERY))) {
+			return new GeoQueryLocator(point -> geoQuery(handle, point, settings), objectIdField, radius, DISTANCE);
+		}
+		final PointGridIndex<Feature> index = geoQueryBatch(handle, points, settings);
+		return new FeatureLocator() {
+			@Override
+			public Feature locate(final Point point) {
+				return index.nearest(point.getX(), point.getY(), radius, DISTANCE);
+			}
+
+			@Override
+			public void created(final Point point, final Feature feature) {
+				index.add(point.getX(), point.getY(), feature);
 			}
-			if (dataValueToUpdate instanceof Double) {
-				return dataOperation.setDouble;
+		};
+	}
+
+	/**
+	 * Fetch features by object id, by pages of {@link #PAGE_SIZE} features.
+	 * 
+	 * @param handle
+	 *            the featureTable leased
+	 * @param objectIds
+	 *            the object ids of the features
+	 * @param settings
+	 *            current settings of data management
+	 * @return the features found in this featureTable
+	 * @throws Exception
+	 *             if any problem occurs while querying the featureTable
+	 */
+	private List<Feature> fetchFeatures(final TableHandle handle, final List<Long> objectIds,
+			final Map<String, Object> settings) throws Exception {
+
+		final long start = PhaseMetrics.start();
+		final List<Feature> features = new ArrayList<Feature>(objectIds.size());
+		for (int offset = 0; offset < objectIds.size(); offset += PAGE_SIZE) {
+			final QueryParameters queryParams = new QueryParameters();
+			queryParams.getObjectIds().addAll(objectIds.subList(offset, Math.min(offset + PAGE_SIZE, objectIds.size())));
+			queryParams.setOutSpatialReference(getSpatialReference(settings));
+			queryParams.setReturnGeometry(true);
+			for (Feature feature : await(
+					toCompletable(handle.table.queryFeaturesAsync(queryParams, QueryFeatureFields.LOAD_ALL)), timeout)) {
+				features.add(feature);
 			}
-			throw new RuntimeException(dataValueToUpdate.getClass().getName() + " is not implemented yet!");
+		}
+		metrics.record(Phase.FEATURE_LOAD, start, features.size());
+		return features;
+	}
+
+	/**
+	 * Distance used to select the closest feature of a record
+	 */
+	static final PointGridIndex.PointDistance DISTANCE = (x1, y1, x2, y2) -> distance(x1, x2, y1, y2, 0d, 0d);
+
+	/**
+	 * Maximum number of clusters on each axis, for a block of records
+	 */
+	private final static int CLUSTER_GRID = 4;
+
+	/**
+	 * Load the features around a block of points.
+	 * <br/>The extent of the block is divided into a grid of at most {@link #CLUSTER_GRID} x {@link #CLUSTER_GRID} cells.
+	 * The envelope of the points in each non-empty cell, enlarged by the radius, is loaded by pages of
+	 * {@link #PAGE_SIZE} features, until an empty page. The queries of the envelopes are executed concurrently.
+	 * 
+	 * @param handle
+	 *            the featureTable leased
+	 * @param points
+	 *            the points of the block
+	 * @param settings
+	 *            current settings of data management
+	 * @return the index of the point features found
+	 * @throws Exception
+	 *             if any problem occurs while querying the featureTable
+	 */
+	PointGridIndex<Feature> geoQueryBatch(final TableHandle handle, final Point[] points,
+			final Map<String, Object> settings) throws Exception {
+
+		if (!(featureTable.getGeometryType().equals(GeometryType.POINT))) {
+			throw new Exception("Only point layers are supported : " + featureTable.getGeometryType());
+		}
+		final SpatialReference spatialReference = getSpatialReference(settings);
+		final double radius = getRadius(settings);
+		final PointGridIndex<Feature> index = new PointGridIndex<Feature>(radius);
+		if (points.length == 0) {
+			return index;
+		}
+		final long start = PhaseMetrics.start();
+
+		double xMin = Double.MAX_VALUE, yMin = Double.MAX_VALUE, xMax = -Double.MAX_VALUE, yMax = -Double.MAX_VALUE;
+		for (Point point : points) {
+			xMin = Math.min(xMin, point.getX());
+			yMin = Math.min(yMin, point.getY());
+			xMax = Math.max(xMax, point.getX());
+			yMax = Math.max(yMax, point.getY());
+		}
+		final double cellWidth = Math.max((xMax - xMin) / CLUSTER_GRID, radius);
+		final double cellHeight = Math.max((yMax - yMin) / CLUSTER_GRID, radius);
+
+		// Bounding box {xMin, yMin, xMax, yMax} of the points in each cell
+		final Map<Long, double[]> clusters = new LinkedHashMap<Long, double[]>();
+		for (Point point : points) {
+			final long cx = (long) ((point.getX() - xMin) / cellWidth);
+			final long cy = (long) ((point.getY() - yMin) / cellHeight);
+			final double[] box = clusters.computeIfAbsent((cx << 32) ^ cy,
+					k -> new double[] { point.getX(), point.getY(), point.getX(), point.getY() });
+			box[0] = Math.min(box[0], point.getX());
+			box[1] = Math.min(box[1], point.getY());
+			box[2] = Math.max(box[2], point.getX());
+			box[3] = Math.max(box[3], point.getY());
+		}
+
+		// Offset of the next page of each envelope
+		Map<Envelope, Integer> pending = new LinkedHashMap<Envelope, Integer>();
+		for (double[] box : clusters.values()) {
+			pending.put(new Envelope(box[0] - radius, box[1] - radius, box[2] + radius, box[3] + radius,
+					spatialReference), 0);
 		}
 
-		if (operator == '+') {
-			if (dataValueToUpdate instanceof Integer) {
-				return dataOperation.addInteger;
+		// The envelopes may overlap : the features are deduplicated with their object id
+		final String objectIdField = getObjectIdField();
+		final Set<Object> objectIds = new HashSet<Object>();
+		int queries = 0;
+		while (!pending.isEmpty()) {
+			final Map<Envelope, CompletableFuture<FeatureQueryResult>> pages =
+					new LinkedHashMap<Envelope, CompletableFuture<FeatureQueryResult>>();
+			for (Map.Entry<Envelope, Integer> envelope : pending.entrySet()) {
+				final QueryParameters queryParams = new QueryParameters();
+				queryParams.setGeometry(envelope.getKey());
+				queryParams.setOutSpatialReference(spatialReference);
+				queryParams.setSpatialRelationship(SpatialRelationship.INTERSECTS);
+				queryParams.setReturnGeometry(true);
+				queryParams.setResultOffset(envelope.getValue());
+				queryParams.setMaxFeatures(PAGE_SIZE);
+				pages.put(envelope.getKey(),
+						toCompletable(handle.table.queryFeaturesAsync(queryParams, QueryFeatureFields.LOAD_ALL)));
 			}
-			if (dataValueToUpdate instanceof Double) {
-				return dataOperation.addDouble;
+			queries += pages.size();
+
+			// The server may return fewer features than asked : an envelope is read until an empty page
+			final Map<Envelope, Integer> next = new LinkedHashMap<Envelope, Integer>();
+			for (Map.Entry<Envelope, CompletableFuture<FeatureQueryResult>> page : pages.entrySet()) {
+				int count = 0;
+				for (Feature feature : await(page.getValue(), timeout)) {
+					count++;
+					if (feature.getGeometry().getGeometryType() != GeometryType.POINT) {
+						throw new Exception("Only point features are supported : " + feature.getGeometry().getGeometryType());
+					}
+					if ((objectIdField != null) && !objectIds.add(feature.getAttributes().get(objectIdField))) {
+						continue;
+					}
+					final Point point = (Point) feature.getGeometry();
+					index.add(point.getX(), point.getY(), feature);
+				}
+				if (count > 0) {
+					next.put(page.getKey(), pending.get(page.getKey()) + count);
+				}
 			}
-			throw new RuntimeException(dataValueToUpdate.getClass().getName() + " is not implemented yet!");
+			pending = next;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(queries + " queries for a block of " + points.length + " points");
 		}
+		metrics.record(Phase.SPATIAL_QUERY, start, points.length);
+		return index;
+	}
 
-		if (operator == '-') {
-			if (dataValueToUpdate instanceof Integer) {
-				return dataOperation.subtractInteger;
-			}
-			if (dataValueToUpdate instanceof Double) {
-				return dataOperation.subtractDouble;
+	/**
+	 * @return the name of the object id field of the featureTable, or <code>null</code> if not found
+	 */
+	String getObjectIdField() {
+		for (ArcGISTableField field : associateFields.values()) {
+			if (field.type == Field.Type.OID) {
+				return field.name;
 			}
-			throw new RuntimeException(dataValueToUpdate.getClass().getName() + " is not implemented yet!");
 		}
+		return null;
+	}
+
+	/**
+	 * @param settings
+	 *            current settings of data management
+	 * @return the radius of the search-circle around a point
+	 */
+	private int getRadius(final Map<String, Object> settings) {
+		return (settings.containsKey(ArcGISLayerServiceAPI.RADIUS))
+				? (Integer) settings.get(ArcGISLayerServiceAPI.RADIUS) : DEFAULT_RADIUS;
+	}
 
-		throw new RuntimeException("WTF : Should not pass here");
+	/**
+	 * Compute the new value of a field, based on its value in the featureTable and the value received.
+	 * 
+	 * @param operator
+	 *            the first character of the field to update, <code>+</code> or <code>-</code> for an operation
+	 * @param dbData
+	 *            value in the featureTable
+	 * @param data
+	 *            value received
+	 * @return the new value
+	 */
+	static Object computeValue(final char operator, final Object dbData, final Object data) {
+		if ((data instanceof String) || ("+-".indexOf(operator) == -1)) {
+			return data;
+		}
+		final int sign = (operator == '+') ? 1 : -1;
+		if (data instanceof Integer) {
+			return ((Number) dbData).intValue() + sign * (Integer) data;
+		}
+		if (data instanceof Double) {
+			return ((Number) dbData).doubleValue() + sign * (Double) data;
+		}
+		throw new RuntimeException(data.getClass().getName() + " is not implemented yet!");
 	}
 
 	/**
@@ -480,40 +1181,37 @@ public class ArcGISDataManager {
 	 * from the error message <b>"data_source is already owned."</b> <br/>
 	 * <i>This method is public in order to be invoked from Unit test</i>
 	 */
-	public void reinitializeFeatureTable() {
-		final AtomicBoolean reloadDone = new AtomicBoolean(false);
+	public void reinitializeFeatureTable() throws Exception {
 		if ((featureTable != null) && (featureTable.getLoadStatus() == LoadStatus.LOADED)) {
 			featureTable.clearCache(false);
 		}
 		String uri = featureTable.getUri();
 		featureTable = new ServiceFeatureTable(uri);
-		featureTable.loadAsync();
-		featureTable.addDoneLoadingListener(() -> reloadDone.set(true));
-		await().untilTrue(reloadDone);
+		await(load(featureTable), timeout);
 	}
 
 	/**
-	 * Select a record in the featureTable in a circle around a latitude and a
-	 * longitude.
+	 * Select a record in the featureTable in a circle around a point.
 	 * 
-	 * @param record
-	 *            actual record for processing
+	 * @param handle
+	 *            the featureTable leased, and its featureLayer
+	 * @param geometry
+	 *            the center of the search
 	 * @param settings
 	 *            current settings of data management
 	 * @return the selected feature
 	 * @throws Exception
 	 */
-	ArcGISFeature geoQuery(Map<String, String> record, final Map<String, Object> settings) throws Exception {
+	ArcGISFeature geoQuery(final TableHandle handle, final Point geometry, final Map<String, Object> settings)
+			throws Exception {
 
 		SpatialReference spatialReference = getSpatialReference(settings);
 
 		if (!(featureTable.getGeometryType().equals(GeometryType.POINT))) {
 			throw new RuntimeException("WTF SHOULD NOT PASS HERE !");
 		}
-		final Point geometry = createPoint(record, settings);
 		
-		int radius = (settings.containsKey(ArcGISLayerServiceAPI.RADIUS))
-				? (Integer) settings.get(ArcGISLayerServiceAPI.RADIUS) : DEFAULT_RADIUS;
+		int radius = getRadius(settings);
 				
 		final Polygon searchAround = GeometryEngine.buffer(geometry, radius);
 		
@@ -522,60 +1220,44 @@ public class ArcGISDataManager {
 		queryParams.setOutSpatialReference(spatialReference);
 		queryParams.setSpatialRelationship(SpatialRelationship.INTERSECTS);
 		
-		final ListenableFuture<FeatureQueryResult> future = featureLayer.selectFeaturesAsync(queryParams,
-				SelectionMode.NEW);
+		final long start = PhaseMetrics.start();
+		final FeatureQueryResult result = await(
+				toCompletable(handle.layer.selectFeaturesAsync(queryParams, SelectionMode.NEW)), timeout);
+		metrics.record(Phase.SPATIAL_QUERY, start, 1);
 
 		// Selected feature returned by this function
-		final AtomicReference<ArcGISFeature> selectedFeature = new AtomicReference<ArcGISFeature>();
-
-		// The purpose of queryDone is to wait for query completion before
-		// returning the result
-		AtomicBoolean queryDone = new AtomicBoolean(false);
-		future.addDoneListener(() -> {
-			
-			final ComponentLog logger = ArcGISDataManager.this.logger;
-			FeatureQueryResult result;
-			try {
-				result = future.get();
-			} catch (Exception e) {
-				logger.error(ExceptionUtils.getStackTrace(e));
-				throw new RuntimeException(e);
-			}
-			final AtomicReference<Double> closestDistance = new AtomicReference<Double>(new Double(Double.MAX_VALUE));
-			result.forEach( feature -> {
-				ArcGISFeature arcgisfeature = (ArcGISFeature) feature;
-				if (arcgisfeature.getGeometry().getGeometryType() != GeometryType.POINT) {
-					throw new RuntimeException("WTF: Should not pass here. Unattempted type of geometry " + arcgisfeature.getGeometry());
-				} 
-				Point point = (Point) arcgisfeature.getGeometry();
-				double distance = ArcGISDataManager.distance (geometry.getX(), point.getX(), geometry.getY(), point.getY(), 0d, 0d); 
-				logger.debug("distance " + distance);
-				if (distance < closestDistance.get()) {
-					selectedFeature.set((ArcGISFeature) arcgisfeature);
-					closestDistance.set(distance);
-					if (logger.isDebugEnabled()) {
-						Map<String, Object> attributes = selectedFeature.get().getAttributes();
-						logger.debug("Feature select " + attributes.get("name") + " @ the distance "
-								+ closestDistance.get());
-					}
+		ArcGISFeature selectedFeature = null;
+		double closestDistance = Double.MAX_VALUE;
+		for (Feature feature : result) {
+			ArcGISFeature arcgisfeature = (ArcGISFeature) feature;
+			if (arcgisfeature.getGeometry().getGeometryType() != GeometryType.POINT) {
+				throw new RuntimeException("WTF: Should not pass here. Unattempted type of geometry " + arcgisfeature.getGeometry());
+			} 
+			Point point = (Point) arcgisfeature.getGeometry();
+			double distance = ArcGISDataManager.distance (geometry.getX(), point.getX(), geometry.getY(), point.getY(), 0d, 0d); 
+			logger.debug("distance " + distance);
+			if (distance < closestDistance) {
+				selectedFeature = arcgisfeature;
+				closestDistance = distance;
+				if (logger.isDebugEnabled()) {
+					Map<String, Object> attributes = selectedFeature.getAttributes();
+					logger.debug("Feature select " + attributes.get("name") + " @ the distance "
+							+ closestDistance);
 				}
-			});
-			queryDone.set(true);
-		});
-		await().untilTrue(queryDone);
+			}
+		}
 
-		if (selectedFeature.get() != null) {
-			loadFeature (selectedFeature.get());
+		if (selectedFeature != null) {
+			loadFeature (selectedFeature);
 		}
 		
-		return selectedFeature.get();
+		return selectedFeature;
 	}
 
-	private void loadFeature(ArcGISFeature feature) {
-		AtomicBoolean queryDone = new AtomicBoolean(false);
-		feature.loadAsync();
-		feature.addDoneLoadingListener(() -> queryDone.set(true));
-		await().untilTrue(queryDone);
+	private void loadFeature(ArcGISFeature feature) throws Exception {
+		final long start = PhaseMetrics.start();
+		await(load(feature), timeout);
+		metrics.record(Phase.FEATURE_LOAD, start, 1);
 	}
 
 	/**
@@ -594,64 +1276,117 @@ public class ArcGISDataManager {
 			throw new RuntimeException("What's the fuck... Other geometries than point are not implemented yet !");
 		}
 
-		List<Feature> features = new ArrayList<Feature>();
-		for (Map<String, String> record : records) {
-
-			Geometry geometry = null;
-			if (featureTable.getGeometryType().equals(GeometryType.POINT)) {
-				geometry = createPoint(record, settings);
+		if (records.isEmpty()) {
+			return;
+		}
+		final IngestionPlan plan = getPlan(records.get(0), settings);
+		final List<Feature> features = withHandle(handle -> {
+			final long start = PhaseMetrics.start();
+			final List<Feature> created = new ArrayList<Feature>(records.size());
+			for (Map<String, String> record : records) {
+				created.add(handle.table.createFeature(plan.createAttributes(record), plan.createPoint(record)));
 			}
+			metrics.record(Phase.CONVERSION, start, created.size());
+			addAll(handle, created);
+			return created;
+		});
+		indexFeatures(features, settings);
+	}
 
-			final Map<String, Object> attributTable = new HashMap<String, Object>();
-			for (String field : record.keySet()) {
-				String value = record.get(field);
-				Object dataColumn;
-				if (associateFields.containsKey(field)) {
-					dataColumn = getDataColumn(field, value);
-					attributTable.put(field, dataColumn);
-				}
-			}
-			features.add(featureTable.createFeature(attributTable, geometry));
-		}
+	/**
+	 * Add a column-oriented block of features into the featureTable.
+	 * 
+	 * @param batch
+	 *            The block of records to add
+	 * @param settings
+	 *            the data settings associated, such as the current
+	 *            SpatialReference
+	 */
+	public void insertData(final RecordBatch batch, final Map<String, Object> settings) throws Exception {
 
-		logger.debug("Adding " + features.size() + " features...");
-		if (featureTable.canAdd()) {
-			applyEdits(featureTable);
-		} else {
-			new Exception("Cannot add feature into " + featureTable.getTableName()).printStackTrace();
+		if (!featureTable.getGeometryType().equals(GeometryType.POINT)) {
+			throw new RuntimeException("What's the fuck... Other geometries than point are not implemented yet !");
 		}
+
+		final IngestionPlan plan = getPlan(batch, settings);
+		final List<Feature> features = withHandle(handle -> {
+			final long start = PhaseMetrics.start();
+			final List<Feature> created = new ArrayList<Feature>(batch.size());
+			for (int row = 0; row < batch.size(); row++) {
+				created.add(handle.table.createFeature(plan.createAttributes(batch, row),
+						createPoint(batch, row, plan.spatialReference)));
+			}
+			metrics.record(Phase.CONVERSION, start, created.size());
+			addAll(handle, created);
+			return created;
+		});
+		indexFeatures(features, settings);
 	}
 
 	/**
-	 * Instantiate a data candidate.
+	 * Add the features created into a featureTable, and send them to the server.
 	 * 
-	 * @param field
-	 *            the field name
-	 * @param value
-	 *            the value loaded from the file, which has to be add
-	 * @return the value object
+	 * @param handle
+	 *            the featureTable leased
+	 * @param features
+	 *            the features created in this featureTable
 	 * @throws Exception
-	 *             : exception occurs during the data parsing.
-	 *             NumberFormatException might be thrown.
-	 */
-	Object getDataColumn(String field, String value) throws Exception {
-		Object o = null;
-		if (associateFields.containsKey(field)) {
-			switch (associateFields.get(field).type) {
-			case DOUBLE:
-				o = Double.parseDouble(value);
-				break;
-			case INTEGER:
-				o = Integer.parseInt(value);
-				break;
-			case TEXT:
-				o = value;
-				break;
-			default:
-				throw new Exception("Not implemented yet for " + associateFields.get(field).type);
+	 *             if the addition failed
+	 */
+	private void addAll(final TableHandle handle, final List<Feature> features) throws Exception {
+		final EditBuffer edits = createEditBuffer(handle);
+		for (Feature feature : features) {
+			edits.add(feature);
+		}
+		edits.flush();
+	}
+
+	/**
+	 * @param handle
+	 *            the featureTable leased
+	 * @return a buffer of editions, sending its features to this featureTable
+	 */
+	EditBuffer createEditBuffer(final TableHandle handle) {
+		return new EditBuffer(maxBufferedEdits, maxBufferedBytes, new EditBuffer.Sink() {
+			@Override
+			public void add(final List<Feature> features) throws Exception {
+				final long start = PhaseMetrics.start();
+				addFeatures(handle.table, features);
+				metrics.record(Phase.LOCAL_EDIT, start, features.size());
+			}
+
+			@Override
+			public void update(final List<Feature> features) throws Exception {
+				logger.debug("Updating " + features.size() + " features...");
+				final long start = PhaseMetrics.start();
+				await(toCompletable(handle.table.updateFeaturesAsync(features)), timeout);
+				metrics.record(Phase.LOCAL_EDIT, start, features.size());
 			}
+
+			@Override
+			public void apply() throws Exception {
+				applyEdits(handle.table);
+			}
+		});
+	}
+
+	/**
+	 * Add the features created into the local edits of the featureTable, with one single bulk call.
+	 * <br/>The features are sent to the server by the next {@link #applyEdits(ServiceFeatureTable)}.
+	 * 
+	 * @param featureTable
+	 *            the featureTable leased
+	 * @param features
+	 *            the features to add
+	 * @throws Exception
+	 *             if the featureTable does not accept new features, or if the addition failed
+	 */
+	private void addFeatures(final ServiceFeatureTable featureTable, final List<Feature> features) throws Exception {
+		logger.debug("Adding " + features.size() + " features...");
+		if (!featureTable.canAdd()) {
+			throw new Exception("Cannot add feature into " + featureTable.getTableName());
 		}
-		return o;
+		await(toCompletable(featureTable.addFeaturesAsync(features)), timeout);
 	}
 
 	/**
@@ -659,98 +1394,58 @@ public class ArcGISDataManager {
 	 *
 	 * @param featureTable
 	 *            service feature table
+	 * @throws Exception
+	 *             the error of the first edit failed, if any
 	 */
-	private void applyEdits(ServiceFeatureTable featureTable) {
-
-		final AtomicBoolean editionApplied = new AtomicBoolean(false);
+	private void applyEdits(ServiceFeatureTable featureTable) throws Exception {
 
 		// apply the changes to the server
-		ListenableFuture<List<FeatureEditResult>> editResult = featureTable.applyEditsAsync();
-		editResult.addDoneListener(() -> {
-			try {
-				List<FeatureEditResult> edits = editResult.get();
-				ArcGISDataManager.this.logger.debug("Edition applied (edits.size=" + edits.size() + ")");
-				// check if the server edit was successful
-				if (edits != null && edits.size() > 0 && edits.get(0).hasCompletedWithErrors()) {
-					throw edits.get(0).getError();
-				}
-
-			} catch (InterruptedException | ExecutionException e) {
-				ArcGISDataManager.this.logger
-						.error("Error while adding FeaturesAsync :\\n" + ExceptionUtils.getStackTrace(e));
+		final long start = PhaseMetrics.start();
+		final List<FeatureEditResult> edits = await(toCompletable(featureTable.applyEditsAsync()), timeout);
+		metrics.record(Phase.APPLY_EDITS, start, (edits == null) ? 0 : edits.size());
+		if (edits == null) {
+			return;
+		}
+		logger.debug("Edition applied (edits.size=" + edits.size() + ")");
+		// check if each server edit was successful : one apply carries all the features buffered
+		for (FeatureEditResult edit : edits) {
+			if (edit.hasCompletedWithErrors()) {
+				throw edit.getError();
 			}
-			editionApplied.set(true);
-		});
-
-		// TODO InterruptedException has to be handled
-		await().untilTrue(editionApplied);
-
+		}
 	}
 
 	/**
-	 * <p>
-	 * Create an ArcGIS point. <br/>
-	 * The constructor used will hang on the presence of fields such as "x",
-	 * "y", "z. <br/>
-	 * If not field such as "latitude" and "longitude" will be used. <br/>
-	 * If any information is available to allow the creation of a point, an
-	 * exception will be thrown.
-	 * </p>
-	 * <p>
-	 * <i>The parameter-value "m" is not handled in this current release</i>
-	 * </p>
-	 *
-	 * @param record
-	 *            actual record
-	 * @setting general settings associated to this record
+	 * Create an ArcGIS point from the geometry columns of a batch.
+	 * 
+	 * @param batch
+	 *            block of records
+	 * @param row
+	 *            index of the record in the block
+	 * @param spatialReference
+	 *            the spatial reference of the data, might be <code>null</code>
 	 * @return a point
 	 * @throws Exception
+	 *             if the batch has no geometry, or if a coordinate is missing
 	 */
-	public Point createPoint(Map<String, String> record, Map<String, Object> settings) throws Exception {
+	public Point createPoint(final RecordBatch batch, final int row, final SpatialReference spatialReference)
+			throws Exception {
 
-		if (!((record.containsKey("x") && record.containsKey("y"))
-				|| (record.containsKey("latitude") && record.containsKey("longitude")))) {
+		if (!batch.hasGeometry()) {
 			throw new Exception("Cannot create a point based on the received data");
 		}
-
-		SpatialReference spatialReference = getSpatialReference(settings);
-
-		if (record.containsKey("x") && record.containsKey("y")) {
-			double x = Double.parseDouble(getNotNull(record,"x"));
-			double y = Double.parseDouble(getNotNull(record,"y"));
-			if (record.containsKey("z")) {
-				double z = Double.parseDouble(getNotNull(record,"z"));
-				return (spatialReference == null) ? new Point(x, y, z) : new Point(x, y, z, spatialReference);
-			}
-			return (spatialReference == null) ? new Point(x, y) : new Point(x, y, spatialReference);
+		if (batch.isGeometryNull(row)) {
+			throw new Exception("A coordinate is null for the record " + row);
 		}
-		if (record.containsKey("longitude") && record.containsKey("latitude")) {
-			double lattitude = Double.parseDouble(getNotNull(record,"latitude"));
-			double longitude = Double.parseDouble(getNotNull(record,"longitude"));
-			return (spatialReference == null) ? new Point(lattitude, longitude)
-					: new Point(lattitude, longitude, spatialReference);
+		final double x = batch.getX(row);
+		final double y = batch.getY(row);
+		if (batch.hasZ()) {
+			final double z = batch.getZ(row);
+			return (spatialReference == null) ? new Point(x, y, z) : new Point(x, y, z, spatialReference);
 		}
-		throw new Exception("Should not pass here!");
+		return (spatialReference == null) ? new Point(x, y) : new Point(x, y, spatialReference);
 	}
 
-	/**
-	 * Test and return the value mapped to the key.
-	 * <br/>If the value is null, an exception is thrown
-	 * @param record the record in a Map format
-	 * @param key the key searched
-	 * @return the non null value
-	 * @throws Exception if the value map to the key is null
-	 */
-	private String getNotNull(Map<String, String> record, String key) throws Exception {
-		String value = record.get(key);
-		if (record.get(key) == null) {
-			Exception e = new Exception ("key value is null " + key);
-			record.forEach((k,v)->{ logger.error(k); logger.error(v); });
-			throw e;
-		} else {
-			return value;
-		}			
-	}
 	/**
 	 * @param settings
 	 *            the actual data settings setup in the processor
@@ -758,20 +1453,7 @@ public class ArcGISDataManager {
 	 */
 	private SpatialReference getSpatialReference(final Map<String, Object> settings) throws Exception {
 
-		SpatialReference spatialReference = null;
-		if (settings.containsKey(SPATIAL_REFERENCE)) {
-			String refSpatialReference = (String) settings.get(SPATIAL_REFERENCE);
-			if (SPATIAL_REFERENCE_WGS84.equals(refSpatialReference)) {
-				spatialReference = SpatialReferences.getWgs84();
-			} else {
-				if (SPATIAL_REFERENCE_WEBMERCATOR.equals(refSpatialReference)) {
-					spatialReference = SpatialReferences.getWebMercator();
-				} else {
-					throw new Exception(refSpatialReference + " is an invalid SpatialReference !");
-				}
-			}
-		}
-		return spatialReference;
+		return IngestionPlan.spatialReference(settings);
 	}
 
 	/**
@@ -0,0 +1,86 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.loadable.Loadable;
+
+/**
+ * Adapters between the asynchronous API of the ArcGIS runtime and {@link CompletableFuture}.
+ * <br/>The futures returned are completed by the ArcGIS listeners themselves,
+ * without any polling : a caller waiting on them is released as soon as the listener fires.
+ */
+public final class ArcGISFutures {
+
+	private ArcGISFutures() {
+	}
+
+	/**
+	 * Adapt a ListenableFuture of the ArcGIS runtime.
+	 *
+	 * @param future
+	 *            the ArcGIS future
+	 * @return a CompletableFuture completed with the result, or the failure, of the ArcGIS future
+	 */
+	public static <V> CompletableFuture<V> toCompletable(final ListenableFuture<V> future) {
+		final CompletableFuture<V> completable = new CompletableFuture<V>();
+		future.addDoneListener(() -> {
+			try {
+				completable.complete(future.get());
+			} catch (final ExecutionException ee) {
+				completable.completeExceptionally((ee.getCause() != null) ? ee.getCause() : ee);
+			} catch (final CancellationException | InterruptedException e) {
+				completable.completeExceptionally(e);
+			}
+		});
+		return completable;
+	}
+
+	/**
+	 * Load a resource of the ArcGIS runtime, such as a featureTable or a feature.
+	 *
+	 * @param loadable
+	 *            the resource to load
+	 * @return a CompletableFuture completed with the final load status of the resource.
+	 * The load error, if any, is available with <code>loadable.getLoadError()</code>
+	 */
+	public static CompletableFuture<LoadStatus> load(final Loadable loadable) {
+		final CompletableFuture<LoadStatus> completable = new CompletableFuture<LoadStatus>();
+		loadable.addDoneLoadingListener(() -> completable.complete(loadable.getLoadStatus()));
+		loadable.loadAsync();
+		return completable;
+	}
+
+	/**
+	 * Wait for the completion of a future.
+	 *
+	 * @param future
+	 *            the future
+	 * @param timeout
+	 *            the maximum time to wait, in milliseconds
+	 * @return the result of the future
+	 * @throws Exception
+	 *             the failure of the future, or a {@link TimeoutException}
+	 */
+	public static <V> V await(final CompletableFuture<V> future, final long timeout) throws Exception {
+		try {
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (final ExecutionException ee) {
+			if (ee.getCause() instanceof Exception) {
+				throw (Exception) ee.getCause();
+			}
+			throw ee;
+		} catch (final TimeoutException te) {
+			future.cancel(false);
+			throw new TimeoutException("No response from the ArcGIS server after " + timeout + " ms");
+		}
+	}
+}
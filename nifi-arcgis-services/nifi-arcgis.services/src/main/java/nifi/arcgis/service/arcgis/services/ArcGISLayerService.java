@@ -21,8 +21,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.management.JMException;
+
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
@@ -35,12 +39,15 @@ import org.apache.nifi.components.ValidationResult;
 import org.apache.nifi.controller.AbstractControllerService;
 import org.apache.nifi.controller.ConfigurationContext;
 import org.apache.nifi.controller.ControllerServiceInitializationContext;
+import org.apache.nifi.processor.DataUnit;
 import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.reporting.InitializationException;
 
 import com.jayway.jsonpath.internal.token.ArrayPathToken.Operation;
 
+import nifi.arcgis.service.arcgis.services.json.ArcGISServicesData;
+
 @Tags({ "ArcGIS", "put" })
 @CapabilityDescription("ControllerService in charge of accessing a featureTable on an ArcGIS server.")
 public class ArcGISLayerService extends AbstractControllerService implements ArcGISLayerServiceAPI {
@@ -65,31 +72,119 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 			.description("Layer name avaible on the FeatureServer").required(true)
 			.addValidator(StandardValidators.NON_EMPTY_VALIDATOR).build();
 
+	public static final PropertyDescriptor TIMEOUT = new PropertyDescriptor.Builder().name("Timeout")
+			.description("Maximum time to wait for a response of the ArcGIS server (ex: 30 sec).")
+			.defaultValue(String.valueOf(ArcGISDataManager.DEFAULT_TIMEOUT / 1000) + " sec").required(true)
+			.addValidator(StandardValidators.TIME_PERIOD_VALIDATOR).build();
+
+	public static final PropertyDescriptor MAX_BUFFERED_EDITS = new PropertyDescriptor.Builder()
+			.name("Maximum buffered edits")
+			.description("Maximum number of features added or updated locally before the edits are applied on the server.")
+			.defaultValue(String.valueOf(ArcGISDataManager.DEFAULT_MAX_BUFFERED_EDITS)).required(true)
+			.addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).build();
+
+	public static final PropertyDescriptor MAX_BUFFERED_SIZE = new PropertyDescriptor.Builder()
+			.name("Maximum buffered size")
+			.description("Maximum estimated size of the features added or updated locally before the edits are applied "
+					+ "on the server (ex: 4 MB).")
+			.defaultValue((ArcGISDataManager.DEFAULT_MAX_BUFFERED_BYTES / (1024 * 1024)) + " MB").required(true)
+			.addValidator(StandardValidators.DATA_SIZE_VALIDATOR).build();
+
+	public static final PropertyDescriptor LOCAL_INDEX = new PropertyDescriptor.Builder().name("Local index")
+			.description("If true, the point features of the layer are loaded in memory when the service is enabled. "
+					+ "The features to EDIT are then located locally, without any geo-query sent to the server.\n"
+					+ "The index is kept current with the editions executed by this service : "
+					+ "it is not suited for a layer edited by other clients.\n"
+					+ "The features are loaded in WGS84 : the records received in another spatial reference "
+					+ "get their own index, loaded with their first block.")
+			.allowableValues("true", "false").defaultValue("false").required(true).build();
+
+	public static final PropertyDescriptor LOCAL_INDEX_TTL = new PropertyDescriptor.Builder()
+			.name("Local index time-to-live")
+			.description("Delay after which the local index is reloaded from the server (ex: 10 min).")
+			.defaultValue("10 min").required(true).addValidator(StandardValidators.TIME_PERIOD_VALIDATOR).build();
+
+	public static final PropertyDescriptor LOCAL_INDEX_MAX_FEATURES = new PropertyDescriptor.Builder()
+			.name("Local index maximum features")
+			.description("Maximum number of features kept in memory, per spatial reference. "
+					+ "If the layer contains more features, the geo-queries are sent to the server.")
+			.defaultValue("100000").required(true).addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).build();
+
+	public static final PropertyDescriptor MAX_TABLE_HANDLES = new PropertyDescriptor.Builder()
+			.name("Maximum featureTables")
+			.description("Maximum number of featureTables of the layer loaded for the tasks executing this service at the "
+					+ "same time. Each task edits its own featureTable : beyond this number, a task waits for a "
+					+ "featureTable released by another one, within the timeout.")
+			.defaultValue(String.valueOf(ArcGISDataManager.DEFAULT_MAX_HANDLES)).required(true)
+			.addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).build();
+
+	public static final PropertyDescriptor METADATA_TTL = new PropertyDescriptor.Builder()
+			.name("Metadata cache time-to-live")
+			.description("Delay during which the folders, services and layers read on the REST directory of the server "
+					+ "are reused without any request (ex: 1 min). The responses are shared by the services of the same "
+					+ "server, and revalidated with conditional requests once this delay has expired.")
+			.defaultValue((ArcGISServicesData.DEFAULT_METADATA_TTL / 1000) + " sec").required(true)
+			.addValidator(StandardValidators.TIME_PERIOD_VALIDATOR).build();
+
+	public static final PropertyDescriptor MAX_LAYERS = new PropertyDescriptor.Builder()
+			.name("Maximum layers loaded")
+			.description("Maximum number of layers kept loaded, besides the layer of the service, for the FlowFiles "
+					+ "targeting another layer of the server. Beyond, the layer least recently used is released.")
+			.defaultValue("16").required(true).addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR).build();
+
+	public static final PropertyDescriptor LAYER_IDLE_TIMEOUT = new PropertyDescriptor.Builder()
+			.name("Layer idle timeout")
+			.description("Delay after which a layer loaded for the FlowFiles targeting another layer of the server is "
+					+ "released, if no FlowFile has targeted it (ex: 10 min).")
+			.defaultValue("10 min").required(true).addValidator(StandardValidators.TIME_PERIOD_VALIDATOR).build();
+
 	/**
 	 * This boolean is used to test the entrance in the OnPropertyChange method
 	 * for test purpose
 	 */
-	private boolean opmCalled = false;
+	private volatile boolean opmCalled = false;
 
 	private static final List<PropertyDescriptor> properties;
 
 	/**
-	 * is <code>true</code> when the service is updating data in ArcGIS.
-	 * this status pauses the connection test
+	 * Number of executions updating data in ArcGIS.
+	 * The connection test is paused while this number is positive.
+	 * <br/>Several executions may run at the same time, if the processor pipelines its blocks of records.
 	 */
-	private boolean inExecution = false;
+	private final AtomicInteger inExecution = new AtomicInteger();
 
 	/**
 	 * dataManager in charge of editing data on the ArcGIS server.
 	 */
 	private ArcGISDataManager gisDataManager = null;
 
+	/**
+	 * Other layers of the server targeted in the settings, with their own dataManager, <code>null</code> if the
+	 * service is not enabled
+	 */
+	private volatile LayerCache<ArcGISDataManager> layers = null;
+
+	/**
+	 * Configuration of the service enabled, applied to the dataManagers of the other layers
+	 */
+	private volatile ConfigurationContext configuration = null;
+
 	static {
 		final List<PropertyDescriptor> props = new ArrayList<>();
 		props.add(ARCGIS_URL);
 		props.add(FOLDER_SERVER);
 		props.add(FEATURE_SERVER);
 		props.add(LAYER_NAME);
+		props.add(TIMEOUT);
+		props.add(MAX_BUFFERED_EDITS);
+		props.add(MAX_BUFFERED_SIZE);
+		props.add(LOCAL_INDEX);
+		props.add(LOCAL_INDEX_TTL);
+		props.add(LOCAL_INDEX_MAX_FEATURES);
+		props.add(MAX_TABLE_HANDLES);
+		props.add(METADATA_TTL);
+		props.add(MAX_LAYERS);
+		props.add(LAYER_IDLE_TIMEOUT);
 		properties = Collections.unmodifiableList(props);
 	}
 
@@ -137,7 +232,7 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 	protected Collection<ValidationResult> customValidate(ValidationContext validationContext) {
 
 		// We pause the control during the execution
-		if (inExecution) {
+		if (inExecution.get() > 0) {
 			return EMPTY_OK;
 		}
 		
@@ -154,6 +249,8 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 					+ ((folderServer == null) ? "" : (" in the folder " + folderServer.getValue()))
 					+ " for the featureServer " + featureServer.getValue() + " and the layer " + layerName.getValue());
 		}
+		gisDataManager.setTimeout(validationContext.getProperty(TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS));
+		gisDataManager.setMetadataTtl(validationContext.getProperty(METADATA_TTL).asTimePeriod(TimeUnit.MILLISECONDS));
 		List<ValidationResult> results = new ArrayList<ValidationResult>();
 		ValidationResult result = gisDataManager.checkConnection(url.getValue(), folderServer.getValue(),
 				featureServer.getValue(), layerName.getValue());
@@ -175,11 +272,110 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 	 */
 	@OnEnabled
 	public void onEnabled(final ConfigurationContext context) throws InitializationException {
+		configure(gisDataManager, context);
+		configureLocalIndex(gisDataManager, context);
+		configuration = context;
+		layers = new LayerCache<ArcGISDataManager>(this::loadLayer, ArcGISDataManager::release,
+				context.getProperty(MAX_LAYERS).asInteger(),
+				context.getProperty(LAYER_IDLE_TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS), System::currentTimeMillis);
+		try {
+			gisDataManager.getMetrics().register(getIdentifier());
+		} catch (final JMException e) {
+			getLogger().warn("Cannot register the metrics MBeans : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Apply the configuration of the service to a dataManager.
+	 * @param manager the dataManager
+	 * @param context the configuration context
+	 */
+	private void configure(final ArcGISDataManager manager, final ConfigurationContext context) {
+		manager.setTimeout(context.getProperty(TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS));
+		manager.setMetadataTtl(context.getProperty(METADATA_TTL).asTimePeriod(TimeUnit.MILLISECONDS));
+		manager.setEditBuffer(context.getProperty(MAX_BUFFERED_EDITS).asInteger(),
+				context.getProperty(MAX_BUFFERED_SIZE).asDataSize(DataUnit.B).longValue());
+		manager.setMaxHandles(context.getProperty(MAX_TABLE_HANDLES).asInteger());
+	}
+
+	/**
+	 * Enable or disable the local index of a dataManager, as configured in the service.
+	 * @param manager the dataManager
+	 * @param context the configuration context
+	 */
+	private void configureLocalIndex(final ArcGISDataManager manager, final ConfigurationContext context) {
+		if (context.getProperty(LOCAL_INDEX).asBoolean()) {
+			// The distance to a feature is computed on latitudes and longitudes : the index is loaded in WGS84
+			manager.enableLocalIndex(context.getProperty(LOCAL_INDEX_TTL).asTimePeriod(TimeUnit.MILLISECONDS),
+					context.getProperty(LOCAL_INDEX_MAX_FEATURES).asInteger(), SPATIAL_REFERENCE_WGS84);
+		} else {
+			manager.disableLocalIndex();
+		}
+	}
+
+	/**
+	 * Load another layer of the server, with its own dataManager sharing the metrics of the service.
+	 * @param path the path of the layer : <code>featureServer/layer</code>
+	 * @return the dataManager of the layer, connected
+	 * @throws Exception if the layer cannot be reached
+	 */
+	private ArcGISDataManager loadLayer(final String path) throws Exception {
+		final ConfigurationContext context = configuration;
+		final int separator = path.lastIndexOf('/');
+		final ArcGISDataManager manager = new ArcGISDataManager(getLogger());
+		configure(manager, context);
+		manager.setMetrics(gisDataManager.getMetrics());
+		final ValidationResult result = manager.checkConnection(context.getProperty(ARCGIS_URL).getValue(),
+				context.getProperty(FOLDER_SERVER).getValue(), path.substring(0, separator),
+				path.substring(separator + 1));
+		if (!result.isValid()) {
+			throw new Exception("Cannot load the layer " + path + " : " + result.getExplanation());
+		}
+		configureLocalIndex(manager, context);
+		getLogger().info("Layer " + path + " loaded");
+		return manager;
+	}
+
+	/**
+	 * Resolve the dataManager of the layer targeted in the settings.
+	 * @param settings data settings, which may contain the {@link #LAYER} targeted
+	 * @return the dataManager of the service if no other layer is targeted, the dataManager of the layer otherwise
+	 * @throws Exception if the layer cannot be loaded
+	 */
+	ArcGISDataManager getDataManager(final Map<String, Object> settings) throws Exception {
+		final Object layer = settings.get(LAYER);
+		if ((layer == null) || layer.toString().isEmpty()) {
+			return gisDataManager;
+		}
+		final ConfigurationContext context = configuration;
+		final LayerCache<ArcGISDataManager> cache = layers;
+		if ((context == null) || (cache == null)) {
+			throw new Exception("The service is not enabled : the layer " + layer + " cannot be loaded");
+		}
+		final String featureServer = context.getProperty(FEATURE_SERVER).getValue();
+		final String path = (layer.toString().indexOf('/') < 0) ? featureServer + "/" + layer : layer.toString();
+		if (path.equals(featureServer + "/" + context.getProperty(LAYER_NAME).getValue())) {
+			return gisDataManager;
+		}
+		return cache.get(path);
 	}
 
 	@OnDisabled
 	public void shutdown() {
-
+		final LayerCache<ArcGISDataManager> cache = layers;
+		layers = null;
+		configuration = null;
+		if (cache != null) {
+			cache.clear();
+		}
+		gisDataManager.disableLocalIndex();
+		final PhaseMetrics metrics = gisDataManager.getMetrics();
+		getLogger().info("Phases executed :\n" + metrics);
+		try {
+			metrics.unregister();
+		} catch (final JMException e) {
+			getLogger().warn("Cannot unregister the metrics MBeans : " + e.getMessage());
+		}
 	}
 
 
@@ -208,11 +404,33 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 
 	@Override
 	public boolean isHeaderValid(List<String> header) throws ProcessException {
+		return isHeaderValid(gisDataManager, header);
+	}
+
+	@Override
+	public boolean isHeaderValid(final List<String> header, final Map<String, Object> settings)
+			throws ProcessException {
+		try {
+			return isHeaderValid(getDataManager(settings), header);
+		} catch (final ProcessException pe) {
+			throw pe;
+		} catch (final Exception e) {
+			throw new ProcessException(e);
+		}
+	}
+
+	/**
+	 * Compare the header fields with the fields of the featureTable of a dataManager.
+	 * @param manager the dataManager of the layer
+	 * @param header the header parsed
+	 * @return <code>TRUE</code> if each field of the header exists in the featureTable
+	 */
+	private boolean isHeaderValid(final ArcGISDataManager manager, final List<String> header) {
 		
 		if (getLogger().isDebugEnabled()) {
 			getLogger().debug ("Comparing header fields in the CSV and dataField in the ArcGIS FeatureTable");
 			StringBuilder sbArcGIS = new StringBuilder();
-			gisDataManager.getAssociateFields().forEach( (key, field) -> sbArcGIS.append(field.name).append(","));
+			manager.getAssociateFields().forEach( (key, field) -> sbArcGIS.append(field.name).append(","));
 			getLogger().debug ("ArcGIS list : " + sbArcGIS.toString());
 			StringBuilder sbHeader = new StringBuilder();
 			header.forEach(field -> sbHeader.append(field).append(","));
@@ -223,7 +441,7 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 		found.set(false);
 		for (String headerField : header) {
 			found.set(false);
-			gisDataManager.getAssociateFields().forEach( (key,field) -> { if (field.name.equals(headerField)) found.set(true); } );
+			manager.getAssociateFields().forEach( (key,field) -> { if (field.name.equals(headerField)) found.set(true); } );
 			if (!found.get()) {
 				getLogger().info("field " + headerField + " does not exist on this layer");
 				break;
@@ -232,11 +450,52 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 		return found.get();
 	}
 
+	@Override
+	public Map<String, ColumnType> getSchema() throws ProcessException {
+		return gisDataManager.getSchema();
+	}
+
+	@Override
+	public Map<String, ColumnType> getSchema(final Map<String, Object> settings) throws ProcessException {
+		try {
+			return getDataManager(settings).getSchema();
+		} catch (final ProcessException pe) {
+			throw pe;
+		} catch (final Exception e) {
+			throw new ProcessException(e);
+		}
+	}
+
+	@Override
+	public PhaseMetrics getMetrics() {
+		return gisDataManager.getMetrics();
+	}
+
 	@Override
 	public void execute( List<Map<String, String>> records, final Map<String,Object> settings) throws ProcessException {
-		
-		inExecution = true;
+		execute(settings, manager -> manager.insertData(records, settings),
+				manager -> manager.updateData(records, settings));
+	}
+
+	@Override
+	public void execute(final RecordBatch batch, final Map<String, Object> settings) throws ProcessException {
+		execute(settings, manager -> manager.insertData(batch, settings),
+				manager -> manager.updateData(batch, settings));
+	}
 
+	/**
+	 * Execute the data operation requested in the settings, on the layer targeted.
+	 * @param settings data settings, containing the type of operation
+	 * @param insert the insert operation
+	 * @param update the update operation, also used for the <i>update or insert</i> operation
+	 * @throws ProcessException thrown if any problems occurs during execution
+	 */
+	private void execute(final Map<String, Object> settings, final DataOperation insert, final DataOperation update)
+			throws ProcessException {
+
+		inExecution.incrementAndGet();
+
+		ArcGISDataManager manager = gisDataManager;
 		try {
 			// gisDataManager.reinitializeFeatureTable();
 
@@ -245,25 +504,35 @@ public class ArcGISLayerService extends AbstractControllerService implements Arc
 			}
 			
 			getLogger().debug("Executing " + settings.get(OPERATION).toString());
+			manager = getDataManager(settings);
 			
 			if (OPERATION_INSERT.equals(settings.get(OPERATION))) {
-				gisDataManager.insertData(records, settings);
+				insert.execute(manager);
 			}
 			if (OPERATION_UPDATE.equals(settings.get(OPERATION))) {
-				gisDataManager.updateData(records, settings);
+				update.execute(manager);
 			}
 			if (OPERATION_UPDATE_OR_INSERT.equals(settings.get(OPERATION))) {
-				gisDataManager.updateData(records, settings);
+				update.execute(manager);
 			}
 		} catch (Exception e) {
+			manager.invalidateLocalIndex();
 			getLogger().error(ExceptionUtils.getStackTrace(e));
 			getLogger().error(e.getLocalizedMessage());
 			throw new ProcessException(e);
 		} finally {
-			inExecution = false;
+			inExecution.decrementAndGet();
 		}
 	}
 
+	/**
+	 * Data operation delegated to the data manager of the layer targeted.
+	 */
+	@FunctionalInterface
+	private interface DataOperation {
+		void execute(ArcGISDataManager manager) throws Exception;
+	}
+
 	/**
 	 * <p>Setter for testing purpose only.</p> 
 	 * <p>DO NOT USE OUTSIDE A UNIT TEST</p>
@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.esri.arcgisruntime.data.Feature;
+
+/**
+ * Buffer of the features added or updated, sent to the featureTable with bulk calls.
+ * <br/>The buffer is flushed, and the edits applied on the server, as soon as it contains <code>maxEdits</code>
+ * features or about <code>maxBytes</code> of attributes. The local edits kept by the ArcGIS runtime remain bounded,
+ * whatever the size of the block processed.
+ * <br/>A feature added, then updated before the flush, is sent once with its last attributes.
+ * <br/><i>A buffer is used by one thread, for one block of records.</i>
+ */
+class EditBuffer {
+
+	/**
+	 * Destination of the edits.
+	 */
+	interface Sink {
+
+		/**
+		 * Add new features into the local edits of the featureTable.
+		 */
+		void add(List<Feature> features) throws Exception;
+
+		/**
+		 * Update existing features into the local edits of the featureTable.
+		 */
+		void update(List<Feature> features) throws Exception;
+
+		/**
+		 * Send the local edits to the server.
+		 */
+		void apply() throws Exception;
+	}
+
+	/**
+	 * Estimated size of a feature, without its attributes
+	 */
+	final static int FEATURE_OVERHEAD = 64;
+
+	/**
+	 * Estimated size of an attribute, without its name and its value
+	 */
+	final static int ATTRIBUTE_OVERHEAD = 32;
+
+	private final int maxEdits;
+
+	private final long maxBytes;
+
+	private final Sink sink;
+
+	/**
+	 * Features to add, in their order of creation
+	 */
+	private final Set<Feature> adds = Collections.newSetFromMap(new IdentityHashMap<Feature, Boolean>());
+
+	private final List<Feature> addOrder = new ArrayList<Feature>();
+
+	/**
+	 * Features to update, in their order of first update
+	 */
+	private final Set<Feature> updates = new LinkedHashSet<Feature>();
+
+	/**
+	 * Estimated size of the features buffered
+	 */
+	private long bytes = 0;
+
+	/**
+	 * Number of flushes executed
+	 */
+	private int flushes = 0;
+
+	/**
+	 * Construction.
+	 * @param maxEdits maximum number of features buffered
+	 * @param maxBytes maximum estimated size of the features buffered
+	 * @param sink destination of the edits
+	 */
+	EditBuffer(final int maxEdits, final long maxBytes, final Sink sink) {
+		this.maxEdits = maxEdits;
+		this.maxBytes = maxBytes;
+		this.sink = sink;
+	}
+
+	/**
+	 * Buffer a new feature.
+	 * @param feature the feature created
+	 * @throws Exception if the buffer is flushed, and the flush failed
+	 */
+	void add(final Feature feature) throws Exception {
+		if (adds.add(feature)) {
+			addOrder.add(feature);
+			buffered(feature);
+		}
+	}
+
+	/**
+	 * Buffer an updated feature. Nothing is buffered if the feature is a new feature still in the buffer.
+	 * @param feature the feature updated
+	 * @throws Exception if the buffer is flushed, and the flush failed
+	 */
+	void update(final Feature feature) throws Exception {
+		if (!adds.contains(feature) && updates.add(feature)) {
+			buffered(feature);
+		}
+	}
+
+	private void buffered(final Feature feature) throws Exception {
+		bytes += estimateSize(feature);
+		if ((adds.size() + updates.size() >= maxEdits) || (bytes >= maxBytes)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Send the features buffered, and apply the edits on the server.
+	 * @throws Exception if the edition failed
+	 */
+	void flush() throws Exception {
+		if (adds.isEmpty() && updates.isEmpty()) {
+			return;
+		}
+		if (!addOrder.isEmpty()) {
+			sink.add(new ArrayList<Feature>(addOrder));
+		}
+		if (!updates.isEmpty()) {
+			sink.update(new ArrayList<Feature>(updates));
+		}
+		adds.clear();
+		addOrder.clear();
+		updates.clear();
+		bytes = 0;
+		flushes++;
+		sink.apply();
+	}
+
+	/**
+	 * @return the number of flushes executed
+	 */
+	int getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * @return the number of features buffered
+	 */
+	int size() {
+		return adds.size() + updates.size();
+	}
+
+	/**
+	 * @return the estimated size of a feature, in bytes
+	 */
+	static long estimateSize(final Feature feature) {
+		long size = FEATURE_OVERHEAD;
+		for (Map.Entry<String, Object> attribute : feature.getAttributes().entrySet()) {
+			size += ATTRIBUTE_OVERHEAD + 2 * attribute.getKey().length();
+			final Object value = attribute.getValue();
+			size += (value instanceof CharSequence) ? 2 * ((CharSequence) value).length() : 8;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+import com.esri.arcgisruntime.geometry.Point;
+
+/**
+ * Local copy of the location and the object id of the point features of the featureTable, indexed in a
+ * {@link PointGridIndex}.
+ * <br/>The features themselves are not kept : they belong to the featureTable which loaded them, while the cache is
+ * shared by the tasks leasing other featureTables. A task fetches the features it edits by object id, see
+ * {@link IndexedFeatureLocator}.
+ * <br/>The index is loaded in one pass, kept current with the features edited through the data manager,
+ * and reloaded once its time-to-live has expired.
+ * <br/>One index is kept per spatial reference of the coordinates, as declared in the settings : the processors
+ * sending their records in another spatial reference than the one loaded with the service get their own index,
+ * instead of reloading the shared one with each block.
+ * A feature created in one spatial reference cannot be indexed in the other ones : they are then reloaded.
+ * <br/>If the featureTable contains more features than the maximum allowed, the index is not kept in memory :
+ * the cache is then <i>unavailable</i> until the next reload, and the lookups have to query the server.
+ * <br/><i>All the methods are synchronized : the cache may be shared by several threads executing the service.</i>
+ */
+public class FeatureIndexCache {
+
+	/**
+	 * Loader of the features of the featureTable.
+	 */
+	@FunctionalInterface
+	public interface Loader {
+
+		/**
+		 * @param index
+		 *            the index to fill with the object ids of the features
+		 * @param spatialReference
+		 *            the spatial reference of the coordinates, as declared in the settings
+		 * @param maxFeatures
+		 *            the maximum number of features to load
+		 * @return <code>false</code> if the featureTable contains more than <code>maxFeatures</code> features
+		 * @throws Exception
+		 *             if any problem occurs while querying the featureTable
+		 */
+		boolean load(PointGridIndex<Long> index, String spatialReference, int maxFeatures) throws Exception;
+	}
+
+	/**
+	 * Index loaded for a spatial reference.
+	 */
+	private static class Entry {
+
+		/**
+		 * The index, <code>null</code> if unavailable
+		 */
+		PointGridIndex<Long> index;
+
+		/**
+		 * Time of the load
+		 */
+		long loadedAt;
+	}
+
+	/**
+	 * Loader of the features
+	 */
+	private final Loader loader;
+
+	/**
+	 * Size of a cell in the index
+	 */
+	private final double cellSize;
+
+	/**
+	 * Time-to-live of the index, in milliseconds
+	 */
+	private final long ttl;
+
+	/**
+	 * Maximum number of features kept in memory
+	 */
+	private final int maxFeatures;
+
+	/**
+	 * Clock, in milliseconds
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Indexes loaded, keyed by the spatial reference of their coordinates. An index missing has to be loaded.
+	 */
+	private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+	/**
+	 * Construction.
+	 *
+	 * @param loader
+	 *            loader of the features
+	 * @param cellSize
+	 *            size of a cell in the index
+	 * @param ttl
+	 *            time-to-live of the index, in milliseconds
+	 * @param maxFeatures
+	 *            maximum number of features kept in memory, per spatial reference
+	 * @param clock
+	 *            clock, in milliseconds
+	 */
+	public FeatureIndexCache(final Loader loader, final double cellSize, final long ttl, final int maxFeatures,
+			final LongSupplier clock) {
+		this.loader = loader;
+		this.cellSize = cellSize;
+		this.ttl = ttl;
+		this.maxFeatures = maxFeatures;
+		this.clock = clock;
+	}
+
+	/**
+	 * Construction with the system clock.
+	 */
+	public FeatureIndexCache(final Loader loader, final double cellSize, final long ttl, final int maxFeatures) {
+		this(loader, cellSize, ttl, maxFeatures, System::currentTimeMillis);
+	}
+
+	/**
+	 * Load the features in this spatial reference, unless its index is fresh.
+	 *
+	 * @param spatialReference
+	 *            the spatial reference of the coordinates, as declared in the settings
+	 * @return <code>true</code> if the index is available
+	 * @throws Exception
+	 *             if any problem occurs while querying the featureTable
+	 */
+	public synchronized boolean refresh(final String spatialReference) throws Exception {
+		final long now = clock.getAsLong();
+		final Entry cached = entries.get(spatialReference);
+		if ((cached != null) && (now - cached.loadedAt < ttl)) {
+			return (cached.index != null);
+		}
+		entries.remove(spatialReference);
+		final PointGridIndex<Long> loaded = new PointGridIndex<Long>(cellSize);
+		final boolean complete = loader.load(loaded, spatialReference, maxFeatures);
+		final Entry entry = new Entry();
+		entry.index = complete ? loaded : null;
+		entry.loadedAt = now;
+		entries.put(spatialReference, entry);
+		return complete;
+	}
+
+	/**
+	 * Search the nearest feature within a radius.
+	 *
+	 * @param spatialReference
+	 *            the spatial reference of the point, as declared in the settings
+	 * @return the object id of the nearest feature, or <code>null</code> if no feature is inside the radius,
+	 *         or if the index is unavailable
+	 */
+	public synchronized Long nearest(final String spatialReference, final Point point, final double radius,
+			final PointGridIndex.PointDistance distance) {
+		final Entry entry = entries.get(spatialReference);
+		return ((entry == null) || (entry.index == null)) ? null
+				: entry.index.nearest(point.getX(), point.getY(), radius, distance);
+	}
+
+	/**
+	 * Index a feature added to the featureTable.
+	 * <br/>If the maximum number of features is reached, the index is released.
+	 * The indexes of the other spatial references are reloaded at their next refresh.
+	 *
+	 * @param spatialReference
+	 *            the spatial reference of the point, as declared in the settings
+	 * @param point
+	 *            the geometry of the feature
+	 * @param objectId
+	 *            the object id of the feature added
+	 */
+	public synchronized void add(final String spatialReference, final Point point, final long objectId) {
+		final Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Map.Entry<String, Entry> cached = iterator.next();
+			if (!Objects.equals(cached.getKey(), spatialReference)) {
+				// The feature cannot be indexed with the other ones
+				iterator.remove();
+				continue;
+			}
+			final PointGridIndex<Long> index = cached.getValue().index;
+			if (index == null) {
+				continue;
+			}
+			if (index.size() >= maxFeatures) {
+				cached.getValue().index = null;
+				continue;
+			}
+			index.add(point.getX(), point.getY(), objectId);
+		}
+	}
+
+	/**
+	 * Force a reload at the next refresh, after a failed edition.
+	 */
+	public synchronized void invalidate() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the number of features in memory, in all the indexes
+	 */
+	public synchronized int size() {
+		int size = 0;
+		for (Entry entry : entries.values()) {
+			size += (entry.index == null) ? 0 : entry.index.size();
+		}
+		return size;
+	}
+}
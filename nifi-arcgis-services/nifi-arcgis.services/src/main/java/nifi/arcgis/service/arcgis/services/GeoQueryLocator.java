@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.geometry.Point;
+
+/**
+ * Locator of the features of a block of records, with one geo-query per record.
+ * <br/>The features created by the block stay in the edit buffer until its next flush, so the server does not
+ * return them yet : they are kept in a local index, and the nearest of the feature returned by the server and
+ * the features created is located.
+ * <br/>The updates are also buffered : two records of the block may get two copies of the same feature from the server,
+ * and the edits of the first one would be overwritten by the second one. The features located are kept by object id,
+ * and a feature located again is the instance already edited.
+ * <br/><i>A locator is used by one thread, for one block of records.</i>
+ */
+class GeoQueryLocator implements ArcGISDataManager.FeatureLocator {
+
+	/**
+	 * Geo-query of the featureTable leased.
+	 */
+	@FunctionalInterface
+	interface Query {
+
+		/**
+		 * @param point
+		 *            the center of the search
+		 * @return the nearest feature saved on the server, or <code>null</code> if no feature is close enough
+		 * @throws Exception
+		 *             if any problem occurs while querying the featureTable
+		 */
+		Feature nearest(Point point) throws Exception;
+	}
+
+	private final Query query;
+
+	/**
+	 * Name of the object id field, <code>null</code> if unknown
+	 */
+	private final String objectIdField;
+
+	private final double radius;
+
+	private final PointGridIndex.PointDistance distance;
+
+	/**
+	 * Features created by the block
+	 */
+	private final PointGridIndex<Feature> created;
+
+	/**
+	 * Features saved on the server and located by the block, by object id
+	 */
+	private final Map<Object, Feature> located = new HashMap<Object, Feature>();
+
+	/**
+	 * Construction.
+	 *
+	 * @param query
+	 *            the geo-query of the featureTable leased
+	 * @param objectIdField
+	 *            the name of the object id field of the featureTable, <code>null</code> if unknown
+	 * @param radius
+	 *            the radius of the search-circle around a point
+	 * @param distance
+	 *            the distance between two points
+	 */
+	GeoQueryLocator(final Query query, final String objectIdField, final double radius,
+			final PointGridIndex.PointDistance distance) {
+		this.query = query;
+		this.objectIdField = objectIdField;
+		this.radius = radius;
+		this.distance = distance;
+		this.created = new PointGridIndex<Feature>(radius);
+	}
+
+	@Override
+	public Feature locate(final Point point) throws Exception {
+		final Feature saved = edited(query.nearest(point));
+		final Feature local = created.nearest(point.getX(), point.getY(), radius, distance);
+		if ((saved == null) || (local == null)) {
+			return (saved == null) ? local : saved;
+		}
+		// A feature created, then sent by a flush, is also returned by the server : the local one is kept
+		return (distance(point, local) <= distance(point, saved)) ? local : saved;
+	}
+
+	@Override
+	public void created(final Point point, final Feature feature) {
+		created.add(point.getX(), point.getY(), feature);
+	}
+
+	/**
+	 * @return the instance of this feature already located by the block, if any
+	 */
+	private Feature edited(final Feature feature) {
+		if ((feature == null) || (objectIdField == null)) {
+			return feature;
+		}
+		final Object objectId = feature.getAttributes().get(objectIdField);
+		if (objectId == null) {
+			return feature;
+		}
+		final Feature edited = located.putIfAbsent(objectId, feature);
+		return (edited == null) ? feature : edited;
+	}
+
+	private double distance(final Point point, final Feature feature) {
+		final Point location = (Point) feature.getGeometry();
+		return distance.distance(point.getX(), point.getY(), location.getX(), location.getY());
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of handles leased to the tasks executing the service, such as the featureTables of a layer.
+ * <br/>A handle is leased by one task at a time. At most <code>maxHandles</code> handles are leased at the same
+ * time : {@link #lease(long)} waits for a handle released beyond this limit.
+ * <br/>The idle handles are reused, most recently released first. A new handle is created only when no idle handle
+ * is available, and a handle in an unknown state is {@link #discard(Object) discarded} instead of being released.
+ * <br/><i>The pool is safe for concurrent tasks : the idle handles are kept in a lock-free deque.</i>
+ *
+ * @param <T> type of handle
+ */
+public class HandlePool<T> {
+
+	/**
+	 * Factory of the handles.
+	 */
+	@FunctionalInterface
+	public interface Factory<T> {
+
+		/**
+		 * @return a new handle, ready to be used
+		 * @throws Exception
+		 *             if the handle cannot be created
+		 */
+		T create() throws Exception;
+	}
+
+	/**
+	 * Factory of the handles
+	 */
+	private final Factory<T> factory;
+
+	/**
+	 * One permit per handle allowed to be leased
+	 */
+	private final Semaphore leases;
+
+	/**
+	 * Idle handles
+	 */
+	private final ConcurrentLinkedDeque<T> idle = new ConcurrentLinkedDeque<T>();
+
+	/**
+	 * Construction.
+	 * @param factory factory of the handles
+	 * @param maxHandles maximum number of handles leased at the same time
+	 */
+	public HandlePool(final Factory<T> factory, final int maxHandles) {
+		if (maxHandles <= 0) {
+			throw new IllegalArgumentException("The maximum number of handles must be positive : " + maxHandles);
+		}
+		this.factory = factory;
+		this.leases = new Semaphore(maxHandles, true);
+	}
+
+	/**
+	 * Add a handle already created to the idle handles.
+	 * @param handle the handle
+	 */
+	public void offer(final T handle) {
+		idle.offerFirst(handle);
+	}
+
+	/**
+	 * Lease a handle, idle or created.
+	 * @param timeout maximum time to wait for a handle released, in milliseconds
+	 * @return the handle, to be released or discarded by the caller
+	 * @throws Exception
+	 *             if no handle has been released within the timeout, or if the handle cannot be created
+	 */
+	public T lease(final long timeout) throws Exception {
+		if (!leases.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+			throw new Exception("No handle released within " + timeout + " ms");
+		}
+		final T handle = idle.pollFirst();
+		if (handle != null) {
+			return handle;
+		}
+		try {
+			return factory.create();
+		} catch (final Exception | Error e) {
+			leases.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Release a handle leased, which becomes idle.
+	 * @param handle the handle
+	 */
+	public void release(final T handle) {
+		idle.offerFirst(handle);
+		leases.release();
+	}
+
+	/**
+	 * Discard a handle leased, which may be in an unknown state.
+	 * @param handle the handle
+	 */
+	public void discard(final T handle) {
+		leases.release();
+	}
+
+	/**
+	 * @return the number of idle handles
+	 */
+	public int getIdleCount() {
+		return idle.size();
+	}
+}
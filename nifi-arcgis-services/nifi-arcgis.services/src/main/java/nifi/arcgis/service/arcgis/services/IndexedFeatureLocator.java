@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.geometry.Point;
+
+/**
+ * Locator of the features of a block of records, with the local index {@link FeatureIndexCache}.
+ * <br/>The local index is shared by the tasks, and holds the location and the object id of the features only.
+ * The features near the block are fetched by object id in the featureTable leased by the task : each task edits
+ * its own instances of the features, and sends them to the featureTable they belong to.
+ * <br/>The features created by the block are found by its next records, and indexed once their edits are applied
+ * on the server, with the object id given by the server.
+ * <br/><i>A locator is used by one thread, for one block of records.</i>
+ */
+class IndexedFeatureLocator implements ArcGISDataManager.FeatureLocator {
+
+	/**
+	 * Query of the features of the featureTable leased.
+	 */
+	@FunctionalInterface
+	interface Fetcher {
+
+		/**
+		 * @param objectIds
+		 *            the object ids of the features
+		 * @return the features found, with their geometry in the spatial reference of the block
+		 * @throws Exception
+		 *             if any problem occurs while querying the featureTable
+		 */
+		List<Feature> fetch(List<Long> objectIds) throws Exception;
+	}
+
+	/**
+	 * Feature created by the block, not yet indexed
+	 */
+	private static class Created {
+
+		private final Point point;
+
+		private final Feature feature;
+
+		private Created(final Point point, final Feature feature) {
+			this.point = point;
+			this.feature = feature;
+		}
+	}
+
+	private final FeatureIndexCache cache;
+
+	private final String spatialReference;
+
+	private final String objectIdField;
+
+	private final double radius;
+
+	private final PointGridIndex.PointDistance distance;
+
+	/**
+	 * Features fetched or created for the block
+	 */
+	private final PointGridIndex<Feature> index;
+
+	private final List<Created> created = new ArrayList<Created>();
+
+	/**
+	 * Construction, fetching the nearest feature of each point of the block.
+	 *
+	 * @param cache
+	 *            the local index, available for this spatial reference
+	 * @param spatialReference
+	 *            the spatial reference of the points, as declared in the settings
+	 * @param objectIdField
+	 *            the name of the object id field of the featureTable
+	 * @param points
+	 *            the points of the block
+	 * @param radius
+	 *            the radius of the search-circle around a point
+	 * @param distance
+	 *            the distance between two points
+	 * @param fetcher
+	 *            the query of the features in the featureTable leased
+	 * @throws Exception
+	 *             if any problem occurs while querying the featureTable
+	 */
+	IndexedFeatureLocator(final FeatureIndexCache cache, final String spatialReference, final String objectIdField,
+			final Point[] points, final double radius, final PointGridIndex.PointDistance distance,
+			final Fetcher fetcher) throws Exception {
+		this.cache = cache;
+		this.spatialReference = spatialReference;
+		this.objectIdField = objectIdField;
+		this.radius = radius;
+		this.distance = distance;
+		this.index = new PointGridIndex<Feature>(radius);
+
+		final Set<Long> objectIds = new LinkedHashSet<Long>();
+		for (Point point : points) {
+			final Long objectId = cache.nearest(spatialReference, point, radius, distance);
+			if (objectId != null) {
+				objectIds.add(objectId);
+			}
+		}
+		if (!objectIds.isEmpty()) {
+			for (Feature feature : fetcher.fetch(new ArrayList<Long>(objectIds))) {
+				final Point point = (Point) feature.getGeometry();
+				index.add(point.getX(), point.getY(), feature);
+			}
+		}
+	}
+
+	@Override
+	public Feature locate(final Point point) {
+		return index.nearest(point.getX(), point.getY(), radius, distance);
+	}
+
+	@Override
+	public void created(final Point point, final Feature feature) {
+		index.add(point.getX(), point.getY(), feature);
+		created.add(new Created(point, feature));
+	}
+
+	/**
+	 * Index the features created, with their object id.
+	 * <br/>If the object id of a feature is unknown, the local index is reloaded at its next refresh.
+	 */
+	@Override
+	public void applied() {
+		for (Created feature : created) {
+			final Object objectId = feature.feature.getAttributes().get(objectIdField);
+			if (!(objectId instanceof Number)) {
+				cache.invalidate();
+				break;
+			}
+			cache.add(spatialReference, feature.point, ((Number) objectId).longValue());
+		}
+		created.clear();
+	}
+}
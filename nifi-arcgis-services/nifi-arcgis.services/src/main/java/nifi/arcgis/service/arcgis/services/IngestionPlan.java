@@ -0,0 +1,457 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.OPERATION;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.OPERATION_UPDATE;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.OPERATION_UPDATE_OR_INSERT;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_REFERENCE;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_REFERENCE_WEBMERCATOR;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.SPATIAL_REFERENCE_WGS84;
+import static nifi.arcgis.service.arcgis.services.ArcGISLayerServiceAPI.UPDATE_FIELD_LIST;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+
+/**
+ * Ingestion plan of the records sent to a featureTable, compiled once for the fields of the records,
+ * the fields of the featureTable and the settings.
+ * <br/>The plan holds a typed converter for each field, the strategy building the point of a record,
+ * the resolved spatial reference and the resolved update operators :
+ * processing a record is then a walk through arrays indexed by the position of its fields, without any lookup
+ * in the fields of the featureTable or in the settings.
+ * <br/>A plan is immutable, and can be shared by concurrent blocks.
+ */
+class IngestionPlan {
+
+	/**
+	 * Converter of a textual value into the type of its field in the featureTable.
+	 */
+	@FunctionalInterface
+	interface ValueParser {
+		Object parse(String value) throws Exception;
+	}
+
+	/**
+	 * Reader of a column of a batch, in the type of its field in the featureTable.
+	 */
+	@FunctionalInterface
+	interface ColumnReader {
+		Object read(RecordBatch batch, int row, int column) throws Exception;
+	}
+
+	/**
+	 * Strategy building the point of a map-based record.
+	 */
+	@FunctionalInterface
+	interface PointBuilder {
+		Point create(Map<String, String> record) throws Exception;
+	}
+
+	/**
+	 * Names of the fields of the records, in their position
+	 */
+	private final String[] fieldNames;
+
+	/**
+	 * Type of each column, for a plan compiled on a batch ; <code>null</code> for map-based records
+	 */
+	private final ColumnType[] columnTypes;
+
+	/**
+	 * Settings the plan has been compiled with
+	 */
+	private final Object spatialReferenceName, operation, updateFieldList;
+
+	/**
+	 * Resolved spatial reference of the data, might be <code>null</code>
+	 */
+	final SpatialReference spatialReference;
+
+	/**
+	 * <code>true</code> if a record without feature to update is an error
+	 */
+	final boolean updateOnly;
+
+	/**
+	 * <code>true</code> if a record without feature to update is inserted
+	 */
+	final boolean insertMissing;
+
+	/**
+	 * Name of the field in the featureTable for each position, <code>null</code> if the field is not in the featureTable
+	 */
+	private final String[] attributeNames;
+
+	/**
+	 * Converter of each position, <code>null</code> if the field is not in the featureTable
+	 */
+	private final ValueParser[] parsers;
+
+	/**
+	 * Reader of each column of a batch, <code>null</code> if the field is not in the featureTable
+	 */
+	private final ColumnReader[] readers;
+
+	/**
+	 * Names of the fields to update, without their operator
+	 */
+	private final String[] updateNames;
+
+	/**
+	 * Operator of each field to update, its first character
+	 */
+	private final char[] operators;
+
+	/**
+	 * Position of each field to update, <code>-1</code> if the field is not received or not in the featureTable
+	 */
+	private final int[] updatePositions;
+
+	/**
+	 * Point strategy of the map-based records
+	 */
+	private final PointBuilder pointBuilder;
+
+	private IngestionPlan(final List<String> fieldNames, final ColumnType[] columnTypes,
+			final Map<String, ArcGISTableField> tableFields, final Map<String, Object> settings) throws Exception {
+
+		this.fieldNames = fieldNames.toArray(new String[fieldNames.size()]);
+		this.columnTypes = columnTypes;
+		this.spatialReferenceName = settings.get(SPATIAL_REFERENCE);
+		this.operation = settings.get(OPERATION);
+		this.updateFieldList = settings.get(UPDATE_FIELD_LIST);
+		this.spatialReference = spatialReference(settings);
+		this.updateOnly = OPERATION_UPDATE.equals(operation);
+		this.insertMissing = OPERATION_UPDATE_OR_INSERT.equals(operation);
+
+		final int count = this.fieldNames.length;
+		this.attributeNames = new String[count];
+		this.parsers = new ValueParser[count];
+		this.readers = new ColumnReader[count];
+		final Map<String, Integer> positions = new HashMap<String, Integer>();
+		for (int position = 0; position < count; position++) {
+			final ArcGISTableField field = tableFields.get(this.fieldNames[position]);
+			if (field == null) {
+				continue;
+			}
+			final ColumnType type = ArcGISDataManager.columnType(field.type);
+			if (type == null) {
+				throw new Exception("Not implemented yet for " + field.type);
+			}
+			attributeNames[position] = field.name;
+			parsers[position] = parser(type);
+			if (columnTypes != null) {
+				readers[position] = reader(type, columnTypes[position], parsers[position]);
+			}
+			positions.put(field.name, position);
+		}
+
+		@SuppressWarnings("unchecked")
+		final List<String> fieldsToUpdate = (List<String>) updateFieldList;
+		if (fieldsToUpdate == null) {
+			updateNames = null;
+			operators = null;
+			updatePositions = null;
+		} else {
+			updateNames = new String[fieldsToUpdate.size()];
+			operators = new char[updateNames.length];
+			updatePositions = new int[updateNames.length];
+			for (int i = 0; i < updateNames.length; i++) {
+				final String fieldToUpdateWithOperator = fieldsToUpdate.get(i);
+				operators[i] = fieldToUpdateWithOperator.charAt(0);
+				updateNames[i] = ("+-".indexOf(operators[i]) == -1) ? fieldToUpdateWithOperator
+						: fieldToUpdateWithOperator.substring(1);
+				updatePositions[i] = positions.getOrDefault(updateNames[i], -1);
+			}
+		}
+
+		this.pointBuilder = (columnTypes == null) ? pointBuilder(fieldNames, spatialReference) : null;
+	}
+
+	/**
+	 * Compile the plan of a column-oriented block of records.
+	 *
+	 * @param tableFields
+	 *            the fields of the featureTable
+	 * @param batch
+	 *            the block of records
+	 * @param settings
+	 *            current settings
+	 * @return the plan
+	 * @throws Exception
+	 *             if the type of a field is not handled, or if the spatial reference is invalid
+	 */
+	static IngestionPlan compile(final Map<String, ArcGISTableField> tableFields, final RecordBatch batch,
+			final Map<String, Object> settings) throws Exception {
+		return new IngestionPlan(batch.getFieldNames(), columnTypes(batch), tableFields, settings);
+	}
+
+	/**
+	 * Compile the plan of map-based records sharing the fields of a record.
+	 *
+	 * @param tableFields
+	 *            the fields of the featureTable
+	 * @param record
+	 *            a record of the block
+	 * @param settings
+	 *            current settings
+	 * @return the plan
+	 * @throws Exception
+	 *             if the type of a field is not handled, or if the spatial reference is invalid
+	 */
+	static IngestionPlan compile(final Map<String, ArcGISTableField> tableFields, final Map<String, String> record,
+			final Map<String, Object> settings) throws Exception {
+		return new IngestionPlan(new ArrayList<String>(record.keySet()), null, tableFields, settings);
+	}
+
+	/**
+	 * @return <code>true</code> if this plan has been compiled for the columns of this batch and these settings
+	 */
+	boolean matches(final RecordBatch batch, final Map<String, Object> settings) {
+		if ((columnTypes == null) || (columnTypes.length != batch.getColumnCount())) {
+			return false;
+		}
+		for (int column = 0; column < columnTypes.length; column++) {
+			if ((columnTypes[column] != batch.getColumnType(column))
+					|| !fieldNames[column].equals(batch.getFieldName(column))) {
+				return false;
+			}
+		}
+		return matches(settings);
+	}
+
+	/**
+	 * @return <code>true</code> if this plan has been compiled for the fields of this record and these settings
+	 */
+	boolean matches(final Map<String, String> record, final Map<String, Object> settings) {
+		if ((columnTypes != null) || (fieldNames.length != record.size())) {
+			return false;
+		}
+		for (String fieldName : fieldNames) {
+			if (!record.containsKey(fieldName)) {
+				return false;
+			}
+		}
+		return matches(settings);
+	}
+
+	private boolean matches(final Map<String, Object> settings) {
+		return Objects.equals(spatialReferenceName, settings.get(SPATIAL_REFERENCE))
+				&& Objects.equals(operation, settings.get(OPERATION))
+				&& Objects.equals(updateFieldList, settings.get(UPDATE_FIELD_LIST));
+	}
+
+	/**
+	 * Create the attributes of a feature with the fields of a record available in the featureTable.
+	 * <br/>A null value stays <code>null</code>.
+	 */
+	Map<String, Object> createAttributes(final Map<String, String> record) throws Exception {
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		for (int position = 0; position < fieldNames.length; position++) {
+			if (attributeNames[position] != null) {
+				final String value = record.get(fieldNames[position]);
+				attributes.put(attributeNames[position], (value == null) ? null : parsers[position].parse(value));
+			}
+		}
+		return attributes;
+	}
+
+	/**
+	 * Create the attributes of a feature with the columns of a batch available in the featureTable.
+	 */
+	Map<String, Object> createAttributes(final RecordBatch batch, final int row) throws Exception {
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		for (int column = 0; column < fieldNames.length; column++) {
+			if (attributeNames[column] != null) {
+				attributes.put(attributeNames[column], value(batch, row, column));
+			}
+		}
+		return attributes;
+	}
+
+	/**
+	 * @return the value of a column, in the type of its field in the featureTable
+	 */
+	private Object value(final RecordBatch batch, final int row, final int column) throws Exception {
+		return batch.isNull(row, column) ? null : readers[column].read(batch, row, column);
+	}
+
+	/**
+	 * Update the attributes of a feature with the fields to update of a record.
+	 *
+	 * @param attributes
+	 *            the attributes of the feature
+	 * @param record
+	 *            the record
+	 */
+	void update(final Map<String, Object> attributes, final Map<String, String> record) throws Exception {
+		checkUpdateFields();
+		for (int i = 0; i < updateNames.length; i++) {
+			final int position = updatePositions[i];
+			if (position == -1) {
+				continue;
+			}
+			final String value = record.get(fieldNames[position]);
+			if (value != null) {
+				update(attributes, i, parsers[position].parse(value));
+			}
+		}
+	}
+
+	/**
+	 * Update the attributes of a feature with the columns to update of a batch.
+	 *
+	 * @param attributes
+	 *            the attributes of the feature
+	 * @param batch
+	 *            the block of records
+	 * @param row
+	 *            the record in the block
+	 */
+	void update(final Map<String, Object> attributes, final RecordBatch batch, final int row) throws Exception {
+		checkUpdateFields();
+		for (int i = 0; i < updateNames.length; i++) {
+			final int column = updatePositions[i];
+			if ((column == -1) || batch.isNull(row, column)) {
+				continue;
+			}
+			update(attributes, i, readers[column].read(batch, row, column));
+		}
+	}
+
+	private void update(final Map<String, Object> attributes, final int i, final Object data) {
+		final Object dbData = attributes.get(updateNames[i]);
+		attributes.put(updateNames[i], (dbData != null) ? ArcGISDataManager.computeValue(operators[i], dbData, data) : data);
+	}
+
+	private void checkUpdateFields() throws Exception {
+		if (updateNames == null) {
+			throw new Exception("Settings object does not provide an update fields list (Key:UPDATE_FIELD_LIST)");
+		}
+	}
+
+	/**
+	 * Create the point of a map-based record.
+	 */
+	Point createPoint(final Map<String, String> record) throws Exception {
+		return pointBuilder.create(record);
+	}
+
+	/**
+	 * @return the types of the columns of a batch
+	 */
+	private static ColumnType[] columnTypes(final RecordBatch batch) {
+		final ColumnType[] types = new ColumnType[batch.getColumnCount()];
+		for (int column = 0; column < types.length; column++) {
+			types[column] = batch.getColumnType(column);
+		}
+		return types;
+	}
+
+	/**
+	 * @return the converter of a textual value into a type of field
+	 */
+	private static ValueParser parser(final ColumnType type) {
+		switch (type) {
+		case DOUBLE:
+			return Double::parseDouble;
+		case INTEGER:
+			return Integer::parseInt;
+		default:
+			return value -> value;
+		}
+	}
+
+	/**
+	 * @return the reader of a column, converting its values if the column is not stored in the type of its field
+	 */
+	private static ColumnReader reader(final ColumnType type, final ColumnType columnType, final ValueParser parser) {
+		if (type != columnType) {
+			return (batch, row, column) -> parser.parse(batch.getString(row, column));
+		}
+		switch (type) {
+		case DOUBLE:
+			return (batch, row, column) -> batch.getDouble(row, column);
+		case INTEGER:
+			return (batch, row, column) -> batch.getInt(row, column);
+		default:
+			return (batch, row, column) -> batch.getString(row, column);
+		}
+	}
+
+	/**
+	 * Choose the point strategy with the fields received : <code>x</code>, <code>y</code> and optionally
+	 * <code>z</code>, or else <code>latitude</code> and <code>longitude</code>.
+	 */
+	private static PointBuilder pointBuilder(final List<String> fieldNames, final SpatialReference spatialReference) {
+		final Set<String> fields = new HashSet<String>(fieldNames);
+		if (fields.contains("x") && fields.contains("y")) {
+			if (fields.contains("z")) {
+				return record -> {
+					final double x = coordinate(record, "x");
+					final double y = coordinate(record, "y");
+					final double z = coordinate(record, "z");
+					return (spatialReference == null) ? new Point(x, y, z) : new Point(x, y, z, spatialReference);
+				};
+			}
+			return record -> {
+				final double x = coordinate(record, "x");
+				final double y = coordinate(record, "y");
+				return (spatialReference == null) ? new Point(x, y) : new Point(x, y, spatialReference);
+			};
+		}
+		if (fields.contains("latitude") && fields.contains("longitude")) {
+			return record -> {
+				final double latitude = coordinate(record, "latitude");
+				final double longitude = coordinate(record, "longitude");
+				return (spatialReference == null) ? new Point(latitude, longitude)
+						: new Point(latitude, longitude, spatialReference);
+			};
+		}
+		return record -> {
+			throw new Exception("Cannot create a point based on the received data");
+		};
+	}
+
+	/**
+	 * @return the coordinate of a record
+	 * @throws Exception if the coordinate is null
+	 */
+	private static double coordinate(final Map<String, String> record, final String key) throws Exception {
+		final String value = record.get(key);
+		if (value == null) {
+			throw new Exception("key value is null " + key);
+		}
+		return Double.parseDouble(value);
+	}
+
+	/**
+	 * @param settings
+	 *            the actual data settings setup in the processor
+	 * @return the SpatialReference of the data
+	 */
+	static SpatialReference spatialReference(final Map<String, Object> settings) throws Exception {
+		if (!settings.containsKey(SPATIAL_REFERENCE)) {
+			return null;
+		}
+		final String refSpatialReference = (String) settings.get(SPATIAL_REFERENCE);
+		if (SPATIAL_REFERENCE_WGS84.equals(refSpatialReference)) {
+			return SpatialReferences.getWgs84();
+		}
+		if (SPATIAL_REFERENCE_WEBMERCATOR.equals(refSpatialReference)) {
+			return SpatialReferences.getWebMercator();
+		}
+		throw new Exception(refSpatialReference + " is an invalid SpatialReference !");
+	}
+}
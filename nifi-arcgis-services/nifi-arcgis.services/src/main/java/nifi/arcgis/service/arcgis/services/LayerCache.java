@@ -0,0 +1,207 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the layers loaded by a service, keyed by the path of the layer, such as its data manager
+ * with its featureTables and its fields.
+ * <br/>At most <code>maxLayers</code> layers are kept loaded : loading another one evicts the layer least recently
+ * used. A layer unused during the idle timeout is evicted with the next lookup.
+ * <br/>A layer is loaded once : the concurrent lookups of a layer wait for its load, and a failed load is not cached,
+ * so it is retried by the next lookup.
+ * <br/><i>The cache is safe for concurrent tasks : the layers are loaded outside the lock of the cache, so the loads
+ * of different layers run in parallel.</i>
+ *
+ * @param <V> type of layer loaded
+ */
+public class LayerCache<V> {
+
+	/**
+	 * Loader of the layers.
+	 */
+	@FunctionalInterface
+	public interface Loader<V> {
+
+		/**
+		 * @param path
+		 *            the path of the layer
+		 * @return the layer loaded
+		 * @throws Exception
+		 *             if the layer cannot be loaded
+		 */
+		V load(String path) throws Exception;
+	}
+
+	/**
+	 * Layer cached for a path.
+	 */
+	private static class Entry<V> {
+
+		/**
+		 * The layer, <code>null</code> until loaded
+		 */
+		volatile V layer;
+
+		/**
+		 * Time of the last lookup, in milliseconds
+		 */
+		long usedAt;
+
+		/**
+		 * <code>true</code> once removed from the cache
+		 */
+		boolean evicted;
+	}
+
+	/**
+	 * Loader of the layers
+	 */
+	private final Loader<V> loader;
+
+	/**
+	 * Consumer of the layers evicted, in charge of releasing them
+	 */
+	private final Consumer<V> evictor;
+
+	/**
+	 * Maximum number of layers kept loaded
+	 */
+	private final int maxLayers;
+
+	/**
+	 * Delay after which an unused layer is evicted, in milliseconds
+	 */
+	private final long idleTimeout;
+
+	/**
+	 * Clock, in milliseconds
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Layers cached, from the least to the most recently used
+	 */
+	private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true);
+
+	/**
+	 * Construction.
+	 * @param loader loader of the layers
+	 * @param evictor consumer of the layers evicted
+	 * @param maxLayers maximum number of layers kept loaded
+	 * @param idleTimeout delay after which an unused layer is evicted, in milliseconds
+	 * @param clock clock, in milliseconds
+	 */
+	public LayerCache(final Loader<V> loader, final Consumer<V> evictor, final int maxLayers, final long idleTimeout,
+			final LongSupplier clock) {
+		if (maxLayers <= 0) {
+			throw new IllegalArgumentException("The maximum number of layers must be positive : " + maxLayers);
+		}
+		this.loader = loader;
+		this.evictor = evictor;
+		this.maxLayers = maxLayers;
+		this.idleTimeout = idleTimeout;
+		this.clock = clock;
+	}
+
+	/**
+	 * Get a layer, from the cache or loaded.
+	 *
+	 * @param path
+	 *            the path of the layer
+	 * @return the layer
+	 * @throws Exception
+	 *             if the layer cannot be loaded
+	 */
+	public V get(final String path) throws Exception {
+		final List<V> evicted = new ArrayList<V>();
+		final Entry<V> entry;
+		synchronized (entries) {
+			final long now = clock.getAsLong();
+			final Iterator<Entry<V>> eldest = entries.values().iterator();
+			while (eldest.hasNext()) {
+				final Entry<V> idle = eldest.next();
+				if (now - idle.usedAt < idleTimeout) {
+					break;
+				}
+				eldest.remove();
+				idle.evicted = true;
+				evicted.add(idle.layer);
+			}
+			Entry<V> cached = entries.get(path);
+			if (cached == null) {
+				cached = new Entry<V>();
+				entries.put(path, cached);
+				final Iterator<Entry<V>> lru = entries.values().iterator();
+				while (entries.size() > maxLayers) {
+					final Entry<V> leastUsed = lru.next();
+					lru.remove();
+					leastUsed.evicted = true;
+					evicted.add(leastUsed.layer);
+				}
+			}
+			cached.usedAt = now;
+			entry = cached;
+		}
+		evicted.stream().filter(layer -> layer != null).forEach(evictor);
+
+		V layer = entry.layer;
+		if (layer != null) {
+			return layer;
+		}
+		synchronized (entry) {
+			layer = entry.layer;
+			if (layer == null) {
+				try {
+					layer = loader.load(path);
+				} catch (final Exception | Error e) {
+					synchronized (entries) {
+						entries.remove(path, entry);
+					}
+					throw e;
+				}
+				final boolean orphan;
+				synchronized (entries) {
+					entry.layer = layer;
+					orphan = entry.evicted;
+				}
+				if (orphan) {
+					// Evicted while loading : the layer serves this lookup only
+					evictor.accept(layer);
+				}
+			}
+			return layer;
+		}
+	}
+
+	/**
+	 * Evict all the layers loaded.
+	 */
+	public void clear() {
+		final List<V> evicted = new ArrayList<V>();
+		synchronized (entries) {
+			for (final Entry<V> entry : entries.values()) {
+				entry.evicted = true;
+				evicted.add(entry.layer);
+			}
+			entries.clear();
+		}
+		evicted.stream().filter(layer -> layer != null).forEach(evictor);
+	}
+
+	/**
+	 * @return the number of layers cached
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+}
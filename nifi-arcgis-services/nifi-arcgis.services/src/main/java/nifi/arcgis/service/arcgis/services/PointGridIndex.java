@@ -0,0 +1,164 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory spatial index of points, hashed into a regular grid.
+ * <br/>The search of the nearest item around a point only scans the cells covering the search radius.
+ * <br/><i>This class is not thread-safe.</i>
+ *
+ * @param <T> type of item indexed
+ */
+public class PointGridIndex<T> {
+
+	/**
+	 * Distance between two points, used to rank the candidates of a search.
+	 */
+	@FunctionalInterface
+	public interface PointDistance {
+		double distance(double x1, double y1, double x2, double y2);
+	}
+
+	/**
+	 * Item indexed with its coordinates
+	 */
+	private static class Entry<T> {
+		final double x, y;
+		final T item;
+
+		Entry(final double x, final double y, final T item) {
+			this.x = x;
+			this.y = y;
+			this.item = item;
+		}
+	}
+
+	/**
+	 * Size of a cell, in the unit of the coordinates
+	 */
+	private final double cellSize;
+
+	/**
+	 * Entries of each non-empty cell
+	 */
+	private final Map<Long, List<Entry<T>>> cells = new HashMap<Long, List<Entry<T>>>();
+
+	/**
+	 * Number of items indexed
+	 */
+	private int size = 0;
+
+	/**
+	 * Construction.
+	 * @param cellSize size of a cell, in the unit of the coordinates. The search radius is a good candidate.
+	 */
+	public PointGridIndex(final double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size must be positive : " + cellSize);
+		}
+		this.cellSize = cellSize;
+	}
+
+	private long cell(final double coordinate) {
+		return (long) Math.floor(coordinate / cellSize);
+	}
+
+	private static Long key(final long cx, final long cy) {
+		return (cx << 32) ^ (cy & 0xffffffffL);
+	}
+
+	/**
+	 * Index an item.
+	 * @param x first coordinate of the item
+	 * @param y second coordinate of the item
+	 * @param item the item
+	 */
+	public void add(final double x, final double y, final T item) {
+		cells.computeIfAbsent(key(cell(x), cell(y)), k -> new ArrayList<Entry<T>>()).add(new Entry<T>(x, y, item));
+		size++;
+	}
+
+	/**
+	 * Remove an item from the index.
+	 * @param x first coordinate of the item, as indexed
+	 * @param y second coordinate of the item, as indexed
+	 * @param item the item
+	 * @return <code>true</code> if the item was indexed at these coordinates
+	 */
+	public boolean remove(final double x, final double y, final T item) {
+		final Long key = key(cell(x), cell(y));
+		final List<Entry<T>> entries = cells.get(key);
+		if (entries == null) {
+			return false;
+		}
+		for (Iterator<Entry<T>> iterator = entries.iterator(); iterator.hasNext();) {
+			if (iterator.next().item.equals(item)) {
+				iterator.remove();
+				size--;
+				if (entries.isEmpty()) {
+					cells.remove(key);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Search the nearest item within a radius.
+	 * @param x first coordinate of the center of the search
+	 * @param y second coordinate of the center of the search
+	 * @param radius the radius of the search, in the unit of the coordinates
+	 * @param distance the distance ranking the items found inside the radius
+	 * @return the nearest item, or <code>null</code> if no item is inside the radius
+	 */
+	public T nearest(final double x, final double y, final double radius, final PointDistance distance) {
+		final double radius2 = radius * radius;
+		final long xMin = cell(x - radius), xMax = cell(x + radius);
+		final long yMin = cell(y - radius), yMax = cell(y + radius);
+		T nearest = null;
+		double closest = Double.MAX_VALUE;
+		for (long cx = xMin; cx <= xMax; cx++) {
+			for (long cy = yMin; cy <= yMax; cy++) {
+				final List<Entry<T>> entries = cells.get(key(cx, cy));
+				if (entries == null) {
+					continue;
+				}
+				for (Entry<T> entry : entries) {
+					final double dx = entry.x - x, dy = entry.y - y;
+					if (dx * dx + dy * dy > radius2) {
+						continue;
+					}
+					final double d = distance.distance(x, y, entry.x, entry.y);
+					if (d < closest) {
+						closest = d;
+						nearest = entry.item;
+					}
+				}
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 * @return the number of items indexed
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all the items.
+	 */
+	public void clear() {
+		cells.clear();
+		size = 0;
+	}
+}
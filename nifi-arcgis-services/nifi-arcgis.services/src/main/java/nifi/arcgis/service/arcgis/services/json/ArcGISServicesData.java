@@ -5,12 +5,7 @@ package nifi.arcgis.service.arcgis.services.json;
 
 import static  nifi.arcgis.service.arcgis.services.json.NetworkUtility.isReachable;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -35,42 +30,47 @@ public class ArcGISServicesData {
 	 */
 	private final ComponentLog logger;
 
+	/**
+	 * Default time-to-live of the metadata cached, in milliseconds
+	 */
+	public final static long DEFAULT_METADATA_TTL = 60000;
+
+	/**
+	 * Cache of the REST responses
+	 */
+	private final MetadataCache cache;
+
+	/**
+	 * Time-to-live of the REST responses cached, in milliseconds
+	 */
+	private final long ttl;
+
 	public ArcGISServicesData (ComponentLog logger) {
+		this(logger, MetadataCache.shared(), DEFAULT_METADATA_TTL);
+	}
+
+	/**
+	 * Construction.
+	 * @param logger Apache NIFI logger
+	 * @param cache cache of the REST responses
+	 * @param ttl time-to-live of the REST responses cached, in milliseconds
+	 */
+	public ArcGISServicesData (final ComponentLog logger, final MetadataCache cache, final long ttl) {
 		this.logger = logger;
+		this.cache = cache;
+		this.ttl = ttl;
 	}
 	
 	private String restCall(final String address) throws Exception {
 
 		logger.debug("Calling " + address);
 		
-		final StringBuilder sb = new StringBuilder();
 		try {
-
-			URL url = new URL(address);
-			HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-			conn.setRequestMethod("GET");
-			conn.setRequestProperty("Accept", "application/json");
-
-			if (conn.getResponseCode() != 200) {
-				throw new RuntimeException("Failed : HTTP error code : " + conn.getResponseCode());
-			}
-
-			BufferedReader br = new BufferedReader(new InputStreamReader((conn.getInputStream())));
-
-			String output;
-			while ((output = br.readLine()) != null) {
-				sb.append(output);
-			}
-			conn.disconnect();
-
-		} catch (MalformedURLException e) {
-			logger.error(Arrays.toString(e.getStackTrace()));
-			throw e;
+			return cache.get(address, ttl);
 		} catch (IOException e) {
 			logger.error(Arrays.toString(e.getStackTrace()));
 			throw e;
 		} 
-		return sb.toString();			
 	}
 
 	/**
@@ -106,7 +106,7 @@ public class ArcGISServicesData {
 	 */
 	public Set<String> retrieveFeatureServer(final String address) throws Exception {
 
-		if (!isReachable(address)) {
+		if (!cache.isFresh(address, ttl) && !isReachable(address)) {
 			throw new Exception(address + " is actually unrechable!");
 		}
 		
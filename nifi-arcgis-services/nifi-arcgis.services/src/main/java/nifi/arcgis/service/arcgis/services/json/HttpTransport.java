@@ -0,0 +1,226 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP transport shared by the REST calls sent to the ArcGIS servers.
+ * <br/>Each request has explicit connect and read timeouts, so a hung server cannot block a NiFi thread
+ * indefinitely. The responses may be compressed with gzip, and are decoded while they are read.
+ * <br/>The connections are kept alive and pooled by the JDK, per host, up to <code>http.maxConnections</code>
+ * connections. A connection only returns to the pool once its response has been entirely read and closed :
+ * the transport drains and closes every response, and disconnects the connections that failed.
+ * <br/><i>A transport is immutable, and may be shared by several threads.</i>
+ */
+public class HttpTransport {
+
+	/**
+	 * Handler of a response, reading its body while it is received.
+	 *
+	 * @param <T> type of the result
+	 */
+	@FunctionalInterface
+	public interface ResponseHandler<T> {
+
+		/**
+		 * @param status
+		 *            HTTP status code
+		 * @param connection
+		 *            the connection, to read the response headers
+		 * @param body
+		 *            the decoded body of the response, empty if none. It is closed by the transport.
+		 * @return the result of the response
+		 * @throws IOException
+		 *             if the body cannot be read
+		 */
+		T handle(int status, HttpURLConnection connection, InputStream body) throws IOException;
+	}
+
+	/**
+	 * Default maximum time to establish a connection, in milliseconds
+	 */
+	public final static int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+	/**
+	 * Default maximum time to wait for data on an established connection, in milliseconds
+	 */
+	public final static int DEFAULT_READ_TIMEOUT = 30000;
+
+	/**
+	 * The transport shared by the services
+	 */
+	private final static HttpTransport SHARED = new HttpTransport(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+
+	/**
+	 * Size of the buffers
+	 */
+	private final static int BUFFER_SIZE = 8192;
+
+	/**
+	 * Maximum time to establish a connection, in milliseconds
+	 */
+	private final int connectTimeout;
+
+	/**
+	 * Maximum time to wait for data on an established connection, in milliseconds
+	 */
+	private final int readTimeout;
+
+	/**
+	 * Construction.
+	 * @param connectTimeout maximum time to establish a connection, in milliseconds
+	 * @param readTimeout maximum time to wait for data on an established connection, in milliseconds
+	 */
+	public HttpTransport(final int connectTimeout, final int readTimeout) {
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * @return the transport shared by the services
+	 */
+	public static HttpTransport shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Send a <code>GET</code> request.
+	 *
+	 * @param address
+	 *            the URL
+	 * @param headers
+	 *            the request headers
+	 * @param handler
+	 *            the handler of the response
+	 * @return the result of the handler
+	 * @throws IOException
+	 *             if the server cannot be reached, or does not answer within the timeouts
+	 */
+	public <T> T get(final String address, final Map<String, String> headers, final ResponseHandler<T> handler)
+			throws IOException {
+		return execute("GET", address, headers, handler);
+	}
+
+	/**
+	 * Send a <code>HEAD</code> request.
+	 *
+	 * @param address
+	 *            the URL
+	 * @return the HTTP status code
+	 * @throws IOException
+	 *             if the server cannot be reached, or does not answer within the timeouts
+	 */
+	public int head(final String address) throws IOException {
+		return execute("HEAD", address, Collections.<String, String> emptyMap(), (status, connection, body) -> status);
+	}
+
+	/**
+	 * Send a request, and hand its response over to a handler.
+	 */
+	private <T> T execute(final String method, final String address, final Map<String, String> headers,
+			final ResponseHandler<T> handler) throws IOException {
+
+		final HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setRequestMethod(method);
+		connection.setRequestProperty("Accept-Encoding", "gzip");
+		headers.forEach(connection::setRequestProperty);
+
+		InputStream raw = null;
+		try {
+			final int status = connection.getResponseCode();
+			raw = (status >= HttpURLConnection.HTTP_BAD_REQUEST) ? connection.getErrorStream()
+					: connection.getInputStream();
+			if (raw == null) {
+				return handler.handle(status, connection, new ByteArrayInputStream(new byte[0]));
+			}
+			final InputStream body = ("gzip".equalsIgnoreCase(connection.getContentEncoding())
+					&& !"HEAD".equals(method) && (status != HttpURLConnection.HTTP_NOT_MODIFIED))
+							? new GZIPInputStream(raw, BUFFER_SIZE) : raw;
+			final T result = handler.handle(status, connection, body);
+			// The connection is reused only if its response has been entirely read
+			drain(body);
+			drain(raw);
+			body.close();
+			return result;
+		} catch (final IOException | RuntimeException e) {
+			if (raw != null) {
+				try {
+					raw.close();
+				} catch (final IOException ignored) {
+					// The connection is disconnected anyway
+				}
+			}
+			connection.disconnect();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read the remaining bytes of a stream.
+	 */
+	private static void drain(final InputStream inputStream) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		while (inputStream.read(buffer) != -1) {
+			// skip
+		}
+	}
+
+	/**
+	 * Read the entire body of a response as a string.
+	 *
+	 * @param connection
+	 *            the connection, declaring the charset and the length of the body
+	 * @param body
+	 *            the decoded body
+	 * @return the body
+	 * @throws IOException
+	 *             if the body cannot be read
+	 */
+	public static String readBody(final HttpURLConnection connection, final InputStream body) throws IOException {
+		final int length = connection.getContentLength();
+		final StringBuilder sb = new StringBuilder((length > 0) ? length : BUFFER_SIZE);
+		final Reader reader = new InputStreamReader(body, charset(connection.getContentType()));
+		final char[] buffer = new char[BUFFER_SIZE];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			sb.append(buffer, 0, read);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param contentType
+	 *            the header <code>Content-Type</code>, such as <code>application/json; charset=ISO-8859-1</code>
+	 * @return the charset declared, <code>UTF-8</code> by default
+	 */
+	static Charset charset(final String contentType) {
+		if (contentType != null) {
+			for (String parameter : contentType.split(";")) {
+				final String[] keyValue = parameter.trim().split("=", 2);
+				if ((keyValue.length == 2) && "charset".equalsIgnoreCase(keyValue[0])) {
+					try {
+						return Charset.forName(keyValue[1].replace("\"", "").trim());
+					} catch (final IllegalArgumentException e) {
+						return StandardCharsets.UTF_8;
+					}
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+}
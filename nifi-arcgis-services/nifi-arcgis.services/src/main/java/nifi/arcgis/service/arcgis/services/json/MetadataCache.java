@@ -0,0 +1,261 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services.json;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache of the JSON metadata published by the REST directory of ArcGIS servers, keyed by REST URL.
+ * <br/>An entry is served without any request during its time-to-live. Once expired, it is revalidated with a
+ * conditional request (<code>If-None-Match</code>, <code>If-Modified-Since</code>) : a <code>304</code> response
+ * keeps the body cached.
+ * <br/>Concurrent lookups of the same URL share a single request.
+ * <br/><i>The cache is shared by all the services of the JVM, so the services validated against the same server
+ * reuse the same responses.</i>
+ */
+public class MetadataCache {
+
+	/**
+	 * Response of the server.
+	 */
+	public static class Response {
+
+		/**
+		 * HTTP status code
+		 */
+		final int status;
+
+		/**
+		 * Body of the response, <code>null</code> if not modified
+		 */
+		final String body;
+
+		/**
+		 * Header <code>ETag</code>, <code>null</code> if absent
+		 */
+		final String etag;
+
+		/**
+		 * Header <code>Last-Modified</code>, <code>null</code> if absent
+		 */
+		final String lastModified;
+
+		public Response(final int status, final String body, final String etag, final String lastModified) {
+			this.status = status;
+			this.body = body;
+			this.etag = etag;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 * Fetcher of a REST URL.
+	 */
+	@FunctionalInterface
+	public interface Fetcher {
+
+		/**
+		 * @param address
+		 *            the REST URL
+		 * @param etag
+		 *            the <code>ETag</code> of the cached response, <code>null</code> if none
+		 * @param lastModified
+		 *            the <code>Last-Modified</code> date of the cached response, <code>null</code> if none
+		 * @return the response of the server
+		 * @throws IOException
+		 *             if the server cannot be reached
+		 */
+		Response fetch(String address, String etag, String lastModified) throws IOException;
+	}
+
+	/**
+	 * Response cached for a URL.
+	 */
+	private static class Entry {
+
+		final String body;
+
+		final String etag;
+
+		final String lastModified;
+
+		/**
+		 * Time of the last validation by the server, in milliseconds
+		 */
+		volatile long validatedAt;
+
+		Entry(final String body, final String etag, final String lastModified, final long validatedAt) {
+			this.body = body;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.validatedAt = validatedAt;
+		}
+	}
+
+	/**
+	 * The cache shared by the services
+	 */
+	private final static MetadataCache SHARED = new MetadataCache(MetadataCache::httpFetch, System::currentTimeMillis);
+
+	/**
+	 * Fetcher of the URLs
+	 */
+	private final Fetcher fetcher;
+
+	/**
+	 * Clock, in milliseconds
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Responses cached
+	 */
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Requests in progress
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<String, CompletableFuture<String>>();
+
+	/**
+	 * Construction.
+	 * @param fetcher fetcher of the URLs
+	 * @param clock clock, in milliseconds
+	 */
+	public MetadataCache(final Fetcher fetcher, final LongSupplier clock) {
+		this.fetcher = fetcher;
+		this.clock = clock;
+	}
+
+	/**
+	 * @return the cache shared by the services
+	 */
+	public static MetadataCache shared() {
+		return SHARED;
+	}
+
+	/**
+	 * @param address
+	 *            the REST URL
+	 * @param ttl
+	 *            time-to-live of the cached response, in milliseconds
+	 * @return <code>true</code> if the response of this URL is cached and still alive
+	 */
+	public boolean isFresh(final String address, final long ttl) {
+		final Entry entry = entries.get(address);
+		return (entry != null) && (clock.getAsLong() - entry.validatedAt < ttl);
+	}
+
+	/**
+	 * Get the body of a REST URL, from the cache if the response is still alive, or from the server otherwise.
+	 *
+	 * @param address
+	 *            the REST URL
+	 * @param ttl
+	 *            time-to-live of the cached response, in milliseconds
+	 * @return the body of the response
+	 * @throws IOException
+	 *             if the server cannot be reached, or does not answer <code>200</code>
+	 */
+	public String get(final String address, final long ttl) throws IOException {
+		if (isFresh(address, ttl)) {
+			return entries.get(address).body;
+		}
+		final CompletableFuture<String> request = new CompletableFuture<String>();
+		final CompletableFuture<String> running = inFlight.putIfAbsent(address, request);
+		if (running != null) {
+			return await(running);
+		}
+		try {
+			// The response may have been refreshed by a request completed in the meantime
+			final String body = isFresh(address, ttl) ? entries.get(address).body : revalidate(address);
+			request.complete(body);
+			return body;
+		} catch (final IOException | RuntimeException | Error e) {
+			// The threads waiting for this request are released whatever the failure
+			request.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(address, request);
+		}
+	}
+
+	/**
+	 * Remove all the responses cached.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Request the server, conditionally if a response is already cached.
+	 */
+	private String revalidate(final String address) throws IOException {
+		final Entry previous = entries.get(address);
+		final Response response = (previous == null) ? fetcher.fetch(address, null, null)
+				: fetcher.fetch(address, previous.etag, previous.lastModified);
+		if ((response.status == HttpURLConnection.HTTP_NOT_MODIFIED) && (previous != null)) {
+			previous.validatedAt = clock.getAsLong();
+			return previous.body;
+		}
+		if (response.status != HttpURLConnection.HTTP_OK) {
+			throw new IOException("Failed : HTTP error code : " + response.status + " for " + address);
+		}
+		entries.put(address, new Entry(response.body, response.etag, response.lastModified, clock.getAsLong()));
+		return response.body;
+	}
+
+	/**
+	 * Wait for the request of another thread.
+	 */
+	private static String await(final CompletableFuture<String> request) throws IOException {
+		try {
+			return request.get();
+		} catch (final InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a metadata request");
+		} catch (final ExecutionException ee) {
+			if (ee.getCause() instanceof IOException) {
+				throw (IOException) ee.getCause();
+			}
+			if (ee.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ee.getCause();
+			}
+			if (ee.getCause() instanceof Error) {
+				throw (Error) ee.getCause();
+			}
+			throw new IOException(ee.getCause());
+		}
+	}
+
+	/**
+	 * Fetch a URL with a <code>GET</code> request of the shared {@link HttpTransport}.
+	 */
+	private static Response httpFetch(final String address, final String etag, final String lastModified)
+			throws IOException {
+		final Map<String, String> headers = new HashMap<String, String>();
+		headers.put("Accept", "application/json");
+		if (etag != null) {
+			headers.put("If-None-Match", etag);
+		}
+		if (lastModified != null) {
+			headers.put("If-Modified-Since", lastModified);
+		}
+		return HttpTransport.shared().get(address, headers, (status, connection, body) -> {
+			if (status != HttpURLConnection.HTTP_OK) {
+				return new Response(status, null, null, null);
+			}
+			return new Response(status, HttpTransport.readBody(connection, body), connection.getHeaderField("ETag"),
+					connection.getHeaderField("Last-Modified"));
+		});
+	}
+}
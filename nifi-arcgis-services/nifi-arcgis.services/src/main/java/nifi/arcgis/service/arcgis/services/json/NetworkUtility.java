@@ -2,22 +2,21 @@ package nifi.arcgis.service.arcgis.services.json;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.UnknownHostException;
 
 public class NetworkUtility {
-	
+
+	/**
+	 * Probe a URL with a <code>HEAD</code> request of the shared {@link HttpTransport}.
+	 * @param targetUrl the URL
+	 * @return <code>true</code> if the server answers <code>200</code>
+	 * @throws IOException if the server cannot be reached, or does not answer within the timeouts
+	 */
 	public static boolean isReachable(String targetUrl) throws IOException
 	{
-	    HttpURLConnection httpUrlConnection = (HttpURLConnection) new URL(
-	            targetUrl).openConnection();
-	    httpUrlConnection.setRequestMethod("HEAD");
-
 	    try
 	    {
-	        int responseCode = httpUrlConnection.getResponseCode();
-
-	        return responseCode == HttpURLConnection.HTTP_OK;
+	        return HttpTransport.shared().head(targetUrl) == HttpURLConnection.HTTP_OK;
 	    } catch (UnknownHostException noInternetConnection)
 	    {
 	        return false;
@@ -0,0 +1,96 @@
+/**
+ * 
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.esri.arcgisruntime.ArcGISRuntimeException;
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.loadable.Loadable;
+
+/**
+ * Testing the adapters of the ArcGIS asynchronous API.
+ */
+public class ArcGISFuturesTest {
+
+	/**
+	 * ListenableFuture completed by the test.
+	 */
+	static class SettableFuture<V> extends CompletableFuture<V> implements ListenableFuture<V> {
+		@Override
+		public void addDoneListener(Runnable r) {
+			whenComplete((v, t) -> r.run());
+		}
+		@Override
+		public boolean removeDoneListener(Runnable r) {
+			return false;
+		}
+	}
+
+	/**
+	 * Loadable resource loaded by the test.
+	 */
+	static class SettableLoadable implements Loadable {
+		LoadStatus status = LoadStatus.NOT_LOADED;
+		final List<Runnable> listeners = new ArrayList<Runnable>();
+		void loaded(LoadStatus status) {
+			this.status = status;
+			listeners.forEach(Runnable::run);
+		}
+		public LoadStatus getLoadStatus() { return status; }
+		public ArcGISRuntimeException getLoadError() { return null; }
+		public void loadAsync() { status = LoadStatus.LOADING; }
+		public void retryLoadAsync() { }
+		public void cancelLoad() { }
+		public void addDoneLoadingListener(Runnable r) { listeners.add(r); }
+		public boolean removeDoneLoadingListener(Runnable r) { return listeners.remove(r); }
+	}
+
+	@Test
+	public void testCompletedByTheListener() throws Exception {
+		final SettableFuture<String> future = new SettableFuture<String>();
+		new Thread(() -> future.complete("done")).start();
+		final long start = System.nanoTime();
+		assertEquals("done", ArcGISFutures.await(ArcGISFutures.toCompletable(future), 5000));
+		// No polling interval
+		assertTrue((System.nanoTime() - start) / 1000000 < 1000);
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		final SettableFuture<String> future = new SettableFuture<String>();
+		final CompletableFuture<String> completable = ArcGISFutures.toCompletable(future);
+		future.completeExceptionally(new IllegalStateException("server error"));
+		try {
+			ArcGISFutures.await(completable, 5000);
+			fail("IllegalStateException expected");
+		} catch (final IllegalStateException ise) {
+			assertEquals("server error", ise.getMessage());
+		}
+	}
+
+	@Test(expected = TimeoutException.class)
+	public void testTimeout() throws Exception {
+		ArcGISFutures.await(ArcGISFutures.toCompletable(new SettableFuture<String>()), 50);
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		final SettableLoadable loadable = new SettableLoadable();
+		final CompletableFuture<LoadStatus> completable = ArcGISFutures.load(loadable);
+		assertEquals(LoadStatus.LOADING, loadable.getLoadStatus());
+		loadable.loaded(LoadStatus.FAILED_TO_LOAD);
+		assertEquals(LoadStatus.FAILED_TO_LOAD, ArcGISFutures.await(completable, 50));
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
+
+/**
+ * Testing the bulk editions of {@link EditBuffer}.
+ */
+public class EditBufferTest {
+
+	/**
+	 * Feature holding its attributes only
+	 */
+	private static class TestFeature implements Feature {
+		private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+		TestFeature(final String name) {
+			attributes.put("name", name);
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public Geometry getGeometry() {
+			return null;
+		}
+
+		@Override
+		public void setGeometry(final Geometry geometry) {
+		}
+
+		@Override
+		public FeatureTable getFeatureTable() {
+			return null;
+		}
+	}
+
+	/**
+	 * Sink recording the calls
+	 */
+	private final List<String> calls = new ArrayList<String>();
+
+	private final EditBuffer.Sink sink = new EditBuffer.Sink() {
+		@Override
+		public void add(final List<Feature> features) {
+			calls.add("add " + features.size());
+		}
+
+		@Override
+		public void update(final List<Feature> features) {
+			calls.add("update " + features.size());
+		}
+
+		@Override
+		public void apply() {
+			calls.add("apply");
+		}
+	};
+
+	@Test
+	public void testFlushOnEditCount() throws Exception {
+		EditBuffer edits = new EditBuffer(3, Long.MAX_VALUE, sink);
+		edits.add(new TestFeature("a"));
+		edits.update(new TestFeature("b"));
+		assertEquals(0, calls.size());
+		edits.update(new TestFeature("c"));
+		assertEquals("[add 1, update 2, apply]", calls.toString());
+		assertEquals(0, edits.size());
+
+		edits.update(new TestFeature("d"));
+		edits.flush();
+		assertEquals("[add 1, update 2, apply, update 1, apply]", calls.toString());
+		assertEquals(2, edits.getFlushes());
+		// Nothing to send
+		edits.flush();
+		assertEquals(2, edits.getFlushes());
+	}
+
+	@Test
+	public void testFlushOnSize() throws Exception {
+		final Feature feature = new TestFeature("abcd");
+		final long size = EditBuffer.estimateSize(feature);
+		assertEquals(EditBuffer.FEATURE_OVERHEAD + EditBuffer.ATTRIBUTE_OVERHEAD + 2 * 4 + 2 * 4, size);
+
+		EditBuffer edits = new EditBuffer(1000, 2 * size, sink);
+		edits.update(feature);
+		assertEquals(0, calls.size());
+		edits.update(new TestFeature("efgh"));
+		assertEquals("[update 2, apply]", calls.toString());
+	}
+
+	@Test
+	public void testFeatureBufferedOnce() throws Exception {
+		EditBuffer edits = new EditBuffer(1000, Long.MAX_VALUE, sink);
+		final Feature created = new TestFeature("created");
+		final Feature existing = new TestFeature("existing");
+		edits.add(created);
+		// A new feature updated before the flush is sent with the additions
+		edits.update(created);
+		edits.update(existing);
+		edits.update(existing);
+		assertEquals(2, edits.size());
+		edits.flush();
+		assertEquals("[add 1, update 1, apply]", calls.toString());
+
+		// Once sent, a new feature is updated as any other feature
+		edits.update(created);
+		edits.flush();
+		assertEquals("[add 1, update 1, apply, update 1, apply]", calls.toString());
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esri.arcgisruntime.geometry.Point;
+
+/**
+ * Testing the refresh policy of the local index {@link FeatureIndexCache}.
+ */
+public class FeatureIndexCacheTest {
+
+	private final static PointGridIndex.PointDistance EUCLIDEAN = (x1, y1, x2, y2) -> Math.hypot(x2 - x1, y2 - y1);
+
+	private final AtomicLong clock = new AtomicLong(0);
+
+	private final AtomicInteger loads = new AtomicInteger(0);
+
+	/**
+	 * Number of features in the simulated featureTable
+	 */
+	private int featuresInTable = 3;
+
+	private FeatureIndexCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new FeatureIndexCache((index, spatialReference, maxFeatures) -> {
+			loads.incrementAndGet();
+			for (int i = 0; i < featuresInTable; i++) {
+				if (i >= maxFeatures) {
+					return false;
+				}
+				index.add(i, i, (long) i);
+			}
+			return true;
+		}, 10, 1000, 5, clock::get);
+	}
+
+	@Test
+	public void testTimeToLive() throws Exception {
+		assertTrue(cache.refresh("Wgs84"));
+		assertEquals(3, cache.size());
+		clock.set(999);
+		assertTrue(cache.refresh("Wgs84"));
+		assertEquals(1, loads.get());
+		clock.set(1000);
+		assertTrue(cache.refresh("Wgs84"));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testSpatialReferences() throws Exception {
+		assertTrue(cache.refresh("Wgs84"));
+		assertTrue(cache.refresh("WebMercator"));
+		assertTrue(cache.refresh(null));
+		assertEquals(3, loads.get());
+		// Each spatial reference keeps its own index, instead of reloading the other ones
+		assertTrue(cache.refresh("Wgs84"));
+		assertTrue(cache.refresh("WebMercator"));
+		assertEquals(3, loads.get());
+		assertEquals(9, cache.size());
+		assertEquals(Long.valueOf(1), cache.nearest("WebMercator", new Point(1.2, 1.2), 1, EUCLIDEAN));
+		assertNull(cache.nearest("Mars", new Point(1, 1), 1, EUCLIDEAN));
+
+		// A feature expressed in one spatial reference cannot be indexed in the other ones
+		cache.add("Wgs84", new Point(3, 3), 3);
+		assertEquals(4, cache.size());
+		assertTrue(cache.refresh("Wgs84"));
+		assertEquals(3, loads.get());
+		assertTrue(cache.refresh("WebMercator"));
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	public void testMaximumFeatures() throws Exception {
+		cache.refresh("Wgs84");
+		cache.add("Wgs84", new Point(4, 4), 4);
+		cache.add("Wgs84", new Point(5, 5), 5);
+		assertEquals(5, cache.size());
+		// Beyond the maximum, the index is released until its next load
+		cache.add("Wgs84", new Point(6, 6), 6);
+		assertEquals(0, cache.size());
+		assertFalse(cache.refresh("Wgs84"));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testTableTooLarge() throws Exception {
+		featuresInTable = 6;
+		assertFalse(cache.refresh("Wgs84"));
+		assertEquals(0, cache.size());
+		// Not retried before the expiration
+		assertFalse(cache.refresh("Wgs84"));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		cache.refresh("Wgs84");
+		cache.invalidate();
+		assertEquals(0, cache.size());
+		assertTrue(cache.refresh("Wgs84"));
+		assertEquals(2, loads.get());
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.Point;
+
+/**
+ * Testing the lookups of {@link GeoQueryLocator}, one geo-query per record.
+ */
+public class GeoQueryLocatorTest {
+
+	private final static PointGridIndex.PointDistance EUCLIDEAN = (x1, y1, x2, y2) -> Math.hypot(x2 - x1, y2 - y1);
+
+	/**
+	 * Feature holding its location and its attributes
+	 */
+	private static class TestFeature implements Feature {
+		private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+		private final Point point;
+
+		TestFeature(final double x, final double y) {
+			this(new Point(x, y));
+		}
+
+		TestFeature(final Geometry point) {
+			this.point = (Point) point;
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public Geometry getGeometry() {
+			return point;
+		}
+
+		@Override
+		public void setGeometry(final Geometry geometry) {
+		}
+
+		@Override
+		public FeatureTable getFeatureTable() {
+			return null;
+		}
+	}
+
+	/**
+	 * Feature saved on the server, <code>null</code> if none
+	 */
+	private Feature saved = null;
+
+	private final GeoQueryLocator locator = new GeoQueryLocator(point -> {
+		if ((saved == null) || (EUCLIDEAN.distance(point.getX(), point.getY(), ((Point) saved.getGeometry()).getX(),
+				((Point) saved.getGeometry()).getY()) > 1)) {
+			return null;
+		}
+		// Each geo-query returns its own copy of the feature
+		final TestFeature copy = new TestFeature(saved.getGeometry());
+		copy.getAttributes().putAll(saved.getAttributes());
+		return copy;
+	}, "OBJECTID", 1, EUCLIDEAN);
+
+	@Test
+	public void testCreatedFeature() throws Exception {
+		final Point point = new Point(5, 5);
+		assertNull(locator.locate(point));
+		final Feature created = new TestFeature(5, 5);
+		locator.created(point, created);
+
+		// Not saved yet on the server, but found by the next records of the block
+		assertSame(created, locator.locate(new Point(5.5, 5)));
+		assertNull(locator.locate(new Point(7, 5)));
+	}
+
+	@Test
+	public void testNearestFeature() throws Exception {
+		final TestFeature created = new TestFeature(5, 5);
+		locator.created(created.point, created);
+		saved = new TestFeature(5.8, 5);
+		assertEquals(5.8, ((Point) locator.locate(new Point(5.6, 5)).getGeometry()).getX(), 0);
+		assertSame(created, locator.locate(new Point(5.2, 5)));
+	}
+
+	@Test
+	public void testSameFeatureTwice() throws Exception {
+		saved = new TestFeature(5, 5);
+		saved.getAttributes().put("OBJECTID", 1L);
+		saved.getAttributes().put("hit", 1);
+		final Feature first = locator.locate(new Point(5, 5));
+		first.getAttributes().put("hit", 2);
+
+		// The second record edits the instance already edited, instead of another copy
+		final Feature second = locator.locate(new Point(5.5, 5));
+		assertSame(first, second);
+		assertEquals(2, second.getAttributes().get("hit"));
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Testing the pool of handles leased by the tasks {@link HandlePool}.
+ */
+public class HandlePoolTest {
+
+	private final AtomicInteger created = new AtomicInteger(0);
+
+	@Test
+	public void testReuse() throws Exception {
+		final HandlePool<Integer> pool = new HandlePool<Integer>(created::incrementAndGet, 2);
+		final Integer first = pool.lease(100);
+		pool.release(first);
+		assertSame(first, pool.lease(100));
+		assertEquals(1, created.get());
+
+		// A handle discarded is replaced by a new one
+		pool.discard(first);
+		assertEquals(2, pool.lease(100).intValue());
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	@Test
+	public void testOffer() throws Exception {
+		final HandlePool<Integer> pool = new HandlePool<Integer>(created::incrementAndGet, 2);
+		pool.offer(42);
+		assertEquals(42, pool.lease(100).intValue());
+		assertEquals(1, pool.lease(100).intValue());
+		assertEquals(1, created.get());
+	}
+
+	@Test
+	public void testMaxHandles() throws Exception {
+		final HandlePool<Integer> pool = new HandlePool<Integer>(created::incrementAndGet, 2);
+		pool.lease(100);
+		pool.lease(100);
+		try {
+			pool.lease(50);
+			fail("Should send an exception");
+		} catch (Exception e) {
+		}
+		assertEquals(2, created.get());
+	}
+
+	@Test
+	public void testFactoryFailure() throws Exception {
+		final HandlePool<Integer> pool = new HandlePool<Integer>(() -> {
+			throw new Exception("Server down");
+		}, 1);
+		for (int i = 0; i < 2; i++) {
+			try {
+				pool.lease(50);
+				fail("Should send an exception");
+			} catch (Exception e) {
+				// The lease is given back
+				assertEquals("Server down", e.getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testExclusiveLeases() throws Exception {
+		final HandlePool<Integer> pool = new HandlePool<Integer>(created::incrementAndGet, 3);
+		final Set<Integer> leased = Collections.synchronizedSet(new HashSet<Integer>());
+		final AtomicInteger conflicts = new AtomicInteger(0);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int task = 0; task < 8; task++) {
+			executor.execute(() -> {
+				for (int i = 0; i < 1000; i++) {
+					try {
+						final Integer handle = pool.lease(10000);
+						if (!leased.add(handle)) {
+							conflicts.incrementAndGet();
+						}
+						leased.remove(handle);
+						pool.release(handle);
+					} catch (Exception e) {
+						conflicts.incrementAndGet();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(0, conflicts.get());
+		assertTrue(created.get() <= 3);
+	}
+}
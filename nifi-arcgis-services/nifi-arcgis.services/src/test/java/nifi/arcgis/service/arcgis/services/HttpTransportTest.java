@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import nifi.arcgis.service.arcgis.services.json.HttpTransport;
+
+/**
+ * Testing the HTTP transport of the REST calls {@link HttpTransport}, against a local server.
+ */
+public class HttpTransportTest {
+
+	private final static String JSON = "{\"folders\":[\"Utilities\",\"R\u00e9seaux\"]}";
+
+	private HttpServer server;
+
+	private String root;
+
+	/**
+	 * Client ports of the connections received by the server
+	 */
+	private final Set<Integer> connections = Collections.synchronizedSet(new HashSet<Integer>());
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/plain", exchange -> {
+			connections.add(exchange.getRemoteAddress().getPort());
+			final byte[] body = JSON.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		});
+		server.createContext("/gzip", exchange -> {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+				gzip.write(JSON.getBytes(StandardCharsets.UTF_8));
+			}
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			exchange.sendResponseHeaders(200, bytes.size());
+			try (OutputStream os = exchange.getResponseBody()) {
+				bytes.writeTo(os);
+			}
+		});
+		server.createContext("/hung", exchange -> {
+			try {
+				Thread.sleep(2000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			exchange.sendResponseHeaders(500, -1);
+			exchange.close();
+		});
+		server.start();
+		root = "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testKeepAlive() throws Exception {
+		final HttpTransport transport = new HttpTransport(1000, 1000);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(JSON, transport.get(root + "/plain", Collections.<String, String> emptyMap(),
+					(status, connection, body) -> HttpTransport.readBody(connection, body)));
+		}
+		// The connection is reused by the successive requests
+		assertEquals(1, connections.size());
+	}
+
+	@Test
+	public void testGzip() throws Exception {
+		final HttpTransport transport = new HttpTransport(1000, 1000);
+		assertEquals(JSON, transport.get(root + "/gzip", Collections.<String, String> emptyMap(),
+				(status, connection, body) -> HttpTransport.readBody(connection, body)));
+	}
+
+	@Test
+	public void testHead() throws Exception {
+		assertEquals(200, new HttpTransport(1000, 1000).head(root + "/plain"));
+	}
+
+	@Test
+	public void testReadTimeout() throws Exception {
+		final HttpTransport transport = new HttpTransport(1000, 200);
+		try {
+			transport.get(root + "/hung", Collections.<String, String> emptyMap(), (status, connection, body) -> status);
+			fail("Should send an exception");
+		} catch (SocketTimeoutException e) {
+		}
+	}
+}
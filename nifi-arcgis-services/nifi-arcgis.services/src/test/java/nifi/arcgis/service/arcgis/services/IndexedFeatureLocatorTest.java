@@ -0,0 +1,178 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.Point;
+
+/**
+ * Testing the lookups of {@link IndexedFeatureLocator} with the local index shared by several featureTables.
+ */
+public class IndexedFeatureLocatorTest {
+
+	private final static PointGridIndex.PointDistance EUCLIDEAN = (x1, y1, x2, y2) -> Math.hypot(x2 - x1, y2 - y1);
+
+	/**
+	 * Feature belonging to one featureTable leased
+	 */
+	private static class TestFeature implements Feature {
+		private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+		private final Point point;
+
+		private final String handle;
+
+		TestFeature(final String handle, final Point point, final Map<String, Object> attributes) {
+			this.handle = handle;
+			this.point = point;
+			this.attributes.putAll(attributes);
+		}
+
+		@Override
+		public Map<String, Object> getAttributes() {
+			return attributes;
+		}
+
+		@Override
+		public Geometry getGeometry() {
+			return point;
+		}
+
+		@Override
+		public void setGeometry(final Geometry geometry) {
+		}
+
+		@Override
+		public FeatureTable getFeatureTable() {
+			return null;
+		}
+	}
+
+	/**
+	 * Features saved on the server, by object id
+	 */
+	private final Map<Long, TestFeature> server = new ConcurrentHashMap<Long, TestFeature>();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	private FeatureIndexCache cache;
+
+	private void save(final long objectId, final double x, final double y) {
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		attributes.put("OBJECTID", objectId);
+		attributes.put("hit", 0);
+		server.put(objectId, new TestFeature("server", new Point(x, y), attributes));
+	}
+
+	/**
+	 * @return the query of the features of a featureTable leased, creating its own instances of the features
+	 */
+	private IndexedFeatureLocator.Fetcher fetcher(final String handle) {
+		return objectIds -> {
+			final List<Feature> features = new ArrayList<Feature>();
+			for (Long objectId : objectIds) {
+				final TestFeature saved = server.get(objectId);
+				features.add(new TestFeature(handle, saved.point, saved.attributes));
+			}
+			return features;
+		};
+	}
+
+	private IndexedFeatureLocator locator(final String handle, final Point... points) throws Exception {
+		return new IndexedFeatureLocator(cache, "Wgs84", "OBJECTID", points, 1, EUCLIDEAN, fetcher(handle));
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		save(1, 0, 0);
+		save(2, 10, 10);
+		cache = new FeatureIndexCache((index, spatialReference, maxFeatures) -> {
+			for (TestFeature feature : server.values()) {
+				index.add(feature.point.getX(), feature.point.getY(), (Long) feature.attributes.get("OBJECTID"));
+			}
+			return true;
+		}, 1, Long.MAX_VALUE, 100);
+		cache.refresh("Wgs84");
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentHandles() throws Exception {
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final List<Future<Feature>> located = new ArrayList<Future<Feature>>();
+		for (final String handle : new String[] { "first", "second" }) {
+			located.add(executor.submit((Callable<Feature>) () -> {
+				barrier.await();
+				final Feature feature = locator(handle, new Point(0.5, 0)).locate(new Point(0.5, 0));
+				feature.getAttributes().put("hit", handle);
+				return feature;
+			}));
+		}
+		final TestFeature first = (TestFeature) located.get(0).get();
+		final TestFeature second = (TestFeature) located.get(1).get();
+
+		// Each handle edits its own instance of the feature, fetched in its featureTable
+		assertNotSame(first, second);
+		assertEquals("first", first.handle);
+		assertEquals("first", first.getAttributes().get("hit"));
+		assertEquals("second", second.handle);
+		assertEquals("second", second.getAttributes().get("hit"));
+		assertEquals(1L, first.getAttributes().get("OBJECTID"));
+	}
+
+	@Test
+	public void testCreatedFeature() throws Exception {
+		final Point point = new Point(5, 5);
+		final IndexedFeatureLocator locator = locator("first", point, point);
+		assertNull(locator.locate(point));
+		final TestFeature created = new TestFeature("first", point, new HashMap<String, Object>());
+		locator.created(point, created);
+		// Found by the next records of the block, but not indexed before its edits are applied
+		assertSame(created, locator.locate(point));
+		assertNull(cache.nearest("Wgs84", point, 1, EUCLIDEAN));
+
+		// The server gives the object id
+		created.getAttributes().put("OBJECTID", 3L);
+		save(3, 5, 5);
+		locator.applied();
+		assertEquals(Long.valueOf(3), cache.nearest("Wgs84", point, 1, EUCLIDEAN));
+		assertEquals("second", ((TestFeature) locator("second", point).locate(point)).handle);
+	}
+
+	@Test
+	public void testUnknownObjectId() throws Exception {
+		final Point point = new Point(5, 5);
+		final IndexedFeatureLocator locator = locator("first", point);
+		locator.created(point, new TestFeature("first", point, new HashMap<String, Object>()));
+		locator.applied();
+		// The index is reloaded at its next refresh
+		assertEquals(0, cache.size());
+	}
+}
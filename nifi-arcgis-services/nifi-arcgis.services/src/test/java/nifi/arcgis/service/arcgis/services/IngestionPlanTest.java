@@ -0,0 +1,182 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esri.arcgisruntime.data.Field;
+
+/**
+ * Testing the compiled ingestion plan {@link IngestionPlan}.
+ */
+public class IngestionPlanTest {
+
+	private Map<String, ArcGISTableField> tableFields;
+
+	private Map<String, Object> settings;
+
+	@Before
+	public void init() {
+		tableFields = new HashMap<String, ArcGISTableField>();
+		tableFields.put("name", new ArcGISTableField("name", Field.Type.TEXT));
+		tableFields.put("hit", new ArcGISTableField("hit", Field.Type.INTEGER));
+		tableFields.put("ratio", new ArcGISTableField("ratio", Field.Type.DOUBLE));
+		settings = new HashMap<String, Object>();
+		settings.put(ArcGISLayerServiceAPI.OPERATION, ArcGISLayerServiceAPI.OPERATION_UPDATE_OR_INSERT);
+		settings.put(ArcGISLayerServiceAPI.UPDATE_FIELD_LIST, Arrays.asList("+hit", "-ratio", "name"));
+	}
+
+	private Map<String, String> record(final String name, final String hit, final String ratio) {
+		final Map<String, String> record = new HashMap<String, String>();
+		record.put("name", name);
+		record.put("hit", hit);
+		record.put("ratio", ratio);
+		record.put("latitude", "48.85");
+		record.put("longitude", "2.35");
+		return record;
+	}
+
+	@Test
+	public void testRecordPlan() throws Exception {
+		final IngestionPlan plan = IngestionPlan.compile(tableFields, record("Paris", "1", "0.5"), settings);
+		assertTrue(plan.insertMissing);
+		assertFalse(plan.updateOnly);
+
+		final Map<String, Object> attributes = plan.createAttributes(record("Paris", "1", "0.5"));
+		// The coordinates are not fields of the featureTable
+		assertEquals(3, attributes.size());
+		assertEquals("Paris", attributes.get("name"));
+		assertEquals(1, attributes.get("hit"));
+		assertEquals(0.5, (Double) attributes.get("ratio"), 0);
+		assertNotNull(plan.createPoint(record("Paris", "1", "0.5")));
+
+		plan.update(attributes, record("Lutece", "2", "0.25"));
+		assertEquals("Lutece", attributes.get("name"));
+		assertEquals(3, attributes.get("hit"));
+		assertEquals(0.25, (Double) attributes.get("ratio"), 0);
+	}
+
+	@Test
+	public void testNullValues() throws Exception {
+		final IngestionPlan plan = IngestionPlan.compile(tableFields, record("Paris", null, null), settings);
+		final Map<String, Object> attributes = plan.createAttributes(record("Paris", null, null));
+		assertTrue(attributes.containsKey("hit"));
+		assertEquals(null, attributes.get("hit"));
+
+		// Null values are not updated
+		attributes.put("hit", 3);
+		plan.update(attributes, record("Lutece", null, null));
+		assertEquals(3, attributes.get("hit"));
+		assertEquals("Lutece", attributes.get("name"));
+	}
+
+	@Test
+	public void testIntegerOperations() throws Exception {
+		final Map<String, Object> dbAttributes = new HashMap<String, Object>();
+		dbAttributes.put("hit", 1);
+		for (final String operation : Arrays.asList("+hit", "-hit", "hit")) {
+			settings.put(ArcGISLayerServiceAPI.UPDATE_FIELD_LIST, Arrays.asList(operation));
+			final IngestionPlan plan = IngestionPlan.compile(tableFields, record("Paris", "4", "0.5"), settings);
+			plan.update(dbAttributes, record("Paris", "4", "0.5"));
+		}
+		// 1 + 4 = 5, 5 - 4 = 1, then 4 assigned
+		assertEquals(4, dbAttributes.get("hit"));
+		settings.put(ArcGISLayerServiceAPI.UPDATE_FIELD_LIST, Arrays.asList("-hit"));
+		IngestionPlan.compile(tableFields, record("Paris", "4", "0.5"), settings).update(dbAttributes,
+				record("Paris", "7", "0.5"));
+		assertEquals(-3, dbAttributes.get("hit"));
+	}
+
+	@Test
+	public void testBatchPlan() throws Exception {
+		final Map<String, ColumnType> schema = new HashMap<String, ColumnType>();
+		schema.put("hit", ColumnType.INTEGER);
+		// ratio is received as text, and converted into the type of its field
+		final RecordBatch batch = new RecordBatch(Arrays.asList("name", "hit", "ratio", "latitude", "longitude"), schema, 2);
+		final int row = batch.newRow();
+		batch.setValue(row, 0, "Paris");
+		batch.setValue(row, 1, "4");
+		batch.setValue(row, 2, "1.5");
+		batch.setValue(row, 3, "48.85");
+		batch.setValue(row, 4, "2.35");
+		final int empty = batch.newRow();
+		batch.setValue(empty, 0, "Nowhere");
+		batch.setNull(empty, 1);
+		batch.setNull(empty, 2);
+
+		final IngestionPlan plan = IngestionPlan.compile(tableFields, batch, settings);
+		final Map<String, Object> attributes = plan.createAttributes(batch, row);
+		assertEquals(4, attributes.get("hit"));
+		assertEquals(1.5, (Double) attributes.get("ratio"), 0);
+
+		final Map<String, Object> dbAttributes = new HashMap<String, Object>();
+		dbAttributes.put("hit", 10);
+		dbAttributes.put("ratio", 2.0);
+		plan.update(dbAttributes, batch, row);
+		assertEquals(14, dbAttributes.get("hit"));
+		assertEquals(0.5, (Double) dbAttributes.get("ratio"), 0);
+		// Null values are not updated
+		plan.update(dbAttributes, batch, empty);
+		assertEquals(14, dbAttributes.get("hit"));
+		assertEquals("Nowhere", dbAttributes.get("name"));
+	}
+
+	@Test
+	public void testMatches() throws Exception {
+		final Map<String, String> record = record("Paris", "1", "0.5");
+		final IngestionPlan plan = IngestionPlan.compile(tableFields, record, settings);
+		assertTrue(plan.matches(record("Lutece", "2", "0.5"), new HashMap<String, Object>(settings)));
+
+		final Map<String, Object> otherSettings = new HashMap<String, Object>(settings);
+		otherSettings.put(ArcGISLayerServiceAPI.SPATIAL_REFERENCE, ArcGISLayerServiceAPI.SPATIAL_REFERENCE_WGS84);
+		assertFalse(plan.matches(record, otherSettings));
+
+		final Map<String, String> otherRecord = record("Paris", "1", "0.5");
+		otherRecord.remove("ratio");
+		otherRecord.put("comment", "");
+		assertFalse(plan.matches(otherRecord, settings));
+
+		final RecordBatch batch = new RecordBatch(Arrays.asList("name", "latitude", "longitude"),
+				new HashMap<String, ColumnType>(), 1);
+		assertFalse(plan.matches(batch, settings));
+		assertTrue(IngestionPlan.compile(tableFields, batch, settings).matches(batch.emptyCopy(), settings));
+	}
+
+	@Test
+	public void testPointStrategy() throws Exception {
+		final Map<String, String> record = new HashMap<String, String>();
+		record.put("name", "Paris");
+		final IngestionPlan plan = IngestionPlan.compile(tableFields, record, settings);
+		try {
+			plan.createPoint(record);
+			fail("Should send an exception");
+		} catch (Exception e) {
+		}
+	}
+
+	@Test(expected = Exception.class)
+	public void testInvalidSpatialReference() throws Exception {
+		settings.put(ArcGISLayerServiceAPI.SPATIAL_REFERENCE, "Mars");
+		IngestionPlan.compile(tableFields, record("Paris", "1", "0.5"), settings);
+	}
+
+	@Test(expected = Exception.class)
+	public void testUnhandledType() throws Exception {
+		tableFields.put("OBJECTID", new ArcGISTableField("OBJECTID", Field.Type.OID));
+		final Map<String, String> record = record("Paris", "1", "0.5");
+		record.put("OBJECTID", "1");
+		IngestionPlan.compile(tableFields, record, settings);
+	}
+}
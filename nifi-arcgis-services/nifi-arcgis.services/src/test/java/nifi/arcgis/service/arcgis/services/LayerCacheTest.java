@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Testing the LRU cache of the layers loaded by a service {@link LayerCache}.
+ */
+public class LayerCacheTest {
+
+	private final AtomicLong now = new AtomicLong(0);
+
+	private final AtomicInteger loads = new AtomicInteger(0);
+
+	private final List<String> evicted = Collections.synchronizedList(new ArrayList<String>());
+
+	private LayerCache<String> cache(final int maxLayers, final long idleTimeout) {
+		return new LayerCache<String>(path -> {
+			loads.incrementAndGet();
+			return "layer:" + path;
+		}, evicted::add, maxLayers, idleTimeout, now::get);
+	}
+
+	@Test
+	public void testLeastRecentlyUsed() throws Exception {
+		final LayerCache<String> cache = cache(2, 60000);
+		assertEquals("layer:north", cache.get("north"));
+		cache.get("south");
+		// north becomes the most recently used
+		cache.get("north");
+		assertEquals(2, loads.get());
+
+		cache.get("east");
+		assertEquals(Collections.singletonList("layer:south"), evicted);
+		assertEquals(2, cache.size());
+		cache.get("north");
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	public void testIdleTimeout() throws Exception {
+		final LayerCache<String> cache = cache(4, 1000);
+		cache.get("north");
+		now.set(500);
+		cache.get("south");
+		now.set(1200);
+		cache.get("south");
+		assertEquals(Collections.singletonList("layer:north"), evicted);
+		assertEquals(1, cache.size());
+
+		cache.clear();
+		assertEquals(2, evicted.size());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testFailedLoad() throws Exception {
+		final LayerCache<String> cache = new LayerCache<String>(path -> {
+			if (loads.incrementAndGet() == 1) {
+				throw new Exception("Layer unreachable");
+			}
+			return "layer:" + path;
+		}, evicted::add, 2, 60000, now::get);
+		try {
+			cache.get("north");
+			fail("Should send an exception");
+		} catch (Exception e) {
+			assertEquals("Layer unreachable", e.getMessage());
+		}
+		assertEquals(0, cache.size());
+		assertEquals("layer:north", cache.get("north"));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testSingleLoad() throws Exception {
+		final CountDownLatch loading = new CountDownLatch(1);
+		final LayerCache<String> cache = new LayerCache<String>(path -> {
+			loads.incrementAndGet();
+			loading.await(10, TimeUnit.SECONDS);
+			return "layer:" + path;
+		}, evicted::add, 2, 60000, now::get);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<String>> lookups = new ArrayList<Future<String>>();
+		for (int task = 0; task < 4; task++) {
+			lookups.add(executor.submit(() -> cache.get("north")));
+		}
+		Thread.sleep(100);
+		loading.countDown();
+		final String layer = lookups.get(0).get();
+		for (final Future<String> lookup : lookups) {
+			assertSame(layer, lookup.get());
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(1, loads.get());
+	}
+}
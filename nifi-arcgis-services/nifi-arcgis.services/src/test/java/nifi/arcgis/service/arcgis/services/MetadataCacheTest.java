@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.json.MetadataCache;
+
+/**
+ * Testing the cache of the REST directory {@link MetadataCache}.
+ */
+public class MetadataCacheTest {
+
+	private final static String URL = "http://localhost:6080/arcgis/rest/services?f=pjson";
+
+	private final AtomicLong clock = new AtomicLong(0);
+
+	private final AtomicInteger requests = new AtomicInteger(0);
+
+	@Test
+	public void testTimeToLive() throws Exception {
+		final MetadataCache cache = new MetadataCache((address, etag, lastModified) -> {
+			requests.incrementAndGet();
+			return new MetadataCache.Response(200, "{\"folders\":[]}", null, null);
+		}, clock::get);
+
+		assertFalse(cache.isFresh(URL, 1000));
+		assertEquals("{\"folders\":[]}", cache.get(URL, 1000));
+		clock.set(999);
+		assertTrue(cache.isFresh(URL, 1000));
+		cache.get(URL, 1000);
+		assertEquals(1, requests.get());
+		clock.set(1000);
+		cache.get(URL, 1000);
+		assertEquals(2, requests.get());
+	}
+
+	@Test
+	public void testConditionalRevalidation() throws Exception {
+		final List<String> conditions = new ArrayList<String>();
+		final MetadataCache cache = new MetadataCache((address, etag, lastModified) -> {
+			conditions.add(etag);
+			if ("\"v1\"".equals(etag)) {
+				return new MetadataCache.Response(304, null, null, null);
+			}
+			return new MetadataCache.Response(200, "{\"layers\":[]}", "\"v1\"", "Mon, 02 Jan 2017 10:00:00 GMT");
+		}, clock::get);
+
+		cache.get(URL, 1000);
+		clock.set(5000);
+		// The server answers "not modified" : the cached body is kept alive
+		assertEquals("{\"layers\":[]}", cache.get(URL, 1000));
+		assertTrue(cache.isFresh(URL, 1000));
+		assertEquals(2, conditions.size());
+		assertNull(conditions.get(0));
+		assertEquals("\"v1\"", conditions.get(1));
+	}
+
+	@Test
+	public void testHttpError() throws Exception {
+		final MetadataCache cache = new MetadataCache(
+				(address, etag, lastModified) -> new MetadataCache.Response(404, null, null, null), clock::get);
+		try {
+			cache.get(URL, 1000);
+			fail("Should send an exception");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("404"));
+		}
+		assertFalse(cache.isFresh(URL, 1000));
+	}
+
+	@Test
+	public void testSingleFlight() throws Exception {
+		final CountDownLatch requested = new CountDownLatch(1);
+		final CountDownLatch answered = new CountDownLatch(1);
+		final MetadataCache cache = new MetadataCache((address, etag, lastModified) -> {
+			requests.incrementAndGet();
+			requested.countDown();
+			try {
+				answered.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new MetadataCache.Response(200, "{\"services\":[]}", null, null);
+		}, clock::get);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		final List<Future<String>> lookups = new ArrayList<Future<String>>();
+		lookups.add(executor.submit(() -> cache.get(URL, 1000)));
+		assertTrue(requested.await(10, TimeUnit.SECONDS));
+		for (int i = 1; i < 8; i++) {
+			lookups.add(executor.submit(() -> cache.get(URL, 1000)));
+		}
+		answered.countDown();
+		for (Future<String> lookup : lookups) {
+			assertEquals("{\"services\":[]}", lookup.get(10, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void testErrorInFlight() throws Exception {
+		final CountDownLatch requested = new CountDownLatch(1);
+		final CountDownLatch answered = new CountDownLatch(1);
+		final MetadataCache cache = new MetadataCache((address, etag, lastModified) -> {
+			requested.countDown();
+			try {
+				answered.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			throw new NoClassDefFoundError("com/esri/arcgisruntime/Missing");
+		}, clock::get);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		final List<Future<String>> lookups = new ArrayList<Future<String>>();
+		lookups.add(executor.submit(() -> cache.get(URL, 1000)));
+		assertTrue(requested.await(10, TimeUnit.SECONDS));
+		lookups.add(executor.submit(() -> cache.get(URL, 1000)));
+		answered.countDown();
+		// The lookup waiting for the failed request is released with its error
+		for (Future<String> lookup : lookups) {
+			try {
+				lookup.get(10, TimeUnit.SECONDS);
+				fail("Should send an error");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof NoClassDefFoundError);
+			}
+		}
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import nifi.arcgis.service.arcgis.services.PhaseMetrics.Phase;
+
+/**
+ * Testing the timers of the phases {@link PhaseMetrics}, and their {@link LatencyHistogram}.
+ */
+public class PhaseMetricsTest {
+
+	@Test
+	public void testBuckets() {
+		for (long nanos : new long[] { 0, 1, 7, 8, 15, 16, 1000, 123456789, 1L << 45 }) {
+			final int index = LatencyHistogram.index(nanos);
+			assertTrue(LatencyHistogram.lowerBound(index) <= nanos);
+			assertTrue(nanos < LatencyHistogram.lowerBound(index + 1));
+		}
+		// The latencies beyond the highest power of two share the last bucket
+		assertEquals(LatencyHistogram.index(1L << 46), LatencyHistogram.index(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testPercentiles() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(0.5));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500000, histogram.getPercentile(0.5), 500000 * 0.125);
+		assertEquals(990000, histogram.getPercentile(0.99), 990000 * 0.125);
+		assertTrue(histogram.getPercentile(0.999) >= 999000);
+	}
+
+	@Test
+	public void testPublish() {
+		final PhaseMetrics metrics = new PhaseMetrics();
+		metrics.get(Phase.PARSE).record(TimeUnit.MILLISECONDS.toNanos(3), 100);
+		metrics.get(Phase.PARSE).record(TimeUnit.MILLISECONDS.toNanos(5), 50);
+
+		final Map<String, Long> counters = new HashMap<String, Long>();
+		metrics.publish((name, delta) -> counters.merge(name, delta, Long::sum));
+		assertEquals(3, counters.size());
+		assertEquals(2, counters.get("ArcGIS parse count").longValue());
+		assertEquals(150, counters.get("ArcGIS parse items").longValue());
+		assertEquals(8, counters.get("ArcGIS parse time (ms)").longValue());
+		assertEquals(5, metrics.get(Phase.PARSE).getMaxMillis(), 0);
+
+		// Only the increases are published
+		metrics.get(Phase.PARSE).record(TimeUnit.MILLISECONDS.toNanos(1), 10);
+		counters.clear();
+		metrics.publish((name, delta) -> counters.merge(name, delta, Long::sum));
+		assertEquals(1, counters.get("ArcGIS parse count").longValue());
+		assertEquals(10, counters.get("ArcGIS parse items").longValue());
+	}
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		final PhaseMetrics metrics = new PhaseMetrics();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int task = 0; task < 4; task++) {
+			executor.execute(() -> {
+				for (int i = 1; i <= 10000; i++) {
+					metrics.get(Phase.APPLY_EDITS).record(i, 2);
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+		final PhaseMetrics.Timer timer = metrics.get(Phase.APPLY_EDITS);
+		assertEquals(40000, timer.getCount());
+		assertEquals(80000, timer.getItems());
+		assertEquals(10000 / 1e6, timer.getMaxMillis(), 0);
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+		final PhaseMetrics metrics = new PhaseMetrics();
+		metrics.get(Phase.FEATURE_LOAD).record(TimeUnit.MILLISECONDS.toNanos(2), 1);
+		metrics.register("test");
+		final ObjectName name = new ObjectName("nifi.arcgis:type=PhaseMetrics,component=\"test\",phase=FEATURE_LOAD");
+		assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count"));
+		metrics.unregister();
+		assertTrue(!ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Testing the grid index {@link PointGridIndex} used by the batched spatial lookup.
+ */
+public class PointGridIndexTest {
+
+	private final static PointGridIndex.PointDistance EUCLIDEAN = (x1, y1, x2, y2) -> Math.hypot(x2 - x1, y2 - y1);
+
+	@Test
+	public void testNearestInsideRadius() {
+		PointGridIndex<String> index = new PointGridIndex<String>(10);
+		index.add(0, 0, "origin");
+		index.add(8, 0, "east");
+		index.add(-3, -4, "south-west");
+		assertEquals(3, index.size());
+
+		assertEquals("east", index.nearest(7, 0, 10, EUCLIDEAN));
+		assertEquals("origin", index.nearest(1, 0, 10, EUCLIDEAN));
+		// Exactly on the radius
+		assertEquals("south-west", index.nearest(-6, -8, 5, EUCLIDEAN));
+		assertNull(index.nearest(50, 50, 10, EUCLIDEAN));
+	}
+
+	@Test
+	public void testNearestAcrossCells() {
+		PointGridIndex<String> index = new PointGridIndex<String>(1);
+		index.add(-0.5, -0.5, "negative");
+		index.add(2.9, 0, "far");
+		// The search radius covers several cells, including the negative ones
+		assertEquals("negative", index.nearest(0.2, 0.2, 1.5, EUCLIDEAN));
+		assertEquals("far", index.nearest(1.5, 0, 1.5, EUCLIDEAN));
+	}
+
+	@Test
+	public void testRemoveAndClear() {
+		PointGridIndex<String> index = new PointGridIndex<String>(10);
+		index.add(1, 1, "first");
+		index.add(1, 1, "second");
+		assertTrue(index.remove(1, 1, "first"));
+		assertFalse(index.remove(1, 1, "first"));
+		assertEquals("second", index.nearest(1, 1, 1, EUCLIDEAN));
+		assertEquals(1, index.size());
+
+		index.clear();
+		assertEquals(0, index.size());
+		assertNull(index.nearest(1, 1, 1, EUCLIDEAN));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCellSize() {
+		new PointGridIndex<String>(0);
+	}
+}
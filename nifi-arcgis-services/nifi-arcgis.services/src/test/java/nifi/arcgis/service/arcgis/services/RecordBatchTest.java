@@ -0,0 +1,110 @@
+/**
+ * 
+ */
+package nifi.arcgis.service.arcgis.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Testing the column-oriented block of records {@link RecordBatch}.
+ */
+public class RecordBatchTest {
+
+	private RecordBatch createBatch() {
+		Map<String, ColumnType> schema = new HashMap<String, ColumnType>();
+		schema.put("name", ColumnType.TEXT);
+		schema.put("hit", ColumnType.INTEGER);
+		schema.put("latitude", ColumnType.TEXT);
+		return new RecordBatch(Arrays.asList("name", "hit", "latitude", "longitude", "comment"), schema, 1);
+	}
+
+	@Test
+	public void testColumnTypes() {
+		RecordBatch batch = createBatch();
+		assertEquals(ColumnType.TEXT, batch.getColumnType(batch.getColumn("name")));
+		assertEquals(ColumnType.INTEGER, batch.getColumnType(batch.getColumn("hit")));
+		// Geometry columns are always stored as double
+		assertEquals(ColumnType.DOUBLE, batch.getColumnType(batch.getColumn("latitude")));
+		assertEquals(ColumnType.DOUBLE, batch.getColumnType(batch.getColumn("longitude")));
+		// Unknown field in the schema
+		assertEquals(ColumnType.TEXT, batch.getColumnType(batch.getColumn("comment")));
+		assertEquals(-1, batch.getColumn("unknown"));
+		assertTrue(batch.hasGeometry());
+		assertFalse(batch.hasZ());
+	}
+
+	@Test
+	public void testFillAndGrow() {
+		RecordBatch batch = createBatch();
+		for (int i = 0; i < 3; i++) {
+			int row = batch.newRow();
+			batch.setValue(row, 0, "town" + i);
+			batch.setValue(row, 1, String.valueOf(i));
+			batch.setValue(row, 2, "49.5");
+			batch.setValue(row, 3, (i == 2) ? "" : "2.25");
+			batch.setValue(row, 4, "");
+		}
+		assertEquals(3, batch.size());
+		assertEquals("town2", batch.getString(2, 0));
+		assertEquals(2, batch.getInt(2, 1));
+		assertEquals(Integer.valueOf(1), batch.getValue(1, 1));
+		assertEquals(49.5, batch.getX(0), 0);
+		assertEquals(2.25, batch.getY(0), 0);
+		assertFalse(batch.isGeometryNull(1));
+		assertTrue(batch.isGeometryNull(2));
+		assertNull(batch.getValue(2, 3));
+		assertEquals("", batch.getValue(2, 4));
+	}
+
+	@Test
+	public void testToRecords() {
+		RecordBatch batch = createBatch();
+		int row = batch.newRow();
+		batch.setString(row, 0, "Paris");
+		batch.setInt(row, 1, 4);
+		batch.setDouble(row, 2, 48.85);
+		batch.setNull(row, 3);
+		batch.setString(row, 4, "capital");
+		List<Map<String, String>> records = batch.toRecords();
+		assertEquals(1, records.size());
+		assertEquals("Paris", records.get(0).get("name"));
+		assertEquals("4", records.get(0).get("hit"));
+		assertEquals("48.85", records.get(0).get("latitude"));
+		assertEquals("", records.get(0).get("longitude"));
+		assertEquals("capital", records.get(0).get("comment"));
+	}
+
+	@Test
+	public void testEmptyCopy() {
+		RecordBatch batch = createBatch();
+		batch.setValue(batch.newRow(), 0, "Paris");
+		RecordBatch copy = batch.emptyCopy();
+		assertEquals(0, copy.size());
+		assertEquals(batch.getFieldNames(), copy.getFieldNames());
+		assertEquals(ColumnType.INTEGER, copy.getColumnType(1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRowOutOfBounds() {
+		createBatch().getString(0, 0);
+	}
+
+	@Test
+	public void testComputeValue() {
+		assertEquals(5, ArcGISDataManager.computeValue('+', 1, 4));
+		assertEquals(-3, ArcGISDataManager.computeValue('-', 1, 4));
+		assertEquals(4, ArcGISDataManager.computeValue('h', 1, 4));
+		assertEquals(3.5, (Double) ArcGISDataManager.computeValue('+', 1.5, 2.0), 0);
+		assertEquals("new", ArcGISDataManager.computeValue('+', "old", "new"));
+	}
+}
@@ -6,8 +6,6 @@ package nifi.arcgis.service.arcgis.services;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.nifi.util.TestRunner;
-import org.apache.nifi.util.TestRunners;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.Assert;
@@ -20,15 +18,13 @@ import junit.framework.AssertionFailedError;
  */
 public class TestCreateGeometry {
 
-	TestRunner runner;
-	ArcGISDataManager dataManager;
+	Map<String, ArcGISTableField> tableFields;
 	Map<String, String> records;
 	Map<String, Object> settings;
 
 	@Before
 	public void init() {
-		runner = TestRunners.newTestRunner(TestProcessor.class);
-		dataManager = new ArcGISDataManager(runner.getLogger());
+		tableFields = new HashMap<String, ArcGISTableField>();
 		records = new HashMap<String, String>();
 		settings = new HashMap<String, Object>();		
 	}
@@ -38,7 +34,7 @@ public class TestCreateGeometry {
 		records.put("n/a", "test");
 		records.put("x", "test");
 		try {
-			dataManager.createPoint(records, settings);
+			IngestionPlan.compile(tableFields, records, settings).createPoint(records);
 			Assert.fail("Should send an exception");
 		} catch (Exception e) {
 		}
@@ -49,7 +45,7 @@ public class TestCreateGeometry {
 		records.put("n/a", "test");
 		records.put("y", "test");
 		try {
-			dataManager.createPoint(records, settings);
+			IngestionPlan.compile(tableFields, records, settings).createPoint(records);
 			Assert.fail("Should send an exception");
 		} catch (Exception e) {
 		}
@@ -61,7 +57,7 @@ public class TestCreateGeometry {
 		records.put("x", "1");
 		records.put("y", "2");
 		try {
-			dataManager.createPoint(records, settings);
+			IngestionPlan.compile(tableFields, records, settings).createPoint(records);
 		} catch (Exception e) {
 			e.printStackTrace();
 			Assert.fail("Should NOT send an exception");
@@ -73,7 +69,7 @@ public class TestCreateGeometry {
 		records.put("n/a", "test");
 		records.put("longitude", "test");
 		try {
-			dataManager.createPoint(records, settings);
+			IngestionPlan.compile(tableFields, records, settings).createPoint(records);
 			Assert.fail("Should send an exception");
 		} catch (Exception e) {
 		}
@@ -84,7 +80,7 @@ public class TestCreateGeometry {
 		records.put("n/a", "test");
 		records.put("lattitude", "test");
 		try {
-			dataManager.createPoint(records, settings);
+			IngestionPlan.compile(tableFields, records, settings).createPoint(records);
 			Assert.fail("Should send an exception");
 		} catch (Exception e) {
 		}
@@ -96,7 +92,7 @@ public class TestCreateGeometry {
 		records.put("latitude", "1");
 		records.put("longitude", "2");
 		try {
-			dataManager.createPoint(records, settings);
+			IngestionPlan.compile(tableFields, records, settings).createPoint(records);
 		} catch (Exception e) {
 			e.printStackTrace();
 			Assert.fail("Should NOT send an exception");
@@ -26,6 +26,7 @@ import org.junit.Test;
 import org.omg.PortableServer.ServantRetentionPolicyValue;
 
 import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.geometry.Point;
 
 /**
  * Test the execution of a flow
@@ -102,7 +103,7 @@ public class TestServiceExcecute {
         service.setArcGISDataManager(dataManager);
         service.execute(records, settings);      
         
-        Feature feature = dataManager.geoQuery(record, settings);
+        Feature feature = geoQuery(dataManager, record, settings);
         assertEquals("city-test", feature.getAttributes().get("name"));
         
         cleanupDB();
@@ -154,7 +155,7 @@ public class TestServiceExcecute {
         service.execute(records, settings);
         
 //        dataManager.reinitializeFeatureTable();
-        Feature feature = dataManager.geoQuery(record, settings);
+        Feature feature = geoQuery(dataManager, record, settings);
         assertEquals("Paris", feature.getAttributes().get("name"));
         assertEquals(new Integer(1), feature.getAttributes().get("hit"));
   
@@ -168,6 +169,15 @@ public class TestServiceExcecute {
         */
     }
     
+    /**
+     * Select the feature around a record, with a featureTable leased from the pool.
+     */
+    private Feature geoQuery(final ArcGISDataManager dataManager, final Map<String, String> record,
+            final Map<String, Object> settings) throws Exception {
+        final Point point = dataManager.getPlan(record, settings).createPoint(record);
+        return dataManager.withHandle(handle -> dataManager.geoQuery(handle, point, settings));
+    }
+
     private void cleanupDB() throws Exception {
     	
     	Class.forName("org.postgresql.Driver");
@@ -233,14 +243,14 @@ public class TestServiceExcecute {
 	        
 	        service.execute(records, settings);
 	        
-	        Feature feature = dataManager.geoQuery(record1, settings);
+	        Feature feature = geoQuery(dataManager, record1, settings);
 	        assertEquals("Nashville", feature.getAttributes().get("name"));
 	        assertEquals(new Integer(2), feature.getAttributes().get("hit"));
 
 	        // cleanupDB();
 	        /*
 	        dataManager.reinitializeFeatureTable();
-	        Feature feature = dataManager.geoQuery(record, settings);
+	        Feature feature = geoQuery(dataManager, record, settings);
 	        assertEquals("Paris", feature.getAttributes().get("name"));
 	        assertEquals(new Integer(1), feature.getAttributes().get("hit"));
 	               
@@ -64,11 +64,8 @@ public class TestStandardMyService {
         ValidationResult vr = runner.setProperty(service, ArcGISLayerService.ARCGIS_URL, BAD_URL);
         assertFalse (vr.isValid());
  
-        // In version 1.1.1, onPropertyModified is not invoked
-        // We leave assertFalse in  order to be notified of the fix 
-        assertFalse("[FIX OCCURS IN NIFI] onPropertyModified has been called", ((ArcGISLayerService) service).isOpmCalled());
-       // Test of the connection is added directly here
-        runner.getControllerService(nameControllerService).onPropertyModified(ArcGISLayerService.ARCGIS_URL, "", "BAD_URL");
+        // In version 1.1.1, onPropertyModified was not invoked : it is since NiFi 1.4.0
+        assertTrue("onPropertyModified has not been called", ((ArcGISLayerService) service).isOpmCalled());
  
         runner.enableControllerService(service);
         runner.assertNotValid(service);